@@ -0,0 +1,262 @@
+package at.enactmentengine.serverless.benchmark;
+
+import at.enactmentengine.serverless.nodes.ExecutableWorkflow;
+import at.enactmentengine.serverless.nodes.FunctionNode;
+import at.enactmentengine.serverless.parser.Language;
+import at.enactmentengine.serverless.parser.YAMLParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs generated workflows end-to-end against a {@link ZeroLatencyGateway} and reports the throughput of the engine
+ * together with the peak number of threads, the peak heap usage and the time spent in garbage collection.
+ * <p>
+ * Usage: {@code ThroughputHarness <wide|deep|nested|switch> <n> [m] [--runs=<runs>] [--warmup=<runs>]
+ * [--concurrency=<workflows>]}
+ *
+ * @author mikahautz
+ */
+public class ThroughputHarness {
+
+    /**
+     * Logger for the throughput harness.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ThroughputHarness.class);
+
+    /**
+     * The interval in milliseconds in which the used heap is sampled.
+     */
+    private static final long HEAP_SAMPLE_INTERVAL = 10;
+
+    /**
+     * The shape of the workflow.
+     */
+    private final WorkflowGenerator.Shape shape;
+
+    /**
+     * The first size of the workflow.
+     */
+    private final int n;
+
+    /**
+     * The second size of the workflow.
+     */
+    private final int m;
+
+    /**
+     * The generated workflow.
+     */
+    private final byte[] workflow;
+
+    /**
+     * The invoker of all functions.
+     */
+    private final ZeroLatencyGateway gateway = new ZeroLatencyGateway(WorkflowGenerator.FUNCTION_RESULT);
+
+    /**
+     * Creates a harness for a generated workflow.
+     *
+     * @param shape the shape of the workflow.
+     * @param n     the first size of the workflow.
+     * @param m     the second size of the workflow.
+     */
+    public ThroughputHarness(WorkflowGenerator.Shape shape, int n, int m) {
+        this.shape = shape;
+        this.n = n;
+        this.m = m;
+        this.workflow = WorkflowGenerator.generate(shape, n, m).getBytes(StandardCharsets.UTF_8);
+        FunctionNode.setGateway(gateway);
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            logger.error("Usage: ThroughputHarness <wide|deep|nested|switch> <n> [m] [--runs=<runs>] [--warmup=<runs>] "
+                    + "[--concurrency=<workflows>]");
+            return;
+        }
+        WorkflowGenerator.Shape shape = WorkflowGenerator.Shape.valueOf(args[0].toUpperCase(Locale.ROOT));
+        int n = Integer.parseInt(args[1]);
+        int m = 1;
+        int runs = 20;
+        int warmup = 5;
+        int concurrency = 1;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].startsWith("--runs=")) {
+                runs = Integer.parseInt(args[i].substring("--runs=".length()));
+            } else if (args[i].startsWith("--warmup=")) {
+                warmup = Integer.parseInt(args[i].substring("--warmup=".length()));
+            } else if (args[i].startsWith("--concurrency=")) {
+                concurrency = Integer.parseInt(args[i].substring("--concurrency=".length()));
+            } else {
+                m = Integer.parseInt(args[i]);
+            }
+        }
+
+        ThroughputHarness harness = new ThroughputHarness(shape, n, m);
+        harness.run(warmup, concurrency);
+        logger.info(harness.run(runs, concurrency).toString());
+    }
+
+    /**
+     * Parses and executes the workflow the given number of times.
+     *
+     * @param runs        the number of executions.
+     * @param concurrency the number of workflows executed at the same time.
+     *
+     * @return the measured results.
+     *
+     * @throws Exception if a workflow failed.
+     */
+    public Result run(int runs, int concurrency) throws Exception {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        long gcTimeBefore = gcTime();
+        long invocationsBefore = gateway.getInvocations();
+
+        /* The peaks of the single heap pools are reached at different times, so the whole heap is sampled instead */
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        AtomicLong peakHeap = new AtomicLong(memory.getHeapMemoryUsage().getUsed());
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, HEAP_SAMPLE_INTERVAL, TimeUnit.MILLISECONDS);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        try {
+            List<Future<Map<String, Object>>> futures = new ArrayList<>();
+            for (int i = 0; i < runs; i++) {
+                futures.add(executorService.submit(this::execute));
+            }
+            for (Future<Map<String, Object>> future : futures) {
+                if (future.get() == null) {
+                    throw new IllegalStateException("Workflow " + shape + " did not produce a result");
+                }
+            }
+        } finally {
+            executorService.shutdown();
+            sampler.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+
+        return new Result(runs, gateway.getInvocations() - invocationsBefore, elapsed, threads.getPeakThreadCount(),
+                peakHeap.get(), gcTime() - gcTimeBefore);
+    }
+
+    /**
+     * Parses and executes the workflow once.
+     */
+    private Map<String, Object> execute() throws Exception {
+        ExecutableWorkflow executableWorkflow = new YAMLParser().parseExecutableWorkflow(workflow, Language.YAML, -1);
+        if (executableWorkflow == null) {
+            throw new IllegalStateException("Could not parse the generated workflow " + shape);
+        }
+        return executableWorkflow.executeWorkflow(WorkflowGenerator.input(shape, n, m));
+    }
+
+    /**
+     * Returns the accumulated time of all garbage collectors.
+     */
+    private static long gcTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * The results of a measurement.
+     */
+    public static final class Result {
+
+        /**
+         * The number of executed workflows.
+         */
+        private final int workflows;
+
+        /**
+         * The number of invoked functions.
+         */
+        private final long invocations;
+
+        /**
+         * The elapsed time in nanoseconds.
+         */
+        private final long elapsed;
+
+        /**
+         * The peak number of live threads.
+         */
+        private final int peakThreads;
+
+        /**
+         * The peak usage of the heap in bytes, sampled every {@link #HEAP_SAMPLE_INTERVAL} milliseconds.
+         */
+        private final long peakHeap;
+
+        /**
+         * The time spent in garbage collection in milliseconds.
+         */
+        private final long gcTime;
+
+        Result(int workflows, long invocations, long elapsed, int peakThreads, long peakHeap, long gcTime) {
+            this.workflows = workflows;
+            this.invocations = invocations;
+            this.elapsed = elapsed;
+            this.peakThreads = peakThreads;
+            this.peakHeap = peakHeap;
+            this.gcTime = gcTime;
+        }
+
+        /** Getter */
+
+        public double getWorkflowsPerSecond() {
+            return workflows * 1e9 / elapsed;
+        }
+
+        public double getInvocationsPerSecond() {
+            return invocations * 1e9 / elapsed;
+        }
+
+        public int getPeakThreads() {
+            return peakThreads;
+        }
+
+        public long getPeakHeap() {
+            return peakHeap;
+        }
+
+        public long getGcTime() {
+            return gcTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%d workflows, %d invocations in %.1f ms: %.1f workflows/s, "
+                            + "%.1f invocations/s, peak threads %d, peak heap %.1f MiB, GC time %d ms", workflows,
+                    invocations, elapsed / 1e6, getWorkflowsPerSecond(), getInvocationsPerSecond(), peakThreads,
+                    peakHeap / (1024.0 * 1024.0), gcTime);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package at.enactmentengine.serverless.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates synthetic AFCL workflows of a parameterised shape to measure how the engine scales with the structure of a
+ * workflow. Every function takes a number {@code value} and returns a number {@code value}, so the workflows can be run
+ * against an invoker which always returns {@code {"value": 1}}.
+ *
+ * @author mikahautz
+ */
+public final class WorkflowGenerator {
+
+    /**
+     * The name of the generated workflows.
+     */
+    static final String WORKFLOW = "synthetic";
+
+    /**
+     * The result returned by every function of a generated workflow.
+     */
+    static final String FUNCTION_RESULT = "{\"value\":1}";
+
+    /**
+     * The shapes of the generated workflows.
+     */
+    public enum Shape {
+        /**
+         * A single parallel construct with {@code n} sections containing one function each.
+         */
+        WIDE,
+        /**
+         * A sequence of {@code n} functions.
+         */
+        DEEP,
+        /**
+         * A parallelFor with {@code n} iterations, each containing a parallelFor with {@code m} iterations.
+         */
+        NESTED,
+        /**
+         * A sequence of {@code n} switch constructs with {@code m} cases and a default each.
+         */
+        SWITCH
+    }
+
+    private WorkflowGenerator() {
+    }
+
+    /**
+     * Generates a workflow of the given shape.
+     *
+     * @param shape the shape of the workflow.
+     * @param n     the width, depth, number of outer iterations or number of switches.
+     * @param m     the number of inner iterations or cases (ignored for the other shapes).
+     *
+     * @return the workflow in the AFCL YAML format.
+     */
+    public static String generate(Shape shape, int n, int m) {
+        StringBuilder yaml = new StringBuilder();
+        yaml.append("---\n")
+                .append("name: \"").append(WORKFLOW).append("\"\n")
+                .append("dataIns:\n");
+        port(yaml, "", "value", "number", "value");
+        port(yaml, "", "items", "collection", "items");
+        yaml.append("workflowBody:\n");
+
+        String output;
+        String outputType = "number";
+        switch (shape) {
+            case WIDE:
+                output = wide(yaml, n);
+                break;
+            case DEEP:
+                output = deep(yaml, n);
+                break;
+            case NESTED:
+                output = nested(yaml, n, m);
+                outputType = "collection";
+                break;
+            case SWITCH:
+                output = switches(yaml, n, m);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown shape " + shape);
+        }
+
+        yaml.append("dataOuts:\n");
+        port(yaml, "", "value", outputType, output);
+        return yaml.toString();
+    }
+
+    /**
+     * Returns the input of a generated workflow.
+     *
+     * @param shape the shape of the workflow.
+     * @param n     the first size of the workflow.
+     * @param m     the second size of the workflow.
+     *
+     * @return the workflow input.
+     */
+    public static Map<String, Object> input(Shape shape, int n, int m) {
+        List<Object> items = new ArrayList<>();
+        if (shape == Shape.NESTED) {
+            for (int i = 0; i < m; i++) {
+                items.add((double) i);
+            }
+        }
+        Map<String, Object> input = new HashMap<>();
+        input.put("value", 1.0);
+        input.put("items", items);
+        return input;
+    }
+
+    /**
+     * Returns the number of functions invoked by a single run of a generated workflow.
+     *
+     * @param shape the shape of the workflow.
+     * @param n     the first size of the workflow.
+     * @param m     the second size of the workflow.
+     *
+     * @return the number of invocations.
+     */
+    public static long invocations(Shape shape, int n, int m) {
+        return shape == Shape.NESTED ? (long) n * m : n;
+    }
+
+    /**
+     * Appends a parallel construct with the given number of sections.
+     */
+    private static String wide(StringBuilder yaml, int width) {
+        yaml.append("- parallel:\n")
+                .append("    name: \"fan\"\n")
+                .append("    dataIns:\n");
+        port(yaml, "    ", "value", "number", WORKFLOW + "/value");
+        yaml.append("    parallelBody:\n");
+        for (int i = 0; i < width; i++) {
+            yaml.append("    - section:\n");
+            function(yaml, "      ", "f" + i, "number", "fan/value");
+        }
+        yaml.append("    dataOuts:\n");
+        for (int i = 0; i < width; i++) {
+            port(yaml, "    ", "f" + i, "number", "f" + i + "/value");
+        }
+        return "fan/f0";
+    }
+
+    /**
+     * Appends a sequence of functions of the given length.
+     */
+    private static String deep(StringBuilder yaml, int depth) {
+        String source = WORKFLOW + "/value";
+        for (int i = 0; i < depth; i++) {
+            function(yaml, "", "f" + i, "number", source);
+            source = "f" + i + "/value";
+        }
+        return source;
+    }
+
+    /**
+     * Appends a parallelFor containing a parallelFor. Every outer iteration receives the whole input collection, which
+     * is distributed block-wise to the inner iterations.
+     */
+    private static String nested(StringBuilder yaml, int outer, int inner) {
+        yaml.append("- parallelFor:\n")
+                .append("    name: \"outer\"\n")
+                .append("    dataIns:\n");
+        distributedPort(yaml, "    ", WORKFLOW + "/items", "REPLICATE(*)");
+        loopCounter(yaml, "    ", "i", outer);
+        yaml.append("    loopBody:\n")
+                .append("    - parallelFor:\n")
+                .append("        name: \"inner\"\n")
+                .append("        dataIns:\n");
+        distributedPort(yaml, "        ", "outer/items", "BLOCK(1)");
+        loopCounter(yaml, "        ", "j", inner);
+        yaml.append("        loopBody:\n");
+        function(yaml, "        ", "f", "number", "inner/items");
+        yaml.append("        dataOuts:\n");
+        port(yaml, "        ", "values", "collection", "f/value");
+        yaml.append("    dataOuts:\n");
+        port(yaml, "    ", "values", "collection", "inner/values");
+        return "outer/values";
+    }
+
+    /**
+     * Appends a sequence of switch constructs. The value of every switch is 1, so the second case is taken if there
+     * are at least two cases and the default otherwise.
+     */
+    private static String switches(StringBuilder yaml, int count, int cases) {
+        String source = WORKFLOW + "/value";
+        for (int i = 0; i < count; i++) {
+            String name = "s" + i;
+            yaml.append("- switch:\n")
+                    .append("    name: \"").append(name).append("\"\n")
+                    .append("    dataIns:\n");
+            port(yaml, "    ", "value", "number", source);
+            yaml.append("    dataEval:\n")
+                    .append("      name: \"value\"\n")
+                    .append("      type: \"number\"\n")
+                    .append("      source: \"").append(name).append("/value\"\n")
+                    .append("    cases:\n");
+            StringBuilder outputs = new StringBuilder();
+            for (int k = 0; k < cases; k++) {
+                yaml.append("    - value: \"").append(k).append("\"\n")
+                        .append("      functions:\n");
+                function(yaml, "      ", name + "c" + k, "number", name + "/value");
+                outputs.append(name).append('c').append(k).append("/value,");
+            }
+            yaml.append("    default:\n");
+            function(yaml, "    ", name + "d", "number", name + "/value");
+            outputs.append(name).append("d/value");
+            yaml.append("    dataOuts:\n");
+            port(yaml, "    ", "value", "number", outputs.toString());
+            source = name + "/value";
+        }
+        return source;
+    }
+
+    /**
+     * Appends a function with a single input and a single output.
+     */
+    private static void function(StringBuilder yaml, String indent, String name, String inputType, String source) {
+        yaml.append(indent).append("- function:\n")
+                .append(indent).append("    name: \"").append(name).append("\"\n")
+                .append(indent).append("    type: \"syntheticType\"\n")
+                .append(indent).append("    dataIns:\n");
+        port(yaml, indent + "    ", "value", inputType, source);
+        yaml.append(indent).append("    dataOuts:\n")
+                .append(indent).append("    - name: \"value\"\n")
+                .append(indent).append("      type: \"number\"\n")
+                .append(indent).append("    properties:\n")
+                .append(indent).append("    - name: \"resource\"\n")
+                .append(indent).append("      value: \"arn:aws:lambda:us-east-1:000000000000:function:")
+                .append(name).append("\"\n");
+    }
+
+    /**
+     * Appends a data port with a source.
+     */
+    private static void port(StringBuilder yaml, String indent, String name, String type, String source) {
+        yaml.append(indent).append("- name: \"").append(name).append("\"\n")
+                .append(indent).append("  type: \"").append(type).append("\"\n")
+                .append(indent).append("  source: \"").append(source).append("\"\n");
+    }
+
+    /**
+     * Appends the collection input of a parallelFor with a distribution constraint.
+     */
+    private static void distributedPort(StringBuilder yaml, String indent, String source, String distribution) {
+        port(yaml, indent, "items", "collection", source);
+        yaml.append(indent).append("  constraints:\n")
+                .append(indent).append("  - name: \"distribution\"\n")
+                .append(indent).append("    value: \"").append(distribution).append("\"\n");
+    }
+
+    /**
+     * Appends a loop counter with a constant number of iterations.
+     */
+    private static void loopCounter(StringBuilder yaml, String indent, String name, int iterations) {
+        yaml.append(indent).append("loopCounter:\n")
+                .append(indent).append("  name: \"").append(name).append("\"\n")
+                .append(indent).append("  type: \"number\"\n")
+                .append(indent).append("  from: \"0\"\n")
+                .append(indent).append("  to: \"").append(iterations).append("\"\n")
+                .append(indent).append("  step: \"1\"\n");
+    }
+}
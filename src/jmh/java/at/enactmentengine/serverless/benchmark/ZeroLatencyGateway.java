@@ -0,0 +1,52 @@
+package at.enactmentengine.serverless.benchmark;
+
+import at.enactmentengine.serverless.object.Utils;
+import jFaaS.Gateway;
+import jFaaS.utils.PairResult;
+
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An invoker which returns immediately without calling any cloud function, so that only the overhead of the engine is
+ * measured.
+ *
+ * @author mikahautz
+ */
+public class ZeroLatencyGateway extends Gateway {
+
+    /**
+     * The number of invocations.
+     */
+    private final LongAdder invocations = new LongAdder();
+
+    /**
+     * The result returned for every invocation.
+     */
+    private final String result;
+
+    /**
+     * Creates an invoker returning the given result.
+     *
+     * @param result the stringified json result of every invocation.
+     */
+    public ZeroLatencyGateway(String result) {
+        super(Utils.PATH_TO_CREDENTIALS);
+        this.result = result;
+    }
+
+    @Override
+    public PairResult<String, Long> invokeFunction(String function, Map<String, Object> functionInputs) {
+        invocations.increment();
+        return new PairResult<>(result, 0L);
+    }
+
+    /**
+     * Returns the number of invocations so far.
+     *
+     * @return the number of invocations.
+     */
+    public long getInvocations() {
+        return invocations.sum();
+    }
+}
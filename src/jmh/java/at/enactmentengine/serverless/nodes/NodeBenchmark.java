@@ -0,0 +1,195 @@
+package at.enactmentengine.serverless.nodes;
+
+import at.enactmentengine.serverless.benchmark.ZeroLatencyGateway;
+import at.enactmentengine.serverless.logging.ExecutionLogSink;
+import at.enactmentengine.serverless.object.CollectionView;
+import at.uibk.dps.afcl.functions.objects.DataIns;
+import at.uibk.dps.afcl.functions.objects.DataOuts;
+import at.uibk.dps.afcl.functions.objects.DataOutsAtomic;
+import at.uibk.dps.afcl.functions.objects.LoopCounter;
+import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the node operations on the hot path of a parallelFor and of every function.
+ *
+ * @author mikahautz
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeBenchmark {
+
+    /**
+     * A parallelFor body consisting of a sequence of functions.
+     */
+    @State(Scope.Benchmark)
+    public static class LoopBody {
+
+        @Param({"1", "10", "100"})
+        public int bodySize;
+
+        Node first;
+
+        Node end;
+
+        @Setup
+        public void setup() {
+            end = new ParallelForEndNode("loop", "", Collections.singletonList(
+                    new DataOuts("results", "collection", "f" + (bodySize - 1) + "/out")), false);
+            Node previous = null;
+            for (int i = 0; i < bodySize; i++) {
+                String source = i == 0 ? "loop/item" : "f" + (i - 1) + "/out";
+                Node node = new FunctionNode("f" + i, "type", null, null, null,
+                        Collections.singletonList(new DataIns("in", "number", source)),
+                        Collections.singletonList(new DataOutsAtomic("out", "number")), 0);
+                if (previous == null) {
+                    first = node;
+                } else {
+                    previous.addChild(node);
+                    node.addParent(previous);
+                }
+                previous = node;
+            }
+            previous.addChild(end);
+            end.addParent(previous);
+        }
+    }
+
+    /**
+     * A parallelFor distributing a collection block-wise to its iterations.
+     */
+    @State(Scope.Benchmark)
+    public static class Distribution {
+
+        @Param({"10", "1000", "100000"})
+        public int elements;
+
+        ParallelForStartNode start;
+
+        CollectionView items;
+
+        List<PropertyConstraint> constraints;
+
+        @Setup
+        public void setup() {
+            LoopCounter counter = new LoopCounter();
+            counter.setName("counter");
+            counter.setType("number");
+            counter.setFrom("0");
+            counter.setTo(String.valueOf(elements));
+            counter.setStep("1");
+            start = new ParallelForStartNode("loop", "type", null, counter, null, null);
+            JsonArray array = new JsonArray();
+            for (int i = 0; i < elements; i++) {
+                array.add(i);
+            }
+            items = CollectionView.of(array);
+            constraints = Collections.singletonList(new PropertyConstraint("distribution", "BLOCK(1)"));
+        }
+    }
+
+    /**
+     * The end node of a parallelFor collecting the results of its iterations.
+     */
+    @State(Scope.Benchmark)
+    public static class Collection {
+
+        ParallelForEndNode end;
+
+        Map<String, Object> result;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            end = new ParallelForEndNode("loop", "", Collections.singletonList(
+                    new DataOuts("results", "collection", "f/out")), false);
+            result = Collections.singletonMap("f/out", 42.0);
+        }
+    }
+
+    /**
+     * A function with a large result, invoked through an invoker which returns immediately.
+     */
+    @State(Scope.Benchmark)
+    public static class Result {
+
+        @Param({"100", "10000", "1000000"})
+        public int elements;
+
+        FunctionNode function;
+
+        @Setup
+        public void setup() {
+            ExecutionLogSink.MONGODB = false;
+            function = new FunctionNode("f", "type", "AWS_us-east-1_128",
+                    Collections.singletonList(new PropertyConstraint("resource", "arn:aws:lambda:us-east-1:0:function:f")),
+                    null, null, Arrays.asList(new DataOutsAtomic("items", "collection"),
+                    new DataOutsAtomic("count", "number")), 0);
+            function.setContext(new ExecutionContext());
+            JsonArray items = new JsonArray();
+            for (int i = 0; i < elements; i++) {
+                items.add(i);
+            }
+            JsonObject json = new JsonObject();
+            json.add("items", items);
+            json.addProperty("count", elements);
+            FunctionNode.setGateway(new ZeroLatencyGateway(json.toString()));
+        }
+    }
+
+    /**
+     * Clones the body of a parallelFor, which is done for every iteration.
+     */
+    @Benchmark
+    public Node cloneLoopBody(LoopBody state) throws CloneNotSupportedException {
+        return state.first.clone(state.end);
+    }
+
+    /**
+     * Distributes the input collection to the iterations of a parallelFor.
+     */
+    @Benchmark
+    public List<CollectionView> distributeElements(Distribution state) {
+        return state.start.distributeElements(state.items, state.constraints, state.elements);
+    }
+
+    /**
+     * Collects the results of concurrently finishing iterations.
+     */
+    @Benchmark
+    @Threads(4)
+    public void passResultContended(Collection state) {
+        state.end.passResult(state.result);
+    }
+
+    /**
+     * Invokes a function with a large result, which is dominated by parsing the result into the outputs.
+     */
+    @Benchmark
+    public Boolean invokeWithLargeResult(Result state) throws Exception {
+        return state.function.call();
+    }
+}
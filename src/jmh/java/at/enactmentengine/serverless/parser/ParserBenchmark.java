@@ -0,0 +1,76 @@
+package at.enactmentengine.serverless.parser;
+
+import at.enactmentengine.serverless.nodes.ExecutableWorkflow;
+import at.enactmentengine.serverless.nodes.Node;
+import at.enactmentengine.serverless.object.ListPair;
+import at.uibk.dps.afcl.Function;
+import at.uibk.dps.afcl.Workflow;
+import at.uibk.dps.afcl.utils.Utils;
+import org.apache.commons.io.IOUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for parsing a workflow containing all supported constructs.
+ *
+ * @author mikahautz
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    /**
+     * The content of the workflow file.
+     */
+    private byte[] workflowFile;
+
+    /**
+     * The parsed AFCL workflow.
+     */
+    private Workflow workflow;
+
+    @Setup
+    public void setup() throws IOException {
+        try (InputStream in = ParserBenchmark.class.getResourceAsStream("/benchmark.yaml")) {
+            workflowFile = IOUtils.toByteArray(in);
+        }
+        workflow = Utils.readYAMLNoValidation(workflowFile);
+    }
+
+    /**
+     * Parses the YAML file and builds the executable workflow.
+     */
+    @Benchmark
+    public ExecutableWorkflow parseExecutableWorkflow() {
+        return new YAMLParser().parseExecutableWorkflow(workflowFile, Language.YAML, 0);
+    }
+
+    /**
+     * Builds the node graph from an already parsed AFCL workflow.
+     */
+    @Benchmark
+    public void buildNodeList(Blackhole blackhole) {
+        NodeListHelper nodeListHelper = new NodeListHelper();
+        for (Function function : workflow.getWorkflowBody()) {
+            ListPair<Node, Node> pair = nodeListHelper.toNodeList(function);
+            blackhole.consume(pair);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package at.enactmentengine.serverless.simulation.metadata.cache;
+
+import at.enactmentengine.serverless.simulation.metadata.cache.filestorage.FileStorageMetaDataProvider;
+import at.enactmentengine.serverless.simulation.metadata.model.FunctionDeployment;
+import at.enactmentengine.serverless.simulation.metadata.model.Region;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the metadata lookups done for every simulated function. Requires the metadata files of the file
+ * storage to be present in the working directory.
+ *
+ * @author mikahautz
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonProviderBenchmark {
+
+    private JsonProvider provider;
+
+    private FunctionDeployment deployment;
+
+    private Region region;
+
+    @Setup
+    public void setup() throws Exception {
+        provider = JsonProvider.get();
+        try (FileStorageMetaDataProvider metadata = FileStorageMetaDataProvider.get()) {
+            List<FunctionDeployment> deployments = metadata.functionDeploymentDao().getAll();
+            deployment = deployments.get(deployments.size() - 1);
+            List<Region> regions = metadata.regionDao().getAll();
+            region = regions.get(regions.size() - 1);
+        }
+    }
+
+    @Benchmark
+    public FunctionDeployment getFunctionIdEntry() {
+        return provider.getFunctionIdEntry(deployment.getKmsArn());
+    }
+
+    @Benchmark
+    public FunctionDeployment getDeploymentById() {
+        return provider.getDeploymentById(deployment.getId());
+    }
+
+    @Benchmark
+    public Region getRegionEntry() {
+        return provider.getRegionEntry(region.getRegion(), region.getProvider());
+    }
+
+    @Benchmark
+    public int getRegionId() {
+        return provider.getRegionId(region.getRegion());
+    }
+
+    @Benchmark
+    public List<FunctionDeployment> getDeploymentsWithImplementationId() {
+        return provider.getDeploymentsWithImplementationId(deployment.getFunctionImplementationId());
+    }
+}
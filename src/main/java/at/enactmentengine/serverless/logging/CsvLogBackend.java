@@ -0,0 +1,123 @@
+package at.enactmentengine.serverless.logging;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Appends the execution log records as CSV to a local file while the workflow runs. The header is written to an empty
+ * file, the records of a later run are separated by an empty line.
+ *
+ * @author mikahautz
+ */
+public class CsvLogBackend implements ExecutionLogBackend {
+
+    /**
+     * The columns of the CSV file.
+     */
+    static final String HEADER = "event,type,function_name,function_type,function_id,deployment,RTT,cost,success,"
+            + "loop_counter,max_loop_counter,start";
+
+    /**
+     * The writer of the CSV file.
+     */
+    private final Writer writer;
+
+    /**
+     * The format of the start time.
+     */
+    private final SimpleDateFormat format = dateFormat();
+
+    /**
+     * The line which is currently formatted.
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * Default constructor for a CSV backend.
+     *
+     * @param file the file to append the records to.
+     *
+     * @throws IOException if the file could not be opened.
+     */
+    public CsvLogBackend(Path file) throws IOException {
+        boolean empty = !Files.exists(file) || Files.size(file) == 0;
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+        writer.write(empty ? HEADER + '\n' : "\n");
+    }
+
+    @Override
+    public void write(List<ExecutionLogRecord> records) throws IOException {
+        for (ExecutionLogRecord record : records) {
+            writer.write(format(record, format, line));
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Returns the format of the start time.
+     *
+     * @return the date format in UTC.
+     */
+    static SimpleDateFormat dateFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format;
+    }
+
+    /**
+     * Formats a record as a line of the CSV file.
+     *
+     * @param r      the record.
+     * @param format the format of the start time.
+     * @param line   the builder to reuse for the line.
+     *
+     * @return the line including the line break.
+     */
+    static String format(ExecutionLogRecord r, SimpleDateFormat format, StringBuilder line) {
+        line.setLength(0);
+        line.append(r.getEvent() == null ? "" : r.getEvent().name()).append(',')
+                .append(r.getType() == null ? "" : r.getType().name()).append(',')
+                .append(csv(r.getFunctionName())).append(',')
+                .append(csv(r.getFunctionType())).append(',')
+                .append(csv(r.getResourceLink())).append(',')
+                .append(csv(r.getDeployment())).append(',')
+                .append(r.getRtt() == null ? "" : r.getRtt()).append(',')
+                .append(r.getCost() == null ? "" : r.getCost()).append(',')
+                .append(r.isSuccess()).append(',')
+                .append(r.getLoopCounter()).append(',')
+                .append(r.getMaxLoopCounter()).append(',')
+                .append(format.format(new Date(r.getStart()))).append('\n');
+        return line.toString();
+    }
+
+    /**
+     * Quotes the given value if needed.
+     */
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0) {
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+        return value;
+    }
+}
@@ -0,0 +1,37 @@
+package at.enactmentengine.serverless.logging;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * A destination of the execution log records written by the {@link ExecutionLogSink}.
+ *
+ * @author mikahautz
+ */
+public interface ExecutionLogBackend {
+
+    /**
+     * Writes a batch of records.
+     *
+     * @param records the records in the order in which they were logged.
+     *
+     * @throws IOException if the records could not be written.
+     */
+    void write(List<ExecutionLogRecord> records) throws IOException;
+
+    /**
+     * Makes all written records durable or visible to readers.
+     *
+     * @throws IOException if the records could not be flushed.
+     */
+    default void flush() throws IOException {
+    }
+
+    /**
+     * Releases the resources of the backend.
+     *
+     * @throws IOException if the backend could not be closed.
+     */
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,168 @@
+package at.enactmentengine.serverless.logging;
+
+import at.uibk.dps.util.Event;
+import at.uibk.dps.util.Type;
+
+/**
+ * Class which represents a single execution log entry (e.g. the end of a function or a parallel-for).
+ *
+ * @author mikahautz
+ */
+public final class ExecutionLogRecord {
+
+    /**
+     * The logged event.
+     */
+    private final Event event;
+
+    /**
+     * The resource link of the function.
+     */
+    private final String resourceLink;
+
+    /**
+     * The deployment of the function.
+     */
+    private final String deployment;
+
+    /**
+     * The name of the function.
+     */
+    private final String functionName;
+
+    /**
+     * The type of the function.
+     */
+    private final String functionType;
+
+    /**
+     * The output of the function.
+     */
+    private final String output;
+
+    /**
+     * The round trip time in milliseconds.
+     */
+    private final Long rtt;
+
+    /**
+     * The cost (may be null if the cost is unknown).
+     */
+    private final Double cost;
+
+    /**
+     * Whether the execution was successful.
+     */
+    private final boolean success;
+
+    /**
+     * The loop counter of the function.
+     */
+    private final int loopCounter;
+
+    /**
+     * The maximum loop counter of the function.
+     */
+    private final int maxLoopCounter;
+
+    /**
+     * The start time in milliseconds.
+     */
+    private final long start;
+
+    /**
+     * Whether the entry was executed or simulated.
+     */
+    private final Type type;
+
+    /**
+     * Default constructor for an execution log record.
+     *
+     * @param event          the logged event.
+     * @param resourceLink   the resource link of the function.
+     * @param deployment     the deployment of the function.
+     * @param functionName   the name of the function.
+     * @param functionType   the type of the function.
+     * @param output         the output of the function.
+     * @param rtt            the round trip time in milliseconds.
+     * @param cost           the cost (may be null).
+     * @param success        whether the execution was successful.
+     * @param loopCounter    the loop counter of the function.
+     * @param maxLoopCounter the maximum loop counter of the function.
+     * @param start          the start time in milliseconds.
+     * @param type           whether the entry was executed or simulated.
+     */
+    public ExecutionLogRecord(Event event, String resourceLink, String deployment, String functionName,
+                              String functionType, String output, Long rtt, Double cost, boolean success,
+                              int loopCounter, int maxLoopCounter, long start, Type type) {
+        this.event = event;
+        this.resourceLink = resourceLink;
+        this.deployment = deployment;
+        this.functionName = functionName;
+        this.functionType = functionType;
+        this.output = output;
+        this.rtt = rtt;
+        this.cost = cost;
+        this.success = success;
+        this.loopCounter = loopCounter;
+        this.maxLoopCounter = maxLoopCounter;
+        this.start = start;
+        this.type = type;
+    }
+
+    /**
+     * Getter and Setter
+     */
+
+    public Event getEvent() {
+        return event;
+    }
+
+    public String getResourceLink() {
+        return resourceLink;
+    }
+
+    public String getDeployment() {
+        return deployment;
+    }
+
+    public String getFunctionName() {
+        return functionName;
+    }
+
+    public String getFunctionType() {
+        return functionType;
+    }
+
+    public String getOutput() {
+        return output;
+    }
+
+    public Long getRtt() {
+        return rtt;
+    }
+
+    public Double getCost() {
+        return cost;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public int getLoopCounter() {
+        return loopCounter;
+    }
+
+    public int getMaxLoopCounter() {
+        return maxLoopCounter;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public Type getType() {
+        return type;
+    }
+}
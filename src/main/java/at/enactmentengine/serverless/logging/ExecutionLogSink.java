@@ -0,0 +1,362 @@
+package at.enactmentengine.serverless.logging;
+
+import at.uibk.dps.util.Event;
+import at.uibk.dps.util.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Collects the execution log records of all nodes in a bounded buffer. A background thread writes them in batches to
+ * the configured backends, so that logging does not add latency to the execution of the functions. If the buffer is
+ * full, the logging thread either waits ({@link BackpressurePolicy#BLOCK}) or the record is dropped
+ * ({@link BackpressurePolicy#DROP}).
+ *
+ * @author mikahautz
+ */
+public final class ExecutionLogSink {
+
+    /**
+     * Logger for the execution log sink.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(ExecutionLogSink.class);
+
+    /**
+     * The capacity of the buffer.
+     */
+    public static int CAPACITY = 8192;
+
+    /**
+     * The maximum number of records written at once.
+     */
+    private static final int BATCH_SIZE = 512;
+
+    /**
+     * The behaviour if the buffer is full.
+     */
+    public static BackpressurePolicy POLICY = BackpressurePolicy.BLOCK;
+
+    /**
+     * Whether the records are passed to MongoDB.
+     */
+    public static boolean MONGODB = true;
+
+    /**
+     * The file to append the records to as newline-delimited JSON (null if no file should be written).
+     */
+    public static String LOG_FILE = null;
+
+    /**
+     * The file to append the records to as CSV (null if no CSV file should be written).
+     */
+    public static String CSV_FILE = null;
+
+    /**
+     * The file to append the records to in the binary trace format (null if no trace should be written).
+     */
+    public static String TRACE_FILE = null;
+
+    /**
+     * The single instance of the sink.
+     */
+    private static ExecutionLogSink instance;
+
+    /**
+     * The buffer containing the records which are not written yet.
+     */
+    private final BlockingQueue<ExecutionLogRecord> buffer;
+
+    /**
+     * The backends the records are written to.
+     */
+    private final List<ExecutionLogBackend> backends;
+
+    /**
+     * The number of records added to the buffer.
+     */
+    private final AtomicLong enqueued = new AtomicLong();
+
+    /**
+     * The number of records which were dropped because the buffer was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * The number of records taken from the buffer and written to the backends.
+     */
+    private long written;
+
+    /**
+     * Whether the sink is closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Held by the logging threads while they add a record and by {@link #close()} while it closes the sink, so that no
+     * record is added after the writer stopped.
+     */
+    private final ReadWriteLock closing = new ReentrantReadWriteLock();
+
+    /**
+     * The thread writing the records.
+     */
+    private final Thread writer;
+
+    /**
+     * The behaviour of the sink if the buffer is full.
+     */
+    public enum BackpressurePolicy {
+        /**
+         * Wait until there is space in the buffer.
+         */
+        BLOCK,
+        /**
+         * Drop the record.
+         */
+        DROP
+    }
+
+    /**
+     * Default constructor for an execution log sink.
+     *
+     * @param capacity the capacity of the buffer.
+     * @param backends the backends to write the records to.
+     */
+    public ExecutionLogSink(int capacity, List<ExecutionLogBackend> backends) {
+        this.buffer = new ArrayBlockingQueue<>(capacity);
+        this.backends = backends;
+        this.writer = new Thread(this::drain, "execution-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Returns the single instance of the sink. The instance writes to MongoDB if {@link #MONGODB} is set and to the
+     * {@link #LOG_FILE}, {@link #CSV_FILE} and {@link #TRACE_FILE} if set.
+     *
+     * @return the sink
+     */
+    public static synchronized ExecutionLogSink get() {
+        if (instance == null) {
+            List<ExecutionLogBackend> backends = new ArrayList<>();
+            if (MONGODB) {
+                backends.add(new MongoDBLogBackend());
+            }
+            if (LOG_FILE != null) {
+                try {
+                    backends.add(new FileLogBackend(Paths.get(LOG_FILE)));
+                } catch (IOException e) {
+                    logger.error("Could not open log file {}: {}", LOG_FILE, e.getMessage());
+                }
+            }
+            if (CSV_FILE != null) {
+                try {
+                    backends.add(new CsvLogBackend(Paths.get(CSV_FILE)));
+                } catch (IOException e) {
+                    logger.error("Could not open CSV file {}: {}", CSV_FILE, e.getMessage());
+                }
+            }
+            if (TRACE_FILE != null) {
+                try {
+                    backends.add(new TraceWriter(Paths.get(TRACE_FILE)));
+                } catch (IOException e) {
+                    logger.error("Could not open trace file {}: {}", TRACE_FILE, e.getMessage());
+                }
+            }
+            instance = new ExecutionLogSink(CAPACITY, backends);
+        }
+        return instance;
+    }
+
+    /**
+     * Adds a record without a cost to the buffer.
+     *
+     * @param event          the logged event.
+     * @param resourceLink   the resource link of the function.
+     * @param deployment     the deployment of the function.
+     * @param functionName   the name of the function.
+     * @param functionType   the type of the function.
+     * @param output         the output of the function.
+     * @param rtt            the round trip time in milliseconds.
+     * @param success        whether the execution was successful.
+     * @param loopCounter    the loop counter of the function.
+     * @param maxLoopCounter the maximum loop counter of the function.
+     * @param start          the start time in milliseconds.
+     * @param type           whether the entry was executed or simulated.
+     */
+    public void log(Event event, String resourceLink, String deployment, String functionName, String functionType,
+                    String output, Long rtt, boolean success, int loopCounter, int maxLoopCounter, long start,
+                    Type type) {
+        log(new ExecutionLogRecord(event, resourceLink, deployment, functionName, functionType, output, rtt, null,
+                success, loopCounter, maxLoopCounter, start, type));
+    }
+
+    /**
+     * Adds a record to the buffer.
+     *
+     * @param event          the logged event.
+     * @param resourceLink   the resource link of the function.
+     * @param deployment     the deployment of the function.
+     * @param functionName   the name of the function.
+     * @param functionType   the type of the function.
+     * @param output         the output of the function.
+     * @param rtt            the round trip time in milliseconds.
+     * @param cost           the cost.
+     * @param success        whether the execution was successful.
+     * @param loopCounter    the loop counter of the function.
+     * @param maxLoopCounter the maximum loop counter of the function.
+     * @param start          the start time in milliseconds.
+     * @param type           whether the entry was executed or simulated.
+     */
+    public void log(Event event, String resourceLink, String deployment, String functionName, String functionType,
+                    String output, Long rtt, Double cost, boolean success, int loopCounter, int maxLoopCounter,
+                    long start, Type type) {
+        log(new ExecutionLogRecord(event, resourceLink, deployment, functionName, functionType, output, rtt, cost,
+                success, loopCounter, maxLoopCounter, start, type));
+    }
+
+    /**
+     * Adds the given record to the buffer.
+     *
+     * @param record the record to log.
+     */
+    public void log(ExecutionLogRecord record) {
+        closing.readLock().lock();
+        try {
+            if (closed) {
+                logger.warn("Execution log sink is closed, dropping {} record", record.getEvent());
+                dropped.incrementAndGet();
+                return;
+            }
+            if (POLICY == BackpressurePolicy.DROP) {
+                if (!buffer.offer(record)) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+            } else {
+                try {
+                    buffer.put(record);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    dropped.incrementAndGet();
+                    return;
+                }
+            }
+            enqueued.incrementAndGet();
+        } finally {
+            closing.readLock().unlock();
+        }
+    }
+
+    /**
+     * Waits until all records logged so far are written to the backends.
+     */
+    public void flush() {
+        long target = enqueued.get();
+        synchronized (this) {
+            while (written < target && writer.isAlive()) {
+                try {
+                    wait(10);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+        for (ExecutionLogBackend backend : backends) {
+            try {
+                backend.flush();
+            } catch (IOException e) {
+                logger.error("Could not flush execution logs: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes all remaining records, stops the background thread and closes the backends. A later call to {@link #get()}
+     * creates a new sink.
+     */
+    public void close() {
+        flush();
+
+        /* Wait for the records being added, the writer drains them before it stops */
+        closing.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closing.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (ExecutionLogBackend backend : backends) {
+            try {
+                backend.close();
+            } catch (IOException e) {
+                logger.error("Could not close execution log backend: {}", e.getMessage());
+            }
+        }
+        if (dropped.get() > 0) {
+            logger.warn("{} execution log records were dropped", dropped.get());
+        }
+        synchronized (ExecutionLogSink.class) {
+            if (instance == this) {
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of dropped records.
+     *
+     * @return the number of dropped records.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Takes the records from the buffer and writes them in batches until the sink is closed.
+     */
+    private void drain() {
+        List<ExecutionLogRecord> batch = new ArrayList<>(BATCH_SIZE);
+        while (!closed || !buffer.isEmpty()) {
+            try {
+                ExecutionLogRecord first = buffer.poll(50, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                buffer.drainTo(batch, BATCH_SIZE - 1);
+                for (ExecutionLogBackend backend : backends) {
+                    try {
+                        backend.write(batch);
+                    } catch (IOException | RuntimeException e) {
+                        logger.error("Could not write execution logs: {}", e.getMessage());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                synchronized (this) {
+                    written += batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package at.enactmentengine.serverless.logging;
+
+import at.uibk.dps.util.Event;
+import at.uibk.dps.util.Type;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends the execution log records as newline-delimited JSON to a local file. The file is only appended to, so the
+ * logs of several runs can be collected in the same file.
+ *
+ * @author mikahautz
+ */
+public class FileLogBackend implements ExecutionLogBackend {
+
+    /**
+     * The writer of the log file.
+     */
+    private final Writer writer;
+
+    /**
+     * Default constructor for a file backend.
+     *
+     * @param file the file to append the records to.
+     *
+     * @throws IOException if the file could not be opened.
+     */
+    public FileLogBackend(Path file) throws IOException {
+        this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    @Override
+    public void write(List<ExecutionLogRecord> records) throws IOException {
+        for (ExecutionLogRecord record : records) {
+            writer.write(toJson(record).toString());
+            writer.write('\n');
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * Reads all records of a log file written by this backend.
+     *
+     * @param file the log file.
+     *
+     * @return the records in the order in which they were written.
+     *
+     * @throws IOException if the file could not be read.
+     */
+    public static List<ExecutionLogRecord> readAll(Path file) throws IOException {
+        List<ExecutionLogRecord> records = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    records.add(fromJson(JsonParser.parseString(line).getAsJsonObject()));
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Converts a record to a json object.
+     *
+     * @param record the record to convert.
+     *
+     * @return the json object.
+     */
+    static JsonObject toJson(ExecutionLogRecord record) {
+        JsonObject json = new JsonObject();
+        json.addProperty("event", record.getEvent() == null ? null : record.getEvent().name());
+        json.addProperty("type", record.getType() == null ? null : record.getType().name());
+        json.addProperty("function_name", record.getFunctionName());
+        json.addProperty("function_type", record.getFunctionType());
+        json.addProperty("function_id", record.getResourceLink());
+        json.addProperty("deployment", record.getDeployment());
+        json.addProperty("output", record.getOutput());
+        json.addProperty("RTT", record.getRtt());
+        json.addProperty("cost", record.getCost());
+        json.addProperty("success", record.isSuccess());
+        json.addProperty("loop_counter", record.getLoopCounter());
+        json.addProperty("max_loop_counter", record.getMaxLoopCounter());
+        json.addProperty("start", record.getStart());
+        return json;
+    }
+
+    /**
+     * Converts a json object written by {@link #toJson(ExecutionLogRecord)} back to a record.
+     *
+     * @param json the json object.
+     *
+     * @return the record.
+     */
+    static ExecutionLogRecord fromJson(JsonObject json) {
+        return new ExecutionLogRecord(
+                json.has("event") && !json.get("event").isJsonNull() ? Event.valueOf(json.get("event").getAsString()) : null,
+                string(json, "function_id"), string(json, "deployment"), string(json, "function_name"),
+                string(json, "function_type"), string(json, "output"),
+                json.has("RTT") && !json.get("RTT").isJsonNull() ? json.get("RTT").getAsLong() : null,
+                json.has("cost") && !json.get("cost").isJsonNull() ? json.get("cost").getAsDouble() : null,
+                json.has("success") && json.get("success").getAsBoolean(),
+                json.has("loop_counter") ? json.get("loop_counter").getAsInt() : -1,
+                json.has("max_loop_counter") ? json.get("max_loop_counter").getAsInt() : -1,
+                json.has("start") ? json.get("start").getAsLong() : 0,
+                json.has("type") && !json.get("type").isJsonNull() ? Type.valueOf(json.get("type").getAsString()) : null);
+    }
+
+    /**
+     * Returns a string property of a json object or null if it is missing.
+     */
+    private static String string(JsonObject json, String key) {
+        return json.has(key) && !json.get(key).isJsonNull() ? json.get(key).getAsString() : null;
+    }
+}
@@ -0,0 +1,29 @@
+package at.enactmentengine.serverless.logging;
+
+import at.uibk.dps.databases.MongoDBAccess;
+
+import java.util.List;
+
+/**
+ * Passes the execution log records to {@link MongoDBAccess}, which collects them until they are stored with
+ * {@link MongoDBAccess#addAllEntries()}.
+ *
+ * @author mikahautz
+ */
+public class MongoDBLogBackend implements ExecutionLogBackend {
+
+    @Override
+    public void write(List<ExecutionLogRecord> records) {
+        for (ExecutionLogRecord r : records) {
+            if (r.getCost() == null) {
+                MongoDBAccess.saveLog(r.getEvent(), r.getResourceLink(), r.getDeployment(), r.getFunctionName(),
+                        r.getFunctionType(), r.getOutput(), r.getRtt(), r.isSuccess(), r.getLoopCounter(),
+                        r.getMaxLoopCounter(), r.getStart(), r.getType());
+            } else {
+                MongoDBAccess.saveLog(r.getEvent(), r.getResourceLink(), r.getDeployment(), r.getFunctionName(),
+                        r.getFunctionType(), r.getOutput(), r.getRtt(), r.getCost(), r.isSuccess(), r.getLoopCounter(),
+                        r.getMaxLoopCounter(), r.getStart(), r.getType());
+            }
+        }
+    }
+}
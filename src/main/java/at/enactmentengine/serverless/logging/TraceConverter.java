@@ -0,0 +1,85 @@
+package at.enactmentengine.serverless.logging;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.SimpleDateFormat;
+
+/**
+ * Converts a trace file written by the {@link TraceWriter} to CSV or newline-delimited JSON. The records are streamed,
+ * so the size of the trace is not limited by the available memory.
+ * <p>
+ * Usage: {@code java -cp enactment-engine-all.jar at.enactmentengine.serverless.logging.TraceConverter
+ * trace.eetrace output.csv|output.ndjson}
+ *
+ * @author mikahautz
+ */
+public class TraceConverter {
+
+    private TraceConverter() {
+    }
+
+    /**
+     * Converts the given trace file. The format is chosen by the extension of the output file.
+     *
+     * @param args trace file and output file
+     *
+     * @throws IOException if a file could not be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: TraceConverter path/to/trace.eetrace path/to/output.csv|output.ndjson");
+            return;
+        }
+        Path output = Paths.get(args[1]);
+        if (output.toString().endsWith(".csv")) {
+            toCsv(Paths.get(args[0]), output);
+        } else {
+            toNdjson(Paths.get(args[0]), output);
+        }
+    }
+
+    /**
+     * Converts the given trace file to CSV.
+     *
+     * @param trace  the trace file.
+     * @param output the CSV file to write.
+     *
+     * @throws IOException if a file could not be read or written.
+     */
+    public static void toCsv(Path trace, Path output) throws IOException {
+        SimpleDateFormat format = CsvLogBackend.dateFormat();
+        try (TraceReader reader = new TraceReader(trace);
+             Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            writer.write(CsvLogBackend.HEADER);
+            writer.write('\n');
+            ExecutionLogRecord record;
+            StringBuilder line = new StringBuilder();
+            while ((record = reader.next()) != null) {
+                writer.write(CsvLogBackend.format(record, format, line));
+            }
+        }
+    }
+
+    /**
+     * Converts the given trace file to newline-delimited JSON.
+     *
+     * @param trace  the trace file.
+     * @param output the NDJSON file to write.
+     *
+     * @throws IOException if a file could not be read or written.
+     */
+    public static void toNdjson(Path trace, Path output) throws IOException {
+        try (TraceReader reader = new TraceReader(trace);
+             Writer writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            ExecutionLogRecord record;
+            while ((record = reader.next()) != null) {
+                writer.write(FileLogBackend.toJson(record).toString());
+                writer.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package at.enactmentengine.serverless.logging;
+
+import at.uibk.dps.util.Event;
+import at.uibk.dps.util.Type;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the records of a trace file written by the {@link TraceWriter}. The records are read block by block, so that
+ * large traces can be processed without loading them completely.
+ *
+ * @author mikahautz
+ */
+public class TraceReader implements Closeable {
+
+    /**
+     * The stream of the trace file.
+     */
+    private final DataInputStream in;
+
+    /**
+     * The strings read so far, the position is the index used in the columns.
+     */
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * The records of the current block.
+     */
+    private ExecutionLogRecord[] block = new ExecutionLogRecord[0];
+
+    /**
+     * The position of the next record in the current block.
+     */
+    private int position;
+
+    /**
+     * Default constructor for a trace reader.
+     *
+     * @param file the trace file.
+     *
+     * @throws IOException if the file could not be opened or is not a trace file.
+     */
+    public TraceReader(Path file) throws IOException {
+        in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16));
+        byte[] magic = new byte[TraceWriter.MAGIC.length];
+        try {
+            in.readFully(magic);
+            if (!Arrays.equals(magic, TraceWriter.MAGIC) || in.readByte() != TraceWriter.VERSION) {
+                throw new IOException(file + " is not a supported trace file");
+            }
+        } catch (EOFException e) {
+            in.close();
+            throw new IOException(file + " is not a supported trace file", e);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether the given file is a trace file written by the {@link TraceWriter}.
+     *
+     * @param file the file.
+     *
+     * @return true if the file starts with the magic bytes of a trace.
+     *
+     * @throws IOException if the file could not be read.
+     */
+    public static boolean isTrace(Path file) throws IOException {
+        byte[] magic = new byte[TraceWriter.MAGIC.length];
+        try (DataInputStream stream = new DataInputStream(Files.newInputStream(file))) {
+            stream.readFully(magic);
+        } catch (EOFException e) {
+            return false;
+        }
+        return Arrays.equals(magic, TraceWriter.MAGIC);
+    }
+
+    /**
+     * Reads all records of the given trace file.
+     *
+     * @param file the trace file.
+     *
+     * @return the records in the order in which they were written.
+     *
+     * @throws IOException if the file could not be read.
+     */
+    public static List<ExecutionLogRecord> readAll(Path file) throws IOException {
+        List<ExecutionLogRecord> records = new ArrayList<>();
+        try (TraceReader reader = new TraceReader(file)) {
+            ExecutionLogRecord record;
+            while ((record = reader.next()) != null) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Returns the next record of the trace.
+     *
+     * @return the next record or null if the end of the file is reached.
+     *
+     * @throws IOException if the file could not be read.
+     */
+    public ExecutionLogRecord next() throws IOException {
+        while (position == block.length) {
+            if (!readBlock()) {
+                return null;
+            }
+        }
+        return block[position++];
+    }
+
+    /**
+     * Returns the strings of the trace read so far.
+     *
+     * @return the strings ordered by their index.
+     */
+    public List<String> getStrings() {
+        return strings;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads the next block of the trace.
+     *
+     * @return false if the end of the file is reached.
+     */
+    private boolean readBlock() throws IOException {
+        int count;
+        try {
+            count = in.readInt();
+        } catch (EOFException e) {
+            return false;
+        }
+        int added = in.readInt();
+        for (int i = 0; i < added; i++) {
+            strings.add(in.readUTF());
+        }
+
+        int[] events = readInts(count);
+        int[] types = readInts(count);
+        int[] functions = readInts(count);
+        int[] functionTypes = readInts(count);
+        int[] resources = readInts(count);
+        int[] deployments = readInts(count);
+        boolean[] success = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            success[i] = in.readByte() != 0;
+        }
+        long[] rtt = new long[count];
+        for (int i = 0; i < count; i++) {
+            rtt[i] = in.readLong();
+        }
+        double[] cost = new double[count];
+        for (int i = 0; i < count; i++) {
+            cost[i] = in.readDouble();
+        }
+        int[] loopCounters = readInts(count);
+        int[] maxLoopCounters = readInts(count);
+        long[] start = new long[count];
+        for (int i = 0; i < count; i++) {
+            start[i] = in.readLong();
+        }
+
+        block = new ExecutionLogRecord[count];
+        for (int i = 0; i < count; i++) {
+            String event = string(events[i]);
+            String type = string(types[i]);
+            block[i] = new ExecutionLogRecord(event == null ? null : Event.valueOf(event), string(resources[i]),
+                    string(deployments[i]), string(functions[i]), string(functionTypes[i]), null,
+                    rtt[i] == Long.MIN_VALUE ? null : rtt[i], Double.isNaN(cost[i]) ? null : cost[i], success[i],
+                    loopCounters[i], maxLoopCounters[i], start[i], type == null ? null : Type.valueOf(type));
+        }
+        position = 0;
+        return true;
+    }
+
+    /**
+     * Reads a column of ints.
+     */
+    private int[] readInts(int count) throws IOException {
+        int[] column = new int[count];
+        for (int i = 0; i < count; i++) {
+            column[i] = in.readInt();
+        }
+        return column;
+    }
+
+    /**
+     * Returns the string with the given index.
+     */
+    private String string(int index) {
+        return index < 0 ? null : strings.get(index);
+    }
+}
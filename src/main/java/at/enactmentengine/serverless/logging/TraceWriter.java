@@ -0,0 +1,173 @@
+package at.enactmentengine.serverless.logging;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes execution log records to a compact columnar binary trace file. The file consists of a header followed by
+ * blocks; each block contains the strings first used in the block and then the records column by column. Strings
+ * (events, types, function names and types, resource links and deployments) are stored once and referenced by their
+ * index.
+ * <p>
+ * Layout of the file (big endian):
+ * <pre>
+ * header: "EETRACE" version(byte)
+ * block:  count(int) newStrings(int) string(UTF)* event(int)* type(int)* function(int)* functionType(int)*
+ *         resource(int)* deployment(int)* success(byte)* rtt(long)* cost(double)* loopCounter(int)*
+ *         maxLoopCounter(int)* start(long)*
+ * </pre>
+ * A missing string is stored as -1, a missing RTT as {@link Long#MIN_VALUE} and a missing cost as NaN. Records can
+ * be appended to an existing trace file. Use {@link TraceReader} to read the file.
+ *
+ * @author mikahautz
+ */
+public class TraceWriter implements ExecutionLogBackend {
+
+    /**
+     * The magic bytes at the start of a trace file.
+     */
+    static final byte[] MAGIC = {'E', 'E', 'T', 'R', 'A', 'C', 'E'};
+
+    /**
+     * The version of the trace format.
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * The stream of the trace file.
+     */
+    private final DataOutputStream out;
+
+    /**
+     * The index of each string written so far.
+     */
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    /**
+     * Default constructor for a trace writer. If the file already contains records, the new records are appended.
+     *
+     * @param file the trace file.
+     *
+     * @throws IOException if the file could not be opened or is not a trace file.
+     */
+    public TraceWriter(Path file) throws IOException {
+        boolean append = Files.exists(file) && Files.size(file) > 0;
+        if (append) {
+            /* Continue with the strings of the existing file */
+            try (TraceReader reader = new TraceReader(file)) {
+                while (reader.next() != null) {
+                    /* read all blocks to collect the strings */
+                }
+                List<String> existing = reader.getStrings();
+                for (int i = 0; i < existing.size(); i++) {
+                    strings.put(existing.get(i), i);
+                }
+            }
+        }
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND), 1 << 16));
+        if (!append) {
+            out.write(MAGIC);
+            out.writeByte(VERSION);
+        }
+    }
+
+    @Override
+    public void write(List<ExecutionLogRecord> records) throws IOException {
+        int count = records.size();
+        if (count == 0) {
+            return;
+        }
+
+        /* Encode the string columns and collect the strings which are new in this block */
+        List<String> added = new ArrayList<>();
+        int[] events = new int[count];
+        int[] types = new int[count];
+        int[] functions = new int[count];
+        int[] functionTypes = new int[count];
+        int[] resources = new int[count];
+        int[] deployments = new int[count];
+        for (int i = 0; i < count; i++) {
+            ExecutionLogRecord record = records.get(i);
+            events[i] = index(record.getEvent() == null ? null : record.getEvent().name(), added);
+            types[i] = index(record.getType() == null ? null : record.getType().name(), added);
+            functions[i] = index(record.getFunctionName(), added);
+            functionTypes[i] = index(record.getFunctionType(), added);
+            resources[i] = index(record.getResourceLink(), added);
+            deployments[i] = index(record.getDeployment(), added);
+        }
+
+        out.writeInt(count);
+        out.writeInt(added.size());
+        for (String string : added) {
+            out.writeUTF(string);
+        }
+        writeInts(events);
+        writeInts(types);
+        writeInts(functions);
+        writeInts(functionTypes);
+        writeInts(resources);
+        writeInts(deployments);
+        for (ExecutionLogRecord record : records) {
+            out.writeByte(record.isSuccess() ? 1 : 0);
+        }
+        for (ExecutionLogRecord record : records) {
+            out.writeLong(record.getRtt() == null ? Long.MIN_VALUE : record.getRtt());
+        }
+        for (ExecutionLogRecord record : records) {
+            out.writeDouble(record.getCost() == null ? Double.NaN : record.getCost());
+        }
+        for (ExecutionLogRecord record : records) {
+            out.writeInt(record.getLoopCounter());
+        }
+        for (ExecutionLogRecord record : records) {
+            out.writeInt(record.getMaxLoopCounter());
+        }
+        for (ExecutionLogRecord record : records) {
+            out.writeLong(record.getStart());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * Returns the index of the given string and remembers new strings.
+     */
+    private int index(String string, List<String> added) {
+        if (string == null) {
+            return -1;
+        }
+        Integer index = strings.get(string);
+        if (index == null) {
+            index = strings.size();
+            strings.put(string, index);
+            added.add(string);
+        }
+        return index;
+    }
+
+    /**
+     * Writes a column of ints.
+     */
+    private void writeInts(int[] column) throws IOException {
+        for (int value : column) {
+            out.writeInt(value);
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package at.enactmentengine.serverless.main;
 
+import at.enactmentengine.serverless.logging.ExecutionLogSink;
+import at.enactmentengine.serverless.metrics.CostLedger;
 import at.enactmentengine.serverless.nodes.ExecutableWorkflow;
 import at.enactmentengine.serverless.parser.Language;
 import at.enactmentengine.serverless.parser.YAMLParser;
-import at.uibk.dps.databases.MongoDBAccess;
 import at.uibk.dps.util.Event;
 import at.uibk.dps.util.Type;
 import com.google.gson.Gson;
@@ -116,16 +117,20 @@ class Executor {
                 workflowOutput = ex.executeWorkflow(this.workflowInput);
             } catch (Exception e) {
                 LOGGER.error(e.getMessage(), e);
-                MongoDBAccess.saveLog(Event.WORKFLOW_FAILED, null, null, null, null, null, System.currentTimeMillis() - start, false, -1, -1, start, Type.EXEC);
+                ExecutionLogSink.get().log(Event.WORKFLOW_FAILED, null, null, null, null, null, System.currentTimeMillis() - start, false, -1, -1, start, Type.EXEC);
+                ExecutionLogSink.get().flush();
                 return null;
             }
 
             /* Measure end time of the workflow execution */
             long end = System.currentTimeMillis();
-            LOGGER.info("Execution took {}ms.", (end - start));
+            CostLedger costLedger = ex.getContext().getCostLedger();
+            LOGGER.info("Execution took {}ms with an estimated cost of {}.", (end - start), costLedger.getTotal());
+            LOGGER.info("Cost breakdown:\n{}", costLedger.toReport());
             boolean success = ex.getEndNode().getResult() != null;
             Event event = success ? Event.WORKFLOW_END : Event.WORKFLOW_FAILED;
-            MongoDBAccess.saveLog(event, null, null, null, null, null, end - start, success, -1, -1, start, Type.EXEC);
+            ExecutionLogSink.get().log(event, null, null, null, null, null, end - start, success, -1, -1, start, Type.EXEC);
+            ExecutionLogSink.get().flush();
         }
 
         return workflowOutput;
@@ -1,6 +1,7 @@
 package at.enactmentengine.serverless.main;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
+import at.enactmentengine.serverless.logging.ExecutionLogSink;
 import at.enactmentengine.serverless.nodes.ExecutableWorkflow;
 import at.enactmentengine.serverless.parser.Language;
 import at.enactmentengine.serverless.parser.YAMLParser;
@@ -54,6 +55,9 @@ public class LambdaHandler implements RequestHandler<LambdaHandler.InputObject,
                     executionResult = ex.executeWorkflow(inputObject.getInput());
                 } catch (MissingInputDataException | ExecutionException | InterruptedException e) {
                     e.printStackTrace();
+                } finally {
+                    /* The container may be frozen after the response, so write the logs now */
+                    ExecutionLogSink.get().flush();
                 }
             } else {
                 return "{\"result\": \"Error: Could not run workflow. Request not valid.\"}";
@@ -1,25 +1,41 @@
 package at.enactmentengine.serverless.main;
 
+import at.enactmentengine.serverless.logging.ExecutionLogSink;
+import at.enactmentengine.serverless.metrics.Metrics;
+import at.enactmentengine.serverless.metrics.MetricsRegistry;
+import at.enactmentengine.serverless.metrics.MetricsServer;
+import at.enactmentengine.serverless.parser.WorkflowPlan;
+import at.enactmentengine.serverless.scheduler.MemoryRecommender;
+import at.enactmentengine.serverless.scheduler.PlacementOptimizer;
+import at.enactmentengine.serverless.simulation.AnalyticalEstimator;
+import at.enactmentengine.serverless.simulation.LatencyModel;
+import at.enactmentengine.serverless.simulation.SensitivityAnalysis;
 import at.enactmentengine.serverless.simulation.SimulationParameters;
 import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.enactmentengine.serverless.tracing.ChromeTraceWriter;
+import at.enactmentengine.serverless.tracing.CriticalPath;
+import at.enactmentengine.serverless.tracing.SpanRecorder;
 import at.enactmentengine.serverless.utils.LoggerUtil;
+import at.uibk.dps.afcl.Workflow;
 import at.uibk.dps.cronjob.ManualUpdate;
 import at.uibk.dps.databases.MongoDBAccess;
 import at.uibk.dps.util.Type;
 import ch.qos.logback.classic.Level;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang.StringEscapeUtils;
 import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.text.SimpleDateFormat;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Arrays;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -57,6 +73,15 @@ public class Local {
 
         /* Check for inputs and execute workflow */
         Map<String, Object> result = null;
+        String metricsFile = null;
+        MetricsServer metricsServer = null;
+        String chromeTraceFile = null;
+        String criticalPathFile = null;
+        String compileFile = null;
+        String optimizeFile = null;
+        String memoryBudget = null;
+        int replications = 0;
+        boolean criticalPath = false;
         try {
             int length = args.length;
             List<String> parameterList = Arrays.asList(args);
@@ -80,6 +105,16 @@ public class Local {
             }
             boolean export = parameterList.contains("--export");
             if (export) {
+                ExecutionLogSink.CSV_FILE = "output.csv";
+                length -= 1;
+            }
+            if (parameterList.contains("--trace")) {
+                ExecutionLogSink.TRACE_FILE = "output.eetrace";
+                length -= 1;
+            }
+            criticalPath = parameterList.contains("--critical-path");
+            if (criticalPath) {
+                SpanRecorder.ENABLED = true;
                 length -= 1;
             }
             boolean update = parameterList.contains("--update");
@@ -89,11 +124,126 @@ public class Local {
                 ManualUpdate.main(null);
                 logger.info("Updating complete!");
             }
+            boolean estimate = parameterList.contains("--estimate");
+            if (estimate) {
+                length -= 1;
+            }
+            boolean recommendMemory = parameterList.contains("--recommend-memory");
+            if (recommendMemory) {
+                length -= 1;
+            }
             boolean hideCredentials = parameterList.contains("--hide-credentials");
             if (hideCredentials) {
                 LoggerUtil.HIDE_CREDENTIALS = true;
                 length -= 1;
             }
+            /* The parameters of the simulation have no effect on an execution */
+            for (String parameter : parameterList) {
+                if (!simulate && (parameter.startsWith("--seed=") || parameter.startsWith("--latency-model=")
+                        || parameter.startsWith("--sensitivity="))) {
+                    logger.error("{} can only be used with --simulate", parameter.substring(0, parameter.indexOf('=')));
+                    return;
+                }
+            }
+            for (String parameter : parameterList) {
+                if (parameter.startsWith("--trace=")) {
+                    ExecutionLogSink.TRACE_FILE = parameter.substring("--trace=".length());
+                    length -= 1;
+                } else if (parameter.startsWith("--log-file=")) {
+                    ExecutionLogSink.LOG_FILE = parameter.substring("--log-file=".length());
+                    length -= 1;
+                } else if (parameter.startsWith("--chrome-trace=")) {
+                    chromeTraceFile = parameter.substring("--chrome-trace=".length());
+                    SpanRecorder.ENABLED = true;
+                    length -= 1;
+                } else if (parameter.startsWith("--critical-path=")) {
+                    criticalPathFile = parameter.substring("--critical-path=".length());
+                    criticalPath = true;
+                    SpanRecorder.ENABLED = true;
+                    length -= 1;
+                } else if (parameter.startsWith("--sensitivity=")) {
+                    replications = Integer.parseInt(parameter.substring("--sensitivity=".length()));
+                    length -= 1;
+                } else if (parameter.startsWith("--latency-model=")) {
+                    String latencyFile = parameter.substring("--latency-model=".length());
+                    LatencyModel latencyModel = LatencyModel.load(Paths.get(latencyFile));
+                    simulator.setLatencyModel(latencyModel);
+                    logger.info("Learned the latency distributions of {} deployments from {}", latencyModel.size(), latencyFile);
+                    length -= 1;
+                } else if (parameter.startsWith("--seed=")) {
+                    SimulationParameters.SEED = Long.parseLong(parameter.substring("--seed=".length()));
+                    length -= 1;
+                } else if (parameter.startsWith("--recommend-memory=")) {
+                    memoryBudget = parameter.substring("--recommend-memory=".length());
+                    recommendMemory = true;
+                    length -= 1;
+                } else if (parameter.startsWith("--optimize=")) {
+                    optimizeFile = parameter.substring("--optimize=".length());
+                    length -= 1;
+                } else if (parameter.startsWith("--compile=")) {
+                    compileFile = parameter.substring("--compile=".length());
+                    length -= 1;
+                } else if (parameter.startsWith("--metrics=")) {
+                    metricsFile = parameter.substring("--metrics=".length());
+                    Metrics.ENABLED = true;
+                    length -= 1;
+                } else if (parameter.startsWith("--metrics-port=")) {
+                    metricsServer = new MetricsServer(Integer.parseInt(parameter.substring("--metrics-port=".length())));
+                    length -= 1;
+                }
+            }
+            boolean noDatabaseLogs = parameterList.contains("--no-db-log");
+            if (noDatabaseLogs) {
+                ExecutionLogSink.MONGODB = false;
+                length -= 1;
+            }
+            boolean dropLogs = parameterList.contains("--log-drop");
+            if (dropLogs) {
+                ExecutionLogSink.POLICY = ExecutionLogSink.BackpressurePolicy.DROP;
+                length -= 1;
+            }
+
+            /* Compile the workflow into a plan instead of running it */
+            if (compileFile != null && length > 0) {
+                Workflow workflow = at.uibk.dps.afcl.utils.Utils.readYAMLNoValidation(FileUtils.readFileToByteArray(new File(args[0])));
+                Files.write(Paths.get(compileFile), WorkflowPlan.compile(workflow));
+                logger.info("Compiled {} to {}", args[0], compileFile);
+                return;
+            }
+
+            /* Estimate the workflow analytically or optimize its deployments instead of running it */
+            if ((estimate || optimizeFile != null || recommendMemory) && length > 0) {
+                byte[] content = FileUtils.readFileToByteArray(new File(args[0]));
+                Workflow workflow = WorkflowPlan.isPlan(content) ? WorkflowPlan.read(content)
+                        : at.uibk.dps.afcl.utils.Utils.readYAMLNoValidation(content);
+                Map<String, Object> input = null;
+                if (length > 1) {
+                    input = new Gson().fromJson(FileUtils.readFileToString(new File(args[1]), StandardCharsets.UTF_8),
+                            new TypeToken<HashMap<String, Object>>() {
+                            }.getType());
+                }
+                if (recommendMemory) {
+                    for (MemoryRecommender.Recommendation recommendation : MemoryRecommender.parse(input, memoryBudget).recommend(workflow)) {
+                        logger.info("Memory recommendation: {}", recommendation);
+                    }
+                    return;
+                }
+                if (optimizeFile != null) {
+                    PlacementOptimizer optimizer = new PlacementOptimizer(workflow, input);
+                    List<PlacementOptimizer.Placement> front = optimizer.optimize();
+                    for (PlacementOptimizer.Placement placement : front) {
+                        logger.info("Pareto optimal placement: {}", placement);
+                    }
+                    PlacementOptimizer.Placement chosen = PlacementOptimizer.choose(front);
+                    at.uibk.dps.afcl.utils.Utils.writeYamlNoValidation(optimizer.apply(chosen), optimizeFile);
+                    logger.info("Wrote placement {} to {}", chosen, optimizeFile);
+                    return;
+                }
+                long estimateStart = System.nanoTime();
+                AnalyticalEstimator.Estimate estimation = new AnalyticalEstimator(input).estimate(workflow);
+                logger.info("Estimated {} in {}us: {}", args[0], (System.nanoTime() - estimateStart) / 1000, estimation);
+                return;
+            }
 
             String workflowContent = null;
             String workflowInput = null;
@@ -107,41 +257,92 @@ public class Local {
             /* Measure start time of the workflow execution */
             long start = System.currentTimeMillis();
 
-            if (length > 1 && simulate) {
-                MongoDBAccess.saveLogWorkflowStart(Type.SIM, workflowContent, workflowInput, start);
+            if (length > 0 && simulate && replications > 0) {
+                logWorkflowStart(Type.SIM, workflowContent, workflowInput, start);
+                List<SensitivityAnalysis.Index> indices = simulator.analyzeSensitivity(args[0], length > 1 ? args[1] : null,
+                        replications, start);
+                for (SensitivityAnalysis.Index index : indices) {
+                    logger.info("Sensitivity of the makespan: {}", index);
+                }
+            } else if (length > 1 && simulate) {
+                logWorkflowStart(Type.SIM, workflowContent, workflowInput, start);
                 result = simulator.simulateWorkflow(args[0], args[1], -1, start);
             } else if (length > 0 && simulate) {
-                MongoDBAccess.saveLogWorkflowStart(Type.SIM, workflowContent, null, start);
+                logWorkflowStart(Type.SIM, workflowContent, null, start);
                 result = simulator.simulateWorkflow(args[0], null, -1, start);
             } else if (length > 1) {
-                MongoDBAccess.saveLogWorkflowStart(Type.EXEC, workflowContent, workflowInput, start);
+                logWorkflowStart(Type.EXEC, workflowContent, workflowInput, start);
                 result = executor.executeWorkflow(args[0], args[1], -1, start);
             } else if (length > 0) {
-                MongoDBAccess.saveLogWorkflowStart(Type.EXEC, workflowContent, null, start);
+                logWorkflowStart(Type.EXEC, workflowContent, null, start);
                 result = executor.executeWorkflow(args[0], null, -1, start);
             } else {
-                logger.error("Usage: java -jar enactment-engine-all.jar path/to/workflow.yaml [path/to/input.json] [--simulate] [--ignore-FT] [--update] [--export] [--hide-credentials]");
+                logger.error("Usage: java -jar enactment-engine-all.jar path/to/workflow.yaml [path/to/input.json] [--simulate] [--ignore-FT] [--update] [--export] [--trace[=<path>]] [--hide-credentials] [--log-file=<path>] [--log-drop] [--no-db-log] [--metrics=<path>] [--metrics-port=<port>] [--chrome-trace=<path>] [--critical-path[=<path>]] [--compile=<path>] [--seed=<seed>] [--estimate] [--optimize=<path>] [--recommend-memory[=latency:<ms>|cost:<value>]] [--sensitivity=<replications>] [--latency-model=<path>]");
             }
             if (!simulate) {
                 logger.info("Result: {}", result);
             }
-            if (export) {
-                exportLogsToFile();
-            }
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
-            try {
-                MongoDBAccess.addAllEntries();
-                if (close) {
-                    MongoDBAccess.close();
+            ExecutionLogSink.get().close();
+            if (metricsFile != null) {
+                try (Writer writer = Files.newBufferedWriter(Paths.get(metricsFile), StandardCharsets.UTF_8)) {
+                    MetricsRegistry.get().writePrometheus(writer);
+                } catch (IOException e) {
+                    logger.error("Could not write metrics to {}: {}", metricsFile, e.getMessage());
+                }
+            }
+            if (metricsServer != null) {
+                metricsServer.stop();
+            }
+            if (chromeTraceFile != null) {
+                try {
+                    ChromeTraceWriter.write(SpanRecorder.get().getSpans(), Paths.get(chromeTraceFile));
+                } catch (IOException e) {
+                    logger.error("Could not write trace to {}: {}", chromeTraceFile, e.getMessage());
+                }
+            }
+            if (criticalPath) {
+                String report = CriticalPath.analyze(SpanRecorder.get().getSpans()).toReport();
+                if (criticalPathFile == null) {
+                    logger.info("Critical path analysis:\n{}", report);
+                } else {
+                    try {
+                        Files.write(Paths.get(criticalPathFile), report.getBytes(StandardCharsets.UTF_8));
+                    } catch (IOException e) {
+                        logger.error("Could not write critical path to {}: {}", criticalPathFile, e.getMessage());
+                    }
+                }
+            }
+            SpanRecorder.get().clear();
+            if (ExecutionLogSink.MONGODB) {
+                try {
+                    MongoDBAccess.addAllEntries();
+                    if (close) {
+                        MongoDBAccess.close();
+                    }
+                } catch (IOException e) {
+                    logger.info("No mongoDatabase.properties file found. Logs will not be stored in a database.");
                 }
-            } catch (IOException e) {
-                logger.info("No mongoDatabase.properties file found. Logs will not be stored in a database.");
             }
         }
     }
 
+    /**
+     * Logs the start of the workflow to MongoDB unless the logs are not stored in the database.
+     *
+     * @param type     whether the workflow is executed or simulated
+     * @param workflow the content of the workflow file
+     * @param input    the content of the input file
+     * @param start    the start time in milliseconds
+     */
+    private static void logWorkflowStart(Type type, String workflow, String input, long start) {
+        if (ExecutionLogSink.MONGODB) {
+            MongoDBAccess.saveLogWorkflowStart(type, workflow, input, start);
+        }
+    }
+
     /**
      * Executes the main method and returns a list of all logs.
      *
@@ -156,71 +357,4 @@ public class Local {
         MongoDBAccess.close();
         return logs;
     }
-
-    /**
-     * Exports all log entries to a file called "output.csv".
-     */
-    private static void exportLogsToFile() {
-        StringBuilder header = new StringBuilder();
-        StringBuilder sb = new StringBuilder();
-        PrintWriter writer = null;
-        String filename = "output.csv";
-        try {
-            writer = new PrintWriter(new FileWriter(filename, true));
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-        // get all log entries
-        List<Document> logs = MongoDBAccess.getAllEntries();
-
-        int i = 0;
-        for (Document d : logs) {
-            // iterate over every field in the document
-            for (Map.Entry<String, Object> entry : d.entrySet()) {
-                String key = entry.getKey();
-                // ignore unneeded fields for the user
-                if (key.equals("workflow_id") || key.equals("done") || key.equals("_id")) {
-                    continue;
-                }
-                // if it is the first iteration, build the header
-                if (i == 0) {
-                    header.append(key);
-                    header.append(",");
-                }
-                // if the entry is a date, reformat and append
-                if (entry.getValue() instanceof Date) {
-                    Date date = (Date) entry.getValue();
-                    sb.append(new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSX").format(date));
-                } else if (entry.getValue() != null) {
-                    if (entry.getValue().toString().contains(",")) {
-                        // if the entry is not null, append it to the string-builder
-                        sb.append("\"" + StringEscapeUtils.escapeJava(entry.getValue().toString()).replace("\"", "\"\"") + "\"");
-                    } else {
-                        // if the entry is not null, append it to the string-builder
-                        sb.append(StringEscapeUtils.escapeJava(entry.getValue().toString()));
-                    }
-
-                }
-                sb.append(",");
-            }
-            // if it is the first iteration and the file is empty, write the header
-            if (i == 0 && new File(filename).length() == 0) {
-                header.setLength(header.length() - 1);
-                header.append("\n");
-                writer.write(header.toString());
-            } else if (i == 0) {
-                // if it is the first iteration and the file already contains some values, insert an empty line as divider
-                writer.write("\n");
-            }
-            // remove the last char (= ",") and append a newline
-            sb.setLength(sb.length() - 1);
-            sb.append("\n");
-            // write the values to the file
-            writer.write(sb.toString());
-            // reset the string-builder
-            sb.setLength(0);
-            i++;
-        }
-        writer.close();
-    }
 }
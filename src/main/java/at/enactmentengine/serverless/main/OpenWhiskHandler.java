@@ -1,6 +1,7 @@
 package at.enactmentengine.serverless.main;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
+import at.enactmentengine.serverless.logging.ExecutionLogSink;
 import at.enactmentengine.serverless.nodes.ExecutableWorkflow;
 import at.enactmentengine.serverless.parser.Language;
 import at.enactmentengine.serverless.parser.YAMLParser;
@@ -39,6 +40,11 @@ public class OpenWhiskHandler {
      */
     private static final String LANGUAGE_FIELD = "language";
 
+    /**
+     * Mapper for the workflow input, kept across warm invocations.
+     */
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
     /**
      * Default empty constructor.
      */
@@ -71,11 +77,13 @@ public class OpenWhiskHandler {
                 ExecutableWorkflow ex = new YAMLParser().parseExecutableWorkflowByStringContent(args.getAsJsonPrimitive("workflow").getAsString(), language, executionId);
                 try {
                     /* Execute the workflow */
-                    ObjectMapper objectMapper = new ObjectMapper();
                     Map<String, Object> executionResult = ex.executeWorkflow(objectMapper.readValue(args.getAsJsonPrimitive("input").getAsString(), Map.class));
                     response.addProperty(RESULT_FIELD, String.valueOf(executionResult));
                 } catch (MissingInputDataException | ExecutionException | InterruptedException | IOException e) {
                     e.printStackTrace();
+                } finally {
+                    /* The container may be frozen after the response, so write the logs now */
+                    ExecutionLogSink.get().flush();
                 }
             } else {
                 response.addProperty(RESULT_FIELD, "Error: Could not run workflow. Request not valid.");
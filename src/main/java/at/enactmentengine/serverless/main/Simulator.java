@@ -1,10 +1,14 @@
 package at.enactmentengine.serverless.main;
 
+import at.enactmentengine.serverless.logging.ExecutionLogSink;
+import at.enactmentengine.serverless.metrics.CostLedger;
+import at.enactmentengine.serverless.simulation.DeploymentParameters;
+import at.enactmentengine.serverless.simulation.LatencyModel;
+import at.enactmentengine.serverless.simulation.SensitivityAnalysis;
 import at.enactmentengine.serverless.simulation.SimulationParameters;
 import at.enactmentengine.serverless.nodes.ExecutableWorkflow;
 import at.enactmentengine.serverless.parser.Language;
 import at.enactmentengine.serverless.parser.YAMLParser;
-import at.uibk.dps.databases.MongoDBAccess;
 import at.uibk.dps.util.Event;
 import at.uibk.dps.util.Type;
 import com.google.gson.Gson;
@@ -17,6 +21,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
@@ -37,6 +42,16 @@ public class Simulator {
      */
     private Map<String, Object> workflowInput;
 
+    /**
+     * The simulated makespan of the last simulated workflow.
+     */
+    private long makespan;
+
+    /**
+     * The learned latency distributions or null if the default normal distribution is used.
+     */
+    private LatencyModel latencyModel;
+
     /**
      * Default constructor for Simulator.
      */
@@ -93,12 +108,21 @@ public class Simulator {
         /* Create an executable workflow */
         ExecutableWorkflow ex = new YAMLParser().parseExecutableWorkflow(workflow, Language.YAML, executionId, true);
 
+        /* The metadata is read again */
+        DeploymentParameters.clear();
+
         /* Create variable to store workflow output */
         Map<String, Object> workflowOutput = null;
+        makespan = 0;
 
         /* Check if conversion to executable workflow was successful */
         if (ex != null) {
 
+            /* The simulated clock starts with the workflow */
+            ex.getContext().getTimeline().start(start);
+            ex.getContext().setLatencyModel(latencyModel);
+            CostLedger costLedger = ex.getContext().getCostLedger();
+
             /* Check of there is a workflow input */
             if (workflowInput != null) {
 
@@ -113,20 +137,61 @@ public class Simulator {
                 workflowOutput = ex.simulateWorkflow(this.workflowInput);
             } catch (Exception e) {
                 LOGGER.error(e.getMessage(), e);
-                MongoDBAccess.saveLog(Event.WORKFLOW_FAILED, null, null, null, null, null, System.currentTimeMillis() - start,
-                        SimulationParameters.workflowCost, false, -1, -1, start, Type.SIM);
+                makespan = ex.getContext().getTimeline().getLastEnd() - start;
+                ExecutionLogSink.get().log(Event.WORKFLOW_FAILED, null, null, null, null, null, System.currentTimeMillis() - start,
+                        costLedger.getTotal(), false, -1, -1, start, Type.SIM);
                 return null;
             }
 
-            long simWorkflowDuration = MongoDBAccess.getLastEndDateOverall() - start;
+            makespan = ex.getContext().getTimeline().getLastEnd() - start;
             boolean success = ex.getEndNode().getResult() != null;
             Event event = success ? Event.WORKFLOW_END : Event.WORKFLOW_FAILED;
 
-            LOGGER.info("Simulation of workflow takes {}ms with a cost of {}.", simWorkflowDuration, SimulationParameters.workflowCost);
-            MongoDBAccess.saveLog(event, null, null, null, null, null, simWorkflowDuration, SimulationParameters.workflowCost, success, -1, -1, start, Type.SIM);
+            double cost = costLedger.getTotal();
+            LOGGER.info("Simulation of workflow takes {}ms with a cost of {}.", makespan, cost);
+            LOGGER.info("Cost breakdown:\n{}", costLedger.toReport());
+            ExecutionLogSink.get().log(event, null, null, null, null, null, makespan, cost, success, -1, -1, start, Type.SIM);
         }
 
         return workflowOutput;
     }
 
+    /**
+     * Simulates the given workflow several times and determines which functions drive the variance of the makespan.
+     * If a seed is set, replication i is simulated with the seed plus i, so the analysis is reproducible.
+     *
+     * @param workflow      path to workflow yaml file which should be simulated.
+     * @param workflowInput path to input json file which should be used as workflow input.
+     * @param replications  the number of replications.
+     * @param start         the start time
+     *
+     * @return the sensitivity indices of the functions ordered by decreasing first-order index.
+     */
+    List<SensitivityAnalysis.Index> analyzeSensitivity(String workflow, String workflowInput, int replications, long start) {
+        Long seed = SimulationParameters.SEED;
+        SensitivityAnalysis.ENABLED = true;
+        SensitivityAnalysis.get().reset();
+        try {
+            for (int i = 0; i < replications; i++) {
+                SimulationParameters.SEED = seed == null ? null : seed + i;
+                simulateWorkflow(workflow, workflowInput, -1, start);
+                SensitivityAnalysis.get().finishReplication(makespan);
+            }
+        } finally {
+            SimulationParameters.SEED = seed;
+            SensitivityAnalysis.ENABLED = false;
+        }
+        LOGGER.info("Simulated {} replications of workflow {}.", replications, workflow);
+        return SensitivityAnalysis.get().analyze();
+    }
+
+    /**
+     * Sets the learned latency distributions used by the following simulations.
+     *
+     * @param latencyModel the latency model or null to use the default normal distribution.
+     */
+    void setLatencyModel(LatencyModel latencyModel) {
+        this.latencyModel = latencyModel;
+    }
+
 }
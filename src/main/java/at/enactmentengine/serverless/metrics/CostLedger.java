@@ -0,0 +1,122 @@
+package at.enactmentengine.serverless.metrics;
+
+import at.enactmentengine.serverless.tracing.TraceScope;
+import at.uibk.dps.util.Provider;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * The cost of a single workflow execution or simulation, held by its execution context. The nodes add the cost of
+ * every invocation concurrently, so the sums are kept in {@link DoubleAdder}s instead of a shared {@code double}, and
+ * are broken down per function, per provider and per construct.
+ *
+ * @author mikahautz
+ */
+public final class CostLedger {
+
+    /**
+     * The construct of functions that are not nested in another construct.
+     */
+    static final String WORKFLOW = "workflow";
+
+    /**
+     * The total cost.
+     */
+    private final DoubleAdder total = new DoubleAdder();
+
+    /**
+     * The cost per function name.
+     */
+    private final ConcurrentMap<String, DoubleAdder> functions = new ConcurrentHashMap<>();
+
+    /**
+     * The cost per provider.
+     */
+    private final ConcurrentMap<String, DoubleAdder> providers = new ConcurrentHashMap<>();
+
+    /**
+     * The cost per construct, identified by its scope without branch and iteration indices.
+     */
+    private final ConcurrentMap<String, DoubleAdder> constructs = new ConcurrentHashMap<>();
+
+    /**
+     * Default constructor for the ledger of an execution.
+     */
+    public CostLedger() {
+    }
+
+    /**
+     * Adds the cost of an invocation.
+     *
+     * @param function the name of the function.
+     * @param provider the provider the function ran at.
+     * @param scope    the scope of the function within the workflow.
+     * @param cost     the cost of the invocation.
+     */
+    public void record(String function, Provider provider, String scope, double cost) {
+        total.add(cost);
+        add(functions, String.valueOf(function), cost);
+        add(providers, String.valueOf(provider), cost);
+        String construct = scope == null ? "" : TraceScope.withoutIndices(scope);
+        add(constructs, construct.isEmpty() ? WORKFLOW : construct, cost);
+    }
+
+    /** Getter */
+
+    public double getTotal() {
+        return total.sum();
+    }
+
+    public Map<String, Double> getFunctions() {
+        return snapshot(functions);
+    }
+
+    public Map<String, Double> getProviders() {
+        return snapshot(providers);
+    }
+
+    public Map<String, Double> getConstructs() {
+        return snapshot(constructs);
+    }
+
+    /**
+     * Returns a human readable breakdown of the cost.
+     *
+     * @return the breakdown.
+     */
+    public String toReport() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("total: %.10f%n", getTotal()));
+        append(builder, "function", getFunctions());
+        append(builder, "provider", getProviders());
+        append(builder, "construct", getConstructs());
+        return builder.toString();
+    }
+
+    /**
+     * Adds a cost to the sum of a key.
+     */
+    private static void add(ConcurrentMap<String, DoubleAdder> sums, String key, double cost) {
+        sums.computeIfAbsent(key, k -> new DoubleAdder()).add(cost);
+    }
+
+    /**
+     * Returns the current sums ordered by key.
+     */
+    private static Map<String, Double> snapshot(ConcurrentMap<String, DoubleAdder> sums) {
+        Map<String, Double> result = new TreeMap<>();
+        sums.forEach((key, sum) -> result.put(key, sum.sum()));
+        return result;
+    }
+
+    /**
+     * Appends one breakdown to a report.
+     */
+    private static void append(StringBuilder builder, String kind, Map<String, Double> sums) {
+        sums.forEach((key, sum) -> builder.append(String.format("%s %s: %.10f%n", kind, key, sum)));
+    }
+}
@@ -0,0 +1,41 @@
+package at.enactmentengine.serverless.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A monotonically increasing counter which can be incremented concurrently without contention.
+ *
+ * @author mikahautz
+ */
+public class Counter {
+
+    /**
+     * The value of the counter.
+     */
+    private final LongAdder value = new LongAdder();
+
+    /**
+     * Increments the counter by one.
+     */
+    public void increment() {
+        value.increment();
+    }
+
+    /**
+     * Increments the counter by the given amount.
+     *
+     * @param amount the amount to add.
+     */
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    /**
+     * Returns the value of the counter.
+     *
+     * @return the value of the counter.
+     */
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,219 @@
+package at.enactmentengine.serverless.metrics;
+
+import at.enactmentengine.serverless.object.BlobHandle;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * The metrics recorded by the enactment engine. Nothing is recorded unless {@link #ENABLED} is set, so the
+ * instrumentation does not cost anything in a normal run.
+ * <p>
+ * Retries, switches to an alternative plan and throttles are only counted by the simulation. A live invocation is
+ * retried by the fault tolerance engine, which does not report its attempts, and the concurrency of a live parallelFor
+ * is limited by its thread pool, whose waiting times are recorded by {@link #queueWait(long)}.
+ *
+ * @author mikahautz
+ */
+public final class Metrics {
+
+    /**
+     * Whether metrics should be recorded.
+     */
+    public static boolean ENABLED = false;
+
+    /**
+     * The label used for per-function metrics.
+     */
+    private static final String FUNCTION = "function";
+
+    private Metrics() {
+    }
+
+    /**
+     * Records the round trip time of a function invocation or simulation.
+     *
+     * @param function the name of the function.
+     * @param rtt      the round trip time in milliseconds.
+     */
+    public static void functionRtt(String function, long rtt) {
+        if (ENABLED) {
+            MetricsRegistry.get().histogram("ee_function_rtt_milliseconds",
+                    "Round trip time of the function invocations.", FUNCTION, String.valueOf(function)).record(rtt);
+        }
+    }
+
+    /**
+     * Records the time a node waited in a thread pool before it was started.
+     *
+     * @param nanos the waiting time in nanoseconds.
+     */
+    public static void queueWait(long nanos) {
+        if (ENABLED) {
+            MetricsRegistry.get().histogram("ee_queue_wait_microseconds",
+                    "Time a node waited for a thread before it was invoked.").record(nanos / 1000);
+        }
+    }
+
+    /**
+     * Records the time needed to parse a workflow.
+     *
+     * @param millis the parse time in milliseconds.
+     */
+    public static void parseTime(long millis) {
+        if (ENABLED) {
+            MetricsRegistry.get().histogram("ee_workflow_parse_milliseconds",
+                    "Time needed to parse a workflow.").record(millis);
+        }
+    }
+
+    /**
+     * Records the time a parallelFor needed to distribute its input and start all iterations.
+     *
+     * @param millis the fan-out time in milliseconds.
+     */
+    public static void fanOut(long millis) {
+        if (ENABLED) {
+            MetricsRegistry.get().histogram("ee_parallel_for_fan_out_milliseconds",
+                    "Time from the start of a parallelFor until all iterations are started.").record(millis);
+        }
+    }
+
+    /**
+     * Records the time between the first and the last finished iteration of a parallelFor.
+     *
+     * @param millis the fan-in time in milliseconds.
+     */
+    public static void fanIn(long millis) {
+        if (ENABLED) {
+            MetricsRegistry.get().histogram("ee_parallel_for_fan_in_milliseconds",
+                    "Time from the first to the last finished iteration of a parallelFor.").record(millis);
+        }
+    }
+
+    /**
+     * Records the size of the serialized input of a function.
+     *
+     * @param function the name of the function.
+     * @param bytes    the size of the input (see {@link #estimateSize(Object)}).
+     */
+    public static void inputSize(String function, long bytes) {
+        if (ENABLED) {
+            MetricsRegistry.get().histogram("ee_function_input_bytes",
+                    "Size of the serialized function inputs.", FUNCTION, String.valueOf(function)).record(bytes);
+        }
+    }
+
+    /**
+     * Records the size of the serialized output of a function.
+     *
+     * @param function the name of the function.
+     * @param bytes    the size of the output in characters.
+     */
+    public static void outputSize(String function, long bytes) {
+        if (ENABLED) {
+            MetricsRegistry.get().histogram("ee_function_output_bytes",
+                    "Size of the serialized function outputs.", FUNCTION, String.valueOf(function)).record(bytes);
+        }
+    }
+
+    /**
+     * Estimates the size of the given value serialized as JSON without serializing it. Strings are counted by their
+     * characters and numbers with 8 bytes, and escapes are ignored. Brackets, quotes and separators are counted as in the
+     * serialized form.
+     *
+     * @param value the value, e.g. the input of a function.
+     *
+     * @return the estimated size in bytes.
+     */
+    public static long estimateSize(Object value) {
+        if (value == null || value instanceof Boolean) {
+            return 5;
+        } else if (value instanceof Number) {
+            return 8;
+        } else if (value instanceof String) {
+            return ((String) value).length() + 2L;
+        } else if (value instanceof BlobHandle) {
+            return ((BlobHandle) value).getSize();
+        } else if (value instanceof Map) {
+            long size = 1;
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                size += String.valueOf(entry.getKey()).length() + 4 + estimateSize(entry.getValue());
+            }
+            return Math.max(size, 2);
+        } else if (value instanceof Collection) {
+            long size = 1;
+            for (Object element : (Collection<?>) value) {
+                size += estimateSize(element) + 1;
+            }
+            return Math.max(size, 2);
+        } else if (value instanceof JsonElement) {
+            return estimateSize((JsonElement) value);
+        }
+        return String.valueOf(value).length();
+    }
+
+    /**
+     * Estimates the size of a JSON element like {@link #estimateSize(Object)}.
+     */
+    private static long estimateSize(JsonElement value) {
+        if (value.isJsonPrimitive()) {
+            JsonPrimitive primitive = (JsonPrimitive) value;
+            return primitive.isString() ? primitive.getAsString().length() + 2L : primitive.isNumber() ? 8 : 5;
+        } else if (value.isJsonArray()) {
+            long size = 1;
+            for (JsonElement element : (JsonArray) value) {
+                size += estimateSize(element) + 1;
+            }
+            return Math.max(size, 2);
+        } else if (value.isJsonObject()) {
+            long size = 1;
+            for (Map.Entry<String, JsonElement> entry : ((JsonObject) value).entrySet()) {
+                size += entry.getKey().length() + 4 + estimateSize(entry.getValue());
+            }
+            return Math.max(size, 2);
+        }
+        return 4;
+    }
+
+    /**
+     * Counts a retry of a failed function.
+     *
+     * @param function the name of the function.
+     */
+    public static void retry(String function) {
+        if (ENABLED) {
+            MetricsRegistry.get().counter("ee_retries_total",
+                    "Number of retries of failed functions.", FUNCTION, String.valueOf(function)).increment();
+        }
+    }
+
+    /**
+     * Counts a switch to an alternative plan.
+     *
+     * @param function the name of the function.
+     */
+    public static void alternativeSwitch(String function) {
+        if (ENABLED) {
+            MetricsRegistry.get().counter("ee_alternative_switches_total",
+                    "Number of switches to an alternative plan.", FUNCTION, String.valueOf(function)).increment();
+        }
+    }
+
+    /**
+     * Counts a function which was delayed because a concurrency limit was reached.
+     *
+     * @param function the name of the function.
+     */
+    public static void throttle(String function) {
+        if (ENABLED) {
+            MetricsRegistry.get().counter("ee_throttles_total",
+                    "Number of functions delayed by a concurrency limit.", FUNCTION, String.valueOf(function))
+                    .increment();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package at.enactmentengine.serverless.metrics;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Holds all histograms and counters of the enactment engine and writes them in the Prometheus text exposition format.
+ * A metric is identified by its name and optionally by the value of a single label (e.g. the function name).
+ * Histograms are exposed as summaries with the quantiles {@link #QUANTILES}.
+ *
+ * @author mikahautz
+ */
+public final class MetricsRegistry {
+
+    /**
+     * The quantiles exposed for each histogram.
+     */
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 1.0};
+
+    /**
+     * The single instance of the registry.
+     */
+    private static final MetricsRegistry instance = new MetricsRegistry();
+
+    /**
+     * The metric families by their name.
+     */
+    private final ConcurrentMap<String, Family<?>> families = new ConcurrentHashMap<>();
+
+    /**
+     * A metric with all its label values.
+     */
+    private static final class Family<T> {
+
+        /**
+         * The description of the metric.
+         */
+        private final String help;
+
+        /**
+         * The name of the label or null if the metric has no label.
+         */
+        private final String label;
+
+        /**
+         * Whether the metric is a histogram (exposed as summary) or a counter.
+         */
+        private final boolean histogram;
+
+        /**
+         * The metric for each label value.
+         */
+        private final ConcurrentMap<String, T> children = new ConcurrentHashMap<>();
+
+        private Family(String help, String label, boolean histogram) {
+            this.help = help;
+            this.label = label;
+            this.histogram = histogram;
+        }
+    }
+
+    private MetricsRegistry() {
+    }
+
+    /**
+     * Returns the single instance of the registry.
+     *
+     * @return the registry.
+     */
+    public static MetricsRegistry get() {
+        return instance;
+    }
+
+    /**
+     * Returns the histogram with the given name and creates it if needed.
+     *
+     * @param name the name of the metric.
+     * @param help the description of the metric.
+     *
+     * @return the histogram.
+     */
+    public Histogram histogram(String name, String help) {
+        return histogram(name, help, null, "");
+    }
+
+    /**
+     * Returns the histogram with the given name and label value and creates it if needed.
+     *
+     * @param name  the name of the metric.
+     * @param help  the description of the metric.
+     * @param label the name of the label.
+     * @param value the value of the label.
+     *
+     * @return the histogram.
+     */
+    public Histogram histogram(String name, String help, String label, String value) {
+        return this.<Histogram>family(name, help, label, true).children.computeIfAbsent(value, v -> new Histogram());
+    }
+
+    /**
+     * Returns the counter with the given name and creates it if needed.
+     *
+     * @param name the name of the metric.
+     * @param help the description of the metric.
+     *
+     * @return the counter.
+     */
+    public Counter counter(String name, String help) {
+        return counter(name, help, null, "");
+    }
+
+    /**
+     * Returns the counter with the given name and label value and creates it if needed.
+     *
+     * @param name  the name of the metric.
+     * @param help  the description of the metric.
+     * @param label the name of the label.
+     * @param value the value of the label.
+     *
+     * @return the counter.
+     */
+    public Counter counter(String name, String help, String label, String value) {
+        return this.<Counter>family(name, help, label, false).children.computeIfAbsent(value, v -> new Counter());
+    }
+
+    /**
+     * Removes all metrics.
+     */
+    public void clear() {
+        families.clear();
+    }
+
+    /**
+     * Returns all metrics in the Prometheus text exposition format.
+     *
+     * @return the metrics.
+     */
+    public String toPrometheus() {
+        StringWriter writer = new StringWriter();
+        try {
+            writePrometheus(writer);
+        } catch (IOException e) {
+            /* cannot happen for a string writer */
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format.
+     *
+     * @param writer the writer to write to.
+     *
+     * @throws IOException if writing fails.
+     */
+    public void writePrometheus(Writer writer) throws IOException {
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<String, Family<?>> entry : new TreeMap<>(families).entrySet()) {
+            String name = entry.getKey();
+            Family<?> family = entry.getValue();
+            out.append("# HELP ").append(name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(family.histogram ? "summary" : "counter").append('\n');
+            for (Map.Entry<String, ?> child : new TreeMap<>(family.children).entrySet()) {
+                String labels = family.label == null ? "" : family.label + "=\"" + escape(child.getKey()) + "\"";
+                if (family.histogram) {
+                    Histogram h = (Histogram) child.getValue();
+                    for (double quantile : QUANTILES) {
+                        String quantileLabel = "quantile=\"" + quantile + "\"";
+                        sample(out, name, labels.isEmpty() ? quantileLabel : labels + "," + quantileLabel,
+                                h.getQuantile(quantile));
+                    }
+                    sample(out, name + "_sum", labels, h.getSum());
+                    sample(out, name + "_count", labels, h.getCount());
+                } else {
+                    sample(out, name, labels, ((Counter) child.getValue()).get());
+                }
+            }
+        }
+        writer.write(out.toString());
+        writer.flush();
+    }
+
+    /**
+     * Returns the family with the given name and creates it if needed.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Family<T> family(String name, String help, String label, boolean histogram) {
+        return (Family<T>) families.computeIfAbsent(name, n -> new Family<T>(help, label, histogram));
+    }
+
+    /**
+     * Appends a single sample.
+     */
+    private static void sample(StringBuilder out, String name, String labels, long value) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Escapes a label value.
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -0,0 +1,64 @@
+package at.enactmentengine.serverless.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exposes the metrics of the {@link MetricsRegistry} in the Prometheus text format at {@code /metrics}. The server
+ * keeps the JVM alive until it is stopped.
+ *
+ * @author mikahautz
+ */
+public class MetricsServer {
+
+    /**
+     * Logger for the metrics server.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(MetricsServer.class);
+
+    /**
+     * The content type of the Prometheus text format.
+     */
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * The underlying http server.
+     */
+    private final HttpServer server;
+
+    /**
+     * Starts a metrics server on the given port and enables the recording of metrics.
+     *
+     * @param port the port to listen on.
+     *
+     * @throws IOException if the server could not be started.
+     */
+    public MetricsServer(int port) throws IOException {
+        Metrics.ENABLED = true;
+        server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = MetricsRegistry.get().toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(null);
+        server.start();
+        logger.info("Metrics are available at http://localhost:{}/metrics", port);
+    }
+
+    /**
+     * Stops the server.
+     */
+    public void stop() {
+        server.stop(0);
+    }
+}
@@ -2,13 +2,18 @@ package at.enactmentengine.serverless.nodes;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
 import at.enactmentengine.serverless.object.ListPair;
+import at.enactmentengine.serverless.parser.DataPort;
+import at.enactmentengine.serverless.utils.BlobStore;
 import at.uibk.dps.afcl.functions.objects.DataIns;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -46,11 +51,21 @@ public class ExecutableWorkflow {
      */
     private List<DataIns> definedInput;
 
+    /**
+     * The resolved ports of the expected workflow input.
+     */
+    private List<DataPort<DataIns>> inputPorts;
+
     /**
      * Executor service to run the workflow.
      */
     private ExecutorService executorService;
 
+    /**
+     * The state of this execution shared by all nodes.
+     */
+    private final ExecutionContext context = new ExecutionContext();
+
     /**
      * Default constructor to create an executable workflow.
      *
@@ -63,7 +78,25 @@ public class ExecutableWorkflow {
         endNode = workflow.getEnd();
         this.workflowName = workflowName;
         this.definedInput = definedInput;
+        this.inputPorts = DataPort.ofInputs(workflowName, definedInput);
         executorService = Executors.newSingleThreadExecutor();
+        bind(startNode, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    /**
+     * Assigns the context of this execution to the given node and all nodes following it.
+     *
+     * @param node    the node to start from.
+     * @param visited the nodes which already have the context.
+     */
+    private void bind(Node node, Set<Node> visited) {
+        if (node == null || !visited.add(node)) {
+            return;
+        }
+        node.setContext(context);
+        for (Node child : node.getChildren()) {
+            bind(child, visited);
+        }
     }
 
     /**
@@ -83,18 +116,16 @@ public class ExecutableWorkflow {
         final Map<String, Object> presentInput = new HashMap<>();
 
         /* Iterate over all expected inputs */
-        if (definedInput != null) {
-            for (DataIns data : definedInput) {
+        for (DataPort<DataIns> port : inputPorts) {
 
-                /* Check if the actual input contains the expected input */
-                if (input != null && input.containsKey(data.getSource())) {
+            /* Check if the actual input contains the expected input */
+            if (input != null && input.containsKey(port.getSource())) {
 
-                    /* Add the actual input to the list of actually present inputs */
-                    presentInput.put(workflowName + "/" + data.getName(), input.get(data.getSource()));
-                } else {
-                    /* The expected input is not present */
-                    throw new MissingInputDataException(workflowName + " needs more input data: " + data.getSource());
-                }
+                /* Add the actual input to the list of actually present inputs */
+                presentInput.put(port.getKey(), input.get(port.getSource()));
+            } else {
+                /* The expected input is not present */
+                throw new MissingInputDataException(workflowName + " needs more input data: " + port.getSource());
             }
         }
 
@@ -110,26 +141,31 @@ public class ExecutableWorkflow {
         try {
 
             /* Wait if needed for the node */
-            if (Boolean.TRUE.equals(future.get())) {
+            boolean finished = Boolean.TRUE.equals(future.get());
+
+            /* Read the large values of the result before the store of the execution is cleared */
+            Map<String, Object> result = BlobStore.materialize(endNode.getResult());
+            if (finished) {
                 /* Check if the result is valid */
-                if (endNode.getResult() != null) {
-                    logger.info("Workflow completed: {}", endNode.getResult());
+                if (result != null) {
+                    logger.info("Workflow completed: {}", result);
                 } else {
                     logger.error("Workflow Failed! End result is Null");
                 }
             }
+
+            /* Return result of the last node in the workflow (workflow result) */
+            return result;
         } catch (InterruptedException | ExecutionException e) {
             /* Cancel task and shut down executor on failure */
             future.cancel(true);
             executorService.shutdownNow();
             throw e;
+        } finally {
+            /* Terminate executor and remove the large values of the execution */
+            executorService.shutdown();
+            context.close();
         }
-
-        /* Terminate executor */
-        executorService.shutdown();
-
-        /* Return result of the last node in the workflow (workflow result) */
-        return endNode.getResult();
     }
 
     /**
@@ -149,18 +185,16 @@ public class ExecutableWorkflow {
         final Map<String, Object> presentInput = new HashMap<>();
 
         /* Iterate over all expected inputs */
-        if (definedInput != null) {
-            for (DataIns data : definedInput) {
+        for (DataPort<DataIns> port : inputPorts) {
 
-                /* Check if the actual input contains the expected input */
-                if (input != null && input.containsKey(data.getSource())) {
+            /* Check if the actual input contains the expected input */
+            if (input != null && input.containsKey(port.getSource())) {
 
-                    /* Add the actual input to the list of actually present inputs */
-                    presentInput.put(workflowName + "/" + data.getName(), input.get(data.getSource()));
-                } else {
-                    /* The expected input is not present */
-                    throw new MissingInputDataException(workflowName + " needs more input data: " + data.getSource());
-                }
+                /* Add the actual input to the list of actually present inputs */
+                presentInput.put(port.getKey(), input.get(port.getSource()));
+            } else {
+                /* The expected input is not present */
+                throw new MissingInputDataException(workflowName + " needs more input data: " + port.getSource());
             }
         }
 
@@ -226,6 +260,11 @@ public class ExecutableWorkflow {
 
     public void setWorkflowName(String workflowName) {
         this.workflowName = workflowName;
+        this.inputPorts = DataPort.ofInputs(workflowName, definedInput);
+    }
+
+    public ExecutionContext getContext() {
+        return context;
     }
 
     public List<DataIns> getDefinedInput() {
@@ -234,5 +273,6 @@ public class ExecutableWorkflow {
 
     public void setDefinedInput(List<DataIns> definedInput) {
         this.definedInput = definedInput;
+        this.inputPorts = DataPort.ofInputs(workflowName, definedInput);
     }
 }
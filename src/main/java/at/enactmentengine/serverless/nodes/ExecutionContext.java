@@ -0,0 +1,114 @@
+package at.enactmentengine.serverless.nodes;
+
+import at.enactmentengine.serverless.metrics.CostLedger;
+import at.enactmentengine.serverless.simulation.ConcurrencySlots;
+import at.enactmentengine.serverless.simulation.LatencyModel;
+import at.enactmentengine.serverless.simulation.SimulationTimeline;
+import at.enactmentengine.serverless.utils.BlobStore;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The state shared by all nodes of a single execution or simulation of a workflow. Every executable workflow has its
+ * own context, so that concurrent executions within the same engine (e.g. the service or a warm function instance) do
+ * not interfere with each other.
+ *
+ * @author mikahautz
+ */
+public final class ExecutionContext {
+
+    /**
+     * The store of the large values of the execution.
+     */
+    private final BlobStore blobStore = new BlobStore();
+
+    /**
+     * The simulated clock of the execution.
+     */
+    private final SimulationTimeline timeline = new SimulationTimeline();
+
+    /**
+     * The cost of the execution.
+     */
+    private final CostLedger costLedger = new CostLedger();
+
+    /**
+     * The concurrency slots of the running simulated parallelFor constructs, identified by their scope.
+     */
+    private final Map<String, ConcurrencySlots> concurrencySlots = new ConcurrentHashMap<>();
+
+    /**
+     * The learned latency distributions of the simulation or null if the default normal distribution is used.
+     */
+    private volatile LatencyModel latencyModel;
+
+    /**
+     * Default constructor for the context of an execution.
+     */
+    public ExecutionContext() {
+    }
+
+    /**
+     * Releases the resources of the execution after it has finished.
+     */
+    public void close() {
+        blobStore.clear();
+    }
+
+    /**
+     * Creates the concurrency slots of a simulated parallelFor.
+     *
+     * @param construct the scope of the parallelFor.
+     *
+     * @return the slots.
+     */
+    public ConcurrencySlots openSlots(String construct) {
+        ConcurrencySlots slots = new ConcurrencySlots(construct);
+        concurrencySlots.put(construct, slots);
+        return slots;
+    }
+
+    /**
+     * Returns the concurrency slots of a running simulated parallelFor.
+     *
+     * @param construct the scope of the parallelFor.
+     *
+     * @return the slots or null if the parallelFor is not running.
+     */
+    public ConcurrencySlots getSlots(String construct) {
+        return concurrencySlots.get(construct);
+    }
+
+    /**
+     * Closes the concurrency slots once the parallelFor is done or has failed.
+     *
+     * @param slots the slots of the parallelFor.
+     */
+    public void closeSlots(ConcurrencySlots slots) {
+        slots.close();
+        concurrencySlots.remove(slots.getConstruct(), slots);
+    }
+
+    /** Getter */
+
+    public BlobStore getBlobStore() {
+        return blobStore;
+    }
+
+    public SimulationTimeline getTimeline() {
+        return timeline;
+    }
+
+    public CostLedger getCostLedger() {
+        return costLedger;
+    }
+
+    public LatencyModel getLatencyModel() {
+        return latencyModel;
+    }
+
+    public void setLatencyModel(LatencyModel latencyModel) {
+        this.latencyModel = latencyModel;
+    }
+}
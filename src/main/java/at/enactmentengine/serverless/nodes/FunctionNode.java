@@ -1,28 +1,36 @@
 package at.enactmentengine.serverless.nodes;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
+import at.enactmentengine.serverless.logging.ExecutionLogSink;
+import at.enactmentengine.serverless.metrics.Metrics;
 import at.enactmentengine.serverless.object.Utils;
+import at.enactmentengine.serverless.parser.DataPort;
 import at.enactmentengine.serverless.simulation.ServiceSimulationModel;
+import at.enactmentengine.serverless.simulation.DeploymentParameters;
+import at.enactmentengine.serverless.tracing.SpanRecorder;
+import at.enactmentengine.serverless.utils.BlobStore;
 import at.enactmentengine.serverless.utils.LoggerUtil;
 import at.uibk.dps.*;
 import at.uibk.dps.afcl.functions.objects.DataIns;
 import at.uibk.dps.afcl.functions.objects.DataOutsAtomic;
 import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
 import at.uibk.dps.afcl.functions.objects.Service;
-import at.uibk.dps.databases.MongoDBAccess;
 import at.uibk.dps.exception.InvokationFailureException;
 import at.uibk.dps.exception.LatestFinishingTimeException;
 import at.uibk.dps.exception.LatestStartingTimeException;
 import at.uibk.dps.exception.MaxRunningTimeException;
 import at.uibk.dps.function.Function;
 import at.uibk.dps.util.Event;
+import at.uibk.dps.util.Provider;
 import at.uibk.dps.util.Type;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import jFaaS.Gateway;
 import jFaaS.utils.PairResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.*;
@@ -49,9 +57,17 @@ public class FunctionNode extends Node {
      */
     private static int counter = 0;
     /**
-     * The invoker for the cloud functions.
+     * The invoker for the cloud functions, created on the first invocation.
      */
-    private static Gateway gateway = new Gateway(Utils.PATH_TO_CREDENTIALS);
+    private static volatile Gateway gateway;
+    /**
+     * The content of the credentials file, read on the first use and whenever the file was modified.
+     */
+    private static volatile Properties credentials;
+    /**
+     * The modification time of the credentials file when it was read.
+     */
+    private static volatile long credentialsModified;
     /**
      * The deployment of the Atomic Function.
      */
@@ -76,6 +92,19 @@ public class FunctionNode extends Node {
      * Input to the function node.
      */
     private List<DataIns> input;
+    /**
+     * The resolved input ports of the function node.
+     */
+    private final List<DataPort<DataIns>> inputPorts;
+    /**
+     * The resolved output ports of the function node.
+     */
+    private final List<DataPort<DataOutsAtomic>> outputPorts;
+    /**
+     * Specifies for each input port (in the order of {@link #inputPorts}) whether its value should be replicated to the
+     * output.
+     */
+    private final boolean[] replicateInputs;
     /**
      * The result of the function node.
      */
@@ -110,6 +139,16 @@ public class FunctionNode extends Node {
         if (output == null) {
             this.output = new ArrayList<>();
         }
+        this.inputPorts = DataPort.ofInputs(name, input);
+        this.outputPorts = DataPort.ofAtomicOutputs(name, this.output);
+        this.replicateInputs = new boolean[inputPorts.size()];
+        for (int i = 0; i < inputPorts.size(); i++) {
+            DataIns data = inputPorts.get(i).getData();
+            if (data.getProperties() != null) {
+                PropertyConstraint replicateConstraint = Utils.getPropertyConstraintByName(data.getProperties(), "replicate");
+                replicateInputs[i] = replicateConstraint != null && Boolean.parseBoolean(replicateConstraint.getValue());
+            }
+        }
     }
 
     /**
@@ -144,28 +183,21 @@ public class FunctionNode extends Node {
             if (input != null) {
 
                 /* Iterate over all specified inputs */
-                for (DataIns data : input) {
+                for (int i = 0; i < inputPorts.size(); i++) {
+                    DataPort<DataIns> port = inputPorts.get(i);
+                    DataIns data = port.getData();
 
                     /* Check if actual data contains the specified source */
-                    if (dataValues.containsKey(data.getSource())) {
-
-
-                        boolean replicate = false;
-                        if(data.getProperties() != null) {
-                            PropertyConstraint replicateConstraint = Utils.getPropertyConstraintByName(data.getProperties(), "replicate");
-                            if (replicateConstraint != null) {
-                                replicate = Boolean.parseBoolean(replicateConstraint.getValue());
-                            }
-                        }
+                    if (dataValues.containsKey(port.getSource())) {
 
                         boolean passing = data.getPassing() != null && data.getPassing();
 
                         /* Check if the element should be passed to the output */
-                        if (passing || replicate) {
-                            functionOutputs.put(name + "/" + data.getName(), dataValues.get(data.getSource()));
+                        if (passing || replicateInputs[i]) {
+                            functionOutputs.put(port.getKey(), dataValues.get(port.getSource()));
                         }
                         if (!passing) {
-                            actualFunctionInputs.put(data.getName(), dataValues.get(data.getSource()));
+                            actualFunctionInputs.put(data.getName(), BlobStore.materialize(dataValues.get(port.getSource())));
                         }
                     } else {
                         // constant value in the workflow
@@ -199,17 +231,30 @@ public class FunctionNode extends Node {
             functionToInvoke.setDeployment(deployment);
         }
 
+        if (Metrics.ENABLED) {
+            Metrics.inputSize(name, Metrics.estimateSize(actualFunctionInputs));
+        }
+
         /* Invoke function and measure duration */
         long start = System.currentTimeMillis();
         PairResult<String, Long> pairResult = invokeFunction(functionToInvoke, resourceLink, actualFunctionInputs, functionOutputs);
         long end = System.currentTimeMillis();
 
+        Metrics.functionRtt(name, pairResult.getRTT());
+        int spanId = SpanRecorder.get().record(getPredecessors(), name, scope, start, pairResult.getRTT(), loopCounter,
+                resourceLink, success);
+        if (Metrics.ENABLED && pairResult.getResult() != null) {
+            Metrics.outputSize(name, pairResult.getResult().length());
+        }
+
         /* Log the function output */
         logFunctionOutput(pairResult.getRTT(), pairResult.getResult(), id);
 
         /* Pass the output to the next node */
         for (Node node : children) {
             node.passResult(functionOutputs);
+            node.setScope(scope);
+            node.addPredecessors(spanId < 0 ? getPredecessors() : Collections.singletonList(spanId));
             if (getLoopCounter() != -1) {
                 node.setLoopCounter(loopCounter);
                 node.setMaxLoopCounter(maxLoopCounter);
@@ -334,7 +379,7 @@ public class FunctionNode extends Node {
         } else {
             /* Invoke the function without fault tolerance */
             long start = System.currentTimeMillis();
-            pairResult = gateway.invokeFunction(resourceLink, functionInputs);
+            pairResult = getGateway().invokeFunction(resourceLink, functionInputs);
             long end = System.currentTimeMillis();
             resultString = pairResult.getResult();
             long totalRttForServices = 0;
@@ -362,11 +407,50 @@ public class FunctionNode extends Node {
             // remove the execution times of the services from the round trip time to be stored to the database
             long logRtt = pairResult.getRTT() - totalRttForServices;
 
-            MongoDBAccess.saveLog(event, resourceLink, deployment, name, type, resultString, logRtt, success, loopCounter, maxLoopCounter, start, Type.EXEC);
+            ExecutionLogSink.get().log(event, resourceLink, deployment, name, type, resultString, logRtt, success, loopCounter, maxLoopCounter, start, Type.EXEC);
+            recordCost(resourceLink, logRtt);
         }
         return pairResult;
     }
 
+    /**
+     * Adds the cost of an invocation to the cost of the workflow, priced with the cost model of the provider. The
+     * memory size and the pricing are read from the metadata once per deployment, if they are not known the invocation
+     * is not priced.
+     * <p>
+     * The gateway only reports the round trip time, so the invocation is priced on it. This overestimates the billed
+     * duration by the network and FaaS overheads, which are small compared to the runtime of most functions.
+     *
+     * @param resourceLink the resource link of the invoked function.
+     * @param rtt          the round trip time of the invocation.
+     */
+    private void recordCost(String resourceLink, long rtt) {
+        if (context == null) {
+            return;
+        }
+        try {
+            Provider provider;
+            int memory;
+            if (deployment != null) {
+                List<String> elements = SimulationNode.extractValuesFromDeployment(deployment);
+                memory = Integer.parseInt(elements.get(0));
+                provider = Provider.valueOf(elements.get(2));
+            } else {
+                memory = DeploymentParameters.memorySize(resourceLink);
+                if (memory == -1) {
+                    return;
+                }
+                provider = Utils.detectProvider(resourceLink);
+            }
+            double cost = DeploymentParameters.cost(provider, memory, rtt);
+            if (cost >= 0) {
+                context.getCostLedger().record(name, provider, scope, cost);
+            }
+        } catch (Exception e) {
+            logger.debug("Could not price the invocation of {}: {}", resourceLink, e.getMessage());
+        }
+    }
+
     /**
      * Log the function input.
      *
@@ -398,18 +482,20 @@ public class FunctionNode extends Node {
 
 
         /* Iterate over all specified outputs in the yaml file */
-        for (DataOutsAtomic data : output) {
+        for (DataPort<DataOutsAtomic> port : outputPorts) {
+            DataOutsAtomic data = port.getData();
+            String key = port.getKey();
 
             /* Convert the json result to a json object */
             JsonObject jsonResult = Utils.generateJson(result, data);
 
             /* Check if the function output already contains the specified value */
-            if (functionOutputs.containsKey(name + "/" + data.getName())) {
+            if (functionOutputs.containsKey(key)) {
                 continue;
             }
 
             // TODO why not do this?
-            // functionOutputs.put(name + "/" + data.getName(),
+            // functionOutputs.put(key,
             // jsonResult.get(data.getName()));
 
             /* Parse according data type */
@@ -417,20 +503,20 @@ public class FunctionNode extends Node {
                 switch (data.getType()) {
                     case "number":
                         Object number = jsonResult.get(data.getName()).getAsDouble();
-                        functionOutputs.put(name + "/" + data.getName(), number);
+                        functionOutputs.put(key, number);
                         break;
                     case "string":
-                        functionOutputs.put(name + "/" + data.getName(), jsonResult.get(data.getName()).getAsString());
+                        functionOutputs.put(key, jsonResult.get(data.getName()).getAsString());
                         break;
                     case "collection":
                         // array stays array to later decide which type
-                        functionOutputs.put(name + "/" + data.getName(), jsonResult.get(data.getName()).getAsJsonArray());
+                        functionOutputs.put(key, offload(jsonResult.get(data.getName()).getAsJsonArray(), result));
                         break;
                     case "object":
-                        functionOutputs.put(name + "/" + data.getName(), jsonResult.get(data.getName()));
+                        functionOutputs.put(key, offload(jsonResult.get(data.getName()), result));
                         break;
                     case "bool":
-                        functionOutputs.put(name + "/" + data.getName(), jsonResult.get(data.getName()).getAsBoolean());
+                        functionOutputs.put(key, jsonResult.get(data.getName()).getAsBoolean());
                         break;
                     default:
                         logger.error("Error while trying to parse key in function {}. Type: {}", name, data.getType());
@@ -439,7 +525,7 @@ public class FunctionNode extends Node {
             } catch (UnsupportedOperationException e) {
                 // if the value was null we save it regardless of the data type
                 if (e.getMessage().equals("JsonNull")) {
-                    functionOutputs.put(name + "/" + data.getName(), jsonResult.get(data.getName()));
+                    functionOutputs.put(key, jsonResult.get(data.getName()));
                 }
             } catch (Exception e) {
                 logger.error("Error while trying to parse key in function {}", name);
@@ -449,6 +535,22 @@ public class FunctionNode extends Node {
         return !(result.contains("error:") || result.contains("\"error\":"));
     }
 
+    /**
+     * Moves a large output value to the blob store, so that only a handle is passed to the successors.
+     *
+     * @param value  the output value.
+     * @param result the stringified json result from the base function.
+     *
+     * @return a handle to the stored value or the value itself.
+     */
+    private Object offload(JsonElement value, String result) {
+        /* A UTF-8 encoded char takes at most three bytes, smaller results can not exceed the threshold */
+        if (BlobStore.isEnabled() && 3L * result.length() >= BlobStore.THRESHOLD) {
+            return context.getBlobStore().store(value);
+        }
+        return value;
+    }
+
     /**
      * Sets the dataValues and passes the result to all children.
      *
@@ -488,6 +590,64 @@ public class FunctionNode extends Node {
         return loopCounter != -1;
     }
 
+    /**
+     * Replaces the invoker used for all functions without fault tolerance settings, e.g. by an invoker which does
+     * not call any cloud function to measure the overhead of the engine.
+     *
+     * @param gateway the invoker to use.
+     */
+    public static void setGateway(Gateway gateway) {
+        FunctionNode.gateway = gateway;
+    }
+
+    /**
+     * Returns the invoker for the cloud functions and creates it on the first call, so that workflows which are only
+     * parsed or simulated do not read the credentials.
+     *
+     * @return the invoker.
+     */
+    private static Gateway getGateway() {
+        Gateway current = gateway;
+        if (current == null) {
+            synchronized (FunctionNode.class) {
+                current = gateway;
+                if (current == null) {
+                    current = new Gateway(Utils.PATH_TO_CREDENTIALS);
+                    gateway = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Returns the content of the credentials file. The file is read again when it was modified (e.g. a rotated session
+     * token), a file that could not be read is tried again on the next call.
+     *
+     * @return the credentials or empty properties if the file could not be read.
+     */
+    private static Properties getCredentials() {
+        long modified = new File(Utils.PATH_TO_CREDENTIALS).lastModified();
+        if (modified == credentialsModified && credentials != null) {
+            return credentials;
+        }
+        synchronized (FunctionNode.class) {
+            if (modified == credentialsModified && credentials != null) {
+                return credentials;
+            }
+            Properties current = new Properties();
+            try (FileInputStream in = new FileInputStream(Utils.PATH_TO_CREDENTIALS)) {
+                current.load(in);
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+                return current;
+            }
+            credentials = current;
+            credentialsModified = modified;
+            return current;
+        }
+    }
+
     /**
      * Read the AWS credentials. TODO do we need this?
      *
@@ -498,10 +658,7 @@ public class FunctionNode extends Node {
         String awsSecretKey = null;
         String awsSessionToken = null;
         try {
-            Properties propertiesFile = new Properties();
-//            propertiesFile.load(LambdaHandler.class.getResourceAsStream(Utils.PATH_TO_CREDENTIALS));
-            propertiesFile.load(new FileInputStream(Utils.PATH_TO_CREDENTIALS));
-            // FileUtils.readFileToByteArray(new File(workflow))
+            Properties propertiesFile = getCredentials();
             awsAccessKey = propertiesFile.getProperty("aws_access_key_id");
             awsSecretKey = propertiesFile.getProperty("aws_secret_access_key");
             if (propertiesFile.containsKey("aws_session_token")) {
@@ -521,10 +678,7 @@ public class FunctionNode extends Node {
     private IBMAccount getIBMAccount() {
         String ibmKey = null;
         try {
-            Properties propertiesFile = new Properties();
-//			propertiesFile.load(Local.class.getResourceAsStream(Utils.PATH_TO_CREDENTIALS));
-            propertiesFile.load(new FileInputStream(Utils.PATH_TO_CREDENTIALS));
-
+            Properties propertiesFile = getCredentials();
             ibmKey = propertiesFile.getProperty("ibm_api_key");
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
@@ -540,10 +694,7 @@ public class FunctionNode extends Node {
     private AzureAccount getAzureAccount() {
         String azure_key = null;
         try {
-            Properties propertiesFile = new Properties();
-//			propertiesFile.load(Local.class.getResourceAsStream(Utils.PATH_TO_CREDENTIALS));
-            propertiesFile.load(new FileInputStream(Utils.PATH_TO_CREDENTIALS));
-
+            Properties propertiesFile = getCredentials();
             azure_key = propertiesFile.getProperty("azure_key");
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
@@ -560,10 +711,7 @@ public class FunctionNode extends Node {
     private GoogleFunctionAccount getGoogleAccount() {
         String google_key = null;
         try {
-            Properties propertiesFile = new Properties();
-//			propertiesFile.load(Local.class.getResourceAsStream(Utils.PATH_TO_CREDENTIALS));
-            propertiesFile.load(new FileInputStream(Utils.PATH_TO_CREDENTIALS));
-
+            Properties propertiesFile = getCredentials();
             google_key = propertiesFile.getProperty("google_sa_key");
         } catch (Exception e) {
             logger.error(e.getMessage(), e);
@@ -1,13 +1,14 @@
 package at.enactmentengine.serverless.nodes;
 
+import at.enactmentengine.serverless.object.PersistentMap;
+import at.enactmentengine.serverless.parser.DataPort;
+import at.enactmentengine.serverless.tracing.TraceScope;
 import at.uibk.dps.afcl.functions.objects.DataOuts;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 /**
  * Control node which manages the tasks at the end of a if element.
@@ -27,10 +28,15 @@ public class IfEndNode extends Node {
      */
     private List<DataOuts> dataOuts;
 
+    /**
+     * The resolved output ports of the if-end node.
+     */
+    private final List<DataPort<DataOuts>> outputPorts;
+
     /**
      * The actual output of the if node.
      */
-    private Map<String, Object> ifResult;
+    private PersistentMap<String, Object> ifResult;
 
     /**
      * Constructor for an if-end control node.
@@ -41,6 +47,7 @@ public class IfEndNode extends Node {
     public IfEndNode(String name, List<DataOuts> dataOuts) {
         super(name, null);
         this.dataOuts = dataOuts;
+        this.outputPorts = DataPort.ofOutputs(name, dataOuts);
     }
 
     /**
@@ -55,17 +62,19 @@ public class IfEndNode extends Node {
     public Boolean call() throws Exception {
 
         /* Define the output values of the if-end construct */
-        Map<String, Object> outputValues = new HashMap<>();
+        PersistentMap<String, Object> outputValues = PersistentMap.empty();
 
         /* Check if any data output is specified in the workflow file */
         if (dataOuts != null) {
 
             /* Iterate over all data outputs specified in the workflow file */
-            for (DataOuts data : dataOuts) {
+            for (DataPort<DataOuts> port : outputPorts) {
 
-                /* Find the corresponding actual output of the if node */
-                for (Entry<String, Object> inputElement : ifResult.entrySet()) {
-                    outputValues.put(name + "/" + data.getName(), inputElement.getValue());
+                /* Find the corresponding actual output of the executed branch */
+                for (String source : port.getSources()) {
+                    if (ifResult.containsKey(source)) {
+                        outputValues = outputValues.plus(port.getKey(), ifResult.get(source));
+                    }
                 }
             }
         }
@@ -75,11 +84,13 @@ public class IfEndNode extends Node {
         /* Pass the output to all child nodes */
         for (Node node : children) {
             node.passResult(outputValues);
+            node.setScope(TraceScope.exit(scope));
+            node.addPredecessors(getPredecessors());
+            node.setStartTime(startTime);
             if (getLoopCounter() != -1) {
                 node.setLoopCounter(loopCounter);
                 node.setMaxLoopCounter(maxLoopCounter);
                 node.setConcurrencyLimit(concurrencyLimit);
-                node.setStartTime(startTime);
             }
             node.call();
         }
@@ -97,17 +108,17 @@ public class IfEndNode extends Node {
         synchronized (this) {
             /* Check if there is an input specified */
             if (ifResult == null) {
-                ifResult = new HashMap<>();
+                ifResult = PersistentMap.empty();
             }
 
             /* Check if there is an output specified in the workflow file */
             if (dataOuts != null) {
 
                 /* Iterate over all outputs and search the according input */
-                for (DataOuts data : dataOuts) {
-                    for (Entry<String, Object> inputElement : input.entrySet()) {
-                        if (data.getSource().contains(inputElement.getKey())) {
-                            ifResult.put(inputElement.getKey(), input.get(inputElement.getKey()));
+                for (DataPort<DataOuts> port : outputPorts) {
+                    for (String source : port.getSources()) {
+                        if (input.containsKey(source)) {
+                            ifResult = ifResult.plus(source, input.get(source));
                         }
                     }
                 }
@@ -128,7 +139,7 @@ public class IfEndNode extends Node {
 
         /* Clone the node */
         IfEndNode node = (IfEndNode) super.clone();
-        node.ifResult = new HashMap<>();
+        node.ifResult = PersistentMap.empty();
 
         return node;
     }
@@ -1,13 +1,16 @@
 package at.enactmentengine.serverless.nodes;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
-import at.uibk.dps.afcl.functions.objects.ACondition;
+import at.enactmentengine.serverless.object.PersistentMap;
+import at.enactmentengine.serverless.parser.CompiledCondition;
+import at.enactmentengine.serverless.parser.DataPort;
+import at.enactmentengine.serverless.tracing.TraceScope;
+import at.enactmentengine.serverless.utils.BlobStore;
 import at.uibk.dps.afcl.functions.objects.Condition;
 import at.uibk.dps.afcl.functions.objects.DataIns;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,10 +27,6 @@ public class IfStartNode extends Node {
      */
     static final Logger logger = LoggerFactory.getLogger(IfStartNode.class);
 
-    /**
-     * Specifies if its parent is a parallelFor and counts how many SimulationNodes are children of this node.
-     */
-    public long isAfterParallelForNode = -1;
     /**
      * Condition of the if node (if statement).
      */
@@ -36,6 +35,14 @@ public class IfStartNode extends Node {
      * The input specified in the workflow file.
      */
     private List<DataIns> dataIns;
+    /**
+     * The resolved input ports of the if-start node.
+     */
+    private final List<DataPort<DataIns>> inputPorts;
+    /**
+     * The condition compiled for the input ports.
+     */
+    private final CompiledCondition compiledCondition;
 
     /**
      * Constructor for a if-start node.
@@ -43,11 +50,15 @@ public class IfStartNode extends Node {
      * @param name      of the if construct.
      * @param dataIns   input specified in the workflow file.
      * @param condition of the if node (if statement).
+     *
+     * @throws MissingInputDataException if the condition refers to a value which is not an input.
      */
-    public IfStartNode(String name, List<DataIns> dataIns, Condition condition) {
+    public IfStartNode(String name, List<DataIns> dataIns, Condition condition) throws MissingInputDataException {
         super(name, "");
         this.condition = condition;
         this.dataIns = dataIns;
+        this.inputPorts = DataPort.ofInputs(name, dataIns);
+        this.compiledCondition = CompiledCondition.compile(condition, inputPorts);
     }
 
     /**
@@ -61,40 +72,27 @@ public class IfStartNode extends Node {
     public Boolean call() throws Exception {
 
         /* Iterate over all specified inputs and check if they are present */
-        final Map<String, Object> ifInputValues = new HashMap<>();
+        PersistentMap<String, Object> ifInputValues = PersistentMap.empty();
 
         /* Check if input data is specified */
         if(dataIns != null){
 
             /* Iterate over every input specified in the workflow file */
-            for (DataIns data : dataIns) {
+            for (DataPort<DataIns> port : inputPorts) {
 
                 /* Check if the actual input does not contains the specified input */
-                if (!dataValues.containsKey(data.getSource())) {
+                if (!dataValues.containsKey(port.getSource())) {
                     throw new MissingInputDataException(
-                            IfStartNode.class.getCanonicalName() + ": " + name + " needs " + data.getSource() + "!");
+                            IfStartNode.class.getCanonicalName() + ": " + name + " needs " + port.getSource() + "!");
                 } else {
-                    ifInputValues.put(name + "/" + data.getName(), dataValues.get(data.getSource()));
+                    ifInputValues = ifInputValues.plus(port.getKey(), dataValues.get(port.getSource()));
                 }
             }
         }
 
 
-        /* Keeps track whether the condition of th if statement is valid */
-        boolean statementEvaluationValue = false;
-
-        /* Iterate over all part-conditions */
-        for (ACondition conditionElement : condition.getConditions()) {
-
-            /* Evaluate if condition */
-            statementEvaluationValue = evaluate(conditionElement, ifInputValues);
-
-            /* Check if we can stop checking the statement */
-            if (("or".equals(condition.getCombinedWith()) && statementEvaluationValue) ||
-                    ("and".equals(condition.getCombinedWith()) && !statementEvaluationValue)) {
-                break;
-            }
-        }
+        /* Evaluate the compiled condition of the if statement on the actual values of large inputs */
+        boolean statementEvaluationValue = compiledCondition.evaluate(BlobStore.materialize(ifInputValues));
 
         Node node;
         if (statementEvaluationValue) {
@@ -113,24 +111,13 @@ public class IfStartNode extends Node {
 
         /* Pass data to the according branch and execute */
         node.passResult(ifInputValues);
+        node.setScope(TraceScope.enter(scope, "if", name, -1));
+        node.addPredecessors(getPredecessors());
+        node.setStartTime(startTime);
         if (getLoopCounter() != -1) {
             node.setLoopCounter(loopCounter);
             node.setMaxLoopCounter(maxLoopCounter);
             node.setConcurrencyLimit(concurrencyLimit);
-            node.setStartTime(startTime);
-        }
-
-        // specify how many functions are directly after a nested construct (needed if concurrency limit is exceeded)
-        if (isAfterParallelForNode != -1) {
-            if (node instanceof IfStartNode) {
-                ((IfStartNode) node).isAfterParallelForNode = isAfterParallelForNode;
-            } else if (node instanceof ParallelStartNode) {
-                ((ParallelStartNode) node).isAfterParallelForNode = isAfterParallelForNode;
-            } else if (node instanceof SwitchStartNode) {
-                ((SwitchStartNode) node).isAfterParallelForNode = isAfterParallelForNode;
-            } else if (node instanceof SimulationNode) {
-                ((SimulationNode) node).setAmountParallelFunctions(isAfterParallelForNode + 1);
-            }
         }
 
         node.call();
@@ -138,45 +125,6 @@ public class IfStartNode extends Node {
         return true;
     }
 
-    /**
-     * Evaluates a single condition element.
-     *
-     * @param conditionElement The condition element.
-     * @param ifInputValues    The input values for the condition.
-     * @return true when the condition element is evaluated to true, otherwise
-     * false.
-     * @throws MissingInputDataException on missing input data description
-     */
-    private boolean evaluate(ACondition conditionElement, Map<String, Object> ifInputValues)
-            throws MissingInputDataException {
-
-        // TODO maybe use Number datatype? Allows to caompare also int and double?!
-        //Number data1 = (Number) ifInputValues.get(conditionElement.getData1());
-
-        /* Get the data which should be evaluated */
-        int data1 = parseCondition(conditionElement.getData1(), ifInputValues);
-        int data2 = parseCondition(conditionElement.getData2(), ifInputValues);
-
-        /* Evaluate the condition */
-        switch (conditionElement.getOperator()) {
-            case "==":
-                return data1 == data2;
-            case "<":
-                return data1 < data2;
-            case "<=":
-                return data1 <= data2;
-            case ">":
-                return data1 > data2;
-            case ">=":
-                return data1 >= data2;
-            case "!=":
-                return data1 != data2;
-            default:
-                logger.info("Operator {} not supported ", conditionElement.getOperator());
-        }
-        return false;
-    }
-
     /**
      * Sets the passed result as dataValues.
      */
@@ -184,62 +132,23 @@ public class IfStartNode extends Node {
     public void passResult(Map<String, Object> input) {
         synchronized (this) {
 
-            /* Check if actual input data list is already created */
-            if (dataValues == null) {
-                dataValues = new HashMap<>();
-            }
-
             /* Check if there is input specified in the workflow file */
             if(dataIns != null){
-                for (DataIns data : dataIns) {
+                PersistentMap<String, Object> values = PersistentMap.from(dataValues);
+                for (DataPort<DataIns> port : inputPorts) {
 
                     /* Add specified inputs to the actual inputs list */
-                    if (input.containsKey(data.getSource())) {
-                        dataValues.put(data.getSource(), input.get(data.getSource()));
+                    if (input.containsKey(port.getSource())) {
+                        values = values.plus(port.getSource(), input.get(port.getSource()));
                     }
                 }
+                dataValues = values;
+            } else if (dataValues == null) {
+                dataValues = PersistentMap.empty();
             }
         }
     }
 
-    /**
-     * Tries to parse the given string as an integer. It this is not possible it has
-     * to be a variable name and the value for that variable has to be in the if
-     * input values.
-     *
-     * @param string        The string which is parsed to an integer.
-     * @param ifInputValues A map that contains the needed input values.
-     * @return The parsed value as integer.
-     * @throws MissingInputDataException on missing input
-     */
-    private int parseCondition(String string, Map<String, Object> ifInputValues) throws MissingInputDataException {
-
-        // TODO do we really need this function?
-        String conditionName = null;
-        int conditionData = 0;
-        try {
-            conditionData = Integer.valueOf(string);
-        } catch (NumberFormatException e) {
-            conditionName = string;
-        }
-        try {
-            if (conditionName != null) {
-                Object condition = ifInputValues.get(conditionName);
-                if (condition instanceof Double){
-                    conditionData = ((Double) condition).intValue();
-                } else {
-                    conditionData = (Integer) condition;
-                }
-            }
-        } catch (Exception e) {
-            throw new MissingInputDataException(
-                    IfStartNode.class.getCanonicalName() + ": " + name + " needs " + conditionName + "!");
-        }
-
-        return conditionData;
-
-    }
-
     /**
      * Get the result of the if-start construct.
      *
@@ -1,6 +1,11 @@
 package at.enactmentengine.serverless.nodes;
 
+import at.enactmentengine.serverless.metrics.Metrics;
+import at.enactmentengine.serverless.tracing.SpanRecorder;
+import at.enactmentengine.serverless.tracing.TraceScope;
+
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
@@ -58,6 +63,21 @@ public abstract class Node implements Callable<Boolean>, Cloneable {
      */
     protected long startTime = 0;
 
+    /**
+     * The construct path of the node used for tracing (see {@link TraceScope}).
+     */
+    protected String scope = "";
+
+    /**
+     * The identifiers of the spans which have to finish before this node can start (see {@link SpanRecorder}).
+     */
+    private List<Integer> predecessors = Collections.emptyList();
+
+    /**
+     * The state of the execution the node belongs to, shared by all nodes and their clones.
+     */
+    protected ExecutionContext context;
+
     /**
      * Default constructor for a node.
      *
@@ -97,6 +117,21 @@ public abstract class Node implements Callable<Boolean>, Cloneable {
         parents.add(node);
     }
 
+    /**
+     * Wraps the given node to record how long it waits in a thread pool before it is started.
+     *
+     * @param node the node which should be submitted.
+     *
+     * @return a callable invoking the node.
+     */
+    protected static Callable<Boolean> timed(Node node) {
+        long submitted = System.nanoTime();
+        return () -> {
+            Metrics.queueWait(System.nanoTime() - submitted);
+            return node.call();
+        };
+    }
+
     /** Getter and Setter */
 
     public String getName() {
@@ -146,9 +181,6 @@ public abstract class Node implements Callable<Boolean>, Cloneable {
     }
 
     public synchronized void setStartTime(long startTime) {
-        if (this instanceof ParallelForEndNode) {
-            ((ParallelForEndNode) this).addAllFinishTimes(startTime);
-        }
         if (this.startTime == 0) {
             this.startTime = startTime;
         } else if (startTime > this.startTime) {
@@ -156,6 +188,41 @@ public abstract class Node implements Callable<Boolean>, Cloneable {
         }
     }
 
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(String scope) {
+        this.scope = scope;
+    }
+
+    public ExecutionContext getContext() {
+        return context;
+    }
+
+    public void setContext(ExecutionContext context) {
+        this.context = context;
+    }
+
+    public synchronized List<Integer> getPredecessors() {
+        return predecessors;
+    }
+
+    /**
+     * Adds spans which have to finish before this node can start. End nodes collect the spans of all their parents.
+     *
+     * @param spans the identifiers of the spans.
+     */
+    public synchronized void addPredecessors(List<Integer> spans) {
+        if (predecessors.isEmpty()) {
+            predecessors = spans;
+        } else if (!spans.isEmpty()) {
+            List<Integer> joined = new ArrayList<>(predecessors);
+            joined.addAll(spans);
+            predecessors = joined;
+        }
+    }
+
     /**
      * Clone the whole node.
      *
@@ -1,5 +1,9 @@
 package at.enactmentengine.serverless.nodes;
 
+import at.enactmentengine.serverless.object.PersistentMap;
+import at.enactmentengine.serverless.parser.DataPort;
+import at.enactmentengine.serverless.tracing.TraceScope;
+import at.enactmentengine.serverless.utils.BlobStore;
 import at.enactmentengine.serverless.utils.LoggerUtil;
 import at.uibk.dps.afcl.functions.objects.DataOuts;
 import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
@@ -9,10 +13,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Set;
 
 /**
  * Control node which manages the tasks at the end of a parallel loop.
@@ -37,10 +40,15 @@ public class ParallelEndNode extends Node {
      */
     private List<DataOuts> output;
 
+    /**
+     * The resolved output ports of the parallel-end node.
+     */
+    private final List<DataPort<DataOuts>> outputPorts;
+
     /**
      * The result of the parallel construct.
      */
-    private Map<String, Object> parallelResult = new HashMap<>();
+    private PersistentMap<String, Object> parallelResult = PersistentMap.empty();
 
     /**
      * Clone of the current node.
@@ -57,6 +65,7 @@ public class ParallelEndNode extends Node {
     public ParallelEndNode(String name, String type, List<DataOuts> output) {
         super(name, type);
         this.output = output;
+        this.outputPorts = DataPort.ofOutputs(name, output);
     }
 
     /**
@@ -74,24 +83,24 @@ public class ParallelEndNode extends Node {
         }
 
         /* Get the output of the executed parents */
-        Map<String, Object> outputValues = new HashMap<>();
+        PersistentMap<String, Object> outputValues = PersistentMap.empty();
 
         /* Check if there is an output specified */
         if (output != null) {
-            for (DataOuts data : output) {
+            for (DataPort<DataOuts> port : outputPorts) {
 
                 /* Define the output key */
                 // TODO should we remove name?
-                String key = name + "/" + data.getName();
+                String key = port.getKey();
 
                 /* Check if the result contains the specified source */
-                if (parallelResult.containsKey(data.getSource())) {
-                    outputValues.put(key, parallelResult.get(data.getSource()));
+                if (parallelResult.containsKey(port.getSource())) {
+                    outputValues = outputValues.plus(key, parallelResult.get(port.getSource()));
                     continue;
                 }
 
                 /* Check for a collection result */
-                outputValues.putAll(checkCollection(data, key));
+                outputValues = outputValues.plusAll(checkCollection(port, key));
             }
             logger.info("Executing {} ParallelEndNodeOld with output: {}", name,  LoggerUtil.clearCredentials(outputValues));
 
@@ -100,11 +109,13 @@ public class ParallelEndNode extends Node {
         /* Pass the results to all children */
         for (Node node : children) {
             node.passResult(outputValues);
+            node.setScope(TraceScope.exit(scope));
+            node.addPredecessors(getPredecessors());
+            node.setStartTime(startTime);
             if (getLoopCounter() != -1) {
                 node.setLoopCounter(loopCounter);
                 node.setMaxLoopCounter(maxLoopCounter);
                 node.setConcurrencyLimit(concurrencyLimit);
-                node.setStartTime(startTime);
             }
             node.call();
         }
@@ -117,19 +128,20 @@ public class ParallelEndNode extends Node {
      * <p>
      * TODO can this be merged with the other function?
      *
-     * @param dataOuts output specified in the workflow file.
-     * @param key      on which the data should be added.
+     * @param port output port specified in the workflow file.
+     * @param key  on which the data should be added.
      * @return the output values of the optional collection.
      */
-    private Map<String, Object> checkCollection(DataOuts dataOuts, String key) {
+    private PersistentMap<String, Object> checkCollection(DataPort<DataOuts> port, String key) {
 
-        Map<String, Object> outputValues = new HashMap<>();
+        PersistentMap<String, Object> outputValues = PersistentMap.empty();
+        DataOuts dataOuts = port.getData();
 
-        /* Iterate over all results of the parallel node */
-        for (Entry<String, Object> inputElement : parallelResult.entrySet()) {
+        /* Iterate over all sources defined in the workflow file */
+        for (String source : port.getSources()) {
 
-            /* Check if the defined source in the workflow file contains the actual result of the parallel node */
-            if (dataOuts.getSource() != null && dataOuts.getSource().contains(inputElement.getKey())) {
+            /* Check if the parallel node produced the source */
+            if (parallelResult.containsKey(source)) {
 
                 /* Check if the specified output is of type collection */
                 if ("collection".equals(dataOuts.getType())) {
@@ -139,13 +151,13 @@ public class ParallelEndNode extends Node {
 
                     /* Check if there are contraints (e.g. aggregation) defined */
                     if (dataOuts.getConstraints() != null) {
-                        valueToPass = fulfillCollectionOutputConstraints(dataOuts.getConstraints(), parallelResult, dataOuts.getSource());
+                        valueToPass = fulfillCollectionOutputConstraints(dataOuts.getConstraints(), parallelResult, port.getSources());
                     }
 
-                    outputValues.put(key, valueToPass);
+                    outputValues = outputValues.plus(key, valueToPass);
                     break;
                 }
-                outputValues.put(key, inputElement.getValue());
+                outputValues = outputValues.plus(key, parallelResult.get(source));
             }
         }
         return outputValues;
@@ -166,17 +178,17 @@ public class ParallelEndNode extends Node {
             }
 
             /* Iterate over the output */
-            for (DataOuts data : output) {
+            for (DataPort<DataOuts> port : outputPorts) {
 
                 /* Check if the input is specified in the output of the workflow file */
-                if (input.containsKey(data.getSource())) {
-                    parallelResult.put(data.getSource(), input.get(data.getSource()));
+                if (input.containsKey(port.getSource())) {
+                    parallelResult = parallelResult.plus(port.getSource(), input.get(port.getSource()));
                 }
 
                 /* Add input data to the results if they are specified in the output */
-                for (Entry<String, Object> inputElement : input.entrySet()) {
-                    if (data.getSource() != null && data.getSource().contains(inputElement.getKey())) {
-                        parallelResult.put(inputElement.getKey(), input.get(inputElement.getKey()));
+                for (String source : port.getSources()) {
+                    if (input.containsKey(source)) {
+                        parallelResult = parallelResult.plus(source, input.get(source));
                     }
                 }
             }
@@ -212,7 +224,7 @@ public class ParallelEndNode extends Node {
         /* Clone the node */
         ParallelEndNode node = (ParallelEndNode) super.clone();
         node.children = new ArrayList<>();
-        node.parallelResult = new HashMap<>();
+        node.parallelResult = PersistentMap.empty();
 
         for (Node childrenNode : children) {
             node.children.add(childrenNode.clone(endNode));
@@ -227,12 +239,12 @@ public class ParallelEndNode extends Node {
      *
      * @param constraints the constraints to consider
      * @param data        the data elements
-     * @param source      the source string of the output
+     * @param sources     the single sources of the output in the specified order
      * @return the resulting data elements
      */
     protected Object fulfillCollectionOutputConstraints(List<PropertyConstraint> constraints,
                                                         Map<String, Object> data,
-                                                        String source) {
+                                                        Set<String> sources) {
         Object result = data;
 
         /* Iterate over all constraints */
@@ -245,19 +257,16 @@ public class ParallelEndNode extends Node {
                     /* Combine the results from the executed branches into one collection */
                     JsonArray arr = new JsonArray(data.values().size());
                     for (Object value : data.values()) {
-                        arr.addAll((JsonArray) value);
+                        arr.addAll((JsonArray) BlobStore.materialize(value));
                     }
                     result = arr;
                 } else if ("*".equals(constraint.getValue())){
                     JsonArray arr = new JsonArray(data.values().size());
-                    String[] sourceArray = source.split(",");
-                    
-                    /* We first iterate over the source entries to get the output in the right order */
-                    for(String sourceEntry : sourceArray){
-                        for (Entry<String, Object> inputElement : data.entrySet()) {
-                            if (sourceEntry.contains(inputElement.getKey())) {
-                                arr.addAll((JsonArray) inputElement.getValue());
-                            }
+
+                    /* We iterate over the source entries to get the output in the right order */
+                    for (String sourceEntry : sources) {
+                        if (data.containsKey(sourceEntry)) {
+                            arr.addAll((JsonArray) BlobStore.materialize(data.get(sourceEntry)));
                         }
                     }
                     result = arr;
@@ -1,9 +1,14 @@
 package at.enactmentengine.serverless.nodes;
 
-import at.enactmentengine.serverless.simulation.SimulationParameters;
+import at.enactmentengine.serverless.logging.ExecutionLogSink;
+import at.enactmentengine.serverless.metrics.Metrics;
+import at.enactmentengine.serverless.object.PersistentMap;
+import at.enactmentengine.serverless.parser.DataPort;
+import at.enactmentengine.serverless.simulation.ConcurrencySlots;
+import at.enactmentengine.serverless.tracing.TraceScope;
+import at.enactmentengine.serverless.utils.BlobStore;
 import at.enactmentengine.serverless.utils.LoggerUtil;
 import at.uibk.dps.afcl.functions.objects.DataOuts;
-import at.uibk.dps.databases.MongoDBAccess;
 import at.uibk.dps.util.Event;
 import at.uibk.dps.util.Type;
 import com.google.gson.Gson;
@@ -31,15 +36,25 @@ public class ParallelForEndNode extends Node {
      */
     private int finishedParents = 0;
 
+    /**
+     * The time at which the first parent finished.
+     */
+    private long firstFinishTime;
+
     /**
      * Output of the parallel-for-end node defined in the workflow file.
      */
     private List<DataOuts> output;
 
+    /**
+     * The resolved output ports of the parallel-for-end node.
+     */
+    private List<DataPort<DataOuts>> outputPorts;
+
     /**
      * The result of the parallel-for node.
      */
-    private Map<String, Object> parallelForResult = new HashMap<>();
+    private PersistentMap<String, Object> parallelForResult = PersistentMap.empty();
 
     /**
      * The number of parents (number of functions in the parallelFor).
@@ -52,9 +67,9 @@ public class ParallelForEndNode extends Node {
     private boolean simulate;
 
     /**
-     * Keeps count of all finish times of the functions that have the current node as child.
+     * The concurrency slots of the iterations if simulation is selected.
      */
-    private List<Long> allFinishTimes = Collections.synchronizedList(new ArrayList<>());
+    private ConcurrencySlots slots;
 
     /**
      * Default constructor for a parallel-for-end node
@@ -66,6 +81,7 @@ public class ParallelForEndNode extends Node {
     public ParallelForEndNode(String name, String type, List<DataOuts> output, boolean simulate) {
         super(name, type);
         this.output = output;
+        this.outputPorts = DataPort.ofOutputs(name, output);
         this.simulate = simulate;
     }
 
@@ -78,42 +94,48 @@ public class ParallelForEndNode extends Node {
 
         /* Check if all functions in the parallel-for are finished */
         synchronized (this) {
-            if (++finishedParents != numberOfParents) {
-                SimulationParameters.setIterationFinishTimes(allFinishTimes);
+            if (++finishedParents == 1) {
+                firstFinishTime = System.currentTimeMillis();
+            }
+            if (finishedParents != numberOfParents) {
                 return false;
             }
+            Metrics.fanIn(System.currentTimeMillis() - firstFinishTime);
         }
 
         /* Prepare the output of the node */
-        Map<String, Object> outputValues = new HashMap<>();
+        PersistentMap<String, Object> outputValues = PersistentMap.empty();
 
         /* Check if there is an output specified in the workflow file */
         if (output != null) {
-            for (DataOuts data : output) {
+            for (DataPort<DataOuts> port : outputPorts) {
 
                 /* Define the output key */
                 // TODO should we remove name?
-                String key = name + "/" + data.getName();
+                String key = port.getKey();
 
                 /* Check if the result contains the specified source */
-                if (parallelForResult.containsKey(data.getSource())) {
-                    outputValues.put(key, parallelForResult.get(data.getSource()));
-                } else if ("collection".equals(data.getType())) {
-                    outputValues.put(key, parallelForResult);
+                if (parallelForResult.containsKey(port.getSource())) {
+                    outputValues = outputValues.plus(key, parallelForResult.get(port.getSource()));
+                } else if ("collection".equals(port.getData().getType())) {
+                    outputValues = outputValues.plus(key, parallelForResult);
                 }
             }
         }
 
         logger.info("Executing {} ParallelForEndNodeOld with output: {}", name, LoggerUtil.clearCredentials(outputValues));
         if (simulate) {
-            SimulationParameters.reset();
-            MongoDBAccess.saveLog(Event.PARALLEL_FOR_END, null, null, null, null, null,
+            getContext().getTimeline().record(startTime, 0L);
+            ExecutionLogSink.get().log(Event.PARALLEL_FOR_END, null, null, null, null, null,
                     0L, true, -1, -1, startTime, Type.SIM);
         }
 
         /* Pass results to every child */
         for (Node node : children) {
             node.passResult(outputValues);
+            node.setScope(TraceScope.exit(scope));
+            node.addPredecessors(getPredecessors());
+            node.setStartTime(startTime);
             node.call();
         }
 
@@ -133,9 +155,9 @@ public class ParallelForEndNode extends Node {
             if (output != null) {
 
                 /* Iterate over output and handle the results */
-                for (DataOuts data : output) {
-                    if (input.containsKey(data.getSource())) {
-                        handlePassResults(data, input);
+                for (DataPort<DataOuts> port : outputPorts) {
+                    if (input.containsKey(port.getSource())) {
+                        handlePassResults(port, input);
                     }
                 }
             }
@@ -145,28 +167,29 @@ public class ParallelForEndNode extends Node {
     /**
      * Handle the passing of the results.
      *
-     * @param dataOuts output specified in the workflow file.
+     * @param port output port specified in the workflow file.
      * @param input which should be passed.
      */
-    private void handlePassResults(DataOuts dataOuts, Map<String, Object> input) {
+    private void handlePassResults(DataPort<DataOuts> port, Map<String, Object> input) {
+        String source = port.getSource();
 
         /* Check for collection type */
-        if ("collection".equals(dataOuts.getType())) {
+        if ("collection".equals(port.getData().getType())) {
 
             JsonArray resultArray;
 
             /* Use existing or create a new array */
-            if (parallelForResult.containsKey(dataOuts.getSource())) {
-                resultArray = (JsonArray) parallelForResult.get(dataOuts.getSource());
+            if (parallelForResult.containsKey(source)) {
+                resultArray = (JsonArray) parallelForResult.get(source);
             } else {
                 resultArray = new JsonArray();
             }
 
             /* Add the new output to the result collection */
-            resultArray.add(new Gson().toJsonTree(input.get(dataOuts.getSource())));
-            parallelForResult.put(dataOuts.getSource(), resultArray);
+            resultArray.add(new Gson().toJsonTree(BlobStore.materialize(input.get(source))));
+            parallelForResult = parallelForResult.plus(source, resultArray);
         } else {
-            parallelForResult.put(dataOuts.getSource(), input.get(dataOuts.getSource()));
+            parallelForResult = parallelForResult.plus(source, input.get(source));
         }
     }
 
@@ -182,6 +205,18 @@ public class ParallelForEndNode extends Node {
         return parallelForResult;
     }
 
+    /**
+     * Sets the start time to the end of an iteration and frees the concurrency slot of the iteration, since every
+     * iteration passes its end time exactly once.
+     *
+     * @param startTime the end time of the iteration.
+     */
+    @Override
+    public synchronized void setStartTime(long startTime) {
+        finishIteration(startTime);
+        super.setStartTime(startTime);
+    }
+
     /**
      * Sets the number of children. These number is needed for the synchronization.
      *
@@ -214,7 +249,7 @@ public class ParallelForEndNode extends Node {
         return getResult();
     }
 
-    public void setParallelForResult(Map<String, Object> parallelForResult) {this.parallelForResult = parallelForResult;}
+    public void setParallelForResult(Map<String, Object> parallelForResult) {this.parallelForResult = PersistentMap.from(parallelForResult);}
 
     public List<DataOuts> getOutput() {
         return output;
@@ -222,13 +257,29 @@ public class ParallelForEndNode extends Node {
 
     public void setOutput(List<DataOuts> output) {
         this.output = output;
+        this.outputPorts = DataPort.ofOutputs(name, output);
     }
 
-    public List<Long> getAllFinishTimes() {
-        return allFinishTimes;
+    /**
+     * Creates the concurrency slots of the iterations if simulation is selected.
+     *
+     * @param construct the scope of the parallelFor.
+     *
+     * @return the slots or null if the parallelFor is executed.
+     */
+    ConcurrencySlots openSlots(String construct) {
+        slots = simulate ? context.openSlots(construct) : null;
+        return slots;
     }
 
-    public synchronized void addAllFinishTimes(Long time) {
-        allFinishTimes.add(time);
+    /**
+     * Frees the concurrency slot of an iteration that finished at the given simulated time.
+     *
+     * @param time the end time of the iteration.
+     */
+    private void finishIteration(long time) {
+        if (slots != null) {
+            slots.release(time);
+        }
     }
 }
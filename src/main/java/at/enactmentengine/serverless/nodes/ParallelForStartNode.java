@@ -1,13 +1,21 @@
 package at.enactmentengine.serverless.nodes;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
+import at.enactmentengine.serverless.metrics.Metrics;
+import at.enactmentengine.serverless.object.CollectionView;
+import at.enactmentengine.serverless.object.PersistentMap;
+import at.enactmentengine.serverless.parser.DataPort;
 import at.enactmentengine.serverless.parser.ElementIndex;
+import at.enactmentengine.serverless.simulation.ConcurrencySlots;
+import at.enactmentengine.serverless.tracing.TraceScope;
+import at.enactmentengine.serverless.utils.BlobStore;
 import at.uibk.dps.afcl.functions.objects.DataIns;
 import at.uibk.dps.afcl.functions.objects.LoopCounter;
 import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
 import com.github.fge.jsonschema.core.tree.JsonTree;
 import com.google.gson.Gson;
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.internal.LinkedTreeMap;
 import org.apache.commons.lang3.NotImplementedException;
 import org.slf4j.Logger;
@@ -44,6 +52,10 @@ public class ParallelForStartNode extends Node {
      * Input data defined in the workflow file.
      */
     private List<DataIns> dataIns;
+    /**
+     * The resolved input ports of the parallel-for-start node.
+     */
+    private List<DataPort<DataIns>> inputPorts;
     /**
      * The actual values of the counter variables.
      */
@@ -81,6 +93,7 @@ public class ParallelForStartNode extends Node {
                                 List<PropertyConstraint> constraints) {
         super(name, type);
         this.dataIns = dataIns;
+        this.inputPorts = DataPort.ofInputs(name, dataIns);
         this.properties = properties;
         this.constraints = constraints;
         counterVariableNames = new String[3];
@@ -155,9 +168,7 @@ public class ParallelForStartNode extends Node {
         synchronized (this) {
 
             /* Prepare data value holders, if not already done */
-            if (dataValues == null) {
-                dataValues = new HashMap<>();
-            }
+            PersistentMap<String, Object> values = PersistentMap.from(dataValues);
             if (counterValues == null) {
                 counterValues = new HashMap<>();
             }
@@ -166,12 +177,13 @@ public class ParallelForStartNode extends Node {
             if (dataIns != null) {
 
                 /* Iterate over inputs and add corresponding values to the data values */
-                for (DataIns data : dataIns) {
-                    if (input.containsKey(data.getSource())) {
-                        dataValues.put(data.getSource(), input.get(data.getSource()));
+                for (DataPort<DataIns> port : inputPorts) {
+                    if (input.containsKey(port.getSource())) {
+                        values = values.plus(port.getSource(), input.get(port.getSource()));
                     }
                 }
             }
+            dataValues = values;
 
             /* Iterate over counter variables and check if the input contains the values */
             for (String counterValue : counterVariableNames) {
@@ -192,20 +204,21 @@ public class ParallelForStartNode extends Node {
      */
     @Override
     public Boolean call() throws Exception {
+        long callStart = System.currentTimeMillis();
 
         /* Prepare the output values */
-        final Map<String, Object> outValues = new HashMap<>();
+        PersistentMap<String, Object> outValues = PersistentMap.empty();
 
         /* Check if there is input defined in the workflow file */
         if (dataIns != null) {
 
             /* Iterate over the input data and handle input values */
-            for (DataIns data : dataIns) {
-                if (!dataValues.containsKey(data.getSource())) {
+            for (DataPort<DataIns> port : inputPorts) {
+                if (!dataValues.containsKey(port.getSource())) {
                     throw new MissingInputDataException(ParallelForStartNode.class.getCanonicalName() + ": " + name
-                            + " needs " + data.getSource() + "!");
+                            + " needs " + port.getSource() + "!");
                 } else {
-                    outValues.put(name + "/" + data.getName(), dataValues.get(data.getSource()));
+                    outValues = outValues.plus(port.getKey(), dataValues.get(port.getSource()));
                 }
             }
         }
@@ -213,13 +226,14 @@ public class ParallelForStartNode extends Node {
         logger.info("Executing {} ParallelForStartNodeOld", name);
 
         /* Create all children functions (all functions inside the parallel-for) */
-        addChildren();
+        ParallelForEndNode endNode = addChildren();
+        ConcurrencySlots slots = endNode.openSlots(TraceScope.enter(scope, "parallelFor", name, -1));
 
         /* Create a fixed thread-pool managing the parallel executions */
         ExecutorService exec = Executors
                 .newFixedThreadPool(children.size() > maxNumberThreads ? maxNumberThreads : children.size());
         List<Future<Boolean>> futures = new ArrayList<>();
-        List<Map<String, Object>> outValuesForChildren = transferOutVals(children.size(), outValues);
+        List<PersistentMap<String, Object>> outValuesForChildren = transferOutVals(children.size(), outValues);
 
         int customConcurrencyLimit = maxNumberThreads == 1000 ? -1 : maxNumberThreads;
 
@@ -231,14 +245,8 @@ public class ParallelForStartNode extends Node {
             node.setMaxLoopCounter(counterEnd - 1);
             node.setConcurrencyLimit(customConcurrencyLimit);
             node.setStartTime(startTime);
-            // if another construct is following directly afterwards, set the field to 0 (needed if concurrency limit is exceeded)
-            if (node instanceof IfStartNode) {
-                ((IfStartNode) node).isAfterParallelForNode = 0;
-            } else if (node instanceof ParallelStartNode) {
-                ((ParallelStartNode) node).isAfterParallelForNode = 0;
-            } else if (node instanceof SwitchStartNode) {
-                ((SwitchStartNode) node).isAfterParallelForNode = 0;
-            }
+            node.setScope(TraceScope.enter(scope, "parallelFor", name, i));
+            node.addPredecessors(getPredecessors());
 
             /* Pass results to the children (if there is an output value left) */
             if (i < outValuesForChildren.size()) {
@@ -246,12 +254,19 @@ public class ParallelForStartNode extends Node {
             }
 
             /* Execute the child node */
-            futures.add(exec.submit(node));
+            futures.add(exec.submit(Metrics.ENABLED ? timed(node) : node));
         }
+        Metrics.fanOut(System.currentTimeMillis() - callStart);
 
         /* Wait for all children to finish */
-        for (Future<Boolean> future : futures) {
-            future.get();
+        try {
+            for (Future<Boolean> future : futures) {
+                future.get();
+            }
+        } finally {
+            if (slots != null) {
+                context.closeSlots(slots);
+            }
         }
 
         /* Terminate executor */
@@ -263,10 +278,12 @@ public class ParallelForStartNode extends Node {
     /**
      * Adds a specific number of children depending on the values counterStart, counterEnd and counterStepSize.
      *
+     * @return the end node of the parallel-for.
+     *
      * @throws MissingInputDataException  on missing input.
      * @throws CloneNotSupportedException on unsupported clone.
      */
-    private void addChildren() throws MissingInputDataException, CloneNotSupportedException {
+    private ParallelForEndNode addChildren() throws MissingInputDataException, CloneNotSupportedException {
 
         /* Iterate over counter variables and check if there is the according value */
         for (String counterKeyName : counterVariableNames) {
@@ -305,6 +322,8 @@ public class ParallelForStartNode extends Node {
 
         /* Set the number all children in the parallel-for */
         endNode.setNumberOfParents(children.size());
+
+        return endNode;
     }
 
     /**
@@ -348,70 +367,57 @@ public class ParallelForStartNode extends Node {
      *
      * @return the transferred output values.
      */
-    private ArrayList<Map<String, Object>> transferOutVals(int children, Map<String, Object> outValues) {
+    private ArrayList<PersistentMap<String, Object>> transferOutVals(int children, Map<String, Object> outValues) {
 
-        ArrayList<Map<String, Object>> values = new ArrayList<>();
+        ArrayList<PersistentMap<String, Object>> values = new ArrayList<>();
 
         /* Check if there is an input defined */
         if (dataIns != null) {
 
             /* Iterate over the input data defined in the workflow file */
-            for (DataIns data : dataIns) {
+            for (DataPort<DataIns> port : inputPorts) {
+                DataIns data = port.getData();
 
                 /* Check of there are constraints defined */
                 if (data.getConstraints() != null) {
 
-                    /* Check if the actual input is an array */
-                    if (dataValues.get(data.getSource()) instanceof ArrayList || dataValues.get(data.getSource()) instanceof JsonArray) {
+                    /* Read values kept in the blob store, as they have to be distributed */
+                    Object value = BlobStore.materialize(dataValues.get(port.getSource()));
 
-                        /* Convert the data to an array */
-                        JsonArray dataElements = new Gson().toJsonTree(dataValues.get(data.getSource())).getAsJsonArray();
-
-                        /* Check if a distribution is specified */
-                        List<JsonArray> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
-                        checkDistributedElements(distributedElements, data, values);
+                    /* Create a view over the actual input without copying its elements */
+                    CollectionView dataElements;
+                    if (value instanceof JsonArray) {
+                        dataElements = CollectionView.of((JsonArray) value);
+                    } else if (value instanceof List) {
+                        dataElements = CollectionView.of((List<?>) value);
                     } else {
 
                         // TODO can the following be simplified and generalized e.g. also for bool etc.?
-                        if (dataValues.get(data.getSource()) instanceof Double) {
-                            JsonArray dataElements = new JsonArray();
-                            dataElements.add((Double) dataValues.get(data.getSource()));
-                            List<JsonArray> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
-
-                            checkDistributedElements(distributedElements, data, values);
-                        } else if (dataValues.get(data.getSource()) instanceof Integer) {
-                            JsonArray dataElements = new JsonArray();
-                            dataElements.add((Integer) dataValues.get(data.getSource()));
-                            List<JsonArray> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
-
-                            checkDistributedElements(distributedElements, data, values);
-                        } else if (dataValues.get(data.getSource()) instanceof Boolean) {
-                            JsonArray dataElements = new JsonArray();
-                            dataElements.add((Boolean) dataValues.get(data.getSource()));
-                            List<JsonArray> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
-
-                            checkDistributedElements(distributedElements, data, values);
-                        } else if (dataValues.get(data.getSource()) instanceof String) {
-                            JsonArray dataElements = new JsonArray();
-                            dataElements.add((String) dataValues.get(data.getSource()));
-                            List<JsonArray> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
-
-                            checkDistributedElements(distributedElements, data, values);
-                        } else if (dataValues.get(data.getSource()) instanceof LinkedTreeMap) {
-                            JsonArray dataElements = new JsonArray();
-                            dataElements.add(new Gson().toJson(dataValues.get(data.getSource())));
-                            List<JsonArray> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
-
-                            checkDistributedElements(distributedElements, data, values);
+                        JsonArray element = new JsonArray();
+                        if (value instanceof Double) {
+                            element.add((Double) value);
+                        } else if (value instanceof Integer) {
+                            element.add((Integer) value);
+                        } else if (value instanceof Boolean) {
+                            element.add((Boolean) value);
+                        } else if (value instanceof String) {
+                            element.add((String) value);
+                        } else if (value instanceof LinkedTreeMap) {
+                            element.add(new Gson().toJson(value));
                         } else {
-                            throw new NotImplementedException("Not implemented: " + dataValues.get(data.getSource()).getClass());
+                            throw new NotImplementedException("Not implemented: " + value.getClass());
                         }
+                        dataElements = CollectionView.of(element);
                     }
+
+                    /* Check if a distribution is specified */
+                    List<CollectionView> distributedElements = distributeElements(dataElements, data.getConstraints(), children);
+                    checkDistributedElements(distributedElements, port, values);
                 } else {
 
                     /* Check if data should be passed */
                     if (data.getPassing() != null && data.getPassing()) {
-                        passData(outValues, data, children, values);
+                        passData(outValues, port, children, values);
                     }
                 }
             }
@@ -423,25 +429,25 @@ public class ParallelForStartNode extends Node {
      * Pass the data to the next successor.
      *
      * @param outValues   output values.
-     * @param data        input data specified in the workflow file.
+     * @param port        resolved input port of the workflow file.
      * @param numChildren number of children.
      * @param values      where the data should be added.
      */
-    private void passData(Map<String, Object> outValues, DataIns data, int numChildren, ArrayList<Map<String, Object>> values) {
+    private void passData(Map<String, Object> outValues, DataPort<DataIns> port, int numChildren, ArrayList<PersistentMap<String, Object>> values) {
+        DataIns data = port.getData();
 
         /* Check if the output contains the specified key */
-        if (outValues.containsKey(name + "/" + data.getName())) {
+        if (outValues.containsKey(port.getKey())) {
 
             /* Iterate over all children */
+            Object value = outValues.get(port.getKey());
             for (int i = 0; i < numChildren; i++) {
 
                 /* Check if there is data for the specified child */
                 if (values.size() > i) {
-                    values.get(i).put(data.getName(), outValues.get(name + "/" + data.getName()));
+                    values.set(i, values.get(i).plus(data.getName(), value));
                 } else {
-                    Map<String, Object> tmp = new HashMap<>();
-                    tmp.put(data.getName(), outValues.get(name + "/" + data.getName()));
-                    values.add(i, tmp);
+                    values.add(i, PersistentMap.<String, Object>empty().plus(data.getName(), value));
                 }
             }
         } else {
@@ -453,10 +459,11 @@ public class ParallelForStartNode extends Node {
      * Check for the distribution of data elements.
      *
      * @param distributedElements input list of distributed elements.
-     * @param data                the dataIns specified in the workflow file.
+     * @param port                the resolved input port of the workflow file.
      * @param values              result which are transferred.
      */
-    private void checkDistributedElements(List<JsonArray> distributedElements, DataIns data, ArrayList<Map<String, Object>> values) {
+    private void checkDistributedElements(List<CollectionView> distributedElements, DataPort<DataIns> port, ArrayList<PersistentMap<String, Object>> values) {
+        DataIns data = port.getData();
 
         /* Iterate over all distributed elements */
         for (int i = 0; i < distributedElements.size(); i++) {
@@ -465,58 +472,50 @@ public class ParallelForStartNode extends Node {
             if (distributedElements.get(i).size() == 1) {
 
                 /* Extract a single value */
-                JsonArray arr = distributedElements.get(i);
+                JsonElement element = distributedElements.get(i).get(0);
                 if("number".equals(data.getType())){
-                    block = arr.get(0).getAsInt();
+                    block = element.getAsInt();
                 } else if("bool".equals(data.getType())){
-                    block = arr.get(0).getAsBoolean();
+                    block = element.getAsBoolean();
                 } else {
-                    block = arr.get(0).getAsString();
+                    block = element.getAsString();
                 }
             }
 
             // TODO check if this should be dynamic
             /* Define the key which should be used */
-            String key = name + "/" + data.getName();
+            String key = port.getKey();
 
             /* Check if there are enough values */
             if (values.size() > i) {
 
                 /* Use the child map we already created for another DataIns port */
-                values.get(i).put(key, block);
+                values.set(i, values.get(i).plus(key, block));
             } else {
 
                 /* Create a new map if there are not enough elements */
-                Map<String, Object> map = new HashMap<>();
-                map.put(key, block);
                 // TODO check why i as key?
-                values.add(i, map);
+                values.add(i, PersistentMap.<String, Object>empty().plus(key, block));
             }
         }
     }
 
     /**
-     * Distributes the given elements in BLOCK mode. The collection is split into blocks of the given size.
+     * Distributes the given elements in BLOCK mode. The collection is split into blocks of the given size, each block
+     * being a view over the same elements. A block size below 1 distributes single elements.
      *
      * @param elements  The data elements to distribute.
      * @param blockSize The block size of each block.
      *
      * @return The data blocks in a list.
      */
-    private List<JsonArray> distributeOutValsBlock(JsonArray elements, int blockSize) {
-        List<JsonArray> blocks = new ArrayList<>();
-        JsonArray currentBlock = new JsonArray();
+    private List<CollectionView> distributeOutValsBlock(CollectionView elements, int blockSize) {
+        List<CollectionView> blocks = new ArrayList<>();
+        blockSize = Math.max(1, blockSize);
 
-        /* Iterate over the whole array and distribute the elements to the blocks */
-        for (int i = 0; i < elements.size(); i++) {
-
-            currentBlock.add(elements.get(i));
-
-            /* Complete the current block if it is full or we ran out of elements */
-            if (currentBlock.size() >= blockSize || i == (elements.size() - 1)) {
-                blocks.add(currentBlock);
-                currentBlock = new JsonArray();
-            }
+        /* Iterate over the whole collection and create a view for each block */
+        for (int from = 0; from < elements.size(); from += blockSize) {
+            blocks.add(elements.slice(from, Math.min(blockSize, elements.size() - from)));
         }
 
         return blocks;
@@ -531,7 +530,7 @@ public class ParallelForStartNode extends Node {
      *
      * @return a list containing the distributed elements
      */
-    protected List<JsonArray> distributeElements(JsonArray dataElements, List<PropertyConstraint> constraints,
+    protected List<CollectionView> distributeElements(CollectionView dataElements, List<PropertyConstraint> constraints,
                                                  int children) {
         /* Check for unknown constraints */
         for (PropertyConstraint constraint : constraints) {
@@ -545,17 +544,12 @@ public class ParallelForStartNode extends Node {
         PropertyConstraint elementIndexConstraint = getPropertyConstraintByName(constraints, "element-index");
         if (elementIndexConstraint != null) {
 
-            /* Create a subset of the collection using the indices specified in the element-index constraint */
-            List<Integer> indices = ElementIndex.parseIndices(elementIndexConstraint.getValue());
-            JsonArray subset = new JsonArray(indices.size());
-            for (Integer i : indices) {
-                subset.add(dataElements.get(i));
-            }
-            dataElements = subset;
+            /* Select a subset of the collection using the ranges specified in the element-index constraint */
+            dataElements = dataElements.select(ElementIndex.compile(elementIndexConstraint.getValue()));
         }
 
         /* Check for the distribute constraint */
-        List<JsonArray> distributedElements;
+        List<CollectionView> distributedElements;
         PropertyConstraint distributionConstraint = getPropertyConstraintByName(constraints, "distribution");
         if (distributionConstraint != null) {
 
@@ -630,5 +624,6 @@ public class ParallelForStartNode extends Node {
 
     public void setDataIns(List<DataIns> dataIns) {
         this.dataIns = dataIns;
+        this.inputPorts = DataPort.ofInputs(name, dataIns);
     }
 }
@@ -1,12 +1,15 @@
 package at.enactmentengine.serverless.nodes;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
+import at.enactmentengine.serverless.metrics.Metrics;
+import at.enactmentengine.serverless.object.PersistentMap;
+import at.enactmentengine.serverless.parser.DataPort;
+import at.enactmentengine.serverless.tracing.TraceScope;
 import at.uibk.dps.afcl.functions.objects.DataIns;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -30,14 +33,14 @@ public class ParallelStartNode extends Node {
      */
     private static final int MAX_NUMBER_THREADS = 1000;
 
-    /**
-     * Specifies if its parent is a parallelFor and counts how many SimulationNodes are children of this node.
-     */
-    public long isAfterParallelForNode = -1;
     /**
      * The input defined within the workflow file.
      */
     private List<DataIns> definedInput;
+    /**
+     * The resolved input ports of the parallel-start node.
+     */
+    private final List<DataPort<DataIns>> inputPorts;
 
     /**
      * Default constructor for the parallel-start node.
@@ -49,6 +52,7 @@ public class ParallelStartNode extends Node {
     public ParallelStartNode(String name, String type, List<DataIns> definedInput) {
         super(name, type);
         this.definedInput = definedInput;
+        this.inputPorts = DataPort.ofInputs(name, definedInput);
     }
 
     /**
@@ -58,18 +62,18 @@ public class ParallelStartNode extends Node {
     @Override
     public Boolean call() throws Exception {
 
-        final Map<String, Object> outValues = new HashMap<>();
+        PersistentMap<String, Object> outValues = PersistentMap.empty();
 
         /* Check if there is an input defined */
         if (definedInput != null) {
 
             /* Iterate over the possible inputs and look for defined ones */
-            for (DataIns data : definedInput) {
-                if (!dataValues.containsKey(data.getSource())) {
+            for (DataPort<DataIns> port : inputPorts) {
+                if (!dataValues.containsKey(port.getSource())) {
                     throw new MissingInputDataException(ParallelStartNode.class.getCanonicalName() + ": " + name
-                            + " needs " + data.getSource() + "!");
+                            + " needs " + port.getSource() + "!");
                 } else {
-                    outValues.put(name + "/" + data.getName(), dataValues.get(data.getSource()));
+                    outValues = outValues.plus(port.getKey(), dataValues.get(port.getSource()));
                 }
             }
         }
@@ -80,36 +84,20 @@ public class ParallelStartNode extends Node {
         ExecutorService exec = Executors
                 .newFixedThreadPool(children.size() > MAX_NUMBER_THREADS ? MAX_NUMBER_THREADS : children.size());
 
-        long simNodes = 0;
         /* Pass data to all children and execute them */
         List<Future<Boolean>> futures = new ArrayList<>();
-        for (Node node : children) {
-            if (node instanceof SimulationNode) {
-                simNodes++;
-            }
+        for (int i = 0; i < children.size(); i++) {
+            Node node = children.get(i);
             node.passResult(outValues);
+            node.setScope(TraceScope.enter(scope, "parallel", name, i));
+            node.addPredecessors(getPredecessors());
+            node.setStartTime(startTime);
             if (getLoopCounter() != -1) {
                 node.setLoopCounter(loopCounter);
                 node.setMaxLoopCounter(maxLoopCounter);
                 node.setConcurrencyLimit(concurrencyLimit);
-                node.setStartTime(startTime);
-            }
-            futures.add(exec.submit(node));
-        }
-
-        // specify how many functions are directly after a nested construct (needed if concurrency limit is exceeded)
-        if (isAfterParallelForNode != -1) {
-            for (Node node : children) {
-                if (node instanceof IfStartNode) {
-                    ((IfStartNode) node).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                } else if (node instanceof ParallelStartNode) {
-                    ((ParallelStartNode) node).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                } else if (node instanceof SwitchStartNode) {
-                    ((SwitchStartNode) node).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                } else if (node instanceof SimulationNode) {
-                    ((SimulationNode) node).setAmountParallelFunctions(isAfterParallelForNode + simNodes);
-                }
             }
+            futures.add(exec.submit(Metrics.ENABLED ? timed(node) : node));
         }
 
         /* Wait for all children to finish */
@@ -130,20 +118,19 @@ public class ParallelStartNode extends Node {
     public void passResult(Map<String, Object> input) {
         synchronized (this) {
 
-            /* Check if the map containing the actual values is already defined */
-            if (dataValues == null) {
-                dataValues = new HashMap<>();
-            }
-
             /* Check if there is an input defined */
             if (definedInput != null) {
+                PersistentMap<String, Object> values = PersistentMap.from(dataValues);
 
                 /* Iterate over the defined input and look for a match with the actual value */
-                for (DataIns data : definedInput) {
-                    if (input.containsKey(data.getSource())) {
-                        dataValues.put(data.getSource(), input.get(data.getSource()));
+                for (DataPort<DataIns> port : inputPorts) {
+                    if (input.containsKey(port.getSource())) {
+                        values = values.plus(port.getSource(), input.get(port.getSource()));
                     }
                 }
+                dataValues = values;
+            } else if (dataValues == null) {
+                dataValues = PersistentMap.empty();
             }
         }
     }
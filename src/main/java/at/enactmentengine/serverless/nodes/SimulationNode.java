@@ -1,23 +1,31 @@
 package at.enactmentengine.serverless.nodes;
 
 import at.enactmentengine.serverless.exception.*;
+import at.enactmentengine.serverless.logging.ExecutionLogSink;
+import at.enactmentengine.serverless.metrics.Metrics;
 import at.enactmentengine.serverless.object.PairResult;
 import at.enactmentengine.serverless.object.QuadrupleResult;
 import at.enactmentengine.serverless.object.Utils;
+import at.enactmentengine.serverless.parser.DataPort;
+import at.enactmentengine.serverless.simulation.ConcurrencySlots;
+import at.enactmentengine.serverless.simulation.DeploymentParameters;
+import at.enactmentengine.serverless.simulation.SensitivityAnalysis;
 import at.enactmentengine.serverless.simulation.ServiceSimulationModel;
 import at.enactmentengine.serverless.simulation.SimulationModel;
 import at.enactmentengine.serverless.simulation.SimulationParameters;
+import at.enactmentengine.serverless.simulation.SimulationRandom;
 import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
 import at.enactmentengine.serverless.simulation.metadata.exceptions.DatabaseException;
 import at.enactmentengine.serverless.simulation.metadata.model.FunctionDeployment;
 import at.enactmentengine.serverless.simulation.metadata.model.FunctionImplementation;
 import at.enactmentengine.serverless.simulation.metadata.model.Region;
+import at.enactmentengine.serverless.tracing.SpanRecorder;
+import at.enactmentengine.serverless.tracing.TraceScope;
 import at.uibk.dps.afcl.functions.objects.DataIns;
 import at.uibk.dps.afcl.functions.objects.DataOutsAtomic;
 import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
 import at.uibk.dps.afcl.functions.objects.Service;
 import at.uibk.dps.cronjob.ManualUpdate;
-import at.uibk.dps.databases.MongoDBAccess;
 import at.uibk.dps.exception.InvokationFailureException;
 import at.uibk.dps.exception.LatestFinishingTimeException;
 import at.uibk.dps.exception.LatestStartingTimeException;
@@ -80,6 +88,16 @@ public class SimulationNode extends Node {
      */
     private List<DataIns> input;
 
+    /**
+     * The resolved output ports of the simulation node.
+     */
+    private final List<DataPort<DataOutsAtomic>> outputPorts;
+
+    /**
+     * The resolved input ports which are passed to the output of the simulation node.
+     */
+    private final List<DataPort<DataIns>> passingPorts = new ArrayList<>();
+
     /**
      * The result of the simulation node.
      */
@@ -90,11 +108,6 @@ public class SimulationNode extends Node {
      */
     private String simInfo;
 
-    /**
-     * Counts the amount of functions that are executed in parallel in a parallel section.
-     */
-    private long amountParallelFunctions = -1;
-
     private final List<Service> services;
 
     /**
@@ -107,6 +120,11 @@ public class SimulationNode extends Node {
      */
     private boolean useSessionOverhead;
 
+    /**
+     * The random numbers of the simulated function, drawn from a stream of its own if a seed is set.
+     */
+    private SimulationRandom random = SimulationRandom.unseeded();
+
     /**
      * Constructor for a simulation node.
      *
@@ -132,6 +150,12 @@ public class SimulationNode extends Node {
         if (output == null) {
             this.output = new ArrayList<>();
         }
+        this.outputPorts = DataPort.ofAtomicOutputs(name, this.output);
+        for (DataPort<DataIns> port : DataPort.ofInputs(name, input)) {
+            if (port.getData().getPassing() != null && port.getData().getPassing()) {
+                passingPorts.add(port);
+            }
+        }
         this.services = ServiceSimulationModel.getUsedServices(this.properties, this);
         this.useSessionOverhead = useSessionOverhead;
     }
@@ -207,6 +231,9 @@ public class SimulationNode extends Node {
             id = counter++;
         }
 
+        /* The scope and loop counter are known now, so the random numbers of this function can be derived */
+        random = SimulationRandom.forFunction(scope, name, loopCounter);
+
         /* Read the resource link of the base function */
         String resourceLink = Utils.getResourceLink(properties, this);
         Provider provider = Utils.detectProvider(resourceLink);
@@ -250,26 +277,26 @@ public class SimulationNode extends Node {
 
         /* Simulate function */
         QuadrupleResult<Long, Double, Map<String, Object>, Boolean> simResult = simulateFunction(functionToInvoke);
+        int spanId = -1;
+        if (simResult.getRTT() != null) {
+            Metrics.functionRtt(name, simResult.getRTT());
+            spanId = SpanRecorder.get().record(getPredecessors(), name, scope, startTime, simResult.getRTT(),
+                    loopCounter, functionToInvoke.getUrl(), simResult.isSuccess());
+        }
 
         // set the result of the simulation as the result of the SimulationNode
         result = simResult.getOutput();
 
-        if (this.input != null) {
-            for (DataIns in : this.input) {
-                if (in.getPassing() != null && in.getPassing()) {
-                    this.output.add(new DataOutsAtomic(in.getName(), in.getType()));
-                }
-            }
-        }
-
         /* Pass the output to the next node */
         for (Node node : children) {
             node.passResult(result);
+            node.setScope(scope);
+            node.addPredecessors(spanId < 0 ? getPredecessors() : Collections.singletonList(spanId));
+            node.setStartTime(simResult.getRTT() == null ? startTime : startTime + simResult.getRTT());
             if (getLoopCounter() != -1) {
                 node.setLoopCounter(loopCounter);
                 node.setMaxLoopCounter(maxLoopCounter);
                 node.setConcurrencyLimit(concurrencyLimit);
-                node.setStartTime(startTime + simResult.getRTT());
             }
             node.call();
         }
@@ -313,7 +340,7 @@ public class SimulationNode extends Node {
             result = simulateFunctionFT(functionToSimulate);
 
         } else {
-            startTime = startTime == 0 ? getStartingTime() : startTime;
+            startTime = getStartingTime();
             result = getSimulationResult(resourceLink, functionToSimulate.getDeployment());
             Event event = null;
             if (result.isSuccess()) {
@@ -326,8 +353,8 @@ public class SimulationNode extends Node {
                 event = Event.FUNCTION_FAILED;
                 logger.info("Simulating function {} failed{}.", resourceLink, simInfo);
             }
-            MongoDBAccess.saveLog(event, resourceLink, functionToSimulate.getDeployment(), getName(), functionToSimulate.getType(), this.serviceOutput,
-                    result.getRTT(), result.getCost(), result.isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+            logSimulation(event, resourceLink, functionToSimulate.getDeployment(), functionToSimulate.getType(), this.serviceOutput,
+                    result.getRTT(), result.getCost(), result.isSuccess());
         }
 
         return result;
@@ -363,7 +390,7 @@ public class SimulationNode extends Node {
 
         if (function != null) {
             if (function.hasConstraintSet()) {
-                Timestamp timeAtStart = new Timestamp(startTime == 0 ? getStartingTime() : startTime);
+                Timestamp timeAtStart = new Timestamp(getStartingTime());
                 if (function.getConstraints().hasLatestStartingTime()) {
                     if (timeAtStart.after(function.getConstraints().getLatestStartingTime())) {
                         throw new LatestStartingTimeException("latestStartingTime constraint missed!");
@@ -437,30 +464,31 @@ public class SimulationNode extends Node {
     private QuadrupleResult<Long, Double, Map<String, Object>, Boolean> simulateFT(Function function)
             throws NoDatabaseEntryForIdException, NotYetInvokedException, SQLException, RegionDetectionException,
             MissingResourceLinkException, MissingComputationalWorkException, AlternativeStrategyException, MissingSimulationParametersException {
-        startTime = startTime == 0 ? getStartingTime() : startTime;
+        startTime = getStartingTime();
         String resourceLink = function.getUrl();
         QuadrupleResult<Long, Double, Map<String, Object>, Boolean> result = getSimulationResult(resourceLink, function.getDeployment());
 
         if (!result.isSuccess()) {
             logger.info("Simulating function {} failed{}.", resourceLink, simInfo);
-            MongoDBAccess.saveLog(Event.FUNCTION_FAILED, resourceLink, function.getDeployment(), getName(), function.getType(), null, result.getRTT(),
-                    result.getCost(), result.isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+            logSimulation(Event.FUNCTION_FAILED, resourceLink, function.getDeployment(), function.getType(), null, result.getRTT(),
+                    result.getCost(), result.isSuccess());
             if (function.hasFTSet()) {
                 logger.info("##############  First invocation has failed, retrying " + function.getFTSettings().getRetries() +
                         " times.  ##############");
                 for (int i = 0; i < function.getFTSettings().getRetries(); i++) {
+                    Metrics.retry(name);
                     // increment the starting time by the previous RTT
                     startTime += result.getRTT();
                     result = getSimulationResult(resourceLink, function.getDeployment());
                     if (result.isSuccess()) {
                         logger.info("Simulating function {} took {}ms{}.", resourceLink, result.getRTT(), simInfo);
-                        MongoDBAccess.saveLog(Event.FUNCTION_END, resourceLink, function.getDeployment(), getName(), function.getType(), null, result.getRTT(),
-                                result.getCost(), result.isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+                        logSimulation(Event.FUNCTION_END, resourceLink, function.getDeployment(), function.getType(), null, result.getRTT(),
+                                result.getCost(), result.isSuccess());
                         return result;
                     }
                     logger.info("Simulating function {} failed{}.", resourceLink, simInfo);
-                    MongoDBAccess.saveLog(Event.FUNCTION_FAILED, resourceLink, function.getDeployment(), getName(), function.getType(), null, result.getRTT(),
-                            result.getCost(), result.isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+                    logSimulation(Event.FUNCTION_FAILED, resourceLink, function.getDeployment(), function.getType(), null, result.getRTT(),
+                            result.getCost(), result.isSuccess());
                 }
                 // Failed after all retries. Check for alternative Strategy
                 if (function.getFTSettings().hasAlternativeStartegy()) {
@@ -476,8 +504,8 @@ public class SimulationNode extends Node {
             }
         }
         logger.info("Simulating function {} took {}ms{}.", resourceLink, result.getRTT(), simInfo);
-        MongoDBAccess.saveLog(Event.FUNCTION_END, resourceLink, function.getDeployment(), getName(), function.getType(), null, result.getRTT(),
-                result.getCost(), result.isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+        logSimulation(Event.FUNCTION_END, resourceLink, function.getDeployment(), function.getType(), null, result.getRTT(),
+                result.getCost(), result.isSuccess());
         return result;
     }
 
@@ -509,9 +537,10 @@ public class SimulationNode extends Node {
                 HashMap<String, QuadrupleResult<Long, Double, Map<String, Object>, Boolean>> tempResults = new HashMap<>();
                 List<String> tempDeployments = new ArrayList<>();
                 QuadrupleResult<Long, Double, Map<String, Object>, Boolean> result;
-                startTime = startTime == 0 ? getStartingTime() : startTime;
+                startTime = getStartingTime();
                 int j = 0;
                 logger.info("##############  Trying Alternative Plan " + i + "  ##############");
+                Metrics.alternativeSwitch(name);
                 for (Function alternativeFunction : alternativePlan) {
                     logger.info("##############  Trying Alternative Function " + j + "  ##############");
                     result = getSimulationResult(alternativeFunction.getUrl(), alternativeFunction.getDeployment());
@@ -554,13 +583,13 @@ public class SimulationNode extends Node {
                             // they were "canceled" after the fastest function finished, therefore the RTT of the
                             // result is the RTT of the canceled function
                             logger.info("Canceled simulation of function {} after {}ms{}.", set.getKey(), result.getRTT(), alternateInfo);
-                            MongoDBAccess.saveLog(Event.FUNCTION_CANCELED, set.getKey(), tempDeployments.get(j), getName(), function.getType(), null,
-                                    result.getRTT(), result.getCost(), false, loopCounter, maxLoopCounter, startTime, Type.SIM);
+                            logSimulation(Event.FUNCTION_CANCELED, set.getKey(), tempDeployments.get(j), function.getType(), null,
+                                    result.getRTT(), result.getCost(), false);
                         } else if (!set.getValue().isSuccess()) {
                             // if a function was unsuccessful AND it ran shorter than the fastest successful one
                             logger.info("Simulating function {} failed{}.", set.getKey(), alternateInfo);
-                            MongoDBAccess.saveLog(Event.FUNCTION_FAILED, set.getKey(), tempDeployments.get(j), getName(), function.getType(), null,
-                                    set.getValue().getRTT(), set.getValue().getCost(), set.getValue().isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+                            logSimulation(Event.FUNCTION_FAILED, set.getKey(), tempDeployments.get(j), function.getType(), null,
+                                    set.getValue().getRTT(), set.getValue().getCost(), set.getValue().isSuccess());
                         }
                         j++;
                     }
@@ -568,8 +597,8 @@ public class SimulationNode extends Node {
                     alternateInfo = " for provider '" + elements.get(2) + "' in region '" + elements.get(1) + "', id=" + id + loopId;
                     // log the fastest successful function
                     logger.info("Simulating function {} took {}ms{}.", url, result.getRTT(), alternateInfo);
-                    MongoDBAccess.saveLog(Event.FUNCTION_END, url, depl, getName(), function.getType(), null, result.getRTT(),
-                            result.getCost(), result.isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+                    logSimulation(Event.FUNCTION_END, url, depl, function.getType(), null, result.getRTT(),
+                            result.getCost(), result.isSuccess());
                     return result;
                 } else {
                     // no function was successful, log their failures
@@ -578,8 +607,8 @@ public class SimulationNode extends Node {
                         alternateInfo = " for provider '" + elements.get(2) + "' in region '" + elements.get(1) + "', id=" + id + loopId;
 
                         logger.info("Simulating function {} failed{}.", set.getKey(), alternateInfo);
-                        MongoDBAccess.saveLog(Event.FUNCTION_FAILED, set.getKey(), tempDeployments.get(j), getName(), function.getType(), null,
-                                set.getValue().getRTT(), set.getValue().getCost(), set.getValue().isSuccess(), loopCounter, maxLoopCounter, startTime, Type.SIM);
+                        logSimulation(Event.FUNCTION_FAILED, set.getKey(), tempDeployments.get(j), function.getType(), null,
+                                set.getValue().getRTT(), set.getValue().getCost(), set.getValue().isSuccess());
                         j++;
                     }
                 }
@@ -699,7 +728,8 @@ public class SimulationNode extends Node {
                         sameMemory = entry.getId();
                     }
                     similarResult = MetadataStore.get().getDeploymentById(sameMemory);
-                    SimulationModel model = new SimulationModel(similarResult, provider, region, memory, loopCounter);
+                    SimulationModel model = new SimulationModel(similarResult, provider, region, memory, loopCounter, random,
+                            context.getLatencyModel());
                     result = model.simulateRoundTripTime(success);
                 } else {
                     similar = false;
@@ -708,7 +738,8 @@ public class SimulationNode extends Node {
 
             if (!similar) {
                 // simulate
-                SimulationModel model = new SimulationModel(entry, provider, region, memory, loopCounter);
+                SimulationModel model = new SimulationModel(entry, provider, region, memory, loopCounter, random,
+                        context.getLatencyModel());
                 result = model.simulateRoundTripTime(success);
             }
         }
@@ -722,6 +753,8 @@ public class SimulationNode extends Node {
             this.serviceOutput = simResult.getResult();
         }
 
+        context.getCostLedger().record(getName(), provider != null ? provider : Utils.detectProvider(entry.getKmsArn()), scope,
+                result.getCost());
         return result;
     }
 
@@ -765,8 +798,7 @@ public class SimulationNode extends Node {
             rtt += (long) loopCounter * concurrencyOverhead;
         }
 
-        rtt = SimulationModel.applyDistribution(rtt, success);
-        SimulationParameters.workflowCost += cost;
+        rtt = SimulationModel.applyDistribution(rtt, success, random, context.getLatencyModel(), entry.getKmsArn());
         return new PairResult<>(rtt, cost);
     }
 
@@ -778,25 +810,22 @@ public class SimulationNode extends Node {
      */
     private Map<String, Object> getFunctionOutput() {
         HashMap<String, Object> outputs = new HashMap<>();
-        for (DataOutsAtomic out : new ArrayList<>(output)) {
+        for (DataPort<DataOutsAtomic> port : outputPorts) {
+            DataOutsAtomic out = port.getData();
             if (out.getProperties() != null && !out.getProperties().isEmpty()) {
                 for (PropertyConstraint constraint : out.getProperties()) {
                     if (constraint.getName().equals("simValue")) {
-                        parseOutputValues(out, constraint, outputs, false);
+                        parseOutputValues(port.getKey(), out.getType(), constraint, outputs, false);
                     }
                 }
             } else {
                 // if no properties are set, fill with default values
-                parseOutputValues(out, null, outputs, true);
+                parseOutputValues(port.getKey(), out.getType(), null, outputs, true);
             }
         }
 
-        if (this.input != null) {
-            for (DataIns in : new ArrayList<>(this.input)) {
-                if (in.getPassing() != null && in.getPassing()) {
-                    parseOutputValues(new DataOutsAtomic(in.getName(), in.getType()), null, outputs, true);
-                }
-            }
+        for (DataPort<DataIns> port : passingPorts) {
+            parseOutputValues(port.getKey(), port.getData().getType(), null, outputs, true);
         }
 
         return outputs;
@@ -806,17 +835,18 @@ public class SimulationNode extends Node {
      * Adapted from FunctionNode's method getValuesParsed to parse output values. The default values for the output are:
      * Number: 1, String: "", Collection: [], Boolean: False
      *
-     * @param out        the DataOutsAtomic
+     * @param key        the key of the output
+     * @param type       the data type of the output
      * @param constraint the constraint of a DataOutsAtomic
      * @param outputs    the map to put the results
      * @param useDefault if it is set, a default value is used for the output
      */
-    private void parseOutputValues(DataOutsAtomic out, PropertyConstraint constraint, HashMap<String, Object> outputs, boolean useDefault) {
+    private void parseOutputValues(String key, String type, PropertyConstraint constraint, HashMap<String, Object> outputs, boolean useDefault) {
         String numStr = null;
         if (!useDefault) {
             numStr = constraint.getValue();
         }
-        switch (out.getType()) {
+        switch (type) {
             case "number":
                 Number num;
                 if (useDefault) {
@@ -830,32 +860,32 @@ public class SimulationNode extends Node {
                 } else {
                     throw new NumberFormatException("Given value is not a number.");
                 }
-                outputs.put(name + "/" + out.getName(), num);
+                outputs.put(key, num);
                 break;
             case "string":
                 if (useDefault) {
-                    outputs.put(name + "/" + out.getName(), "");
+                    outputs.put(key, "");
                 } else {
-                    outputs.put(name + "/" + out.getName(), JsonParser.parseString(constraint.getValue()));
+                    outputs.put(key, JsonParser.parseString(constraint.getValue()));
                 }
                 break;
             case "collection":
                 if (useDefault) {
-                    outputs.put(name + "/" + out.getName(), JsonParser.parseString("[]").getAsJsonArray());
+                    outputs.put(key, JsonParser.parseString("[]").getAsJsonArray());
                 } else {
                     // array stays array to later decide which type
-                    outputs.put(name + "/" + out.getName(), JsonParser.parseString(numStr).getAsJsonArray());
+                    outputs.put(key, JsonParser.parseString(numStr).getAsJsonArray());
                 }
                 break;
             case "bool":
                 if (useDefault) {
-                    outputs.put(name + "/" + out.getName(), Boolean.FALSE);
+                    outputs.put(key, Boolean.FALSE);
                 } else {
-                    outputs.put(name + "/" + out.getName(), Boolean.valueOf(constraint.getValue()));
+                    outputs.put(key, Boolean.valueOf(constraint.getValue()));
                 }
                 break;
             default:
-                logger.error("Error while trying to parse key in function {}. Type: {}", name, out.getType());
+                logger.error("Error while trying to parse key in function {}. Type: {}", name, type);
                 break;
         }
     }
@@ -876,7 +906,6 @@ public class SimulationNode extends Node {
         }
         double successRate = entry.getSuccessRate();
         // get a random double between 0 and 1
-        Random random = new Random();
         double randomValue = random.nextDouble();
 
         // if the random value is smaller than the success rate, the invocation was successful
@@ -912,6 +941,7 @@ public class SimulationNode extends Node {
             if (!MetadataStore.USE_JSON_METADATA) {
                 logger.info("Refreshing database to check for an invocation for '" + resourceLink + "'. This could take a moment.");
                 ManualUpdate.main(null);
+                DeploymentParameters.clear();
                 fd = MetadataStore.get().getFunctionIdEntry(resourceLink);
             }
             if (fd.getInvocations() == 0) {
@@ -926,6 +956,7 @@ public class SimulationNode extends Node {
 
         Boolean success = simulateOutcome(fd);
         PairResult<Long, Double> result = calculateRoundTripTime(fd, success, deploymentString);
+        SensitivityAnalysis.get().record(scope, getName(), result.getRtt());
         return new QuadrupleResult<>(result.getRtt(), result.getCost(), getFunctionOutput(), success);
     }
 
@@ -939,7 +970,27 @@ public class SimulationNode extends Node {
     }
 
     /**
-     * Returns the starting time of a function depending on the already executed functions of the workflow.
+     * Records a simulated function on the timeline and logs it.
+     *
+     * @param event        the event to log
+     * @param resourceLink the resource link of the simulated function
+     * @param deployment   the deployment of the simulated function
+     * @param functionType the type of the function
+     * @param output       the output of the function
+     * @param rtt          the simulated round trip time
+     * @param cost         the simulated cost
+     * @param success      whether the simulation was successful
+     */
+    private void logSimulation(Event event, String resourceLink, String deployment, String functionType, String output,
+                               Long rtt, Double cost, boolean success) {
+        getContext().getTimeline().record(startTime, rtt);
+        ExecutionLogSink.get().log(event, resourceLink, deployment, getName(), functionType, output, rtt, cost, success,
+                loopCounter, maxLoopCounter, startTime, Type.SIM);
+    }
+
+    /**
+     * Returns the starting time of a function, i.e. the latest end of its predecessors or the start of the workflow if
+     * it has none. Within a parallelFor, the iteration additionally waits for a free concurrency slot.
      *
      * @return the start time in milliseconds
      *
@@ -947,45 +998,30 @@ public class SimulationNode extends Node {
      * @throws SQLException                 if an error occurs when reading fields from a database entry
      */
     private long getStartingTime() throws MissingResourceLinkException, SQLException {
-        long start;
-
-        if (loopCounter == -1) {
-            start = MongoDBAccess.getLastEndDateOverall();
-        } else {
-            String resourceLink = Utils.getResourceLink(properties, this);
-            Provider provider = Utils.detectProvider(resourceLink);
-            at.enactmentengine.serverless.simulation.metadata.model.Provider providerEntry = MetadataStore.get().getProviderEntry(provider);
-            int maxConcurrency = providerEntry.getMaxConcurrency();
-            if (loopCounter > maxConcurrency - 1 || (concurrencyLimit != -1 && loopCounter > concurrencyLimit - 1)) {
-                start = -1;
-                while (start == -1) {
-                    start = SimulationParameters.getStartTime(amountParallelFunctions, loopCounter, null);
-                    if (startTime != 0) {
-                        start = startTime;
-                    }
-                    // wait to give other threads to opportunity to access the synchronized method
-                    try {
-                        Thread.sleep(100);
-                    } catch (InterruptedException e) {
-                        e.printStackTrace();
-                    }
-                }
-            } else {
-                start = MongoDBAccess.getLastEndDateOutOfLoop();
-            }
-        }
+        long start = startTime != 0 ? startTime : getContext().getTimeline().getWorkflowStart();
         if (start == 0) {
             start = System.currentTimeMillis();
         }
-        return start;
-    }
 
-    public long getAmountParallelFunctions() {
-        return amountParallelFunctions;
-    }
+        if (inLoop()) {
+            ConcurrencySlots slots = getContext().getSlots(TraceScope.loop(scope));
+            if (slots != null) {
+                String resourceLink = Utils.getResourceLink(properties, this);
+                Provider provider = Utils.detectProvider(resourceLink);
+                int capacity = MetadataStore.get().getProviderEntry(provider).getMaxConcurrency();
+                if (concurrencyLimit != -1) {
+                    capacity = Math.min(capacity, concurrencyLimit);
+                }
 
-    public synchronized void setAmountParallelFunctions(long amountParallelFunctions) {
-        this.amountParallelFunctions = amountParallelFunctions;
+                /* Later functions of the iteration already start after the slot was acquired */
+                long slotStart = slots.acquire(loopCounter, capacity, start);
+                if (slotStart > start) {
+                    Metrics.throttle(name);
+                    start = slotStart;
+                }
+            }
+        }
+        return start;
     }
 
     public boolean hasSessionOverhead() {
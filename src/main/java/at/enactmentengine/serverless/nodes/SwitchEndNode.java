@@ -1,13 +1,14 @@
 package at.enactmentengine.serverless.nodes;
 
+import at.enactmentengine.serverless.object.PersistentMap;
+import at.enactmentengine.serverless.parser.DataPort;
+import at.enactmentengine.serverless.tracing.TraceScope;
 import at.uibk.dps.afcl.functions.objects.DataOuts;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 
 /**
  * Control node which manages the tasks at the end of a switch element.
@@ -27,10 +28,15 @@ public class SwitchEndNode extends Node {
      */
     private List<DataOuts> dataOuts;
 
+    /**
+     * The resolved output ports of the switch-end node.
+     */
+    private final List<DataPort<DataOuts>> outputPorts;
+
     /**
      * Actual result of the switch construct.
      */
-    private Map<String, Object> switchResult = new HashMap<>();
+    private PersistentMap<String, Object> switchResult = PersistentMap.empty();
 
 
     /**
@@ -42,6 +48,7 @@ public class SwitchEndNode extends Node {
     public SwitchEndNode(String name, List<DataOuts> dataOuts) {
         super(name, "");
         this.dataOuts = dataOuts;
+        this.outputPorts = DataPort.ofOutputs(name, dataOuts);
     }
 
     /**
@@ -52,34 +59,38 @@ public class SwitchEndNode extends Node {
     public Boolean call() throws Exception {
 
         logger.info("Executing {} SwitchEndNodeOld", name);
-        Map<String, Object> outputValues = new HashMap<>();
+        PersistentMap<String, Object> outputValues = PersistentMap.empty();
 
         /* Check if there is an output defined */
         if(dataOuts != null){
 
             /* Iterate over the possible outputs and look for defined ones */
-            for (DataOuts data : dataOuts) {
-                for (Entry<String, Object> inputElement : switchResult.entrySet()) {
-                    outputValues.put(name + "/" + data.getName(), inputElement.getValue());
+            for (DataPort<DataOuts> port : outputPorts) {
+                for (String source : port.getSources()) {
+                    if (switchResult.containsKey(source)) {
+                        outputValues = outputValues.plus(port.getKey(), switchResult.get(source));
+                    }
                 }
             }
         }
 
         if (outputValues.size() == 0 && dataOuts != null) {
-            for (DataOuts data : dataOuts) {
-                if (data.getSource().contains("NULL")) {
-                    outputValues.put(name + "/" + data.getName(), "NULL");
+            for (DataPort<DataOuts> port : outputPorts) {
+                if (port.isSourceOf("NULL")) {
+                    outputValues = outputValues.plus(port.getKey(), "NULL");
                 }
 
             }
         }
         for (Node node : children) {
             node.passResult(outputValues);
+            node.setScope(TraceScope.exit(scope));
+            node.addPredecessors(getPredecessors());
+            node.setStartTime(startTime);
             if (getLoopCounter() != -1) {
                 node.setLoopCounter(loopCounter);
                 node.setMaxLoopCounter(maxLoopCounter);
                 node.setConcurrencyLimit(concurrencyLimit);
-                node.setStartTime(startTime);
             }
             node.call();
         }
@@ -93,10 +104,10 @@ public class SwitchEndNode extends Node {
     public void passResult(Map<String, Object> input) {
         synchronized (this) {
             if(dataOuts != null){
-                for (DataOuts data : dataOuts) {
-                    for (Entry<String, Object> inputElement : input.entrySet()) {
-                        if (data.getSource().contains(inputElement.getKey())) {
-                            switchResult.put(inputElement.getKey(), input.get(inputElement.getKey()));
+                for (DataPort<DataOuts> port : outputPorts) {
+                    for (String source : port.getSources()) {
+                        if (input.containsKey(source)) {
+                            switchResult = switchResult.plus(source, input.get(source));
                         }
                     }
                 }
@@ -119,7 +130,7 @@ public class SwitchEndNode extends Node {
 
         /* Clone the node */
         SwitchEndNode node = (SwitchEndNode) super.clone();
-        node.switchResult = new HashMap<>();
+        node.switchResult = PersistentMap.empty();
 
         return node;
     }
@@ -2,13 +2,17 @@ package at.enactmentengine.serverless.nodes;
 
 import at.enactmentengine.serverless.exception.MissingInputDataException;
 import at.enactmentengine.serverless.exception.NoSwitchCaseFulfilledException;
+import at.enactmentengine.serverless.object.PersistentMap;
+import at.enactmentengine.serverless.parser.CompiledSwitch;
+import at.enactmentengine.serverless.parser.DataPort;
+import at.enactmentengine.serverless.tracing.TraceScope;
+import at.enactmentengine.serverless.utils.BlobStore;
 import at.uibk.dps.afcl.functions.objects.Case;
 import at.uibk.dps.afcl.functions.objects.DataEval;
 import at.uibk.dps.afcl.functions.objects.DataIns;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -19,19 +23,25 @@ import java.util.Map;
  */
 public class SwitchStartNode extends Node {
     static final Logger logger = LoggerFactory.getLogger(SwitchStartNode.class);
+    private List<DataIns> dataIns;
     /**
-     * Specifies if its parent is a parallelFor and counts how many SimulationNodes are children of this node.
+     * The resolved input ports of the switch-start node.
      */
-    public long isAfterParallelForNode = -1;
-    private List<DataIns> dataIns;
+    private final List<DataPort<DataIns>> inputPorts;
     private List<Case> cases;
     private DataEval dataEval;
+    /**
+     * The cases compiled into a lookup table.
+     */
+    private final CompiledSwitch compiledSwitch;
 
     public SwitchStartNode(String name, List<DataIns> dataIns, DataEval dataEval, List<Case> cases) {
         super(name, "");
         this.dataIns = dataIns;
         this.dataEval = dataEval;
         this.cases = cases;
+        this.inputPorts = DataPort.ofInputs(name, dataIns);
+        this.compiledSwitch = new CompiledSwitch(dataEval, cases);
     }
 
     /**
@@ -40,13 +50,13 @@ public class SwitchStartNode extends Node {
      */
     @Override
     public Boolean call() throws Exception {
-        final Map<String, Object> switchInputValues = new HashMap<>();
-        for (DataIns data : dataIns) {
-            if (!dataValues.containsKey(data.getSource())) {
+        PersistentMap<String, Object> switchInputValues = PersistentMap.empty();
+        for (DataPort<DataIns> port : inputPorts) {
+            if (!dataValues.containsKey(port.getSource())) {
                 throw new MissingInputDataException(
-                        SwitchStartNode.class.getCanonicalName() + ": " + name + " needs " + data.getSource() + "!");
+                        SwitchStartNode.class.getCanonicalName() + ": " + name + " needs " + port.getSource() + "!");
             } else {
-                switchInputValues.put(name + "/" + data.getName(), dataValues.get(data.getSource()));
+                switchInputValues = switchInputValues.plus(port.getKey(), dataValues.get(port.getSource()));
             }
         }
         if (!dataValues.containsKey(dataEval.getSource())) {
@@ -56,91 +66,33 @@ public class SwitchStartNode extends Node {
 
         logger.info("Executing {} SwitchStartNodeOld", name);
 
-        long simNodes = 0;
-        Object switchValue = parseSwitchCondition();
-        // goes through all cases and executes a case if the switch value matches this
-        // case
-        for (int i = 0; i < cases.size(); i++) {
-            if (caseMatches(cases.get(i).getValue(), switchValue)) {
-                logger.info("Switch case {} fulfilled with value {}", cases.get(i).getValue(), switchValue);
-                children.get(i).passResult(switchInputValues);
-                if (children.get(i) instanceof SimulationNode) {
-                    simNodes++;
-                }
-                if (getLoopCounter() != -1) {
-                    children.get(i).setLoopCounter(loopCounter);
-                    children.get(i).setMaxLoopCounter(maxLoopCounter);
-                    children.get(i).setConcurrencyLimit(concurrencyLimit);
-                    children.get(i).setStartTime(startTime);
-                }
-                children.get(i).call();
-                return true;
-            } else if (children.size() > cases.size()) {
-                if (children.get(i) instanceof SimulationNode) {
-                    simNodes++;
-                }
-                logger.info("Switch default case is executed.");
-                children.get(children.size() - 1).passResult(switchInputValues);
-                if (getLoopCounter() != -1) {
-                    children.get(children.size() - 1).setLoopCounter(loopCounter);
-                    children.get(children.size() - 1).setMaxLoopCounter(maxLoopCounter);
-                    children.get(children.size() - 1).setConcurrencyLimit(concurrencyLimit);
-                    children.get(children.size() - 1).setStartTime(startTime);
-                }
-                children.get(children.size() - 1).call();
-                return true;
-            }
+        Object switchValue = BlobStore.materialize(parseSwitchCondition());
+
+        /* Look up the matching case or fall back to the default case */
+        int index = compiledSwitch.select(switchValue);
+        if (index >= 0) {
+            logger.info("Switch case {} fulfilled with value {}", cases.get(index).getValue(), switchValue);
+        } else if (children.size() > cases.size()) {
+            index = children.size() - 1;
+            logger.info("Switch default case is executed.");
+        } else {
+            throw new NoSwitchCaseFulfilledException(
+                    "No matching switch case found for value " + switchValue + " in node " + name);
         }
 
-        // specify how many functions are directly after a nested construct (needed if concurrency limit is exceeded)
-        if (isAfterParallelForNode != -1) {
-            for (int i = 0; i < cases.size(); i++) {
-                if (caseMatches(cases.get(i).getValue(), switchValue)) {
-                    if (children.get(i) instanceof IfStartNode) {
-                        ((IfStartNode) children.get(i)).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                    } else if (children.get(i) instanceof ParallelStartNode) {
-                        ((ParallelStartNode) children.get(i)).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                    } else if (children.get(i) instanceof SwitchStartNode) {
-                        ((SwitchStartNode) children.get(i)).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                    } else if (children.get(i) instanceof SimulationNode) {
-                        ((SimulationNode) children.get(i)).setAmountParallelFunctions(isAfterParallelForNode + simNodes);
-                    }
-                } else if (children.size() > cases.size()) {
-                    if (children.get(children.size() - 1) instanceof IfStartNode) {
-                        ((IfStartNode) children.get(i)).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                    } else if (children.get(children.size() - 1) instanceof ParallelStartNode) {
-                        ((ParallelStartNode) children.get(i)).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                    } else if (children.get(children.size() - 1) instanceof SwitchStartNode) {
-                        ((SwitchStartNode) children.get(i)).isAfterParallelForNode = isAfterParallelForNode + simNodes;
-                    } else if (children.get(children.size() - 1) instanceof SimulationNode) {
-                        ((SimulationNode) children.get(i)).setAmountParallelFunctions(isAfterParallelForNode + simNodes);
-                    }
-                }
-            }
+        Node node = children.get(index);
+        node.passResult(switchInputValues);
+        node.setScope(TraceScope.enter(scope, "switch", name, -1));
+        node.addPredecessors(getPredecessors());
+        node.setStartTime(startTime);
+        if (getLoopCounter() != -1) {
+            node.setLoopCounter(loopCounter);
+            node.setMaxLoopCounter(maxLoopCounter);
+            node.setConcurrencyLimit(concurrencyLimit);
         }
 
-        throw new NoSwitchCaseFulfilledException(
-                "No matching switch case found for value " + switchValue + " in node " + name);
-    }
-
-    /**
-     * Checks if the input value matches with the defined case. Integers and strings
-     * are supported.
-     *
-     * @param object    The defined switch case value
-     * @param switchVal The input value
-     * @return true if switch case value matches the input value, otherwise false.
-     */
-    private boolean caseMatches(Object object, Object switchVal) {
-        switch (dataEval.getType()) {
-            case "string":
-                return object.equals(switchVal);
-            case "number":
-                return switchVal != null && Double.parseDouble((String) object) == (Double) switchVal;
-            default:
-                logger.info("Unknown type for condition data type {}", dataEval.getType());
-        }
-        return false;
+        node.call();
+        return true;
     }
 
     /**
@@ -167,17 +119,16 @@ public class SwitchStartNode extends Node {
     @Override
     public void passResult(Map<String, Object> input) {
         synchronized (this) {
-            if (dataValues == null) {
-                dataValues = new HashMap<>();
-            }
-            for (DataIns data : dataIns) {
-                if (input.containsKey(data.getSource())) {
-                    dataValues.put(data.getSource(), input.get(data.getSource()));
+            PersistentMap<String, Object> values = PersistentMap.from(dataValues);
+            for (DataPort<DataIns> port : inputPorts) {
+                if (input.containsKey(port.getSource())) {
+                    values = values.plus(port.getSource(), input.get(port.getSource()));
                 }
             }
             if (input.containsKey(dataEval.getSource())) {
-                dataValues.put(dataEval.getSource(), input.get(dataEval.getSource()));
+                values = values.plus(dataEval.getSource(), input.get(dataEval.getSource()));
             }
+            dataValues = values;
         }
 
     }
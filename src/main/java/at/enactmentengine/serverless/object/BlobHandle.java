@@ -0,0 +1,77 @@
+package at.enactmentengine.serverless.object;
+
+import at.enactmentengine.serverless.utils.BlobStore;
+
+/**
+ * Class which represents a reference (claim check) to a large data value which is kept in the
+ * {@link BlobStore} of an execution instead of being passed between the nodes.
+ *
+ * @author mikahautz
+ */
+public final class BlobHandle {
+
+    /**
+     * The store containing the value.
+     */
+    private final BlobStore store;
+
+    /**
+     * The unique identifier of the stored value.
+     */
+    private final long id;
+
+    /**
+     * The size of the serialized value in bytes.
+     */
+    private final long size;
+
+    /**
+     * Default constructor for a blob handle.
+     *
+     * @param store the store containing the value.
+     * @param id    the unique identifier of the stored value.
+     * @param size  the size of the serialized value in bytes.
+     */
+    public BlobHandle(BlobStore store, long id, long size) {
+        this.store = store;
+        this.id = id;
+        this.size = size;
+    }
+
+    /**
+     * Getter and Setter
+     */
+
+    public BlobStore getStore() {
+        return store;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BlobHandle)) {
+            return false;
+        }
+        return store == ((BlobHandle) o).store && id == ((BlobHandle) o).id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return "blob:" + id + " (" + size + " bytes)";
+    }
+}
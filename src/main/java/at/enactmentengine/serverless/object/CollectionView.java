@@ -0,0 +1,223 @@
+package at.enactmentengine.serverless.object;
+
+import at.enactmentengine.serverless.parser.ElementIndex;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Class which represents a part of a collection without copying its elements. The part consists of one or more
+ * segments (offset, length and stride) of the backing collection. The views are created when a collection is
+ * distributed across the iterations of a parallel-for and all views share the same backing collection. The elements
+ * are only converted to a {@link JsonArray} when the payload of a function is built.
+ *
+ * @author mikahautz
+ */
+public final class CollectionView {
+
+    /**
+     * Used to convert the elements of a backing list.
+     */
+    private static final Gson GSON = new Gson();
+
+    /**
+     * The backing collection if it is a json array.
+     */
+    private final JsonArray array;
+
+    /**
+     * The backing collection if it is a list.
+     */
+    private final List<?> list;
+
+    /**
+     * The segments of the view, three consecutive values (offset, length, stride) per segment.
+     */
+    private final int[] segments;
+
+    /**
+     * The number of elements of the view.
+     */
+    private final int length;
+
+    private CollectionView(JsonArray array, List<?> list, int[] segments) {
+        this.array = array;
+        this.list = list;
+        this.segments = segments;
+        int total = 0;
+        for (int s = 0; s < segments.length; s += 3) {
+            total += segments[s + 1];
+        }
+        this.length = total;
+    }
+
+    /**
+     * Creates a view containing all elements of the given array.
+     *
+     * @param array the backing array.
+     *
+     * @return the view.
+     */
+    public static CollectionView of(JsonArray array) {
+        return new CollectionView(array, null, new int[]{0, array.size(), 1});
+    }
+
+    /**
+     * Creates a view containing all elements of the given list.
+     *
+     * @param list the backing list.
+     *
+     * @return the view.
+     */
+    public static CollectionView of(List<?> list) {
+        return new CollectionView(null, list, new int[]{0, list.size(), 1});
+    }
+
+    /**
+     * Returns the number of elements of the view.
+     *
+     * @return the size of the view.
+     */
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Returns the element at the given position of the view.
+     *
+     * @param index the position within the view.
+     *
+     * @return the element.
+     */
+    public JsonElement get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+        return element(position(index));
+    }
+
+    /**
+     * Returns a view of the given range of this view.
+     *
+     * @param from  the position of the first element within this view.
+     * @param count the number of elements.
+     *
+     * @return the view of the range.
+     */
+    public CollectionView slice(int from, int count) {
+        if (from < 0 || count < 0 || from + count > length) {
+            throw new IndexOutOfBoundsException("Range " + from + "+" + count + " out of bounds for length " + length);
+        }
+        int[] sliced = new int[segments.length];
+        int size = 0;
+        int skip = from;
+        int remaining = count;
+
+        /* Keep the parts of the segments which overlap with the range */
+        for (int s = 0; s < segments.length && remaining > 0; s += 3) {
+            int segmentLength = segments[s + 1];
+            if (skip >= segmentLength) {
+                skip -= segmentLength;
+                continue;
+            }
+            int taken = Math.min(segmentLength - skip, remaining);
+            sliced[size++] = segments[s] + skip * segments[s + 2];
+            sliced[size++] = taken;
+            sliced[size++] = segments[s + 2];
+            remaining -= taken;
+            skip = 0;
+        }
+        return new CollectionView(array, list, Arrays.copyOf(sliced, size));
+    }
+
+    /**
+     * Returns a view of the elements of this view which are selected by the given element index.
+     *
+     * @param elementIndex the compiled element-index constraint.
+     *
+     * @return the view of the selected elements.
+     */
+    public CollectionView select(ElementIndex elementIndex) {
+        if (elementIndex.max() >= length) {
+            throw new IndexOutOfBoundsException("Index " + elementIndex.max() + " out of bounds for length " + length);
+        }
+
+        /* Each range is split at the segment boundaries, so it is mapped to at most one segment per segment crossed */
+        int[] selected = new int[elementIndex.getRangeCount() * 3];
+        int size = 0;
+        for (int r = 0; r < elementIndex.getRangeCount(); r++) {
+            int stride = elementIndex.getStride(r);
+            int count = elementIndex.getCount(r);
+            int k = 0;
+            while (k < count) {
+
+                /* Find the segment of the next element of the range */
+                int local = elementIndex.getStart(r) + k * stride;
+                int s = 0;
+                while (local >= segments[s + 1]) {
+                    local -= segments[s + 1];
+                    s += 3;
+                }
+
+                /* Take all following elements of the range within the same segment */
+                int taken = stride > 0 ? (segments[s + 1] - 1 - local) / stride + 1 : local / -stride + 1;
+                taken = Math.min(taken, count - k);
+                if (size == selected.length) {
+                    selected = Arrays.copyOf(selected, selected.length * 2);
+                }
+                selected[size++] = segments[s] + local * segments[s + 2];
+                selected[size++] = taken;
+                selected[size++] = stride * segments[s + 2];
+                k += taken;
+            }
+        }
+        return new CollectionView(array, list, Arrays.copyOf(selected, size));
+    }
+
+    /**
+     * Copies the elements of the view into a new array.
+     *
+     * @return the elements of the view.
+     */
+    public JsonArray materialize() {
+        JsonArray elements = new JsonArray(length);
+        for (int s = 0; s < segments.length; s += 3) {
+            for (int k = 0; k < segments[s + 1]; k++) {
+                elements.add(element(segments[s] + k * segments[s + 2]));
+            }
+        }
+        return elements;
+    }
+
+    /**
+     * Returns the position of the given element of the view in the backing collection.
+     */
+    private int position(int index) {
+        for (int s = 0; ; s += 3) {
+            if (index < segments[s + 1]) {
+                return segments[s] + index * segments[s + 2];
+            }
+            index -= segments[s + 1];
+        }
+    }
+
+    /**
+     * Returns the element at the given position of the backing collection.
+     */
+    private JsonElement element(int position) {
+        return array != null ? array.get(position) : GSON.toJsonTree(list.get(position));
+    }
+
+    /**
+     * Returns a summary of the view. The elements are not listed, since that would copy them just to log the view.
+     *
+     * @return the summary.
+     */
+    @Override
+    public String toString() {
+        return "collection view of " + length + " elements";
+    }
+}
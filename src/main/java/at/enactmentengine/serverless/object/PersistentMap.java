@@ -0,0 +1,576 @@
+package at.enactmentengine.serverless.object;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable map based on a hash array mapped trie. Adding or removing an entry returns a new map which shares all
+ * unchanged parts of the trie with the original map, so passing data values between nodes does not require copying
+ * them. Null keys are not supported, null values are.
+ *
+ * @param <K> the type of the keys.
+ * @param <V> the type of the values.
+ * @author mikahautz
+ */
+public final class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * The number of hash bits consumed on each level of the trie.
+     */
+    private static final int BITS = 5;
+
+    /**
+     * Mask to extract the hash bits of a single level.
+     */
+    private static final int MASK = (1 << BITS) - 1;
+
+    /**
+     * Marker for a key which is not contained in the map.
+     */
+    private static final Object NOT_FOUND = new Object();
+
+    /**
+     * The empty map.
+     */
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(new BitmapNode<>(0, new Object[0]), 0);
+
+    /**
+     * The root of the trie.
+     */
+    private final TrieNode<K, V> root;
+
+    /**
+     * The number of entries in the map.
+     */
+    private final int size;
+
+    /**
+     * The lazily created entry set view.
+     */
+    private Set<Entry<K, V>> entrySet;
+
+    private PersistentMap(TrieNode<K, V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Returns the empty map.
+     *
+     * @param <K> the type of the keys.
+     * @param <V> the type of the values.
+     *
+     * @return the empty map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * Returns a persistent map containing all entries of the given map. The given map is returned if it already is a
+     * persistent map.
+     *
+     * @param map the map to convert, may be null.
+     * @param <K> the type of the keys.
+     * @param <V> the type of the values.
+     *
+     * @return the persistent map.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> from(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentMap) {
+            return (PersistentMap<K, V>) map;
+        }
+        PersistentMap<K, V> result = empty();
+        return map == null ? result : result.plusAll(map);
+    }
+
+    /**
+     * Returns a map which additionally maps the given key to the given value.
+     *
+     * @param key   the key.
+     * @param value the value.
+     *
+     * @return the new map, or this map if the key is already mapped to the same value.
+     */
+    public PersistentMap<K, V> plus(K key, V value) {
+        Objects.requireNonNull(key, "key");
+        int hash = hash(key);
+        boolean added = root.find(hash, 0, key) == NOT_FOUND;
+        TrieNode<K, V> newRoot = root.put(hash, 0, key, value);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentMap<>(newRoot, added ? size + 1 : size);
+    }
+
+    /**
+     * Returns a map which additionally contains all entries of the given map.
+     *
+     * @param map the entries to add.
+     *
+     * @return the new map.
+     */
+    public PersistentMap<K, V> plusAll(Map<? extends K, ? extends V> map) {
+        PersistentMap<K, V> result = this;
+        for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            result = result.plus(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * Returns a map without the given key.
+     *
+     * @param key the key to remove.
+     *
+     * @return the new map, or this map if the key is not contained.
+     */
+    public PersistentMap<K, V> minus(Object key) {
+        if (key == null) {
+            return this;
+        }
+        TrieNode<K, V> newRoot = root.remove(hash(key), 0, key);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? empty() : new PersistentMap<>(newRoot, size - 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (key == null) {
+            return null;
+        }
+        Object value = root.find(hash(key), 0, key);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key != null && root.find(hash(key), 0, key) != NOT_FOUND;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        root.forEach(action);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    /**
+     * Spreads the higher bits of the hash code to the lower ones, as only the lower bits are used on the first levels.
+     *
+     * @param key the key.
+     *
+     * @return the hash of the key.
+     */
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Creates the smallest sub-trie containing the two given leaves.
+     */
+    private static <K, V> TrieNode<K, V> merge(Leaf<K, V> first, Leaf<K, V> second, int shift) {
+        if (first.hash == second.hash) {
+            return new CollisionNode<>(first.hash, new Leaf[]{first, second});
+        }
+        int firstBit = bit(first.hash, shift);
+        int secondBit = bit(second.hash, shift);
+        if (firstBit == secondBit) {
+            return new BitmapNode<>(firstBit, new Object[]{merge(first, second, shift + BITS)});
+        }
+        Object[] slots = Integer.compareUnsigned(firstBit, secondBit) < 0
+                ? new Object[]{first, second} : new Object[]{second, first};
+        return new BitmapNode<>(firstBit | secondBit, slots);
+    }
+
+    /**
+     * Returns the bit representing the position of the given hash on the level of the given shift.
+     */
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    /**
+     * A single entry of the map.
+     */
+    private static final class Leaf<K, V> extends SimpleImmutableEntry<K, V> {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The hash of the key.
+         */
+        private final int hash;
+
+        Leaf(int hash, K key, V value) {
+            super(key, value);
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * A node of the trie.
+     */
+    private abstract static class TrieNode<K, V> {
+
+        /**
+         * Returns the value of the given key or {@link #NOT_FOUND}.
+         */
+        abstract Object find(int hash, int shift, Object key);
+
+        /**
+         * Returns a node which maps the given key to the given value, or this node if nothing changed.
+         */
+        abstract TrieNode<K, V> put(int hash, int shift, K key, V value);
+
+        /**
+         * Returns a node without the given key, this node if the key is not contained or null if the node is empty.
+         */
+        abstract TrieNode<K, V> remove(int hash, int shift, Object key);
+
+        /**
+         * Performs the given action for all entries below this node.
+         */
+        abstract void forEach(BiConsumer<? super K, ? super V> action);
+
+        /**
+         * Returns the number of leaves and sub-nodes of this node.
+         */
+        abstract int arity();
+
+        /**
+         * Returns the leaf or sub-node at the given position.
+         */
+        abstract Object slot(int index);
+    }
+
+    /**
+     * A node storing up to 32 leaves or sub-nodes, indexed by the bits of the hash of the current level.
+     */
+    private static final class BitmapNode<K, V> extends TrieNode<K, V> {
+
+        /**
+         * Marks the positions which are occupied.
+         */
+        private final int bitmap;
+
+        /**
+         * The leaves and sub-nodes in the order of their positions.
+         */
+        private final Object[] slots;
+
+        BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Object find(int hash, int shift, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return NOT_FOUND;
+            }
+            Object slot = slots[index(bit)];
+            if (slot instanceof Leaf) {
+                Leaf<K, V> leaf = (Leaf<K, V>) slot;
+                return leaf.hash == hash && key.equals(leaf.getKey()) ? leaf.getValue() : NOT_FOUND;
+            }
+            return ((TrieNode<K, V>) slot).find(hash, shift + BITS, key);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        TrieNode<K, V> put(int hash, int shift, K key, V value) {
+            int bit = bit(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newSlots = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, newSlots, 0, index);
+                newSlots[index] = new Leaf<>(hash, key, value);
+                System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+                return new BitmapNode<>(bitmap | bit, newSlots);
+            }
+
+            Object slot = slots[index];
+            Object newSlot;
+            if (slot instanceof Leaf) {
+                Leaf<K, V> leaf = (Leaf<K, V>) slot;
+                if (leaf.hash == hash && key.equals(leaf.getKey())) {
+                    if (leaf.getValue() == value) {
+                        return this;
+                    }
+                    newSlot = new Leaf<>(hash, key, value);
+                } else {
+                    newSlot = merge(leaf, new Leaf<>(hash, key, value), shift + BITS);
+                }
+            } else {
+                TrieNode<K, V> child = (TrieNode<K, V>) slot;
+                newSlot = child.put(hash, shift + BITS, key, value);
+                if (newSlot == child) {
+                    return this;
+                }
+            }
+            Object[] newSlots = slots.clone();
+            newSlots[index] = newSlot;
+            return new BitmapNode<>(bitmap, newSlots);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        TrieNode<K, V> remove(int hash, int shift, Object key) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object slot = slots[index];
+            if (slot instanceof Leaf) {
+                Leaf<K, V> leaf = (Leaf<K, V>) slot;
+                if (leaf.hash != hash || !key.equals(leaf.getKey())) {
+                    return this;
+                }
+                return without(bit, index);
+            }
+            TrieNode<K, V> child = (TrieNode<K, V>) slot;
+            TrieNode<K, V> newChild = child.remove(hash, shift + BITS, key);
+            if (newChild == child) {
+                return this;
+            }
+            if (newChild == null) {
+                return without(bit, index);
+            }
+            Object[] newSlots = slots.clone();
+            /* Inline a sub-node which only contains a single leaf */
+            newSlots[index] = newChild.arity() == 1 && newChild.slot(0) instanceof Leaf ? newChild.slot(0) : newChild;
+            return new BitmapNode<>(bitmap, newSlots);
+        }
+
+        private TrieNode<K, V> without(int bit, int index) {
+            if (slots.length == 1) {
+                return null;
+            }
+            Object[] newSlots = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, newSlots, 0, index);
+            System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+            return new BitmapNode<>(bitmap & ~bit, newSlots);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            for (Object slot : slots) {
+                if (slot instanceof Leaf) {
+                    action.accept(((Leaf<K, V>) slot).getKey(), ((Leaf<K, V>) slot).getValue());
+                } else {
+                    ((TrieNode<K, V>) slot).forEach(action);
+                }
+            }
+        }
+
+        @Override
+        int arity() {
+            return slots.length;
+        }
+
+        @Override
+        Object slot(int index) {
+            return slots[index];
+        }
+    }
+
+    /**
+     * A node storing the leaves of different keys with the same hash.
+     */
+    private static final class CollisionNode<K, V> extends TrieNode<K, V> {
+
+        /**
+         * The hash shared by all leaves.
+         */
+        private final int hash;
+
+        /**
+         * The leaves of this node.
+         */
+        private final Leaf<K, V>[] leaves;
+
+        CollisionNode(int hash, Leaf<K, V>[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (key.equals(leaves[i].getKey())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int hash, int shift, Object key) {
+            if (hash != this.hash) {
+                return NOT_FOUND;
+            }
+            int index = indexOf(key);
+            return index < 0 ? NOT_FOUND : leaves[index].getValue();
+        }
+
+        @Override
+        TrieNode<K, V> put(int hash, int shift, K key, V value) {
+            if (hash != this.hash) {
+                /* Push this node one level down and add the new key next to it */
+                return new BitmapNode<K, V>(bit(this.hash, shift), new Object[]{this}).put(hash, shift, key, value);
+            }
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (leaves[index].getValue() == value) {
+                    return this;
+                }
+                Leaf<K, V>[] newLeaves = leaves.clone();
+                newLeaves[index] = new Leaf<>(hash, key, value);
+                return new CollisionNode<>(hash, newLeaves);
+            }
+            Leaf<K, V>[] newLeaves = Arrays.copyOf(leaves, leaves.length + 1);
+            newLeaves[leaves.length] = new Leaf<>(hash, key, value);
+            return new CollisionNode<>(hash, newLeaves);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        TrieNode<K, V> remove(int hash, int shift, Object key) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            if (leaves.length == 1) {
+                return null;
+            }
+            Leaf<K, V>[] newLeaves = new Leaf[leaves.length - 1];
+            System.arraycopy(leaves, 0, newLeaves, 0, index);
+            System.arraycopy(leaves, index + 1, newLeaves, index, leaves.length - index - 1);
+            return new CollisionNode<>(hash, newLeaves);
+        }
+
+        @Override
+        void forEach(BiConsumer<? super K, ? super V> action) {
+            for (Leaf<K, V> leaf : leaves) {
+                action.accept(leaf.getKey(), leaf.getValue());
+            }
+        }
+
+        @Override
+        int arity() {
+            return leaves.length;
+        }
+
+        @Override
+        Object slot(int index) {
+            return leaves[index];
+        }
+    }
+
+    /**
+     * Iterates depth-first over all leaves of a trie.
+     */
+    private static final class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+
+        /**
+         * The nodes which are currently visited.
+         */
+        private final Deque<TrieNode<K, V>> nodes = new ArrayDeque<>();
+
+        /**
+         * The position within each visited node.
+         */
+        private final Deque<int[]> positions = new ArrayDeque<>();
+
+        /**
+         * The next entry to return.
+         */
+        private Leaf<K, V> next;
+
+        EntryIterator(TrieNode<K, V> root) {
+            nodes.push(root);
+            positions.push(new int[1]);
+            advance();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void advance() {
+            next = null;
+            while (!nodes.isEmpty()) {
+                TrieNode<K, V> node = nodes.peek();
+                int[] position = positions.peek();
+                if (position[0] >= node.arity()) {
+                    nodes.pop();
+                    positions.pop();
+                    continue;
+                }
+                Object slot = node.slot(position[0]++);
+                if (slot instanceof Leaf) {
+                    next = (Leaf<K, V>) slot;
+                    return;
+                }
+                nodes.push((TrieNode<K, V>) slot);
+                positions.push(new int[1]);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf<K, V> current = next;
+            advance();
+            return current;
+        }
+    }
+}
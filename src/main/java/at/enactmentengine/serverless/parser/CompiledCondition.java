@@ -0,0 +1,324 @@
+package at.enactmentengine.serverless.parser;
+
+import at.enactmentengine.serverless.exception.MissingInputDataException;
+import at.uibk.dps.afcl.functions.objects.ACondition;
+import at.uibk.dps.afcl.functions.objects.Condition;
+import at.uibk.dps.afcl.functions.objects.DataIns;
+import com.google.gson.JsonPrimitive;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The condition of an if construct compiled when the workflow is parsed. Constant operands are parsed once and
+ * variable operands are bound to the keys of the input ports, so that an evaluation never throws an exception and only
+ * parses input values which are strings. Numbers are compared as doubles, booleans as booleans and all other values as
+ * strings. A string constant has to be quoted, any other operand which is neither a number nor a boolean has to refer
+ * to an input.
+ *
+ * @author mikahautz
+ */
+public final class CompiledCondition {
+
+    /**
+     * Logger for the compiled condition.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CompiledCondition.class);
+
+    /**
+     * The supported operators.
+     */
+    private static final int EQUAL = 0;
+    private static final int NOT_EQUAL = 1;
+    private static final int LESS = 2;
+    private static final int LESS_EQUAL = 3;
+    private static final int GREATER = 4;
+    private static final int GREATER_EQUAL = 5;
+    private static final int CONTAINS = 6;
+    private static final int STARTS_WITH = 7;
+    private static final int ENDS_WITH = 8;
+    private static final int UNSUPPORTED = -1;
+
+    /**
+     * The compiled part-conditions.
+     */
+    private final Comparison[] comparisons;
+
+    /**
+     * How the part-conditions are combined ("and", "or" or null).
+     */
+    private final String combinedWith;
+
+    private CompiledCondition(Comparison[] comparisons, String combinedWith) {
+        this.comparisons = comparisons;
+        this.combinedWith = combinedWith;
+    }
+
+    /**
+     * Compiles the given condition.
+     *
+     * @param condition the condition specified in the workflow file.
+     * @param ports     the input ports of the if construct.
+     *
+     * @return the compiled condition.
+     *
+     * @throws MissingInputDataException if an operand refers to a value which is not an input of the if construct.
+     */
+    public static CompiledCondition compile(Condition condition, List<DataPort<DataIns>> ports)
+            throws MissingInputDataException {
+        Set<String> keys = new HashSet<>();
+        for (DataPort<DataIns> port : ports) {
+            keys.add(port.getKey());
+        }
+
+        List<ACondition> conditions = condition.getConditions();
+        Comparison[] comparisons = new Comparison[conditions == null ? 0 : conditions.size()];
+        for (int i = 0; i < comparisons.length; i++) {
+            ACondition element = conditions.get(i);
+            comparisons[i] = new Comparison(Operand.of(element.getData1(), keys), Operand.of(element.getData2(), keys),
+                    operator(element.getOperator()));
+        }
+        return new CompiledCondition(comparisons, condition.getCombinedWith());
+    }
+
+    /**
+     * Evaluates the condition for the given input values.
+     *
+     * @param values the input values of the if construct.
+     *
+     * @return the result of the evaluation.
+     */
+    public boolean evaluate(Map<String, Object> values) {
+        boolean result = false;
+        for (Comparison comparison : comparisons) {
+            result = comparison.evaluate(values);
+
+            /* Check if we can stop checking the statement */
+            if (("or".equals(combinedWith) && result) || ("and".equals(combinedWith) && !result)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Maps the given operator to its constant.
+     */
+    private static int operator(String operator) {
+        if (operator == null) {
+            return UNSUPPORTED;
+        }
+        switch (operator) {
+            case "==":
+                return EQUAL;
+            case "!=":
+                return NOT_EQUAL;
+            case "<":
+                return LESS;
+            case "<=":
+            case "=<":
+                return LESS_EQUAL;
+            case ">":
+                return GREATER;
+            case ">=":
+                return GREATER_EQUAL;
+            case "contains":
+                return CONTAINS;
+            case "startsWith":
+                return STARTS_WITH;
+            case "endsWith":
+                return ENDS_WITH;
+            default:
+                logger.info("Operator {} not supported ", operator);
+                return UNSUPPORTED;
+        }
+    }
+
+    /**
+     * Returns the numeric value of the given value. Numbers are taken as they are, only a string value of an input has to
+     * be parsed, which happens at most once per operand and evaluation.
+     *
+     * @param value the value.
+     *
+     * @return the value as double or {@link Double#NaN} if the value is not a number.
+     */
+    static double toNumber(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        } else if (value instanceof JsonPrimitive) {
+            JsonPrimitive primitive = (JsonPrimitive) value;
+            if (primitive.isNumber()) {
+                return primitive.getAsDouble();
+            }
+            return primitive.isString() ? parse(primitive.getAsString()) : Double.NaN;
+        }
+        return value instanceof String ? parse((String) value) : Double.NaN;
+    }
+
+    /**
+     * Parses a string representing a number without throwing an exception.
+     */
+    private static double parse(String value) {
+        return NumberUtils.isParsable(value) ? Double.parseDouble(value) : Double.NaN;
+    }
+
+    /**
+     * Returns the textual value of the given value (without quotes for json strings).
+     *
+     * @param value the value.
+     *
+     * @return the value as string.
+     */
+    static String toText(Object value) {
+        if (value instanceof JsonPrimitive) {
+            return ((JsonPrimitive) value).getAsString();
+        }
+        return String.valueOf(value);
+    }
+
+    /**
+     * Checks if the given value is a boolean.
+     */
+    private static boolean isBoolean(Object value) {
+        return value instanceof Boolean || (value instanceof JsonPrimitive && ((JsonPrimitive) value).isBoolean());
+    }
+
+    /**
+     * Returns the value of a value for which {@link #isBoolean(Object)} holds.
+     */
+    private static boolean toBoolean(Object value) {
+        return value instanceof Boolean ? (Boolean) value : ((JsonPrimitive) value).getAsBoolean();
+    }
+
+    /**
+     * A single part-condition.
+     */
+    private static final class Comparison {
+
+        /**
+         * The first operand.
+         */
+        private final Operand left;
+
+        /**
+         * The second operand.
+         */
+        private final Operand right;
+
+        /**
+         * The operator constant.
+         */
+        private final int operator;
+
+        private Comparison(Operand left, Operand right, int operator) {
+            this.left = left;
+            this.right = right;
+            this.operator = operator;
+        }
+
+        private boolean evaluate(Map<String, Object> values) {
+            Object first = left.resolve(values);
+            Object second = right.resolve(values);
+
+            switch (operator) {
+                case CONTAINS:
+                    return toText(first).contains(toText(second));
+                case STARTS_WITH:
+                    return toText(first).startsWith(toText(second));
+                case ENDS_WITH:
+                    return toText(first).endsWith(toText(second));
+                case UNSUPPORTED:
+                    return false;
+                default:
+                    break;
+            }
+
+            /* Compare numbers, booleans and strings with their own ordering */
+            int comparison;
+            double firstNumber = toNumber(first);
+            double secondNumber = Double.isNaN(firstNumber) ? Double.NaN : toNumber(second);
+            if (!Double.isNaN(secondNumber)) {
+                comparison = Double.compare(firstNumber, secondNumber);
+            } else if (isBoolean(first) && isBoolean(second)) {
+                comparison = Boolean.compare(toBoolean(first), toBoolean(second));
+            } else {
+                comparison = toText(first).compareTo(toText(second));
+            }
+
+            switch (operator) {
+                case EQUAL:
+                    return comparison == 0;
+                case NOT_EQUAL:
+                    return comparison != 0;
+                case LESS:
+                    return comparison < 0;
+                case LESS_EQUAL:
+                    return comparison <= 0;
+                case GREATER:
+                    return comparison > 0;
+                default:
+                    return comparison >= 0;
+            }
+        }
+    }
+
+    /**
+     * An operand of a part-condition which is either a constant or bound to an input value.
+     */
+    private static final class Operand {
+
+        /**
+         * The key of the input value or null if the operand is a constant.
+         */
+        private final String key;
+
+        /**
+         * The parsed constant.
+         */
+        private final Object constant;
+
+        private Operand(String key, Object constant) {
+            this.key = key;
+            this.constant = constant;
+        }
+
+        /**
+         * Compiles an operand. A number takes precedence over the key of an input value, which takes precedence over a
+         * boolean. A string has to be enclosed in single or double quotes.
+         */
+        private static Operand of(String operand, Set<String> keys) throws MissingInputDataException {
+            if (operand == null) {
+                return new Operand(null, "");
+            }
+            String trimmed = operand.trim();
+            if (NumberUtils.isParsable(trimmed)) {
+                return new Operand(null, Double.parseDouble(trimmed));
+            } else if (keys.contains(trimmed)) {
+                return new Operand(trimmed.intern(), null);
+            } else if ("true".equalsIgnoreCase(trimmed) || "false".equalsIgnoreCase(trimmed)) {
+                return new Operand(null, Boolean.parseBoolean(trimmed));
+            } else if (isQuoted(trimmed)) {
+                return new Operand(null, trimmed.substring(1, trimmed.length() - 1));
+            }
+            throw new MissingInputDataException(
+                    CompiledCondition.class.getCanonicalName() + ": condition needs " + trimmed + "!");
+        }
+
+        /**
+         * Checks if the given operand is enclosed in single or double quotes.
+         */
+        private static boolean isQuoted(String operand) {
+            return operand.length() >= 2 && (operand.charAt(0) == '"' || operand.charAt(0) == '\'')
+                    && operand.charAt(operand.length() - 1) == operand.charAt(0);
+        }
+
+        private Object resolve(Map<String, Object> values) {
+            return key == null ? constant : values.get(key);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package at.enactmentengine.serverless.parser;
+
+import at.uibk.dps.afcl.functions.objects.Case;
+import at.uibk.dps.afcl.functions.objects.DataEval;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The cases of a switch construct compiled when the workflow is parsed. The case values are parsed once, string cases
+ * are looked up in a hash table and number cases with a binary search, so that selecting a case never throws an
+ * exception, does not box a number and only parses input values which are strings.
+ *
+ * @author mikahautz
+ */
+public final class CompiledSwitch {
+
+    /**
+     * Logger for the compiled switch.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(CompiledSwitch.class);
+
+    /**
+     * The data type of the switch ("string" or "number").
+     */
+    private final String type;
+
+    /**
+     * The index of each string case.
+     */
+    private final Map<String, Integer> stringCases = new HashMap<>();
+
+    /**
+     * The distinct normalized values of the number cases in ascending order (see {@link #normalize(double)}).
+     */
+    private final double[] numberValues;
+
+    /**
+     * The index of the first case of each value in {@link #numberValues}.
+     */
+    private final int[] numberCases;
+
+    /**
+     * Compiles the given cases.
+     *
+     * @param dataEval the evaluated data specified in the workflow file.
+     * @param cases    the cases specified in the workflow file.
+     */
+    public CompiledSwitch(DataEval dataEval, List<Case> cases) {
+        this.type = dataEval == null ? null : dataEval.getType();
+        int size = cases == null ? 0 : cases.size();
+        TreeMap<Double, Integer> sortedCases = new TreeMap<>();
+
+        if ("number".equals(type)) {
+
+            /* Parse the case values once and keep the first case of a value */
+            for (int i = 0; i < size; i++) {
+                String value = cases.get(i).getValue() == null ? null : cases.get(i).getValue().trim();
+                if (value != null && NumberUtils.isParsable(value)) {
+                    sortedCases.putIfAbsent(normalize(Double.parseDouble(value)), i);
+                } else {
+                    logger.warn("Switch case {} is not a number and will never be selected", value);
+                }
+            }
+        } else if ("string".equals(type)) {
+            for (int i = 0; i < size; i++) {
+                stringCases.putIfAbsent(cases.get(i).getValue(), i);
+            }
+        } else {
+            logger.info("Unknown type for condition data type {}", type);
+        }
+
+        numberValues = new double[sortedCases.size()];
+        numberCases = new int[sortedCases.size()];
+        int i = 0;
+        for (Map.Entry<Double, Integer> entry : sortedCases.entrySet()) {
+            numberValues[i] = entry.getKey();
+            numberCases[i++] = entry.getValue();
+        }
+    }
+
+    /**
+     * Selects the case matching the given value.
+     *
+     * @param value the evaluated input value.
+     *
+     * @return the index of the first matching case or -1 if no case matches.
+     */
+    public int select(Object value) {
+        if (value == null) {
+            return -1;
+        }
+        if ("number".equals(type)) {
+            double number = CompiledCondition.toNumber(value);
+            int position = Double.isNaN(number) ? -1 : Arrays.binarySearch(numberValues, normalize(number));
+            return position < 0 ? -1 : numberCases[position];
+        } else if ("string".equals(type)) {
+            Integer index = stringCases.get(CompiledCondition.toText(value));
+            return index == null ? -1 : index;
+        }
+        return -1;
+    }
+
+    /**
+     * Maps -0.0 to 0.0, which are equal numbers but ordered differently by {@link Double#compare(double, double)}.
+     *
+     * @param value the number.
+     *
+     * @return the normalized number.
+     */
+    private static double normalize(double value) {
+        return value + 0.0;
+    }
+}
@@ -0,0 +1,154 @@
+package at.enactmentengine.serverless.parser;
+
+import at.uibk.dps.afcl.functions.objects.DataIns;
+import at.uibk.dps.afcl.functions.objects.DataOuts;
+import at.uibk.dps.afcl.functions.objects.DataOutsAtomic;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A data input or output of a node which is resolved once when the workflow is parsed. It holds the key under which
+ * the node publishes the value ({@code node/name}) and the keys of the sources it reads from, so that the nodes do not
+ * have to build or split any keys during the execution.
+ * <p>
+ * A source referring to multiple values (e.g. {@code [a/out, b/out]}) is split at the commas and each part is matched
+ * exactly against the keys of the available values. Previously, the end nodes checked whether the source string
+ * contained a key, so a key which is only a substring of a source (e.g. {@code f/out} in {@code gf/out}) no longer
+ * matches.
+ *
+ * @param <T> the type of the data port specified in the workflow file.
+ * @author mikahautz
+ */
+public final class DataPort<T> {
+
+    /**
+     * The data port specified in the workflow file.
+     */
+    private final T data;
+
+    /**
+     * The key under which the value of the port is published.
+     */
+    private final String key;
+
+    /**
+     * The source of the port as specified in the workflow file (may be null).
+     */
+    private final String source;
+
+    /**
+     * The single source keys if the source refers to multiple values (e.g. {@code a/out,b/out}).
+     */
+    private final Set<String> sources;
+
+    private DataPort(T data, String key, String source) {
+        this.data = data;
+        this.key = key.intern();
+        this.source = source == null ? null : source.intern();
+        this.sources = splitSources(source);
+    }
+
+    /**
+     * Resolves the given inputs of a node.
+     *
+     * @param nodeName the name of the node.
+     * @param dataIns  the inputs specified in the workflow file.
+     *
+     * @return the resolved input ports (empty if there is no input).
+     */
+    public static List<DataPort<DataIns>> ofInputs(String nodeName, List<DataIns> dataIns) {
+        return resolve(nodeName, dataIns, DataIns::getName, DataIns::getSource);
+    }
+
+    /**
+     * Resolves the given outputs of a compound function.
+     *
+     * @param nodeName the name of the node.
+     * @param dataOuts the outputs specified in the workflow file.
+     *
+     * @return the resolved output ports (empty if there is no output).
+     */
+    public static List<DataPort<DataOuts>> ofOutputs(String nodeName, List<DataOuts> dataOuts) {
+        return resolve(nodeName, dataOuts, DataOuts::getName, DataOuts::getSource);
+    }
+
+    /**
+     * Resolves the given outputs of an atomic function.
+     *
+     * @param nodeName the name of the node.
+     * @param dataOuts the outputs specified in the workflow file.
+     *
+     * @return the resolved output ports (empty if there is no output).
+     */
+    public static List<DataPort<DataOutsAtomic>> ofAtomicOutputs(String nodeName, List<DataOutsAtomic> dataOuts) {
+        return resolve(nodeName, dataOuts, DataOutsAtomic::getName, data -> null);
+    }
+
+    /**
+     * Resolves the given data ports.
+     */
+    private static <T> List<DataPort<T>> resolve(String nodeName, List<T> data, Function<T, String> name,
+                                                 Function<T, String> source) {
+        if (data == null || data.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<DataPort<T>> ports = new ArrayList<>(data.size());
+        for (T element : data) {
+            ports.add(new DataPort<>(element, nodeName + "/" + name.apply(element), source.apply(element)));
+        }
+        return Collections.unmodifiableList(ports);
+    }
+
+    /**
+     * Splits a source referring to multiple values into the single keys.
+     */
+    private static Set<String> splitSources(String source) {
+        if (source == null) {
+            return Collections.emptySet();
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (String part : source.split(",")) {
+            String trimmed = part.replace("[", "").replace("]", "").trim();
+            if (!trimmed.isEmpty()) {
+                keys.add(trimmed.intern());
+            }
+        }
+        return Collections.unmodifiableSet(keys);
+    }
+
+    /**
+     * Checks if the given key is one of the sources of the port.
+     *
+     * @param key the key of a value.
+     *
+     * @return true if the port reads the value, false otherwise.
+     */
+    public boolean isSourceOf(String key) {
+        return sources.contains(key);
+    }
+
+    /**
+     * Getter and Setter
+     */
+
+    public T getData() {
+        return data;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public Set<String> getSources() {
+        return sources;
+    }
+}
@@ -1,16 +1,79 @@
 package at.enactmentengine.serverless.parser;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 /**
- * Provides methods to parse element-index constraints.
+ * Provides methods to parse element-index constraints. An element-index constraint is compiled into a list of
+ * (start, stride, count) ranges which are stored in a primitive array, so that even large selections such as
+ * {@code 0:999999:2} do not need an object per index.
+ * <p>
+ * Whitespace around the operands is ignored, e.g. {@code 0 : 4, 7} is accepted. Previously, such a constraint failed
+ * with a {@link NumberFormatException}.
  */
-public class ElementIndex {
+public final class ElementIndex {
 
-    private ElementIndex() {
+    /**
+     * The compiled ranges, three consecutive values (start, stride, count) per range.
+     */
+    private final int[] ranges;
+
+    /**
+     * The total number of selected indices.
+     */
+    private final int size;
+
+    private ElementIndex(int[] ranges, int size) {
+        this.ranges = ranges;
+        this.size = size;
+    }
+
+    /**
+     * Compiles the given list of colon expressions.
+     *
+     * @param expressions a list of comma separated colon expressions
+     * @return the compiled element index
+     */
+    public static ElementIndex compile(String expressions) {
+        String[] parts = expressions.split(",");
+        int[] ranges = new int[parts.length * 3];
+        long size = 0;
+
+        for (int i = 0; i < parts.length; i++) {
+            String expression = parts[i];
+            String[] operands = expression.split(":");
+            if (operands.length < 1 || operands.length > 3) {
+                throw new IllegalArgumentException("Invalid expression: " + expression);
+            }
+
+            int start = Integer.parseInt(operands[0].trim());
+            int end = operands.length >= 2 ? Integer.parseInt(operands[1].trim()) : start;
+            int stride = operands.length >= 3 ? Integer.parseInt(operands[2].trim()) : 1;
+
+            if (stride == 0) {
+                throw new IllegalArgumentException("Invalid expression: " + expression);
+            }
+            if (start < 0) {
+                throw new IllegalArgumentException("Start index is negative");
+            }
+            if (end < 0) {
+                throw new IllegalArgumentException("End index is negative");
+            }
+
+            /* The range is empty if the end can not be reached in the direction of the stride */
+            long distance = ((long) end - start) * Integer.signum(stride);
+            int count = distance < 0 ? 0 : (int) (distance / Math.abs((long) stride) + 1);
+
+            ranges[i * 3] = start;
+            ranges[i * 3 + 1] = stride;
+            ranges[i * 3 + 2] = count;
+            size += count;
+        }
+
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many indices: " + expressions);
+        }
+        return new ElementIndex(ranges, (int) size);
     }
 
     /**
@@ -20,35 +83,57 @@ public class ElementIndex {
      * @return the indices
      */
     public static List<Integer> parseIndices(String expressions) {
-        return Arrays.stream(expressions
-                .split(","))
-                .flatMap(expression ->
-                {
-                    Integer[] operands = Arrays.stream(expression
-                            .split(":"))
-                            .map(Integer::parseInt)
-                            .toArray(Integer[]::new);
-
-                    int start = operands.length >= 1 ? operands[0] : 0;
-                    int end = operands.length >= 2 ? operands[1] : start;
-                    int stride = operands.length >= 3 ? operands[2] : 1;
-
-                    if (operands.length < 1 || operands.length > 3 || stride == 0) {
-                        throw new IllegalArgumentException("Invalid expression: " + expression);
-                    }
-                    if (start < 0) {
-                        throw new IllegalArgumentException("Start index is negative");
-                    }
-                    if (end < 0) {
-                        throw new IllegalArgumentException("End index is negative");
-                    }
-
-                    int sign = Integer.signum(stride);
-                    return IntStream.rangeClosed(start * sign, end * sign)
-                            .filter(x -> (x - (start * sign)) % (stride * sign) == 0) // apply stride
-                            .map(x -> x * sign)
-                            .boxed();
-                })
-                .collect(Collectors.toList());
+        ElementIndex elementIndex = compile(expressions);
+        List<Integer> indices = new ArrayList<>(elementIndex.size());
+        for (int r = 0; r < elementIndex.getRangeCount(); r++) {
+            for (int k = 0; k < elementIndex.getCount(r); k++) {
+                indices.add(elementIndex.getStart(r) + k * elementIndex.getStride(r));
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Returns the total number of selected indices.
+     *
+     * @return the number of indices
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the largest selected index.
+     *
+     * @return the largest index or -1 if no index is selected
+     */
+    public int max() {
+        int max = -1;
+        for (int r = 0; r < getRangeCount(); r++) {
+            if (getCount(r) > 0) {
+                max = Math.max(max, Math.max(getStart(r), getStart(r) + (getCount(r) - 1) * getStride(r)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Getter and Setter
+     */
+
+    public int getRangeCount() {
+        return ranges.length / 3;
+    }
+
+    public int getStart(int range) {
+        return ranges[range * 3];
+    }
+
+    public int getStride(int range) {
+        return ranges[range * 3 + 1];
+    }
+
+    public int getCount(int range) {
+        return ranges[range * 3 + 2];
     }
 }
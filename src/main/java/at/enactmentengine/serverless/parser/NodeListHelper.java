@@ -1,5 +1,6 @@
 package at.enactmentengine.serverless.parser;
 
+import at.enactmentengine.serverless.exception.MissingInputDataException;
 import at.enactmentengine.serverless.exception.MissingResourceLinkException;
 import at.enactmentengine.serverless.nodes.*;
 import at.enactmentengine.serverless.object.ListPair;
@@ -323,7 +324,12 @@ class NodeListHelper {
      * @return NodeList
      */
     private ListPair<Node, Node> toNodeListIf(IfThenElse function) {
-        IfStartNode start = new IfStartNode(function.getName(), function.getDataIns(), function.getCondition());
+        IfStartNode start;
+        try {
+            start = new IfStartNode(function.getName(), function.getDataIns(), function.getCondition());
+        } catch (MissingInputDataException e) {
+            throw new RuntimeException(e);
+        }
         IfEndNode end = new IfEndNode(function.getName(), function.getDataOuts());
 
         ListPair<Node, Node> thenPair = new ListPair<>();
@@ -0,0 +1,145 @@
+package at.enactmentengine.serverless.parser;
+
+import at.uibk.dps.afcl.Workflow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches parsed workflows by the hash of their content, so that warm invocations of the engine running as a function
+ * do not parse the same workflow again. Only the parsed AFCL workflow is cached: the nodes of an executable workflow
+ * hold the state of a single execution and are therefore created for every execution.
+ * <p>
+ * The cache is enabled by setting the environment variable {@code EE_FAST_START} to {@code true}.
+ *
+ * @author mikahautz
+ */
+public final class WorkflowCache {
+
+    /**
+     * Logger for the workflow cache.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(WorkflowCache.class);
+
+    /**
+     * Whether parsed workflows should be cached.
+     */
+    public static boolean ENABLED = Boolean.parseBoolean(System.getenv("EE_FAST_START"));
+
+    /**
+     * The maximum number of cached workflows.
+     */
+    public static int CAPACITY = 32;
+
+    /**
+     * The single instance of the cache.
+     */
+    private static WorkflowCache instance;
+
+    /**
+     * The cached workflows by language and content hash, least recently used first.
+     */
+    private final Map<String, Workflow> workflows = new LinkedHashMap<String, Workflow>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Workflow> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    /**
+     * Reads a workflow from its content.
+     */
+    @FunctionalInterface
+    public interface Reader {
+        Workflow read() throws IOException;
+    }
+
+    private WorkflowCache() {
+    }
+
+    /**
+     * Returns the single instance of the cache.
+     *
+     * @return the cache.
+     */
+    public static synchronized WorkflowCache get() {
+        if (instance == null) {
+            instance = new WorkflowCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the cached workflow with the given content or reads and caches it.
+     *
+     * @param content  the content of the workflow file.
+     * @param language the language of the content.
+     * @param reader   reads the workflow if it is not cached.
+     *
+     * @return the parsed workflow.
+     *
+     * @throws IOException if the workflow could not be read.
+     */
+    public Workflow get(byte[] content, Language language, Reader reader) throws IOException {
+        String key = language + ":" + hash(content);
+        Workflow workflow;
+        synchronized (workflows) {
+            workflow = workflows.get(key);
+        }
+        if (workflow != null) {
+            logger.debug("Using cached workflow {}", key);
+            return workflow;
+        }
+
+        /* Concurrent misses for the same content may both read the workflow, the last one is kept */
+        workflow = reader.read();
+        if (workflow != null) {
+            synchronized (workflows) {
+                workflows.put(key, workflow);
+            }
+        }
+        return workflow;
+    }
+
+    /**
+     * Removes all cached workflows.
+     */
+    public void clear() {
+        synchronized (workflows) {
+            workflows.clear();
+        }
+    }
+
+    /**
+     * Returns the number of cached workflows.
+     *
+     * @return the number of workflows.
+     */
+    public int size() {
+        synchronized (workflows) {
+            return workflows.size();
+        }
+    }
+
+    /**
+     * Returns the SHA-256 hash of the given content as hex string.
+     */
+    private static String hash(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            /* Every Java platform is required to support SHA-256 */
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,593 @@
+package at.enactmentengine.serverless.parser;
+
+import at.uibk.dps.afcl.Function;
+import at.uibk.dps.afcl.Workflow;
+import at.uibk.dps.afcl.functions.AtomicFunction;
+import at.uibk.dps.afcl.functions.IfThenElse;
+import at.uibk.dps.afcl.functions.Parallel;
+import at.uibk.dps.afcl.functions.ParallelFor;
+import at.uibk.dps.afcl.functions.Sequence;
+import at.uibk.dps.afcl.functions.Switch;
+import at.uibk.dps.afcl.functions.objects.ACondition;
+import at.uibk.dps.afcl.functions.objects.Case;
+import at.uibk.dps.afcl.functions.objects.Condition;
+import at.uibk.dps.afcl.functions.objects.DataEval;
+import at.uibk.dps.afcl.functions.objects.DataIns;
+import at.uibk.dps.afcl.functions.objects.DataOuts;
+import at.uibk.dps.afcl.functions.objects.DataOutsAtomic;
+import at.uibk.dps.afcl.functions.objects.LoopCounter;
+import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
+import at.uibk.dps.afcl.functions.objects.Section;
+import at.uibk.dps.afcl.functions.objects.Service;
+import org.apache.commons.lang3.NotImplementedException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary form of a workflow which is loaded without parsing YAML. A plan starts with the magic bytes
+ * {@code EEPL} and a version, followed by a table of all distinct strings of the workflow (names, sources, resource
+ * links, deployments and constraint values occur only once) and the workflow constructs referencing the table.
+ * <p>
+ * The plan is loaded into the AFCL model, from which the nodes are built as for a YAML workflow.
+ *
+ * @author mikahautz
+ */
+public final class WorkflowPlan {
+
+    /**
+     * The magic bytes at the start of every plan.
+     */
+    private static final byte[] MAGIC = {'E', 'E', 'P', 'L'};
+
+    /**
+     * The version of the plan format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The tags of the workflow constructs.
+     */
+    private static final int ATOMIC = 1;
+    private static final int PARALLEL = 2;
+    private static final int PARALLEL_FOR = 3;
+    private static final int IF = 4;
+    private static final int SWITCH = 5;
+    private static final int SEQUENCE = 6;
+
+    private WorkflowPlan() {
+    }
+
+    /**
+     * Checks whether the given content is a plan.
+     *
+     * @param content the content of a workflow file.
+     *
+     * @return true if the content starts with the magic bytes of a plan.
+     */
+    public static boolean isPlan(byte[] content) {
+        return content != null && content.length >= MAGIC.length
+                && Arrays.equals(Arrays.copyOf(content, MAGIC.length), MAGIC);
+    }
+
+    /**
+     * Compiles a workflow into a plan.
+     *
+     * @param workflow the parsed workflow.
+     *
+     * @return the plan.
+     *
+     * @throws IOException if the plan could not be written.
+     */
+    public static byte[] compile(Workflow workflow) throws IOException {
+        Encoder encoder = new Encoder();
+        encoder.string(workflow.getName());
+        encoder.dataIns(workflow.getDataIns());
+        encoder.functions(workflow.getWorkflowBody());
+        encoder.dataOuts(workflow.getDataOuts());
+
+        ByteArrayOutputStream plan = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(plan);
+        out.write(MAGIC);
+        out.writeShort(VERSION);
+        writeVarInt(out, encoder.strings.size());
+        for (String string : encoder.strings.keySet()) {
+            out.writeUTF(string);
+        }
+        encoder.body.writeTo(out);
+        out.flush();
+        return plan.toByteArray();
+    }
+
+    /**
+     * Loads a workflow from a plan.
+     *
+     * @param plan the plan.
+     *
+     * @return the workflow.
+     *
+     * @throws IOException if the content is not a plan of a supported version.
+     */
+    public static Workflow read(byte[] plan) throws IOException {
+        if (!isPlan(plan)) {
+            throw new IOException("Not a workflow plan");
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(plan, MAGIC.length, plan.length - MAGIC.length));
+        int version = in.readUnsignedShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported plan version " + version + ", expected " + VERSION);
+        }
+        String[] strings = new String[readVarInt(in)];
+        for (int i = 0; i < strings.length; i++) {
+            strings[i] = in.readUTF();
+        }
+
+        Decoder decoder = new Decoder(in, strings);
+        Workflow workflow = new Workflow();
+        workflow.setName(decoder.string());
+        workflow.setDataIns(decoder.dataIns());
+        workflow.setWorkflowBody(decoder.functions());
+        workflow.setDataOuts(decoder.dataOuts());
+        return workflow;
+    }
+
+    /**
+     * Writes the constructs of a workflow and collects its strings.
+     */
+    private static final class Encoder {
+
+        /**
+         * The index of every string in the string table.
+         */
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        /**
+         * The encoded constructs.
+         */
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        private final DataOutputStream out = new DataOutputStream(body);
+
+        /**
+         * Writes a string as its index in the string table plus one, 0 means null.
+         */
+        void string(String value) throws IOException {
+            if (value == null) {
+                writeVarInt(out, 0);
+            } else {
+                Integer index = strings.get(value);
+                if (index == null) {
+                    index = strings.size();
+                    strings.put(value, index);
+                }
+                writeVarInt(out, index + 1);
+            }
+        }
+
+        /**
+         * Writes the size of a list plus one, 0 means null. Returns false for null.
+         */
+        boolean size(List<?> list) throws IOException {
+            writeVarInt(out, list == null ? 0 : list.size() + 1);
+            return list != null;
+        }
+
+        void functions(List<Function> functions) throws IOException {
+            if (size(functions)) {
+                for (Function function : functions) {
+                    function(function);
+                }
+            }
+        }
+
+        void function(Function function) throws IOException {
+            if (function instanceof AtomicFunction) {
+                AtomicFunction atomic = (AtomicFunction) function;
+                out.writeByte(ATOMIC);
+                string(atomic.getName());
+                string(atomic.getType());
+                string(atomic.getDeployment());
+                properties(atomic.getProperties());
+                properties(atomic.getConstraints());
+                dataIns(atomic.getDataIns());
+                if (size(atomic.getDataOuts())) {
+                    for (DataOutsAtomic data : atomic.getDataOuts()) {
+                        string(data.getName());
+                        string(data.getType());
+                        properties(data.getProperties());
+                    }
+                }
+            } else if (function instanceof Parallel) {
+                Parallel parallel = (Parallel) function;
+                out.writeByte(PARALLEL);
+                string(parallel.getName());
+                dataIns(parallel.getDataIns());
+                if (size(parallel.getParallelBody())) {
+                    for (Section section : parallel.getParallelBody()) {
+                        functions(section.getSection());
+                    }
+                }
+                dataOuts(parallel.getDataOuts());
+            } else if (function instanceof ParallelFor) {
+                ParallelFor parallelFor = (ParallelFor) function;
+                out.writeByte(PARALLEL_FOR);
+                string(parallelFor.getName());
+                dataIns(parallelFor.getDataIns());
+                LoopCounter counter = parallelFor.getLoopCounter();
+                out.writeBoolean(counter != null);
+                if (counter != null) {
+                    string(counter.getName());
+                    string(counter.getType());
+                    string(counter.getFrom());
+                    string(counter.getTo());
+                    string(counter.getStep());
+                }
+                properties(parallelFor.getProperties());
+                properties(parallelFor.getConstraints());
+                functions(parallelFor.getLoopBody());
+                dataOuts(parallelFor.getDataOuts());
+            } else if (function instanceof IfThenElse) {
+                IfThenElse ifThenElse = (IfThenElse) function;
+                out.writeByte(IF);
+                string(ifThenElse.getName());
+                dataIns(ifThenElse.getDataIns());
+                Condition condition = ifThenElse.getCondition();
+                out.writeBoolean(condition != null);
+                if (condition != null) {
+                    string(condition.getCombinedWith());
+                    if (size(condition.getConditions())) {
+                        for (ACondition aCondition : condition.getConditions()) {
+                            string(aCondition.getData1());
+                            string(aCondition.getData2());
+                            string(aCondition.getOperator());
+                        }
+                    }
+                }
+                functions(ifThenElse.getThen());
+                functions(ifThenElse.getElse());
+                dataOuts(ifThenElse.getDataOuts());
+            } else if (function instanceof Switch) {
+                Switch switchFunction = (Switch) function;
+                out.writeByte(SWITCH);
+                string(switchFunction.getName());
+                dataIns(switchFunction.getDataIns());
+                DataEval dataEval = switchFunction.getDataEval();
+                out.writeBoolean(dataEval != null);
+                if (dataEval != null) {
+                    string(dataEval.getName());
+                    string(dataEval.getType());
+                    string(dataEval.getSource());
+                }
+                if (size(switchFunction.getCases())) {
+                    for (Case switchCase : switchFunction.getCases()) {
+                        string(switchCase.getValue());
+                        functions(switchCase.getFunctions());
+                    }
+                }
+                functions(switchFunction.getDefault());
+                dataOuts(switchFunction.getDataOuts());
+            } else if (function instanceof Sequence) {
+                Sequence sequence = (Sequence) function;
+                out.writeByte(SEQUENCE);
+                string(sequence.getName());
+                dataIns(sequence.getDataIns());
+                functions(sequence.getSequenceBody());
+                dataOuts(sequence.getDataOuts());
+            } else {
+                throw new NotImplementedException("Compilation not implemented for " + function.getName());
+            }
+        }
+
+        void dataIns(List<DataIns> dataIns) throws IOException {
+            if (size(dataIns)) {
+                for (DataIns data : dataIns) {
+                    string(data.getName());
+                    string(data.getType());
+                    string(data.getSource());
+                    string(data.getValue());
+                    out.writeByte(data.getPassing() == null ? 0 : data.getPassing() ? 2 : 1);
+                    properties(data.getProperties());
+                    properties(data.getConstraints());
+                }
+            }
+        }
+
+        void dataOuts(List<DataOuts> dataOuts) throws IOException {
+            if (size(dataOuts)) {
+                for (DataOuts data : dataOuts) {
+                    string(data.getName());
+                    string(data.getType());
+                    string(data.getSource());
+                    properties(data.getProperties());
+                    properties(data.getConstraints());
+                }
+            }
+        }
+
+        void properties(List<PropertyConstraint> properties) throws IOException {
+            if (size(properties)) {
+                for (PropertyConstraint property : properties) {
+                    string(property.getName());
+                    string(property.getValue());
+                    if (size(property.getServices())) {
+                        for (Service service : property.getServices()) {
+                            string(service.getName());
+                            string(service.getServiceType());
+                            string(service.getSource());
+                            string(service.getTarget());
+                            writeVarInt(out, service.getAmountOfUnits());
+                            out.writeDouble(service.getWorkPerUnit());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the constructs of a workflow.
+     */
+    private static final class Decoder {
+
+        private final DataInputStream in;
+
+        private final String[] strings;
+
+        Decoder(DataInputStream in, String[] strings) {
+            this.in = in;
+            this.strings = strings;
+        }
+
+        String string() throws IOException {
+            int index = readVarInt(in);
+            if (index > strings.length) {
+                throw new IOException("Invalid string index " + index);
+            }
+            return index == 0 ? null : strings[index - 1];
+        }
+
+        /**
+         * Reads the size of a list, -1 means null.
+         */
+        int size() throws IOException {
+            return readVarInt(in) - 1;
+        }
+
+        List<Function> functions() throws IOException {
+            int size = size();
+            if (size < 0) {
+                return null;
+            }
+            List<Function> functions = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                functions.add(function());
+            }
+            return functions;
+        }
+
+        Function function() throws IOException {
+            int tag = in.readUnsignedByte();
+            switch (tag) {
+                case ATOMIC: {
+                    AtomicFunction atomic = new AtomicFunction();
+                    atomic.setName(string());
+                    atomic.setType(string());
+                    atomic.setDeployment(string());
+                    atomic.setProperties(properties());
+                    atomic.setConstraints(properties());
+                    atomic.setDataIns(dataIns());
+                    int size = size();
+                    if (size >= 0) {
+                        List<DataOutsAtomic> dataOuts = new ArrayList<>(size);
+                        for (int i = 0; i < size; i++) {
+                            DataOutsAtomic data = new DataOutsAtomic();
+                            data.setName(string());
+                            data.setType(string());
+                            data.setProperties(properties());
+                            dataOuts.add(data);
+                        }
+                        atomic.setDataOuts(dataOuts);
+                    }
+                    return atomic;
+                }
+                case PARALLEL: {
+                    Parallel parallel = new Parallel();
+                    parallel.setName(string());
+                    parallel.setDataIns(dataIns());
+                    int size = size();
+                    if (size >= 0) {
+                        List<Section> sections = new ArrayList<>(size);
+                        for (int i = 0; i < size; i++) {
+                            Section section = new Section();
+                            section.setSection(functions());
+                            sections.add(section);
+                        }
+                        parallel.setParallelBody(sections);
+                    }
+                    parallel.setDataOuts(dataOuts());
+                    return parallel;
+                }
+                case PARALLEL_FOR: {
+                    ParallelFor parallelFor = new ParallelFor();
+                    parallelFor.setName(string());
+                    parallelFor.setDataIns(dataIns());
+                    if (in.readBoolean()) {
+                        LoopCounter counter = new LoopCounter();
+                        counter.setName(string());
+                        counter.setType(string());
+                        counter.setFrom(string());
+                        counter.setTo(string());
+                        counter.setStep(string());
+                        parallelFor.setLoopCounter(counter);
+                    }
+                    parallelFor.setProperties(properties());
+                    parallelFor.setConstraints(properties());
+                    parallelFor.setLoopBody(functions());
+                    parallelFor.setDataOuts(dataOuts());
+                    return parallelFor;
+                }
+                case IF: {
+                    IfThenElse ifThenElse = new IfThenElse();
+                    ifThenElse.setName(string());
+                    ifThenElse.setDataIns(dataIns());
+                    if (in.readBoolean()) {
+                        Condition condition = new Condition();
+                        condition.setCombinedWith(string());
+                        int size = size();
+                        if (size >= 0) {
+                            List<ACondition> conditions = new ArrayList<>(size);
+                            for (int i = 0; i < size; i++) {
+                                conditions.add(new ACondition(string(), string(), string()));
+                            }
+                            condition.setConditions(conditions);
+                        }
+                        ifThenElse.setCondition(condition);
+                    }
+                    ifThenElse.setThen(functions());
+                    ifThenElse.setElse(functions());
+                    ifThenElse.setDataOuts(dataOuts());
+                    return ifThenElse;
+                }
+                case SWITCH: {
+                    Switch switchFunction = new Switch();
+                    switchFunction.setName(string());
+                    switchFunction.setDataIns(dataIns());
+                    if (in.readBoolean()) {
+                        DataEval dataEval = new DataEval();
+                        dataEval.setName(string());
+                        dataEval.setType(string());
+                        dataEval.setSource(string());
+                        switchFunction.setDataEval(dataEval);
+                    }
+                    int size = size();
+                    if (size >= 0) {
+                        List<Case> cases = new ArrayList<>(size);
+                        for (int i = 0; i < size; i++) {
+                            Case switchCase = new Case();
+                            switchCase.setValue(string());
+                            switchCase.setFunctions(functions());
+                            cases.add(switchCase);
+                        }
+                        switchFunction.setCases(cases);
+                    }
+                    switchFunction.setDefault(functions());
+                    switchFunction.setDataOuts(dataOuts());
+                    return switchFunction;
+                }
+                case SEQUENCE: {
+                    Sequence sequence = new Sequence();
+                    sequence.setName(string());
+                    sequence.setDataIns(dataIns());
+                    sequence.setSequenceBody(functions());
+                    sequence.setDataOuts(dataOuts());
+                    return sequence;
+                }
+                default:
+                    throw new IOException("Unknown construct " + tag + " in plan");
+            }
+        }
+
+        List<DataIns> dataIns() throws IOException {
+            int size = size();
+            if (size < 0) {
+                return null;
+            }
+            List<DataIns> dataIns = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                DataIns data = new DataIns();
+                data.setName(string());
+                data.setType(string());
+                data.setSource(string());
+                data.setValue(string());
+                int passing = in.readUnsignedByte();
+                data.setPassing(passing == 0 ? null : passing == 2);
+                data.setProperties(properties());
+                data.setConstraints(properties());
+                dataIns.add(data);
+            }
+            return dataIns;
+        }
+
+        List<DataOuts> dataOuts() throws IOException {
+            int size = size();
+            if (size < 0) {
+                return null;
+            }
+            List<DataOuts> dataOuts = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                DataOuts data = new DataOuts();
+                data.setName(string());
+                data.setType(string());
+                data.setSource(string());
+                data.setProperties(properties());
+                data.setConstraints(properties());
+                dataOuts.add(data);
+            }
+            return dataOuts;
+        }
+
+        List<PropertyConstraint> properties() throws IOException {
+            int size = size();
+            if (size < 0) {
+                return null;
+            }
+            List<PropertyConstraint> properties = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                PropertyConstraint property = new PropertyConstraint();
+                property.setName(string());
+                property.setValue(string());
+                int services = size();
+                if (services >= 0) {
+                    List<Service> serviceList = new ArrayList<>(services);
+                    for (int j = 0; j < services; j++) {
+                        Service service = new Service();
+                        service.setName(string());
+                        service.setServiceType(string());
+                        service.setSource(string());
+                        service.setTarget(string());
+                        service.setAmountOfUnits(readVarInt(in));
+                        service.setWorkPerUnit(in.readDouble());
+                        serviceList.add(service);
+                    }
+                    property.setServices(serviceList);
+                }
+                properties.add(property);
+            }
+            return properties;
+        }
+    }
+
+    /**
+     * Writes a non-negative integer in 7-bit groups.
+     */
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    /**
+     * Reads an integer written by {@link #writeVarInt(DataOutputStream, int)}.
+     */
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed plan");
+    }
+}
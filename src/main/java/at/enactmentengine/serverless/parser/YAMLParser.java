@@ -1,5 +1,6 @@
 package at.enactmentengine.serverless.parser;
 
+import at.enactmentengine.serverless.metrics.Metrics;
 import at.enactmentengine.serverless.nodes.ExecutableWorkflow;
 import at.enactmentengine.serverless.nodes.Node;
 import at.enactmentengine.serverless.object.ListPair;
@@ -9,6 +10,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 
 /**
  * Class for parsing YAML files into an executable workflow.
@@ -34,7 +36,7 @@ public class YAMLParser {
     }
 
     /**
-     * Parses a given YAML file to a workflow, which can be executed.
+     * Parses a given YAML file or a compiled {@link WorkflowPlan} to a workflow, which can be executed.
      *
      * @param filename    yaml file to parse.
      * @param language    the language of the file.
@@ -45,12 +47,23 @@ public class YAMLParser {
      */
     public ExecutableWorkflow parseExecutableWorkflow(byte[] filename, Language language, int executionId, boolean simulate) {
 
+        long start = System.currentTimeMillis();
+
         // Parse yaml file
         at.uibk.dps.afcl.Workflow workflow = null;
 
-        if (language == Language.YAML) {
+        if (WorkflowPlan.isPlan(filename)) {
             try {
-                workflow = Utils.readYAMLNoValidation(filename);
+                workflow = WorkflowPlan.read(filename);
+            } catch (IOException e) {
+                logger.error(e.getMessage(), e);
+                return null;
+            }
+        } else if (language == Language.YAML) {
+            try {
+                workflow = WorkflowCache.ENABLED
+                        ? WorkflowCache.get().get(filename, language, () -> Utils.readYAMLNoValidation(filename))
+                        : Utils.readYAMLNoValidation(filename);
             } catch (IOException e) {
                 logger.error(e.getMessage(), e);
                 return null;
@@ -62,7 +75,9 @@ public class YAMLParser {
         }
 
 
-        return getExecutableWorkflow(workflow, executionId, simulate);
+        ExecutableWorkflow executableWorkflow = getExecutableWorkflow(workflow, executionId, simulate);
+        Metrics.parseTime(System.currentTimeMillis() - start);
+        return executableWorkflow;
     }
 
     /**
@@ -74,6 +89,8 @@ public class YAMLParser {
      */
     public ExecutableWorkflow parseExecutableWorkflowByStringContent(String content, Language language, int executionId) {
 
+        long start = System.currentTimeMillis();
+
         // Parse yaml file
         at.uibk.dps.afcl.Workflow workflow = null;
 
@@ -81,7 +98,10 @@ public class YAMLParser {
             throw new NotImplementedException("YAML content currently not supported.");
         } else if (language == Language.JSON) {
             try {
-                workflow = Utils.readJSONStringNoValidation(content);
+                workflow = WorkflowCache.ENABLED
+                        ? WorkflowCache.get().get(content.getBytes(StandardCharsets.UTF_8), language,
+                        () -> Utils.readJSONStringNoValidation(content))
+                        : Utils.readJSONStringNoValidation(content);
             } catch (IOException e) {
                 logger.error(e.getMessage(), e);
                 return null;
@@ -90,7 +110,9 @@ public class YAMLParser {
             throw new NotImplementedException("Workflow language currently not supported.");
         }
 
-        return getExecutableWorkflow(workflow, executionId, false);
+        ExecutableWorkflow executableWorkflow = getExecutableWorkflow(workflow, executionId, false);
+        Metrics.parseTime(System.currentTimeMillis() - start);
+        return executableWorkflow;
     }
 
     /**
@@ -0,0 +1,310 @@
+package at.enactmentengine.serverless.scheduler;
+
+import at.enactmentengine.serverless.exception.MissingComputationalWorkException;
+import at.enactmentengine.serverless.exception.MissingResourceLinkException;
+import at.enactmentengine.serverless.exception.MissingSimulationParametersException;
+import at.enactmentengine.serverless.exception.RegionDetectionException;
+import at.enactmentengine.serverless.nodes.SimulationNode;
+import at.enactmentengine.serverless.object.Utils;
+import at.enactmentengine.serverless.simulation.AnalyticalEstimator;
+import at.uibk.dps.afcl.Workflow;
+import at.uibk.dps.afcl.functions.AtomicFunction;
+import at.uibk.dps.util.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Recommends a memory size for every function of a workflow. The round trip time and cost of each function are
+ * estimated for all memory sizes its provider offers (see {@link AnalyticalEstimator}), which gives a cost/latency
+ * curve per function. The recommended memory size is the cheapest one that meets a latency budget or the fastest one
+ * that meets a cost budget. The functions are swept in parallel.
+ *
+ * @author mikahautz
+ */
+public class MemoryRecommender {
+
+    /**
+     * Logger for the recommender.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(MemoryRecommender.class);
+
+    /**
+     * The memory sizes offered by AWS Lambda.
+     */
+    private static final int[] AWS_MEMORY = {128, 256, 512, 1024, 1536, 2048, 3008, 4096, 6144, 8192, 10240};
+
+    /**
+     * The memory sizes offered by Google Cloud Functions.
+     */
+    private static final int[] GOOGLE_MEMORY = {128, 256, 512, 1024, 2048, 4096, 8192};
+
+    /**
+     * The memory sizes offered by IBM Cloud Functions.
+     */
+    private static final int[] IBM_MEMORY = {128, 256, 512, 1024, 2048};
+
+    /**
+     * The objective the recommendation is bounded by.
+     */
+    public enum BudgetType {
+        /**
+         * No budget is given, the cheapest memory size is recommended.
+         */
+        NONE,
+        /**
+         * The round trip time must not exceed the budget in milliseconds, the cheapest memory size is recommended.
+         */
+        LATENCY,
+        /**
+         * The cost must not exceed the budget, the fastest memory size is recommended.
+         */
+        COST
+    }
+
+    /**
+     * The estimated round trip time and cost of a function for one memory size.
+     */
+    public static final class Point {
+
+        /**
+         * The memory size in MB.
+         */
+        private final int memory;
+
+        /**
+         * The estimated round trip time in milliseconds.
+         */
+        private final double rtt;
+
+        /**
+         * The estimated cost.
+         */
+        private final double cost;
+
+        Point(int memory, double rtt, double cost) {
+            this.memory = memory;
+            this.rtt = rtt;
+            this.cost = cost;
+        }
+
+        /** Getter */
+
+        public int getMemory() {
+            return memory;
+        }
+
+        public double getRtt() {
+            return rtt;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%dMB: rtt=%.1fms, cost=%.8f", memory, rtt, cost);
+        }
+    }
+
+    /**
+     * The cost/latency curve of a function and the recommended memory size.
+     */
+    public static final class Recommendation {
+
+        /**
+         * The function.
+         */
+        private final AtomicFunction function;
+
+        /**
+         * The estimates for all memory sizes that could be estimated, ordered by memory size.
+         */
+        private final List<Point> curve;
+
+        /**
+         * The recommended memory size or null if no memory size could be estimated.
+         */
+        private final Point recommended;
+
+        Recommendation(AtomicFunction function, List<Point> curve, Point recommended) {
+            this.function = function;
+            this.curve = curve;
+            this.recommended = recommended;
+        }
+
+        /** Getter */
+
+        public AtomicFunction getFunction() {
+            return function;
+        }
+
+        public List<Point> getCurve() {
+            return curve;
+        }
+
+        public Point getRecommended() {
+            return recommended;
+        }
+
+        @Override
+        public String toString() {
+            return function.getName() + " -> " + (recommended == null ? "no estimate" : recommended) + " " + curve;
+        }
+    }
+
+    /**
+     * The input of the workflow.
+     */
+    private final Map<String, Object> input;
+
+    /**
+     * The objective the recommendation is bounded by.
+     */
+    private final BudgetType budgetType;
+
+    /**
+     * The budget of every function, in milliseconds for {@link BudgetType#LATENCY}.
+     */
+    private final double budget;
+
+    /**
+     * Creates a recommender.
+     *
+     * @param input      the input of the workflow or null.
+     * @param budgetType the objective the recommendation is bounded by.
+     * @param budget     the budget of every function, in milliseconds for {@link BudgetType#LATENCY}.
+     */
+    public MemoryRecommender(Map<String, Object> input, BudgetType budgetType, double budget) {
+        this.input = input;
+        this.budgetType = budgetType;
+        this.budget = budget;
+    }
+
+    /**
+     * Parses a budget given as {@code latency:<ms>} or {@code cost:<value>}.
+     *
+     * @param input the input of the workflow or null.
+     * @param value the budget or null if there is none.
+     *
+     * @return the recommender.
+     */
+    public static MemoryRecommender parse(Map<String, Object> input, String value) {
+        if (value == null || value.isEmpty()) {
+            return new MemoryRecommender(input, BudgetType.NONE, 0);
+        }
+        int separator = value.indexOf(':');
+        if (separator == -1) {
+            throw new IllegalArgumentException("The budget must be given as latency:<ms> or cost:<value>, but was " + value);
+        }
+        BudgetType type = BudgetType.valueOf(value.substring(0, separator).toUpperCase());
+        return new MemoryRecommender(input, type, Double.parseDouble(value.substring(separator + 1)));
+    }
+
+    /**
+     * Recommends a memory size for every function of a workflow.
+     *
+     * @param workflow the workflow.
+     *
+     * @return the recommendations in the order of the functions in the workflow.
+     */
+    public List<Recommendation> recommend(Workflow workflow) {
+        List<AtomicFunction> functions = new ArrayList<>();
+        PlacementOptimizer.collect(workflow.getWorkflowBody(), functions);
+        return functions.parallelStream().map(this::recommend).collect(Collectors.toList());
+    }
+
+    /**
+     * Sweeps the memory sizes of a function and recommends one.
+     *
+     * @param function the function.
+     *
+     * @return the recommendation.
+     */
+    public Recommendation recommend(AtomicFunction function) {
+        List<Point> curve = new ArrayList<>();
+        try {
+            Provider provider;
+            String region;
+            if (function.getDeployment() != null) {
+                List<String> elements = SimulationNode.extractValuesFromDeployment(function.getDeployment());
+                region = elements.get(1);
+                provider = Provider.valueOf(elements.get(2));
+            } else {
+                String resourceLink = AnalyticalEstimator.resourceLink(function);
+                provider = Utils.detectProvider(resourceLink);
+                region = Utils.detectRegion(resourceLink);
+            }
+            for (int memory : memorySizes(provider)) {
+                String deployment = function.getName() + "_" + provider.toString().toLowerCase() + "_" + region + "_" + memory;
+                Map<AtomicFunction, String> override = new IdentityHashMap<>();
+                override.put(function, deployment);
+                try {
+                    AnalyticalEstimator.Estimate estimate = new AnalyticalEstimator(input, override).estimate(function);
+                    curve.add(new Point(memory, estimate.getMakespan(), estimate.getCost()));
+                } catch (MissingComputationalWorkException | MissingSimulationParametersException | RuntimeException e) {
+                    LOGGER.debug("Could not estimate {} with {}MB: {}", function.getName(), memory, e.getMessage());
+                }
+            }
+        } catch (SQLException | RegionDetectionException | MissingResourceLinkException | RuntimeException e) {
+            LOGGER.warn("Could not sweep the memory sizes of {}: {}", function.getName(), e.getMessage());
+        }
+        return new Recommendation(function, curve, choose(curve, budgetType, budget));
+    }
+
+    /**
+     * Chooses a memory size from a curve. If no memory size meets the budget, the one closest to it is chosen.
+     *
+     * @param curve      the estimates of the memory sizes.
+     * @param budgetType the objective the recommendation is bounded by.
+     * @param budget     the budget, in milliseconds for {@link BudgetType#LATENCY}.
+     *
+     * @return the chosen estimate or null if the curve is empty.
+     */
+    static Point choose(List<Point> curve, BudgetType budgetType, double budget) {
+        if (curve.isEmpty()) {
+            return null;
+        }
+        Comparator<Point> byCost = Comparator.comparingDouble(Point::getCost).thenComparingDouble(Point::getRtt);
+        Comparator<Point> byRtt = Comparator.comparingDouble(Point::getRtt).thenComparingDouble(Point::getCost);
+        switch (budgetType) {
+            case LATENCY:
+                return curve.stream().filter(point -> point.rtt <= budget).min(byCost)
+                        .orElseGet(() -> Collections.min(curve, byRtt));
+            case COST:
+                return curve.stream().filter(point -> point.cost <= budget).min(byRtt)
+                        .orElseGet(() -> Collections.min(curve, byCost));
+            default:
+                return Collections.min(curve, byCost);
+        }
+    }
+
+    /**
+     * Returns the memory sizes a provider offers.
+     *
+     * @param provider the provider.
+     *
+     * @return the memory sizes in MB in increasing order.
+     */
+    static int[] memorySizes(Provider provider) {
+        switch (provider) {
+            case AWS:
+                return AWS_MEMORY;
+            case GOOGLE:
+                return GOOGLE_MEMORY;
+            case IBM:
+                return IBM_MEMORY;
+            default:
+                throw new IllegalArgumentException("Memory sizes of " + provider + " are unknown");
+        }
+    }
+}
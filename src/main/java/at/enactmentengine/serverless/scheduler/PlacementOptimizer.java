@@ -0,0 +1,463 @@
+package at.enactmentengine.serverless.scheduler;
+
+import at.enactmentengine.serverless.exception.MissingComputationalWorkException;
+import at.enactmentengine.serverless.exception.MissingResourceLinkException;
+import at.enactmentengine.serverless.exception.MissingSimulationParametersException;
+import at.enactmentengine.serverless.exception.RegionDetectionException;
+import at.enactmentengine.serverless.object.Utils;
+import at.enactmentengine.serverless.simulation.AnalyticalEstimator;
+import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.enactmentengine.serverless.simulation.metadata.model.FunctionDeployment;
+import at.uibk.dps.afcl.Function;
+import at.uibk.dps.afcl.Workflow;
+import at.uibk.dps.afcl.functions.AtomicFunction;
+import at.uibk.dps.afcl.functions.IfThenElse;
+import at.uibk.dps.afcl.functions.Parallel;
+import at.uibk.dps.afcl.functions.ParallelFor;
+import at.uibk.dps.afcl.functions.Sequence;
+import at.uibk.dps.afcl.functions.Switch;
+import at.uibk.dps.afcl.functions.objects.Case;
+import at.uibk.dps.afcl.functions.objects.Section;
+import at.uibk.dps.util.Provider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Searches deployments (provider, region and memory) for the functions of a workflow and returns the placements that
+ * are Pareto optimal regarding the makespan and cost estimated by the {@link AnalyticalEstimator}.
+ * <p>
+ * The candidates of a function are all regions and memory sizes the same function implementation is deployed with at
+ * its provider. If there are at most {@link #EXHAUSTIVE_LIMIT} placements, all of them are estimated. Otherwise, a
+ * coordinate descent is run for several weightings of makespan and cost, changing the deployment of one function at a
+ * time. The estimations run in parallel.
+ *
+ * @author mikahautz
+ */
+public class PlacementOptimizer {
+
+    /**
+     * Logger for the optimizer.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(PlacementOptimizer.class);
+
+    /**
+     * The maximum number of placements that are all estimated.
+     */
+    public static final int EXHAUSTIVE_LIMIT = 4096;
+
+    /**
+     * The number of weightings of makespan and cost for the coordinate descent.
+     */
+    private static final int WEIGHTS = 11;
+
+    /**
+     * The maximum number of rounds of the coordinate descent.
+     */
+    private static final int MAX_ROUNDS = 10;
+
+    /**
+     * The workflow to optimize.
+     */
+    private final Workflow workflow;
+
+    /**
+     * The input of the workflow.
+     */
+    private final Map<String, Object> input;
+
+    /**
+     * All functions of the workflow.
+     */
+    private final List<AtomicFunction> functions = new ArrayList<>();
+
+    /**
+     * The candidate deployments of every function, the first one is the deployment given in the workflow.
+     */
+    private final List<List<String>> candidates = new ArrayList<>();
+
+    /**
+     * All estimated placements.
+     */
+    private final Map<List<String>, Placement> estimated = new ConcurrentHashMap<>();
+
+    /**
+     * A deployment for every function of the workflow with its estimated makespan and cost.
+     */
+    public static final class Placement {
+
+        /**
+         * The deployments in the order of the functions in the workflow (null if the function stays where it is
+         * deployed).
+         */
+        private final List<String> deployments;
+
+        /**
+         * The estimated makespan and cost.
+         */
+        private final AnalyticalEstimator.Estimate estimate;
+
+        Placement(List<String> deployments, AnalyticalEstimator.Estimate estimate) {
+            this.deployments = deployments;
+            this.estimate = estimate;
+        }
+
+        /** Getter */
+
+        public List<String> getDeployments() {
+            return deployments;
+        }
+
+        public AnalyticalEstimator.Estimate getEstimate() {
+            return estimate;
+        }
+
+        @Override
+        public String toString() {
+            return estimate + " " + deployments;
+        }
+    }
+
+    /**
+     * Creates an optimizer and determines the candidate deployments of all functions.
+     *
+     * @param workflow the workflow to optimize.
+     * @param input    the input of the workflow or null.
+     *
+     * @throws SQLException                 if an error occurs when reading fields from a database entry
+     * @throws RegionDetectionException     if detecting the region from a resource link fails
+     * @throws MissingResourceLinkException if a function has no resource link
+     */
+    public PlacementOptimizer(Workflow workflow, Map<String, Object> input) throws SQLException, RegionDetectionException,
+            MissingResourceLinkException {
+        this.workflow = workflow;
+        this.input = input;
+        collect(workflow.getWorkflowBody(), functions);
+        for (AtomicFunction function : functions) {
+            candidates.add(candidates(function));
+        }
+    }
+
+    /**
+     * Creates an optimizer with the given candidate deployments.
+     *
+     * @param workflow   the workflow to optimize.
+     * @param input      the input of the workflow or null.
+     * @param candidates the candidate deployments of every function in the order of the functions in the workflow.
+     */
+    PlacementOptimizer(Workflow workflow, Map<String, Object> input, List<List<String>> candidates) {
+        this.workflow = workflow;
+        this.input = input;
+        collect(workflow.getWorkflowBody(), functions);
+        this.candidates.addAll(candidates);
+    }
+
+    /**
+     * Searches the placements and returns the Pareto front.
+     *
+     * @return the Pareto optimal placements ordered by increasing makespan.
+     */
+    public List<Placement> optimize() {
+        List<String> original = new ArrayList<>();
+        for (List<String> functionCandidates : candidates) {
+            original.add(functionCandidates.get(0));
+        }
+        long total = count(candidates);
+        Placement baseline = evaluate(original);
+        if (baseline == null) {
+            throw new IllegalStateException("The workflow could not be estimated with its given deployments");
+        }
+
+        if (total <= EXHAUSTIVE_LIMIT) {
+            LOGGER.info("Estimating all {} placements of {} functions.", total, functions.size());
+            IntStream.range(0, (int) total).parallel().forEach(index -> evaluate(placement(index)));
+        } else {
+            LOGGER.info("Searching {} placements of {} functions heuristically.", total, functions.size());
+            IntStream.range(0, WEIGHTS).parallel().forEach(weight ->
+                    descend(baseline, (double) weight / (WEIGHTS - 1)));
+        }
+        return paretoFront(new ArrayList<>(estimated.values()));
+    }
+
+    /**
+     * Returns the placement of the front with the best balance between makespan and cost, i.e. the one closest to the
+     * ideal point after scaling both objectives to the range of the front.
+     *
+     * @param front the Pareto front.
+     *
+     * @return the chosen placement.
+     */
+    public static Placement choose(List<Placement> front) {
+        double minMakespan = front.get(0).estimate.getMakespan();
+        double maxMakespan = front.get(front.size() - 1).estimate.getMakespan();
+        double minCost = front.get(front.size() - 1).estimate.getCost();
+        double maxCost = front.get(0).estimate.getCost();
+        Placement chosen = null;
+        double bestDistance = Double.MAX_VALUE;
+        for (Placement placement : front) {
+            double makespan = scale(placement.estimate.getMakespan(), minMakespan, maxMakespan);
+            double cost = scale(placement.estimate.getCost(), minCost, maxCost);
+            double distance = makespan * makespan + cost * cost;
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                chosen = placement;
+            }
+        }
+        return chosen;
+    }
+
+    /**
+     * Sets the deployments of a placement in the workflow.
+     *
+     * @param placement the placement to apply.
+     *
+     * @return the workflow with the deployments of the placement.
+     */
+    public Workflow apply(Placement placement) {
+        for (int i = 0; i < functions.size(); i++) {
+            functions.get(i).setDeployment(placement.deployments.get(i));
+        }
+        return workflow;
+    }
+
+    /**
+     * Improves a placement by changing one function at a time as long as the weighted objective gets better.
+     *
+     * @param start  the placement to start with.
+     * @param weight the weight of the makespan, the cost is weighted with 1 - weight.
+     */
+    private void descend(Placement start, double weight) {
+        double makespanScale = Math.max(start.estimate.getMakespan(), 1e-9);
+        double costScale = Math.max(start.estimate.getCost(), 1e-12);
+        Comparator<Placement> objective = Comparator.comparingDouble(placement ->
+                weight * placement.estimate.getMakespan() / makespanScale
+                        + (1 - weight) * placement.estimate.getCost() / costScale);
+
+        Placement best = start;
+        for (int round = 0; round < MAX_ROUNDS; round++) {
+            boolean improved = false;
+            for (int i = 0; i < functions.size(); i++) {
+                for (String candidate : candidates.get(i)) {
+                    List<String> trial = new ArrayList<>(best.deployments);
+                    trial.set(i, candidate);
+                    Placement placement = evaluate(trial);
+                    if (placement != null && objective.compare(placement, best) < 0) {
+                        best = placement;
+                        improved = true;
+                    }
+                }
+            }
+            if (!improved) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of placements of the given candidates.
+     *
+     * @param candidates the candidate deployments of every function.
+     *
+     * @return the number of placements or {@link Long#MAX_VALUE} if there are more.
+     */
+    static long count(List<List<String>> candidates) {
+        long total = 1;
+        for (List<String> functionCandidates : candidates) {
+            try {
+                total = Math.multiplyExact(total, functionCandidates.size());
+            } catch (ArithmeticException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the placement with the given index in the enumeration of all placements.
+     */
+    private List<String> placement(int index) {
+        List<String> deployments = new ArrayList<>(functions.size());
+        for (List<String> functionCandidates : candidates) {
+            deployments.add(functionCandidates.get(index % functionCandidates.size()));
+            index /= functionCandidates.size();
+        }
+        return deployments;
+    }
+
+    /**
+     * Estimates a placement once.
+     *
+     * @return the estimated placement or null if it can not be estimated.
+     */
+    private Placement evaluate(List<String> deployments) {
+        Placement placement = estimated.get(deployments);
+        if (placement != null) {
+            return placement;
+        }
+        Map<AtomicFunction, String> overrides = new IdentityHashMap<>();
+        for (int i = 0; i < functions.size(); i++) {
+            overrides.put(functions.get(i), deployments.get(i));
+        }
+        try {
+            placement = new Placement(deployments, estimate(overrides));
+        } catch (SQLException | RegionDetectionException | MissingResourceLinkException | MissingComputationalWorkException
+                | MissingSimulationParametersException | RuntimeException e) {
+            LOGGER.debug("Could not estimate placement {}: {}", deployments, e.getMessage());
+            return null;
+        }
+        estimated.putIfAbsent(deployments, placement);
+        return placement;
+    }
+
+    /**
+     * Estimates the workflow with the given deployments.
+     *
+     * @param deployments the deployment of every function.
+     *
+     * @return the estimated makespan and cost.
+     *
+     * @throws SQLException                         if an error occurs when reading fields from a database entry
+     * @throws RegionDetectionException             if detecting the region from a resource link fails
+     * @throws MissingResourceLinkException         if a function has no resource link
+     * @throws MissingComputationalWorkException    if a function is estimated for a different memory size without a
+     *                                              computational work
+     * @throws MissingSimulationParametersException if not all required fields are filled in in the database
+     */
+    AnalyticalEstimator.Estimate estimate(Map<AtomicFunction, String> deployments) throws SQLException,
+            RegionDetectionException, MissingResourceLinkException, MissingComputationalWorkException,
+            MissingSimulationParametersException {
+        return new AnalyticalEstimator(input, deployments).estimate(workflow);
+    }
+
+    /**
+     * Returns the candidate deployments of a function. Only regions of the provider the function is deployed at are
+     * considered, since simulating across providers is not supported.
+     */
+    private List<String> candidates(AtomicFunction function) throws SQLException, RegionDetectionException,
+            MissingResourceLinkException {
+        Set<String> result = new LinkedHashSet<>();
+        result.add(function.getDeployment());
+
+        String resourceLink = AnalyticalEstimator.resourceLink(function);
+        Provider provider = Utils.detectProvider(resourceLink);
+        FunctionDeployment entry = MetadataStore.get().getFunctionIdEntry(resourceLink);
+        if (entry == null) {
+            return new ArrayList<>(result);
+        }
+
+        Set<String> regions = new LinkedHashSet<>();
+        Set<Integer> memories = new LinkedHashSet<>();
+        List<FunctionDeployment> deployments = new ArrayList<>(Arrays.asList(entry));
+        List<FunctionDeployment> similar = MetadataStore.get().getDeploymentsWithImplementationId(entry.getFunctionImplementationId());
+        if (similar != null) {
+            deployments.addAll(similar);
+        }
+        for (FunctionDeployment deployment : deployments) {
+            if (deployment.getKmsArn() != null && Utils.detectProvider(deployment.getKmsArn()) == provider) {
+                regions.add(Utils.detectRegion(deployment.getKmsArn()));
+                memories.add(deployment.getMemorySize());
+            }
+        }
+
+        for (String region : regions) {
+            for (int memory : memories) {
+                String deployment = function.getName() + "_" + provider.toString().toLowerCase() + "_" + region + "_" + memory;
+                if (result.contains(deployment)) {
+                    continue;
+                }
+                /* Only keep deployments that can be estimated on their own */
+                try {
+                    new AnalyticalEstimator(input, singleton(function, deployment)).estimate(function);
+                    result.add(deployment);
+                } catch (MissingComputationalWorkException | MissingSimulationParametersException | RuntimeException e) {
+                    LOGGER.debug("Skipping deployment {}: {}", deployment, e.getMessage());
+                }
+            }
+        }
+        LOGGER.info("Found {} candidate deployments for {}.", result.size(), function.getName());
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Returns a map with a single deployment.
+     */
+    private static Map<AtomicFunction, String> singleton(AtomicFunction function, String deployment) {
+        Map<AtomicFunction, String> map = new IdentityHashMap<>();
+        map.put(function, deployment);
+        return map;
+    }
+
+    /**
+     * Collects all functions of a workflow body.
+     *
+     * @param body      the functions to walk.
+     * @param functions the list to which the atomic functions are added.
+     */
+    static void collect(List<Function> body, List<AtomicFunction> functions) {
+        if (body == null) {
+            return;
+        }
+        for (Function function : body) {
+            if (function instanceof AtomicFunction) {
+                functions.add((AtomicFunction) function);
+            } else if (function instanceof Parallel && ((Parallel) function).getParallelBody() != null) {
+                for (Section section : ((Parallel) function).getParallelBody()) {
+                    collect(section.getSection(), functions);
+                }
+            } else if (function instanceof ParallelFor) {
+                collect(((ParallelFor) function).getLoopBody(), functions);
+            } else if (function instanceof Sequence) {
+                collect(((Sequence) function).getSequenceBody(), functions);
+            } else if (function instanceof IfThenElse) {
+                collect(((IfThenElse) function).getThen(), functions);
+                collect(((IfThenElse) function).getElse(), functions);
+            } else if (function instanceof Switch) {
+                if (((Switch) function).getCases() != null) {
+                    for (Case switchCase : ((Switch) function).getCases()) {
+                        collect(switchCase.getFunctions(), functions);
+                    }
+                }
+                collect(((Switch) function).getDefault(), functions);
+            }
+        }
+    }
+
+    /**
+     * Returns the placements that are not dominated by another one, ordered by increasing makespan.
+     *
+     * @param placements the estimated placements.
+     *
+     * @return the Pareto front.
+     */
+    static List<Placement> paretoFront(List<Placement> placements) {
+        placements.sort(Comparator.comparingDouble((Placement placement) -> placement.estimate.getMakespan())
+                .thenComparingDouble(placement -> placement.estimate.getCost()));
+        List<Placement> front = new ArrayList<>();
+        double lowestCost = Double.MAX_VALUE;
+        for (Placement placement : placements) {
+            if (placement.estimate.getCost() < lowestCost) {
+                front.add(placement);
+                lowestCost = placement.estimate.getCost();
+            }
+        }
+        return front;
+    }
+
+    /**
+     * Scales a value to the range between 0 and 1.
+     */
+    private static double scale(double value, double min, double max) {
+        return max > min ? (value - min) / (max - min) : 0;
+    }
+}
@@ -0,0 +1,462 @@
+package at.enactmentengine.serverless.simulation;
+
+import at.enactmentengine.serverless.exception.MissingComputationalWorkException;
+import at.enactmentengine.serverless.exception.MissingResourceLinkException;
+import at.enactmentengine.serverless.exception.MissingSimulationParametersException;
+import at.enactmentengine.serverless.exception.RegionDetectionException;
+import at.enactmentengine.serverless.nodes.SimulationNode;
+import at.enactmentengine.serverless.object.PairResult;
+import at.enactmentengine.serverless.object.Utils;
+import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.enactmentengine.serverless.simulation.metadata.exceptions.DatabaseException;
+import at.enactmentengine.serverless.simulation.metadata.model.FunctionDeployment;
+import at.enactmentengine.serverless.simulation.metadata.model.Region;
+import at.uibk.dps.afcl.Function;
+import at.uibk.dps.afcl.Workflow;
+import at.uibk.dps.afcl.functions.AtomicFunction;
+import at.uibk.dps.afcl.functions.IfThenElse;
+import at.uibk.dps.afcl.functions.Parallel;
+import at.uibk.dps.afcl.functions.ParallelFor;
+import at.uibk.dps.afcl.functions.Sequence;
+import at.uibk.dps.afcl.functions.Switch;
+import at.uibk.dps.afcl.functions.objects.Case;
+import at.uibk.dps.afcl.functions.objects.LoopCounter;
+import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
+import at.uibk.dps.afcl.functions.objects.Section;
+import at.uibk.dps.util.Provider;
+import org.apache.commons.lang3.NotImplementedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates the makespan and cost of a workflow analytically instead of simulating it. The workflow is walked once,
+ * every function contributes its expected round trip time and cost of a successful execution (see
+ * {@link SimulationModel#expectedRoundTripTime()}):
+ * <ul>
+ *     <li>the functions of a sequence are added up,</li>
+ *     <li>the branches of a parallel take as long as the longest one,</li>
+ *     <li>the branches of an if or switch are weighted with the same probability,</li>
+ *     <li>the iterations of a parallelFor run in waves of as many iterations as the concurrency limit allows.</li>
+ * </ul>
+ * Faults, fault tolerance and external services are not taken into account.
+ *
+ * @author mikahautz
+ */
+public class AnalyticalEstimator {
+
+    /**
+     * Logger for the estimator.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticalEstimator.class);
+
+    /**
+     * The input of the workflow, used to resolve the loop counters of parallelFor constructs.
+     */
+    private final Map<String, Object> input;
+
+    /**
+     * Deployments that are used instead of the ones given in the workflow.
+     */
+    private final Map<AtomicFunction, String> deployments;
+
+    /**
+     * Creates an estimator.
+     *
+     * @param input the input of the workflow or null.
+     */
+    public AnalyticalEstimator(Map<String, Object> input) {
+        this(input, Collections.emptyMap());
+    }
+
+    /**
+     * Creates an estimator which estimates some functions for other deployments than the ones in the workflow.
+     *
+     * @param input       the input of the workflow or null.
+     * @param deployments the deployments of the functions to estimate differently.
+     */
+    public AnalyticalEstimator(Map<String, Object> input, Map<AtomicFunction, String> deployments) {
+        this.input = input == null ? Collections.emptyMap() : input;
+        this.deployments = deployments;
+    }
+
+    /**
+     * The estimated makespan and cost of a workflow or a part of it.
+     */
+    public static final class Estimate {
+
+        /**
+         * The estimate of nothing.
+         */
+        static final Estimate ZERO = new Estimate(0, 0);
+
+        /**
+         * The makespan in milliseconds.
+         */
+        private final double makespan;
+
+        /**
+         * The cost.
+         */
+        private final double cost;
+
+        /**
+         * Creates an estimate.
+         *
+         * @param makespan the makespan in milliseconds.
+         * @param cost     the cost.
+         */
+        public Estimate(double makespan, double cost) {
+            this.makespan = makespan;
+            this.cost = cost;
+        }
+
+        /** Getter */
+
+        public double getMakespan() {
+            return makespan;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("makespan=%.1fms, cost=%.8f", makespan, cost);
+        }
+    }
+
+    /**
+     * Estimates a workflow.
+     *
+     * @param workflow the workflow.
+     *
+     * @return the estimated makespan and cost.
+     *
+     * @throws SQLException                         if an error occurs when reading fields from a database entry
+     * @throws RegionDetectionException             if detecting the region from a resource link fails
+     * @throws MissingResourceLinkException         if a function has no resource link
+     * @throws MissingComputationalWorkException    if a function is estimated for a different memory size without a
+     *                                              computational work
+     * @throws MissingSimulationParametersException if not all required fields are filled in in the database
+     */
+    public Estimate estimate(Workflow workflow) throws SQLException, RegionDetectionException, MissingResourceLinkException,
+            MissingComputationalWorkException, MissingSimulationParametersException {
+        return sequence(workflow.getWorkflowBody(), -1);
+    }
+
+    /**
+     * Estimates a single function outside of a parallelFor.
+     *
+     * @param function the function.
+     *
+     * @return the estimated round trip time and cost.
+     *
+     * @throws SQLException                         if an error occurs when reading fields from a database entry
+     * @throws RegionDetectionException             if detecting the region from a resource link fails
+     * @throws MissingResourceLinkException         if the function has no resource link
+     * @throws MissingComputationalWorkException    if the function is estimated for a different memory size without a
+     *                                              computational work
+     * @throws MissingSimulationParametersException if not all required fields are filled in in the database
+     */
+    public Estimate estimate(AtomicFunction function) throws SQLException, RegionDetectionException,
+            MissingResourceLinkException, MissingComputationalWorkException, MissingSimulationParametersException {
+        return atomic(function, -1);
+    }
+
+    /**
+     * Estimates functions executed one after the other.
+     */
+    private Estimate sequence(List<Function> functions, int loopCounter) throws SQLException, RegionDetectionException,
+            MissingResourceLinkException, MissingComputationalWorkException, MissingSimulationParametersException {
+        if (functions == null) {
+            return Estimate.ZERO;
+        }
+        double makespan = 0;
+        double cost = 0;
+        for (Function function : functions) {
+            Estimate estimate = function(function, loopCounter);
+            makespan += estimate.makespan;
+            cost += estimate.cost;
+        }
+        return new Estimate(makespan, cost);
+    }
+
+    /**
+     * Estimates a single function or construct.
+     */
+    private Estimate function(Function function, int loopCounter) throws SQLException, RegionDetectionException,
+            MissingResourceLinkException, MissingComputationalWorkException, MissingSimulationParametersException {
+        if (function instanceof AtomicFunction) {
+            return atomic((AtomicFunction) function, loopCounter);
+        } else if (function instanceof Parallel) {
+            double makespan = 0;
+            double cost = 0;
+            if (((Parallel) function).getParallelBody() != null) {
+                for (Section section : ((Parallel) function).getParallelBody()) {
+                    Estimate estimate = sequence(section.getSection(), loopCounter);
+                    makespan = Math.max(makespan, estimate.makespan);
+                    cost += estimate.cost;
+                }
+            }
+            return new Estimate(makespan, cost);
+        } else if (function instanceof ParallelFor) {
+            return parallelFor((ParallelFor) function);
+        } else if (function instanceof Sequence) {
+            return sequence(((Sequence) function).getSequenceBody(), loopCounter);
+        } else if (function instanceof IfThenElse) {
+            IfThenElse ifThenElse = (IfThenElse) function;
+            Estimate then = sequence(ifThenElse.getThen(), loopCounter);
+            Estimate otherwise = sequence(ifThenElse.getElse(), loopCounter);
+            return new Estimate((then.makespan + otherwise.makespan) / 2, (then.cost + otherwise.cost) / 2);
+        } else if (function instanceof Switch) {
+            Switch switchFunction = (Switch) function;
+            double makespan = 0;
+            double cost = 0;
+            int branches = 0;
+            if (switchFunction.getCases() != null) {
+                for (Case switchCase : switchFunction.getCases()) {
+                    Estimate estimate = sequence(switchCase.getFunctions(), loopCounter);
+                    makespan += estimate.makespan;
+                    cost += estimate.cost;
+                    branches++;
+                }
+            }
+            if (switchFunction.getDefault() != null) {
+                Estimate estimate = sequence(switchFunction.getDefault(), loopCounter);
+                makespan += estimate.makespan;
+                cost += estimate.cost;
+                branches++;
+            }
+            return branches == 0 ? Estimate.ZERO : new Estimate(makespan / branches, cost / branches);
+        }
+        throw new NotImplementedException("Estimation not implemented for " + function.getName());
+    }
+
+    /**
+     * Estimates a parallelFor. The iterations run in waves of at most the concurrency limit, an iteration takes longer
+     * the higher its loop counter is due to the concurrency overhead of the provider. The body is therefore estimated
+     * for the first two loop counters and the makespan of every wave is extrapolated from them.
+     */
+    private Estimate parallelFor(ParallelFor parallelFor) throws SQLException, RegionDetectionException,
+            MissingResourceLinkException, MissingComputationalWorkException, MissingSimulationParametersException {
+        int iterations = iterations(parallelFor);
+        Estimate first = sequence(parallelFor.getLoopBody(), 0);
+        double slope = iterations > 1 ? sequence(parallelFor.getLoopBody(), 1).makespan - first.makespan : 0;
+
+        int capacity = concurrency(parallelFor, iterations);
+        int waves = (iterations + capacity - 1) / capacity;
+        /* Sum of the highest loop counter of every wave */
+        double lastCounters = 0;
+        for (int wave = 0; wave < waves; wave++) {
+            lastCounters += Math.min((wave + 1) * capacity, iterations) - 1;
+        }
+        return new Estimate(waves * first.makespan + slope * lastCounters, iterations * first.cost);
+    }
+
+    /**
+     * Returns the number of iterations of a parallelFor, loop counters referring to data are read from the input.
+     */
+    private int iterations(ParallelFor parallelFor) {
+        LoopCounter counter = parallelFor.getLoopCounter();
+        if (counter == null) {
+            return 1;
+        }
+        int from = counterValue(counter.getFrom(), 0);
+        int to = counterValue(counter.getTo(), from + 1);
+        int step = Math.max(counterValue(counter.getStep(), 1), 1);
+        /* Same number of children as ParallelForStartNode creates */
+        return 1 + Math.max(0, (to - 1 - from + step - 1) / step);
+    }
+
+    /**
+     * Parses a value of a loop counter.
+     */
+    private int counterValue(String value, int fallback) {
+        if (value == null) {
+            return fallback;
+        }
+        try {
+            return (int) Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            Object data = input.get(value);
+            if (data == null && value.contains("/")) {
+                data = input.get(value.substring(value.lastIndexOf('/') + 1));
+            }
+            if (data != null) {
+                try {
+                    return (int) Double.parseDouble(data.toString());
+                } catch (NumberFormatException ignored) {
+                    /* fall through to the warning */
+                }
+            }
+            logger.warn("Could not resolve the loop counter value {}, assuming {}.", value, fallback);
+            return fallback;
+        }
+    }
+
+    /**
+     * Returns the number of iterations of a parallelFor that run at the same time.
+     */
+    private int concurrency(ParallelFor parallelFor, int iterations) throws MissingResourceLinkException {
+        int capacity = iterations;
+        if (parallelFor.getConstraints() != null) {
+            for (PropertyConstraint constraint : parallelFor.getConstraints()) {
+                if ("concurrency".equals(constraint.getName())) {
+                    try {
+                        capacity = Math.min(capacity, Integer.parseInt(constraint.getValue()));
+                    } catch (NumberFormatException e) {
+                        logger.warn("Could not parse the concurrency of {}.", parallelFor.getName());
+                    }
+                }
+            }
+        }
+        AtomicFunction first = firstAtomic(parallelFor.getLoopBody());
+        if (first != null) {
+            capacity = Math.min(capacity, maxConcurrency(first));
+        }
+        return Math.max(capacity, 1);
+    }
+
+    /**
+     * Returns the number of functions the provider of the given function runs at the same time.
+     */
+    int maxConcurrency(AtomicFunction function) throws MissingResourceLinkException {
+        Provider provider = deployment(function) != null
+                ? Provider.valueOf(SimulationNode.extractValuesFromDeployment(deployment(function)).get(2))
+                : Utils.detectProvider(resourceLink(function));
+        return MetadataStore.get().getProviderEntry(provider).getMaxConcurrency();
+    }
+
+    /**
+     * Returns the first function executed in the given functions. Of several branches the first one is taken, empty
+     * branches and constructs are skipped.
+     */
+    static AtomicFunction firstAtomic(List<Function> functions) {
+        if (functions == null) {
+            return null;
+        }
+        for (Function function : functions) {
+            AtomicFunction first = null;
+            if (function instanceof AtomicFunction) {
+                first = (AtomicFunction) function;
+            } else if (function instanceof Parallel && ((Parallel) function).getParallelBody() != null) {
+                for (Section section : ((Parallel) function).getParallelBody()) {
+                    first = first == null ? firstAtomic(section.getSection()) : first;
+                }
+            } else if (function instanceof ParallelFor) {
+                first = firstAtomic(((ParallelFor) function).getLoopBody());
+            } else if (function instanceof Sequence) {
+                first = firstAtomic(((Sequence) function).getSequenceBody());
+            } else if (function instanceof IfThenElse) {
+                first = firstAtomic(((IfThenElse) function).getThen());
+                first = first == null ? firstAtomic(((IfThenElse) function).getElse()) : first;
+            } else if (function instanceof Switch) {
+                if (((Switch) function).getCases() != null) {
+                    for (Case switchCase : ((Switch) function).getCases()) {
+                        first = first == null ? firstAtomic(switchCase.getFunctions()) : first;
+                    }
+                }
+                first = first == null ? firstAtomic(((Switch) function).getDefault()) : first;
+            }
+            if (first != null) {
+                return first;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Estimates a single function. The deployment of the function is used if it is given, otherwise the function is
+     * estimated where it is deployed.
+     */
+    Estimate atomic(AtomicFunction function, int loopCounter) throws SQLException, RegionDetectionException,
+            MissingResourceLinkException, MissingComputationalWorkException, MissingSimulationParametersException {
+        String resourceLink = resourceLink(function);
+        FunctionDeployment entry = MetadataStore.get().getFunctionIdEntry(resourceLink);
+        if (entry == null) {
+            throw new DatabaseException("No function deployment was found for resource link: " + resourceLink);
+        }
+
+        Provider provider = Utils.detectProvider(resourceLink);
+        String region = Utils.detectRegion(resourceLink);
+        int memory = entry.getMemorySize();
+        String deployment = deployment(function);
+        if (deployment != null) {
+            List<String> elements = SimulationNode.extractValuesFromDeployment(deployment);
+            memory = Integer.parseInt(elements.get(0));
+            region = elements.get(1);
+            provider = Provider.valueOf(elements.get(2));
+        }
+
+        /* Prefer measured values of a deployment in the same region with the same memory */
+        FunctionDeployment measured = null;
+        if (memory == entry.getMemorySize() && provider == Utils.detectProvider(resourceLink)
+                && region.equals(Utils.detectRegion(resourceLink))) {
+            measured = entry;
+        } else {
+            List<FunctionDeployment> similar = MetadataStore.get().getDeploymentsWithImplementationId(entry.getFunctionImplementationId());
+            Region regionEntry = MetadataStore.get().getRegionEntry(region, provider);
+            if (similar != null && regionEntry != null) {
+                for (FunctionDeployment candidate : similar) {
+                    if (candidate.getRegionId() != null && candidate.getRegionId() == regionEntry.getId().longValue()
+                            && candidate.getMemorySize() == memory) {
+                        measured = candidate;
+                        break;
+                    }
+                }
+            }
+        }
+
+        int concurrencyOverhead = MetadataStore.get().getProviderEntry(provider).getConcurrencyOverheadMs();
+        if (measured != null && measured.getInvocations() > 0) {
+            double rtt = measured.getAvgRTT() - (double) concurrencyOverhead * measured.getAvgLoopCounter();
+            if (loopCounter != -1) {
+                rtt += (double) concurrencyOverhead * loopCounter;
+            }
+            return new Estimate(rtt, measured.getAvgCost());
+        }
+
+        SimulationModel model = new SimulationModel(measured != null ? measured : entry, provider, region, memory,
+                loopCounter, SimulationRandom.expected());
+        PairResult<Long, Double> result = model.expectedRoundTripTime();
+        return new Estimate(result.getRtt(), result.getCost());
+    }
+
+    /**
+     * Returns the deployment a function is estimated for or null if it is estimated where it is deployed.
+     */
+    private String deployment(AtomicFunction function) {
+        return deployments.containsKey(function) ? deployments.get(function) : function.getDeployment();
+    }
+
+    /**
+     * Returns the resource link of a function.
+     *
+     * @param function the function.
+     *
+     * @return the resource link without the programming language.
+     *
+     * @throws MissingResourceLinkException if the function has no resource link.
+     */
+    public static String resourceLink(AtomicFunction function) throws MissingResourceLinkException {
+        if (function.getProperties() != null) {
+            for (PropertyConstraint property : function.getProperties()) {
+                if ("resource".equals(property.getName())) {
+                    String resourceLink = property.getValue();
+                    if (!resourceLink.toLowerCase().startsWith("http") && !resourceLink.startsWith("arn")) {
+                        /* Remove the programming language of the resource link */
+                        resourceLink = resourceLink.substring(resourceLink.indexOf(':') + 1);
+                    }
+                    return resourceLink;
+                }
+            }
+        }
+        throw new MissingResourceLinkException("No resource link on function " + function.getName());
+    }
+}
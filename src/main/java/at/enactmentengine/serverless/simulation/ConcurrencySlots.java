@@ -0,0 +1,115 @@
+package at.enactmentengine.serverless.simulation;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The concurrency slots of a simulated parallelFor. At most {@code capacity} iterations run at the same time, every
+ * further iteration waits in FIFO order until the earliest running iteration frees its slot in simulated time.
+ * <p>
+ * The free times of the slots are kept in a min-heap. An iteration is only assigned a slot once all previous iterations
+ * have finished, since only then the earliest free time is known. Assigning n iterations therefore takes O(n log n).
+ * <p>
+ * The capacity bounds each parallelFor on its own. The concurrency limit of a provider applies to the whole account, so
+ * sibling parallelFors running at the same time may together exceed it in the simulation.
+ *
+ * @author mikahautz
+ */
+public final class ConcurrencySlots {
+
+    /**
+     * The scope of the parallelFor.
+     */
+    private final String construct;
+
+    /**
+     * The times at which finished iterations freed their slot and that have not been assigned yet.
+     */
+    private final PriorityQueue<Long> freeTimes = new PriorityQueue<>();
+
+    /**
+     * The start times of the iterations that already got a slot.
+     */
+    private final Map<Integer, Long> starts = new HashMap<>();
+
+    /**
+     * The number of finished iterations.
+     */
+    private int finished;
+
+    /**
+     * Whether the parallelFor is done and no more slots are handed out.
+     */
+    private boolean closed;
+
+    /**
+     * Creates the slots for a parallelFor.
+     *
+     * @param construct the scope of the parallelFor.
+     */
+    public ConcurrencySlots(String construct) {
+        this.construct = construct;
+    }
+
+    /**
+     * Returns the simulated start time of an iteration. The first {@code capacity} iterations start when they arrive,
+     * the others when the earliest slot becomes free. All functions of the same iteration get the same start time.
+     *
+     * @param iteration the loop counter of the iteration.
+     * @param capacity  the number of iterations that may run at the same time.
+     * @param arrival   the time at which the iteration could start without a limit.
+     *
+     * @return the start time of the iteration.
+     */
+    public synchronized long acquire(int iteration, int capacity, long arrival) {
+        Long start = starts.get(iteration);
+        if (start != null) {
+            return start;
+        }
+        if (iteration < capacity) {
+            start = arrival;
+        } else {
+            /* The slot is known once all iterations before this one have freed theirs */
+            while (finished < iteration && !closed) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for a slot of " + construct, e);
+                }
+            }
+            if (freeTimes.isEmpty()) {
+                throw new IllegalStateException("No slot of " + construct + " was freed for iteration " + iteration);
+            }
+            start = Math.max(arrival, freeTimes.poll());
+        }
+        starts.put(iteration, start);
+        return start;
+    }
+
+    /**
+     * Frees the slot of a finished iteration.
+     *
+     * @param end the simulated end time of the iteration.
+     */
+    public synchronized void release(long end) {
+        freeTimes.add(end);
+        finished++;
+        notifyAll();
+    }
+
+    /**
+     * Closes the slots once the parallelFor is done or has failed, waiting iterations are woken up.
+     */
+    public synchronized void close() {
+        closed = true;
+        notifyAll();
+    }
+
+    /** Getter */
+
+    public String getConstruct() {
+        return construct;
+    }
+}
@@ -0,0 +1,450 @@
+package at.enactmentengine.serverless.simulation;
+
+import at.enactmentengine.serverless.exception.MissingSimulationParametersException;
+import at.enactmentengine.serverless.exception.RegionDetectionException;
+import at.enactmentengine.serverless.object.Utils;
+import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.enactmentengine.serverless.simulation.metadata.exceptions.DatabaseException;
+import at.enactmentengine.serverless.simulation.metadata.model.Cpu;
+import at.enactmentengine.serverless.simulation.metadata.model.FunctionDeployment;
+import at.enactmentengine.serverless.simulation.metadata.model.FunctionImplementation;
+import at.enactmentengine.serverless.simulation.metadata.model.Region;
+import at.uibk.dps.util.Provider;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The metadata needed to simulate a function deployment for a provider, region and memory size. The parameters are read
+ * from the {@link MetadataStore} once and shared by all simulations of the same deployment, e.g. all iterations of a
+ * parallelFor, until {@link #clear()} is called at the start of the next simulation.
+ *
+ * @author mikahautz
+ */
+public final class DeploymentParameters {
+
+    /**
+     * The number of percentiles of the CPU distribution.
+     */
+    private static final int PERCENTILES = 100;
+
+    /**
+     * The parameters of all deployments simulated so far.
+     */
+    private static final Map<String, DeploymentParameters> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * The memory sizes of the functions priced so far by resource link, -1 if a function is not in the metadata.
+     */
+    private static final Map<String, Integer> MEMORY_SIZES = new ConcurrentHashMap<>();
+
+    /**
+     * The pricing of the providers priced so far, empty if a provider is not in the metadata.
+     */
+    private static final Map<Provider, Optional<at.enactmentengine.serverless.simulation.metadata.model.Provider>> PRICING =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The provider to simulate.
+     */
+    private final Provider provider;
+
+    /**
+     * The region to simulate in.
+     */
+    private final String region;
+
+    /**
+     * The memory to simulate.
+     */
+    private final int memorySize;
+
+    /**
+     * The execution time of the function without overheads, or -1 if it is estimated from the computational work.
+     */
+    private final long rawExecutionTime;
+
+    /**
+     * The FaaS system overhead of the provider to simulate.
+     */
+    private final int faasOverhead;
+
+    /**
+     * The cryptographic overhead of the provider to simulate.
+     */
+    private final int cryptoOverhead;
+
+    /**
+     * The network overhead of the region to simulate in.
+     */
+    private final int networkOverhead;
+
+    /**
+     * The overhead per concurrently started function of the provider to simulate.
+     */
+    private final int concurrencyOverhead;
+
+    /**
+     * The maximum concurrency of the provider to simulate.
+     */
+    private final int maxConcurrency;
+
+    /**
+     * The computational work of the function implementation in million instructions.
+     */
+    private final double instructions;
+
+    /**
+     * The speedup of the memory size relative to 128mb.
+     */
+    private final double speedup;
+
+    /**
+     * The MIPS of the CPU per percentile for sequential (index 0) and parallel (index 1) functions, NaN if no CPU is
+     * known for a percentile.
+     */
+    private final double[][] mips;
+
+    /**
+     * The cost of an invocation.
+     */
+    private final double invocationCost;
+
+    /**
+     * The time unit the runtime is billed in.
+     */
+    private final int unitTimeMs;
+
+    /**
+     * The cost per GB-second.
+     */
+    private final double durationGBpsCost;
+
+    /**
+     * The cost per GHz-second.
+     */
+    private final double durationGHzpsCost;
+
+    private DeploymentParameters(FunctionDeployment functionDeployment, Provider provider, String region, int memorySize)
+            throws RegionDetectionException, MissingSimulationParametersException {
+        this.provider = provider;
+        this.region = region;
+        this.memorySize = memorySize;
+
+        at.enactmentengine.serverless.simulation.metadata.model.Provider providerEntry = MetadataStore.get().getProviderEntry(provider);
+        Region regionEntry = MetadataStore.get().getRegionEntry(region, provider);
+        faasOverhead = providerEntry.getFaasSystemOverheadms();
+        cryptoOverhead = providerEntry.getCryptoOverheadms();
+        networkOverhead = regionEntry.getNetworkOverheadms().intValue();
+        concurrencyOverhead = providerEntry.getConcurrencyOverheadMs();
+        maxConcurrency = providerEntry.getMaxConcurrency();
+
+        invocationCost = providerEntry.getInvocationCost();
+        unitTimeMs = providerEntry.getUnitTimems();
+        durationGBpsCost = providerEntry.getDurationGBpsCost();
+        durationGHzpsCost = provider == Provider.GOOGLE ? providerEntry.getDurationGHzpsCost() : 0;
+
+        if (memorySize == functionDeployment.getMemorySize()) {
+            rawExecutionTime = rawExecutionTime(functionDeployment);
+            instructions = 0;
+            speedup = 0;
+            mips = null;
+        } else {
+            rawExecutionTime = -1;
+            long implementationId = functionDeployment.getFunctionImplementationId();
+            FunctionImplementation implementation = MetadataStore.get().getImplementationById(implementationId);
+            instructions = implementation.getComputationWork();
+            List<FunctionDeployment> sameMemoryDeployment = MetadataStore.get().getDeploymentsWithImplementationIdAndMemorySize(implementationId, memorySize);
+            double measuredSpeedup = 0;
+            if (sameMemoryDeployment != null && !sameMemoryDeployment.isEmpty()) {
+                measuredSpeedup = sameMemoryDeployment.get(0).getSpeedup();
+            }
+            /* The speedup is always measured against the deployment with 128mb ram. If it is NULL, it is assumed
+             there is linear speedup relative to 128mb. (e.g. 256mb -> 2, 512mb -> 4, 1024mb -> 8, etc */
+            speedup = measuredSpeedup == 0 ? memorySize / 128.0 : measuredSpeedup;
+            boolean cpuKnown = provider == Provider.AWS || provider == Provider.GOOGLE || provider == Provider.IBM;
+            mips = instructions == 0 || !cpuKnown ? null : new double[][]{cpuDistribution(0), cpuDistribution(1)};
+        }
+    }
+
+    /**
+     * Returns the parameters of a deployment, reading them from the metadata only the first time.
+     *
+     * @param functionDeployment the database entry of the function deployment to simulate
+     * @param provider           the provider to simulate
+     * @param region             the region to simulate in
+     * @param memorySize         the memory size to simulate
+     *
+     * @return the parameters.
+     *
+     * @throws RegionDetectionException             if detecting the region from the resource link fails
+     * @throws MissingSimulationParametersException if not all required fields are filled in in the database
+     */
+    public static DeploymentParameters of(FunctionDeployment functionDeployment, Provider provider, String region, int memorySize)
+            throws RegionDetectionException, MissingSimulationParametersException {
+        String key = functionDeployment.getId() + "|" + functionDeployment.getKmsArn() + "|" + provider + "|" + region + "|" + memorySize;
+        DeploymentParameters parameters = CACHE.get(key);
+        if (parameters == null) {
+            parameters = new DeploymentParameters(functionDeployment, provider, region, memorySize);
+            DeploymentParameters previous = CACHE.putIfAbsent(key, parameters);
+            if (previous != null) {
+                parameters = previous;
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Forgets the parameters of all deployments, e.g. because the metadata has changed.
+     */
+    public static void clear() {
+        CACHE.clear();
+        MEMORY_SIZES.clear();
+        PRICING.clear();
+    }
+
+    /**
+     * Returns the memory size of a deployed function, reading it from the metadata only the first time.
+     *
+     * @param resourceLink the resource link of the function
+     *
+     * @return the memory size or -1 if the function is not in the metadata or no metadata is available.
+     */
+    public static int memorySize(String resourceLink) {
+        return MEMORY_SIZES.computeIfAbsent(resourceLink, link -> {
+            try {
+                FunctionDeployment entry = MetadataStore.get().getFunctionIdEntry(link);
+                return entry == null ? -1 : entry.getMemorySize();
+            } catch (RuntimeException e) {
+                return -1;
+            }
+        });
+    }
+
+    /**
+     * Calculates the cost of an execution with the pricing of a provider, reading the pricing from the metadata only
+     * the first time.
+     *
+     * @param provider   the provider of the executed function
+     * @param memorySize the memory size of the executed function
+     * @param runtime    the runtime of the executed function
+     *
+     * @return the cost of the execution or -1 if the provider is not in the metadata or no metadata is available.
+     */
+    public static double cost(Provider provider, int memorySize, double runtime) {
+        Optional<at.enactmentengine.serverless.simulation.metadata.model.Provider> pricing = PRICING.computeIfAbsent(provider, p -> {
+            try {
+                return Optional.ofNullable(MetadataStore.get().getProviderEntry(p));
+            } catch (RuntimeException e) {
+                return Optional.empty();
+            }
+        });
+        if (!pricing.isPresent()) {
+            return -1.0;
+        }
+        at.enactmentengine.serverless.simulation.metadata.model.Provider entry = pricing.get();
+        return cost(provider, memorySize, runtime, entry.getInvocationCost(), entry.getUnitTimems(),
+                entry.getDurationGBpsCost(), provider == Provider.GOOGLE ? entry.getDurationGHzpsCost() : 0);
+    }
+
+    /**
+     * Subtracts the overheads from the RTT stored in the MD.
+     */
+    private static long rawExecutionTime(FunctionDeployment functionDeployment) throws RegionDetectionException,
+            MissingSimulationParametersException {
+        // if the field 'avgRuntime' has a value set, simply use it
+        double avgRuntime = functionDeployment.getAvgRuntime();
+        if (avgRuntime > 1) {
+            return (long) avgRuntime;
+        }
+
+        String functionId = functionDeployment.getKmsArn();
+        Provider mdProvider = Utils.detectProvider(functionId);
+        String mdRegion = Utils.detectRegion(functionId);
+
+        at.enactmentengine.serverless.simulation.metadata.model.Provider mdProviderEntry = MetadataStore.get().getProviderEntry(mdProvider);
+        Region mdRegionEntry = MetadataStore.get().getRegionEntry(mdRegion, mdProvider);
+
+        long avgRTT = functionDeployment.getAvgRTT().longValue();
+        int avgLoopCounter = functionDeployment.getAvgLoopCounter();
+        int faasOverhead = mdProviderEntry.getFaasSystemOverheadms();
+        int cryptoOverhead = mdProviderEntry.getCryptoOverheadms();
+        int networkOverhead = mdRegionEntry.getNetworkOverheadms().intValue();
+        int concurrencyOverhead = mdProviderEntry.getConcurrencyOverheadMs();
+        int authenticationOverhead = 0;
+
+        if (avgLoopCounter != 0 && concurrencyOverhead != 0) {
+            concurrencyOverhead *= avgLoopCounter;
+        }
+
+        if (mdProvider == Provider.AWS || mdProvider == Provider.IBM) {
+            if (cryptoOverhead != 0 && networkOverhead != 0) {
+                authenticationOverhead = cryptoOverhead + handshake(mdProvider) * networkOverhead;
+            } else {
+                throw new MissingSimulationParametersException("Some fields in the metadata database are not filled in yet." +
+                        "Please make sure that for the provider " + mdProvider + " the field " +
+                        "'cryptoOverheadms' and for the region " + mdRegion + " the field 'networkOverheadms' is filled in correctly.");
+            }
+        }
+
+        if (faasOverhead != 0 && networkOverhead != 0) {
+            return Math.max(avgRTT - networkOverhead - faasOverhead - authenticationOverhead - concurrencyOverhead, 0);
+        } else {
+            throw new MissingSimulationParametersException("Some fields in the metadata database are not filled in yet. " +
+                    "Please make sure that for the provider " + mdProvider + " the field 'faasSystemOverheadms' " +
+                    "and for the region " + mdRegion + " the field 'networkOverheadms' is filled in correctly.");
+        }
+    }
+
+    /**
+     * Returns the MIPS of the CPU per percentile. Every CPU entry covers a range of percentiles, so only one lookup per
+     * entry is needed.
+     */
+    private double[] cpuDistribution(int parallel) {
+        double[] distribution = new double[PERCENTILES];
+        Arrays.fill(distribution, Double.NaN);
+        int percentage = 0;
+        while (percentage < PERCENTILES) {
+            Cpu cpu;
+            try {
+                cpu = provider == Provider.IBM
+                        ? MetadataStore.get().getCpuByProviderAndRegion(provider, region, parallel, percentage)
+                        : MetadataStore.get().getCpuByProvider(provider, parallel, percentage);
+            } catch (DatabaseException e) {
+                cpu = null;
+            }
+            if (cpu == null) {
+                percentage++;
+                continue;
+            }
+            int to = Math.min(Math.max(cpu.getTo_percentage(), percentage + 1), PERCENTILES);
+            Arrays.fill(distribution, percentage, to, cpu.getMips());
+            percentage = to;
+        }
+        return distribution;
+    }
+
+    /**
+     * Returns the number of round trips needed for the authentication at a provider.
+     */
+    static int handshake(Provider provider) {
+        return provider == Provider.AWS ? 3 : 2;
+    }
+
+    /**
+     * Returns the MIPS of the CPU a function gets.
+     *
+     * @param parallel   1 if the function runs within a parallelFor, 0 otherwise
+     * @param percentage the percentile of the CPU distribution between 0 and 99
+     *
+     * @return the MIPS of the CPU.
+     */
+    public double getMips(int parallel, int percentage) {
+        double value = mips == null ? Double.NaN : mips[parallel][percentage];
+        if (Double.isNaN(value)) {
+            throw new DatabaseException("No CPU found with the given specifications.");
+        }
+        return value;
+    }
+
+    /**
+     * Calculates the cost of an execution of the deployment.
+     *
+     * @param runtime the runtime of the execution
+     *
+     * @return the cost of the execution.
+     */
+    public double cost(double runtime) {
+        return cost(provider, memorySize, runtime, invocationCost, unitTimeMs, durationGBpsCost, durationGHzpsCost);
+    }
+
+    /**
+     * Calculates the cost of an execution with the pricing of a provider.
+     *
+     * @param provider          the provider of the executed function
+     * @param memorySize        the memory size of the executed function
+     * @param runtime           the runtime of the executed function
+     * @param invocationCost    the cost of an invocation
+     * @param unitTimeMs        the time unit the runtime is billed in
+     * @param durationGBpsCost  the cost per GB-second
+     * @param durationGHzpsCost the cost per GHz-second, only billed by Google
+     *
+     * @return the cost of the execution.
+     */
+    static double cost(Provider provider, int memorySize, double runtime, double invocationCost, int unitTimeMs,
+                       double durationGBpsCost, double durationGHzpsCost) {
+        runtime = (runtime + (double) unitTimeMs - 1.0) / (double) unitTimeMs * (double) unitTimeMs;
+        double result = invocationCost + (double) memorySize / 1000.0 * (runtime / 1000.0) * durationGBpsCost;
+        if (provider == Provider.GOOGLE) {
+            result += (double) mhz(memorySize) / 1000.0 * (runtime / 1000.0) * durationGHzpsCost;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the clock rate Google Cloud Functions assign to a memory size.
+     */
+    static short mhz(int memorySize) {
+        if (memorySize < 256) {
+            return 200;
+        } else if (memorySize < 512) {
+            return 400;
+        } else if (memorySize < 1024) {
+            return 800;
+        } else if (memorySize < 2048) {
+            return 1400;
+        } else if (memorySize < 4096) {
+            return 2400;
+        }
+        return 4800;
+    }
+
+    /** Getter */
+
+    public Provider getProvider() {
+        return provider;
+    }
+
+    public String getRegion() {
+        return region;
+    }
+
+    public int getMemorySize() {
+        return memorySize;
+    }
+
+    public long getRawExecutionTime() {
+        return rawExecutionTime;
+    }
+
+    public int getFaasOverhead() {
+        return faasOverhead;
+    }
+
+    public int getCryptoOverhead() {
+        return cryptoOverhead;
+    }
+
+    public int getNetworkOverhead() {
+        return networkOverhead;
+    }
+
+    public int getConcurrencyOverhead() {
+        return concurrencyOverhead;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public double getInstructions() {
+        return instructions;
+    }
+
+    public double getSpeedup() {
+        return speedup;
+    }
+}
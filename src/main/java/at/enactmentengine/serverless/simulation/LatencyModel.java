@@ -0,0 +1,195 @@
+package at.enactmentengine.serverless.simulation;
+
+import at.enactmentengine.serverless.logging.ExecutionLogRecord;
+import at.enactmentengine.serverless.logging.FileLogBackend;
+import at.enactmentengine.serverless.logging.TraceReader;
+import at.uibk.dps.util.Event;
+import at.uibk.dps.util.Type;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Empirical latency distributions of function deployments, learned from the round trip times of successful executions
+ * recorded in a trace ({@link TraceReader}) or a log file ({@link FileLogBackend}).
+ * <p>
+ * The distribution of a deployment is relative to its mean, so it can be applied to an execution time of the same
+ * deployment simulated for another region or memory size. With enough samples, it is an inverse-CDF table, and sampling
+ * takes a single interpolated lookup. With only a few samples, a log-normal distribution is fitted instead. Deployments
+ * without samples keep the default normal distribution (see {@link SimulationModel#applyDistribution}).
+ *
+ * @author mikahautz
+ */
+public final class LatencyModel {
+
+    /**
+     * The minimum number of samples needed for an inverse-CDF table, fewer samples are fitted log-normally.
+     */
+    static final int MIN_EMPIRICAL_SAMPLES = 30;
+
+    /**
+     * The number of quantiles in an inverse-CDF table.
+     */
+    static final int QUANTILES = 1025;
+
+    /**
+     * The distributions by the resource link of the deployment.
+     */
+    private final Map<String, Distribution> distributions;
+
+    /**
+     * The latency distribution of a single deployment, normalized to a mean of 1.
+     */
+    static final class Distribution {
+
+        /**
+         * The inverse CDF at equally spaced probabilities, or null if the distribution is log-normal.
+         */
+        private final double[] quantiles;
+
+        /**
+         * The standard deviation of the logarithm of the log-normal distribution.
+         */
+        private final double sigma;
+
+        private Distribution(double[] quantiles, double sigma) {
+            this.quantiles = quantiles;
+            this.sigma = sigma;
+        }
+
+        /**
+         * Learns the distribution of the given round trip times.
+         *
+         * @param rtts the round trip times.
+         *
+         * @return the distribution or null if there are not enough positive samples.
+         */
+        static Distribution fit(double[] rtts) {
+            double[] values = Arrays.stream(rtts).filter(rtt -> rtt > 0).sorted().toArray();
+            if (values.length < 2) {
+                return null;
+            }
+            double mean = Arrays.stream(values).average().orElse(1);
+
+            if (values.length < MIN_EMPIRICAL_SAMPLES) {
+                /* Log-normal with mean 1: exp(mu + sigma * z) with mu = -sigma^2 / 2 */
+                double logMean = 0;
+                for (double value : values) {
+                    logMean += Math.log(value / mean);
+                }
+                logMean /= values.length;
+                double logVariance = 0;
+                for (double value : values) {
+                    double deviation = Math.log(value / mean) - logMean;
+                    logVariance += deviation * deviation;
+                }
+                return new Distribution(null, Math.sqrt(logVariance / (values.length - 1)));
+            }
+
+            double[] quantiles = new double[QUANTILES];
+            for (int i = 0; i < QUANTILES; i++) {
+                double position = (double) i / (QUANTILES - 1) * (values.length - 1);
+                int lower = (int) position;
+                int upper = Math.min(lower + 1, values.length - 1);
+                double value = values[lower] + (position - lower) * (values[upper] - values[lower]);
+                quantiles[i] = value / mean;
+            }
+            return new Distribution(quantiles, 0);
+        }
+
+        /**
+         * Draws a factor the expected latency is multiplied with.
+         *
+         * @param random the random numbers of the simulated function.
+         *
+         * @return the factor.
+         */
+        double sample(SimulationRandom random) {
+            if (quantiles == null) {
+                return Math.exp(sigma * random.nextGaussian() - sigma * sigma / 2);
+            }
+            double position = random.nextDouble() * (QUANTILES - 1);
+            int lower = (int) position;
+            int upper = Math.min(lower + 1, QUANTILES - 1);
+            return quantiles[lower] + (position - lower) * (quantiles[upper] - quantiles[lower]);
+        }
+
+        /**
+         * Returns whether the distribution is an inverse-CDF table.
+         *
+         * @return true for a table, false for a fitted log-normal distribution.
+         */
+        boolean isEmpirical() {
+            return quantiles != null;
+        }
+    }
+
+    private LatencyModel(Map<String, Distribution> distributions) {
+        this.distributions = distributions;
+    }
+
+    /**
+     * Learns the latency distributions of the deployments from the successful executions in the given records.
+     * Simulated records are ignored.
+     *
+     * @param records the recorded executions.
+     *
+     * @return the latency model.
+     */
+    public static LatencyModel fit(List<ExecutionLogRecord> records) {
+        Map<String, List<Long>> rtts = new HashMap<>();
+        for (ExecutionLogRecord record : records) {
+            if (record.getType() == Type.EXEC && record.getEvent() == Event.FUNCTION_END && record.isSuccess()
+                    && record.getResourceLink() != null && record.getRtt() != null) {
+                rtts.computeIfAbsent(record.getResourceLink(), k -> new ArrayList<>()).add(record.getRtt());
+            }
+        }
+        Map<String, Distribution> distributions = new HashMap<>();
+        rtts.forEach((resourceLink, values) -> {
+            Distribution distribution = Distribution.fit(values.stream().mapToDouble(Long::doubleValue).toArray());
+            if (distribution != null) {
+                distributions.put(resourceLink, distribution);
+            }
+        });
+        return new LatencyModel(Collections.unmodifiableMap(distributions));
+    }
+
+    /**
+     * Learns the latency distributions from a trace or a log file.
+     *
+     * @param file the trace or log file with the recorded executions.
+     *
+     * @return the latency model.
+     *
+     * @throws IOException if the file could not be read.
+     */
+    public static LatencyModel load(Path file) throws IOException {
+        return fit(TraceReader.isTrace(file) ? TraceReader.readAll(file) : FileLogBackend.readAll(file));
+    }
+
+    /**
+     * Returns the distribution of a deployment.
+     *
+     * @param resourceLink the resource link of the deployment.
+     *
+     * @return the distribution or null if nothing was recorded for the deployment.
+     */
+    Distribution get(String resourceLink) {
+        return resourceLink == null ? null : distributions.get(resourceLink);
+    }
+
+    /**
+     * Returns the number of deployments with a learned distribution.
+     *
+     * @return the number of deployments.
+     */
+    public int size() {
+        return distributions.size();
+    }
+}
@@ -0,0 +1,248 @@
+package at.enactmentengine.serverless.simulation;
+
+import at.enactmentengine.serverless.tracing.TraceScope;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+
+/**
+ * Collects the round trip times drawn for every function over several simulated replications of a workflow and
+ * determines which functions drive the variance of the makespan.
+ * <p>
+ * Within a replication, the round trip times of all invocations of a function (retries, alternatives and the
+ * iterations of a parallelFor) are added up. For every function the Pearson correlation of this sum with the makespan
+ * is reported, together with its square, the share of the makespan variance that is explained linearly by the function
+ * (the first-order sensitivity index of a linear model).
+ *
+ * @author mikahautz
+ */
+public final class SensitivityAnalysis {
+
+    /**
+     * Flag that determines whether the round trip times of the simulated functions are collected.
+     */
+    public static boolean ENABLED = false;
+
+    /**
+     * The only instance of the analysis.
+     */
+    private static final SensitivityAnalysis INSTANCE = new SensitivityAnalysis();
+
+    /**
+     * The summed round trip times of the functions in the running replication.
+     */
+    private final Map<String, DoubleAdder> current = new ConcurrentHashMap<>();
+
+    /**
+     * The summed round trip times of the functions in all finished replications.
+     */
+    private final List<Map<String, Double>> samples = new ArrayList<>();
+
+    /**
+     * The makespans of all finished replications.
+     */
+    private final List<Double> makespans = new ArrayList<>();
+
+    private SensitivityAnalysis() {
+    }
+
+    /**
+     * Returns the analysis.
+     *
+     * @return the analysis.
+     */
+    public static SensitivityAnalysis get() {
+        return INSTANCE;
+    }
+
+    /**
+     * The sensitivity of the makespan to a single function.
+     */
+    public static final class Index {
+
+        /**
+         * The function, identified by its scope without indices and its name.
+         */
+        private final String function;
+
+        /**
+         * The mean of the summed round trip times of the function.
+         */
+        private final double mean;
+
+        /**
+         * The standard deviation of the summed round trip times of the function.
+         */
+        private final double standardDeviation;
+
+        /**
+         * The correlation of the summed round trip times of the function with the makespan.
+         */
+        private final double correlation;
+
+        Index(String function, double mean, double standardDeviation, double correlation) {
+            this.function = function;
+            this.mean = mean;
+            this.standardDeviation = standardDeviation;
+            this.correlation = correlation;
+        }
+
+        /** Getter */
+
+        public String getFunction() {
+            return function;
+        }
+
+        public double getMean() {
+            return mean;
+        }
+
+        public double getStandardDeviation() {
+            return standardDeviation;
+        }
+
+        public double getCorrelation() {
+            return correlation;
+        }
+
+        /**
+         * Returns the share of the makespan variance explained linearly by the function.
+         *
+         * @return the squared correlation.
+         */
+        public double getFirstOrder() {
+            return correlation * correlation;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: S1=%.3f, r=%.3f, rtt=%.1f+-%.1fms", function, getFirstOrder(), correlation, mean,
+                    standardDeviation);
+        }
+    }
+
+    /**
+     * Forgets all collected replications.
+     */
+    public synchronized void reset() {
+        current.clear();
+        samples.clear();
+        makespans.clear();
+    }
+
+    /**
+     * Records a round trip time drawn for a function if the analysis is enabled.
+     *
+     * @param scope the scope of the function within the workflow.
+     * @param name  the name of the function.
+     * @param rtt   the drawn round trip time.
+     */
+    public void record(String scope, String name, long rtt) {
+        if (ENABLED) {
+            current.computeIfAbsent(key(scope, name), k -> new DoubleAdder()).add(rtt);
+        }
+    }
+
+    /**
+     * Finishes the running replication.
+     *
+     * @param makespan the simulated makespan of the replication.
+     */
+    public synchronized void finishReplication(double makespan) {
+        Map<String, Double> sample = new ConcurrentHashMap<>();
+        current.forEach((function, sum) -> sample.put(function, sum.sum()));
+        current.clear();
+        samples.add(sample);
+        makespans.add(makespan);
+    }
+
+    /**
+     * Computes the sensitivity indices of all functions that were simulated in any replication. Replications in which a
+     * function was not simulated (e.g. a branch that was not taken) count with a round trip time of 0.
+     *
+     * @return the indices ordered by decreasing first-order index.
+     */
+    public synchronized List<Index> analyze() {
+        TreeSet<String> functions = new TreeSet<>();
+        samples.forEach(sample -> functions.addAll(sample.keySet()));
+        int n = makespans.size();
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            y[i] = makespans.get(i);
+        }
+
+        List<Index> indices = new ArrayList<>();
+        for (String function : functions) {
+            double[] x = new double[n];
+            for (int i = 0; i < n; i++) {
+                x[i] = samples.get(i).getOrDefault(function, 0.0);
+            }
+            indices.add(new Index(function, mean(x), Math.sqrt(variance(x)), correlation(x, y)));
+        }
+        indices.sort(Comparator.comparingDouble(Index::getFirstOrder).reversed());
+        return Collections.unmodifiableList(indices);
+    }
+
+    /** Getter */
+
+    public synchronized int getReplications() {
+        return makespans.size();
+    }
+
+    /**
+     * Returns the key of a function, i.e. its scope without branch and iteration indices and its name.
+     */
+    static String key(String scope, String name) {
+        String construct = scope == null ? "" : TraceScope.withoutIndices(scope);
+        return construct.isEmpty() ? name : construct + "/" + name;
+    }
+
+    /**
+     * Returns the Pearson correlation of two samples or 0 if one of them does not vary.
+     */
+    static double correlation(double[] x, double[] y) {
+        double meanX = mean(x);
+        double meanY = mean(y);
+        double covariance = 0;
+        double varianceX = 0;
+        double varianceY = 0;
+        for (int i = 0; i < x.length; i++) {
+            covariance += (x[i] - meanX) * (y[i] - meanY);
+            varianceX += (x[i] - meanX) * (x[i] - meanX);
+            varianceY += (y[i] - meanY) * (y[i] - meanY);
+        }
+        if (varianceX == 0 || varianceY == 0) {
+            return 0;
+        }
+        return covariance / Math.sqrt(varianceX * varianceY);
+    }
+
+    /**
+     * Returns the mean of a sample.
+     */
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return values.length == 0 ? 0 : sum / values.length;
+    }
+
+    /**
+     * Returns the population variance of a sample.
+     */
+    private static double variance(double[] values) {
+        double mean = mean(values);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return values.length == 0 ? 0 : sum / values.length;
+    }
+}
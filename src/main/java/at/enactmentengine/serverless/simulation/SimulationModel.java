@@ -4,17 +4,10 @@ import at.enactmentengine.serverless.exception.MissingComputationalWorkException
 import at.enactmentengine.serverless.exception.MissingSimulationParametersException;
 import at.enactmentengine.serverless.exception.RegionDetectionException;
 import at.enactmentengine.serverless.object.PairResult;
-import at.enactmentengine.serverless.object.Utils;
-import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
-import at.enactmentengine.serverless.simulation.metadata.model.Cpu;
 import at.enactmentengine.serverless.simulation.metadata.model.FunctionDeployment;
-import at.enactmentengine.serverless.simulation.metadata.model.FunctionImplementation;
-import at.enactmentengine.serverless.simulation.metadata.model.Region;
 import at.uibk.dps.util.Provider;
 
 import java.sql.SQLException;
-import java.util.List;
-import java.util.Random;
 
 /**
  * Class that handles the simulation of the round trip time of a function based on various parameters.
@@ -28,16 +21,6 @@ public class SimulationModel {
      */
     private final FunctionDeployment functionDeployment;
 
-    /**
-     * The average RTT from the functionDeployment.
-     */
-    private long avgRTT;
-
-    /**
-     * The average loop counter from the functionDeployment.
-     */
-    private int avgLoopCounter;
-
     /**
      * The provider to simulate.
      */
@@ -54,14 +37,19 @@ public class SimulationModel {
     private int memorySize;
 
     /**
-     * The memory of the functionDeployment.
+     * The loopCounter of the simulationNode.
      */
-    private int fdMemorySize;
+    private int loopCounter;
 
     /**
-     * The loopCounter of the simulationNode.
+     * The random numbers of the simulated function.
      */
-    private int loopCounter;
+    private final SimulationRandom random;
+
+    /**
+     * The learned latency distributions or null if the default normal distribution is used.
+     */
+    private final LatencyModel latencyModel;
 
     /**
      * Constructs the SimulationModel object.
@@ -71,18 +59,37 @@ public class SimulationModel {
      * @param region             the region to simulate in
      * @param memorySize         the memorySize to simulate for
      * @param loopCounter        the current loopCounter of the function to simulate
+     * @param random             the random numbers of the function to simulate
+     *
+     * @throws SQLException if an error occurs when reading fields from the database entry
+     */
+    public SimulationModel(FunctionDeployment functionDeployment, Provider provider, String region, int memorySize, int loopCounter,
+                           SimulationRandom random) throws SQLException {
+        this(functionDeployment, provider, region, memorySize, loopCounter, random, null);
+    }
+
+    /**
+     * Constructs the SimulationModel object with learned latency distributions.
+     *
+     * @param functionDeployment the database entry for the functionDeployment to simulate
+     * @param provider           the provider to simulate
+     * @param region             the region to simulate in
+     * @param memorySize         the memorySize to simulate for
+     * @param loopCounter        the current loopCounter of the function to simulate
+     * @param random             the random numbers of the function to simulate
+     * @param latencyModel       the learned latency distributions or null
      *
      * @throws SQLException if an error occurs when reading fields from the database entry
      */
-    public SimulationModel(FunctionDeployment functionDeployment, Provider provider, String region, int memorySize, int loopCounter) throws SQLException {
+    public SimulationModel(FunctionDeployment functionDeployment, Provider provider, String region, int memorySize, int loopCounter,
+                           SimulationRandom random, LatencyModel latencyModel) throws SQLException {
         this.functionDeployment = functionDeployment;
         this.provider = provider;
         this.region = region;
         this.memorySize = memorySize;
         this.loopCounter = loopCounter;
-        avgRTT = functionDeployment.getAvgRTT().longValue();
-        avgLoopCounter = functionDeployment.getAvgLoopCounter();
-        fdMemorySize = functionDeployment.getMemorySize();
+        this.random = random;
+        this.latencyModel = latencyModel;
     }
 
     /**
@@ -91,101 +98,59 @@ public class SimulationModel {
      *
      * @param executionTime to apply the distribution on
      * @param success       whether the simulation is successful or not
+     * @param random        the random numbers of the simulated function
      *
      * @return the execution time with the applied distribution
      */
-    public static long applyDistribution(long executionTime, boolean success) {
-        if (success && !SimulationParameters.NO_DISTRIBUTION) {
-            // calculate the time as usual
-            Random r = new Random();
-            executionTime = (long) (r.nextGaussian() * (executionTime * 0.01) + executionTime);
-        } else if (!success){
-            // get a random double between 0 and 1
-            Random random = new Random();
-            executionTime *= random.nextDouble();
-        }
-        return executionTime;
+    public static long applyDistribution(long executionTime, boolean success, SimulationRandom random) {
+        return applyDistribution(executionTime, success, random, null, null);
     }
 
     /**
-     * Subtracts the overheads from the RTT stored in the MD.
+     * Applies the latency distribution of a deployment to the given execution time if the parameter success is true.
+     * If an empirical distribution was learned for the deployment (see {@link LatencyModel}), it is used instead of the
+     * normal distribution. If success is false, it randomly multiplies the execution time with a value between 0 and 1.
      *
-     * @return the raw execution time of the function
+     * @param executionTime to apply the distribution on
+     * @param success       whether the simulation is successful or not
+     * @param random        the random numbers of the simulated function
+     * @param latencyModel  the learned latency distributions, may be null
+     * @param resourceLink  the resource link of the deployment whose latencies were recorded, may be null
      *
-     * @throws SQLException                         if an error occurs when reading fields from the database entry
-     * @throws RegionDetectionException             if detecting the region from the resource link fails
-     * @throws MissingSimulationParametersException if not all required fields are filled in in the database
+     * @return the execution time with the applied distribution
      */
-    private long getRawExecutionTime() throws SQLException, MissingSimulationParametersException, RegionDetectionException {
-        // if the field 'avgRuntime' has a value set, simply use it
-        double avgRuntime = functionDeployment.getAvgRuntime();
-        if (avgRuntime > 1) {
-            return (long) avgRuntime;
-        }
-
-        String functionId = functionDeployment.getKmsArn();
-        Provider mdProvider = Utils.detectProvider(functionId);
-        String mdRegion = Utils.detectRegion(functionId);
-
-        at.enactmentengine.serverless.simulation.metadata.model.Provider mdProviderEntry = MetadataStore.get().getProviderEntry(mdProvider);
-        Region mdRegionEntry = MetadataStore.get().getRegionEntry(mdRegion, mdProvider);
-
-        int faasOverhead = mdProviderEntry.getFaasSystemOverheadms();
-        int cryptoOverhead = mdProviderEntry.getCryptoOverheadms();
-        int networkOverhead = mdRegionEntry.getNetworkOverheadms().intValue();
-        int concurrencyOverhead = mdProviderEntry.getConcurrencyOverheadMs();
-        int handshake = 0;
-        int authenticationOverhead = 0;
-
-        if (avgLoopCounter != 0 && concurrencyOverhead != 0) {
-            concurrencyOverhead *= avgLoopCounter;
-        }
-
-        if (mdProvider == Provider.AWS || mdProvider == Provider.IBM) {
-            if (mdProvider == Provider.AWS) {
-                handshake = 3;
-            } else {
-                handshake = 2;
-            }
-
-            if (cryptoOverhead != 0 && networkOverhead != 0) {
-                authenticationOverhead = cryptoOverhead + handshake * networkOverhead;
-            } else {
-                throw new MissingSimulationParametersException("Some fields in the metadata database are not filled in yet." +
-                        "Please make sure that for the provider " + provider.toString() + " the field " +
-                        "'cryptoOverheadms' and for the region " + region + " the field 'networkOverheadms' is filled in correctly.");
-            }
-        }
-
-        if (faasOverhead != 0 && networkOverhead != 0) {
-            return Math.max(avgRTT - networkOverhead - faasOverhead - authenticationOverhead - concurrencyOverhead, 0);
-        } else {
-            throw new MissingSimulationParametersException("Some fields in the metadata database are not filled in yet. " +
-                    "Please make sure that for the provider " + provider.toString() + " the field 'faasSystemOverheadms' " +
-                    "and for the region " + region + " the field 'networkOverheadms' is filled in correctly.");
+    public static long applyDistribution(long executionTime, boolean success, SimulationRandom random,
+                                         LatencyModel latencyModel, String resourceLink) {
+        LatencyModel.Distribution distribution = latencyModel == null ? null : latencyModel.get(resourceLink);
+        if (success && !SimulationParameters.NO_DISTRIBUTION && distribution != null) {
+            executionTime = (long) (executionTime * distribution.sample(random));
+        } else if (success && !SimulationParameters.NO_DISTRIBUTION) {
+            // calculate the time as usual
+            executionTime = (long) (random.nextGaussian() * (executionTime * 0.01) + executionTime);
+        } else if (!success){
+            // get a random double between 0 and 1
+            executionTime *= random.nextDouble();
         }
+        return executionTime;
     }
 
     /**
      * Adds the required overheads to the given execution time to get the final round-trip time.
      *
+     * @param parameters    the parameters of the simulated deployment
      * @param executionTime to add the overheads to
      *
      * @return the overall round-trip time
      *
-     * @throws SQLException                         if an error occurs when reading fields from the database entry
      * @throws MissingSimulationParametersException if not all required fields are filled in in the database
      */
-    private long addOverheads(long executionTime) throws SQLException, MissingSimulationParametersException {
+    private long addOverheads(DeploymentParameters parameters, long executionTime) throws MissingSimulationParametersException {
         // O = xcs · CSO + NO + xa · AO + F O + CO
 
-        at.enactmentengine.serverless.simulation.metadata.model.Provider providerEntry = MetadataStore.get().getProviderEntry(provider);
-        Region regionEntry = MetadataStore.get().getRegionEntry(region, provider);
-
-        int faasOverhead = providerEntry.getFaasSystemOverheadms();
-        int cryptoOverhead = providerEntry.getCryptoOverheadms();
-        int networkOverhead = regionEntry.getNetworkOverheadms().intValue();
-        int concurrencyOverhead = providerEntry.getConcurrencyOverheadMs();
+        int faasOverhead = parameters.getFaasOverhead();
+        int cryptoOverhead = parameters.getCryptoOverhead();
+        int networkOverhead = parameters.getNetworkOverhead();
+        int concurrencyOverhead = parameters.getConcurrencyOverhead();
 
         if (faasOverhead != 0 && cryptoOverhead != 0 && networkOverhead != 0) {
             long rtt = executionTime + networkOverhead + faasOverhead;
@@ -194,15 +159,8 @@ public class SimulationModel {
                 rtt += (long) loopCounter * concurrencyOverhead;
             }
 
-            int handshake = 0;
             if (provider == Provider.AWS || provider == Provider.IBM) {
-                if (provider == Provider.AWS) {
-                    handshake = 3;
-                } else {
-                    handshake = 2;
-                }
-
-                int authenticationOverhead = cryptoOverhead + handshake * networkOverhead;
+                int authenticationOverhead = cryptoOverhead + DeploymentParameters.handshake(provider) * networkOverhead;
                 // if authentication is required, add it to the RTT
                 rtt += authenticationOverhead;
             }
@@ -218,57 +176,29 @@ public class SimulationModel {
     /**
      * Estimates the execution time based on the computational work and memory size.
      *
+     * @param parameters the parameters of the simulated deployment
+     *
      * @return the estimated execution time
      *
-     * @throws SQLException                      if an error occurs when reading fields from the database entry
      * @throws MissingComputationalWorkException when the field computationWork for the functionImplementation is not
      *                                           filled
      */
-    private long estimateExecutionTime() throws SQLException, MissingComputationalWorkException {
-        long implementationId = functionDeployment.getFunctionImplementationId();
-        FunctionImplementation implementation = MetadataStore.get().getImplementationById(implementationId);
-        double instructions = implementation.getComputationWork();
+    private long estimateExecutionTime(DeploymentParameters parameters) throws MissingComputationalWorkException {
+        double instructions = parameters.getInstructions();
         if (instructions == 0) {
             throw new MissingComputationalWorkException("No computational work is given for the functionImplementation " +
-                    "with the id " + implementationId + ". Therefore simulating different memory sizes is not possible.");
-        }
-        List<FunctionDeployment> sameMemoryDeployment = MetadataStore.get().getDeploymentsWithImplementationIdAndMemorySize(implementationId, memorySize);
-        double speedup = 0;
-        if (sameMemoryDeployment != null && !sameMemoryDeployment.isEmpty()) {
-            speedup = sameMemoryDeployment.get(0).getSpeedup();
-        }
-        /* The speedup is always measured against the deployment with 128mb ram. If it is NULL, it is assumed
-         there is linear speedup relative to 128mb. (e.g. 256mb -> 2, 512mb -> 4, 1024mb -> 8, etc */
-        if (speedup == 0) {
-            speedup = memorySize / 128.0;
+                    "with the id " + functionDeployment.getFunctionImplementationId() + ". Therefore simulating different " +
+                    "memory sizes is not possible.");
         }
         // get a random double between 0 and 1
-        Random random = new Random();
         int randomValue = (int) (random.nextDouble() * 100);
         int parallel = loopCounter == -1 ? 0 : 1;
-        Cpu cpu = null;
-
-        switch (provider) {
-            case AWS:
-                cpu = MetadataStore.get().getCpuByProvider(provider, parallel, randomValue);
-                break;
-            case GOOGLE:
-                at.enactmentengine.serverless.simulation.metadata.model.Provider providerEntry = MetadataStore.get().getProviderEntry(provider);
-                int maxConcurrency = providerEntry.getMaxConcurrency();
-                // if the loopCounter is smaller than the concurrency limit, use the sequential CPU
-                if (loopCounter < maxConcurrency) {
-                    parallel = 0;
-                }
-                cpu = MetadataStore.get().getCpuByProvider(provider, parallel, randomValue);
-                break;
-            case IBM:
-                cpu = MetadataStore.get().getCpuByProviderAndRegion(provider, region, parallel, randomValue);
-                break;
-            default:
-                break;
+        // if the loopCounter is smaller than the concurrency limit, google uses the sequential CPU
+        if (provider == Provider.GOOGLE && loopCounter < parameters.getMaxConcurrency()) {
+            parallel = 0;
         }
-        double mips = cpu.getMips();
-        double runtimeInSeconds = instructions / mips / speedup;
+        double mips = parameters.getMips(parallel, randomValue);
+        double runtimeInSeconds = instructions / mips / parameters.getSpeedup();
         return (long) (runtimeInSeconds * 1000);
     }
 
@@ -287,60 +217,41 @@ public class SimulationModel {
      */
     public PairResult<Long, Double> simulateRoundTripTime(boolean success) throws SQLException, RegionDetectionException,
             MissingComputationalWorkException, MissingSimulationParametersException {
-        long executionTime;
-
-        if (memorySize == fdMemorySize) {
-            executionTime = getRawExecutionTime();
-        } else {
-            executionTime = estimateExecutionTime();
-        }
+        DeploymentParameters parameters = DeploymentParameters.of(functionDeployment, provider, region, memorySize);
+        long executionTime = executionTime(parameters);
 
-        executionTime = applyDistribution(executionTime, success);
-        double cost = calculateCost(memorySize, executionTime, provider);
-        SimulationParameters.workflowCost += cost;
-        long rtt = addOverheads(executionTime);
+        executionTime = applyDistribution(executionTime, success, random, latencyModel, functionDeployment.getKmsArn());
+        double cost = parameters.cost(executionTime);
+        long rtt = addOverheads(parameters, executionTime);
 
         return new PairResult<>(rtt, cost);
     }
 
     /**
-     * Calculates the cost of execution.
+     * Returns the round trip time and cost of a successful execution without applying a distribution.
      *
-     * @param memorySize the memory size of the executed function
-     * @param runtime    the runtime of the executed function
-     * @param provider   the provider of the executed function
+     * @return a PairResult consisting of the expected round trip time and cost
      *
-     * @return the total cost of the executed function
+     * @throws SQLException                         if an error occurs when reading fields from the database entry
+     * @throws RegionDetectionException             if detecting the region from the resource link fails
+     * @throws MissingComputationalWorkException    when the field computationWork for the functionImplementation is not
+     *                                              filled
+     * @throws MissingSimulationParametersException if not all required fields are filled in in the database
      */
-    private double calculateCost(int memorySize, double runtime, Provider provider) {
-        at.enactmentengine.serverless.simulation.metadata.model.Provider providerEntry = MetadataStore.get().getProviderEntry(provider);
-        double result = -1.0;
-
-        if (providerEntry != null) {
-            int roundTo = providerEntry.getUnitTimems();
-            runtime = (runtime + (double) roundTo - 1.0) / (double) roundTo * (double) roundTo;
-            result = providerEntry.getInvocationCost() + (double) memorySize / 1000.0 * (runtime / 1000.0) * providerEntry.getDurationGBpsCost();
-            if (provider == Provider.GOOGLE) {
-                short mhz;
-                if (memorySize < 256) {
-                    mhz = 200;
-                } else if (memorySize < 512) {
-                    mhz = 400;
-                } else if (memorySize < 1024) {
-                    mhz = 800;
-                } else if (memorySize < 2048) {
-                    mhz = 1400;
-                } else if (memorySize < 4096) {
-                    mhz = 2400;
-                } else {
-                    mhz = 4800;
-                }
-
-                result += (double) mhz / 1000.0 * (runtime / 1000.0) * providerEntry.getDurationGHzpsCost();
-            }
-        }
+    public PairResult<Long, Double> expectedRoundTripTime() throws SQLException, RegionDetectionException,
+            MissingComputationalWorkException, MissingSimulationParametersException {
+        DeploymentParameters parameters = DeploymentParameters.of(functionDeployment, provider, region, memorySize);
+        long executionTime = executionTime(parameters);
+        double cost = parameters.cost(executionTime);
+        return new PairResult<>(addOverheads(parameters, executionTime), cost);
+    }
 
-        return result;
+    /**
+     * Returns the execution time of the function without overheads, either derived from the measured RTT or estimated
+     * from the computational work if a different memory size is simulated.
+     */
+    private long executionTime(DeploymentParameters parameters) throws MissingComputationalWorkException {
+        return parameters.getRawExecutionTime() != -1 ? parameters.getRawExecutionTime() : estimateExecutionTime(parameters);
     }
 
 }
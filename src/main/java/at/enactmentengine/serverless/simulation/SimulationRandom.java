@@ -0,0 +1,137 @@
+package at.enactmentengine.serverless.simulation;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The random numbers used when simulating a single function. If {@link SimulationParameters#SEED} is set, every
+ * function draws from its own stream derived from the seed, its scope, its name and its loop counter, so the same seed
+ * gives the same numbers regardless of the order in which the threads simulate the functions. Otherwise the numbers are
+ * drawn from the {@link ThreadLocalRandom} of the simulating thread.
+ *
+ * @author mikahautz
+ */
+public final class SimulationRandom {
+
+    /**
+     * The stream of the function or null if no seed is set.
+     */
+    private final SplittableRandom random;
+
+    /**
+     * A second gaussian value computed together with the last one.
+     */
+    private double nextGaussian;
+
+    /**
+     * Whether {@link #nextGaussian} holds a value.
+     */
+    private boolean haveNextGaussian;
+
+    /**
+     * Whether the expected values are returned instead of random ones.
+     */
+    private final boolean expected;
+
+    private SimulationRandom(SplittableRandom random) {
+        this(random, false);
+    }
+
+    private SimulationRandom(SplittableRandom random, boolean expected) {
+        this.random = random;
+        this.expected = expected;
+    }
+
+    /**
+     * Returns the random numbers for a function.
+     *
+     * @param scope       the scope of the function within the workflow.
+     * @param name        the name of the function.
+     * @param loopCounter the loop counter of the function or -1 if it is not within a parallelFor.
+     *
+     * @return the random numbers.
+     */
+    public static SimulationRandom forFunction(String scope, String name, int loopCounter) {
+        Long seed = SimulationParameters.SEED;
+        if (seed == null) {
+            return new SimulationRandom(null);
+        }
+        return new SimulationRandom(new SplittableRandom(seed ^ hash(scope + "/" + name + "#" + loopCounter)));
+    }
+
+    /**
+     * Returns random numbers which do not depend on a seed.
+     *
+     * @return the random numbers.
+     */
+    public static SimulationRandom unseeded() {
+        return new SimulationRandom(null);
+    }
+
+    /**
+     * Returns "random" numbers which always are the expected value of their distribution, i.e. 0.5 for uniformly and 0
+     * for normally distributed values.
+     *
+     * @return the expected numbers.
+     */
+    public static SimulationRandom expected() {
+        return new SimulationRandom(null, true);
+    }
+
+    /**
+     * Returns a uniformly distributed value between 0 (inclusive) and 1 (exclusive).
+     *
+     * @return the random value.
+     */
+    public double nextDouble() {
+        if (expected) {
+            return 0.5;
+        }
+        return random == null ? ThreadLocalRandom.current().nextDouble() : random.nextDouble();
+    }
+
+    /**
+     * Returns a normally distributed value with mean 0 and standard deviation 1.
+     *
+     * @return the random value.
+     */
+    public double nextGaussian() {
+        if (expected) {
+            return 0;
+        }
+        if (random == null) {
+            return ThreadLocalRandom.current().nextGaussian();
+        }
+
+        /* Polar method as used by java.util.Random, which SplittableRandom does not provide */
+        if (haveNextGaussian) {
+            haveNextGaussian = false;
+            return nextGaussian;
+        }
+        double v1;
+        double v2;
+        double s;
+        do {
+            v1 = 2 * random.nextDouble() - 1;
+            v2 = 2 * random.nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        nextGaussian = v2 * multiplier;
+        haveNextGaussian = true;
+        return v1 * multiplier;
+    }
+
+    /**
+     * Returns a 64-bit FNV-1a hash of the given key.
+     */
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,59 @@
+package at.enactmentengine.serverless.simulation;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The simulated clock of a single simulation of a workflow. Functions without a predecessor start at the start of the
+ * workflow, every simulated entry reports its start time and duration, so the makespan of the workflow can be derived
+ * without reading the logs back from the database.
+ *
+ * @author mikahautz
+ */
+public final class SimulationTimeline {
+
+    /**
+     * The start time of the workflow.
+     */
+    private volatile long workflowStart;
+
+    /**
+     * The latest end time of all recorded entries.
+     */
+    private final AtomicLong lastEnd = new AtomicLong();
+
+    /**
+     * Default constructor for the timeline of a simulation.
+     */
+    public SimulationTimeline() {
+    }
+
+    /**
+     * Sets the start of the workflow.
+     *
+     * @param workflowStart the start time of the workflow.
+     */
+    public void start(long workflowStart) {
+        this.workflowStart = workflowStart;
+        lastEnd.set(workflowStart);
+    }
+
+    /**
+     * Records a simulated entry.
+     *
+     * @param start       the simulated start time of the entry.
+     * @param duration    the simulated duration of the entry.
+     */
+    public void record(long start, long duration) {
+        lastEnd.accumulateAndGet(start + duration, Math::max);
+    }
+
+    /** Getter */
+
+    public long getWorkflowStart() {
+        return workflowStart;
+    }
+
+    public long getLastEnd() {
+        return lastEnd.get();
+    }
+}
@@ -21,6 +21,15 @@ public class MetadataStore implements DataStore {
         return MetadataStore.INSTANCE;
     }
 
+    /**
+     * Reads the metadata from the given provider instead of the metadata files or the database, e.g. in tests.
+     *
+     * @param dataProvider the provider to use or null to select it again on the next access.
+     */
+    public static synchronized void use(DataProvider dataProvider) {
+        MetadataStore.INSTANCE = dataProvider == null ? null : new MetadataStore(dataProvider);
+    }
+
     private MetadataStore(DataProvider dataProvider) {
         this.dataProvider = dataProvider;
     }
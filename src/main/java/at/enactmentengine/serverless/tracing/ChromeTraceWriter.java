@@ -0,0 +1,150 @@
+package at.enactmentengine.serverless.tracing;
+
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes the spans of a workflow in the Chrome Trace Event format, which can be opened with chrome://tracing or
+ * Perfetto. Every function is a complete event on the lane of its parallel branch or parallelFor iteration. The
+ * constructs (parallel, parallelFor, if, switch) and the workflow itself are added as events covering all spans
+ * inside them and are placed on the lane of the enclosing scope, so they are shown as parents of the sequential
+ * functions around them.
+ *
+ * @author mikahautz
+ */
+public class ChromeTraceWriter {
+
+    /**
+     * The process id used for all events.
+     */
+    private static final int PID = 1;
+
+    private ChromeTraceWriter() {
+    }
+
+    /**
+     * Writes the given spans to a file.
+     *
+     * @param spans the spans ordered by their start time.
+     * @param file  the file to write.
+     *
+     * @throws IOException if the file could not be written.
+     */
+    public static void write(List<Span> spans, Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            write(spans, writer);
+        }
+    }
+
+    /**
+     * Writes the given spans.
+     *
+     * @param spans  the spans ordered by their start time.
+     * @param writer the writer to write to.
+     *
+     * @throws IOException if writing fails.
+     */
+    public static void write(List<Span> spans, Writer writer) throws IOException {
+        long origin = spans.isEmpty() ? 0 : Long.MAX_VALUE;
+        long end = 0;
+        for (Span span : spans) {
+            origin = Math.min(origin, span.getStart());
+            end = Math.max(end, span.getEnd());
+        }
+
+        /* Compute the time covered by every construct */
+        Map<String, long[]> constructs = new LinkedHashMap<>();
+        Map<String, Integer> lanes = new LinkedHashMap<>();
+        lanes.put("", 0);
+        for (Span span : spans) {
+            lanes.computeIfAbsent(TraceScope.lane(span.getScope()), l -> lanes.size());
+            String scope = span.getScope();
+            while (!scope.isEmpty()) {
+                long[] bounds = constructs.computeIfAbsent(TraceScope.construct(scope),
+                        s -> new long[]{Long.MAX_VALUE, Long.MIN_VALUE});
+                bounds[0] = Math.min(bounds[0], span.getStart());
+                bounds[1] = Math.max(bounds[1], span.getEnd());
+                scope = TraceScope.exit(scope);
+                lanes.computeIfAbsent(TraceScope.lane(scope), l -> lanes.size());
+            }
+        }
+
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("displayTimeUnit").value("ms");
+        json.name("traceEvents").beginArray();
+
+        /* Name the lanes */
+        for (Map.Entry<String, Integer> lane : lanes.entrySet()) {
+            json.beginObject();
+            json.name("name").value("thread_name");
+            json.name("ph").value("M");
+            json.name("pid").value(PID);
+            json.name("tid").value(lane.getValue());
+            json.name("args").beginObject().name("name").value(lane.getKey().isEmpty() ? "main" : lane.getKey())
+                    .endObject();
+            json.endObject();
+        }
+
+        if (!spans.isEmpty()) {
+            event(json, "workflow", "workflow", 0, origin, end, null);
+        }
+        for (Map.Entry<String, long[]> construct : constructs.entrySet()) {
+            String id = construct.getKey();
+            int lane = lanes.get(TraceScope.lane(TraceScope.exit(id)));
+            event(json, TraceScope.name(id), "construct", lane, construct.getValue()[0] - origin,
+                    construct.getValue()[1] - origin, null);
+        }
+        for (Span span : spans) {
+            Map<String, Object> args = new LinkedHashMap<>();
+            args.put("resource", span.getResourceLink());
+            args.put("loop", span.getLoopCounter());
+            args.put("success", span.isSuccess());
+            event(json, span.getName(), "function", lanes.get(TraceScope.lane(span.getScope())),
+                    span.getStart() - origin, span.getEnd() - origin, args);
+        }
+
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Writes a complete event.
+     */
+    private static void event(JsonWriter json, String name, String category, int lane, long start, long end,
+                              Map<String, Object> args) throws IOException {
+        json.beginObject();
+        json.name("name").value(name);
+        json.name("cat").value(category);
+        json.name("ph").value("X");
+        json.name("pid").value(PID);
+        json.name("tid").value(lane);
+        json.name("ts").value(start * 1000);
+        json.name("dur").value((end - start) * 1000);
+        if (args != null) {
+            json.name("args").beginObject();
+            for (Map.Entry<String, Object> arg : args.entrySet()) {
+                json.name(arg.getKey());
+                Object value = arg.getValue();
+                if (value instanceof Number) {
+                    json.value((Number) value);
+                } else if (value instanceof Boolean) {
+                    json.value((Boolean) value);
+                } else {
+                    json.value(value == null ? null : value.toString());
+                }
+            }
+            json.endObject();
+        }
+        json.endObject();
+    }
+}
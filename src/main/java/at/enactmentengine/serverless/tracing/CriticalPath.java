@@ -0,0 +1,268 @@
+package at.enactmentengine.serverless.tracing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the critical path and the slack of every function of an executed or simulated workflow from its recorded
+ * spans. The spans form a DAG through their predecessors; unrolled parallelFor iterations are separate spans and only
+ * the taken branches of if and switch constructs were recorded.
+ * <p>
+ * The analysis works on the recorded times: a span becomes ready when its last predecessor finished, the time until it
+ * actually started (scheduling, throttling, engine overhead) is its wait. Each span therefore weighs its wait plus its
+ * duration. The slack of a span is how much later it could have finished without delaying the end of the workflow;
+ * spans without slack form the critical path.
+ *
+ * @author mikahautz
+ */
+public final class CriticalPath {
+
+    /**
+     * The analysed spans ordered by their start time.
+     */
+    private final List<Entry> entries;
+
+    /**
+     * The spans on the critical path from the first to the last.
+     */
+    private final List<Entry> path;
+
+    /**
+     * The time from the first start to the last end in milliseconds.
+     */
+    private final long makespan;
+
+    /**
+     * The result of the analysis for a single span.
+     */
+    public static final class Entry {
+
+        /**
+         * The analysed span.
+         */
+        private final Span span;
+
+        /**
+         * The time between the end of the last predecessor and the start of the span.
+         */
+        private long wait;
+
+        /**
+         * The latest time the span could have finished without delaying the workflow.
+         */
+        private long latestFinish = Long.MAX_VALUE;
+
+        /**
+         * The entry of the predecessor which finished last.
+         */
+        private Entry criticalPredecessor;
+
+        /**
+         * Whether the span is on the critical path.
+         */
+        private boolean onPath;
+
+        /**
+         * The entries of the spans depending on this span.
+         */
+        private final List<Entry> successors = new ArrayList<>();
+
+        private Entry(Span span) {
+            this.span = span;
+        }
+
+        /** Getter */
+
+        public Span getSpan() {
+            return span;
+        }
+
+        public long getWait() {
+            return wait;
+        }
+
+        public long getSlack() {
+            return latestFinish - span.getEnd();
+        }
+
+        public boolean isCritical() {
+            return getSlack() == 0;
+        }
+    }
+
+    private CriticalPath(List<Entry> entries, List<Entry> path, long makespan) {
+        this.entries = entries;
+        this.path = path;
+        this.makespan = makespan;
+    }
+
+    /**
+     * Analyses the given spans.
+     *
+     * @param spans the recorded spans of a workflow.
+     *
+     * @return the critical path.
+     */
+    public static CriticalPath analyze(List<Span> spans) {
+        if (spans.isEmpty()) {
+            return new CriticalPath(Collections.emptyList(), Collections.emptyList(), 0);
+        }
+
+        /* Predecessors are recorded before their successors, so the ids are a topological order */
+        List<Entry> ordered = new ArrayList<>(spans.size());
+        Map<Integer, Entry> byId = new HashMap<>();
+        for (Span span : spans) {
+            Entry entry = new Entry(span);
+            ordered.add(entry);
+            byId.put(span.getId(), entry);
+        }
+        ordered.sort(Comparator.comparingInt(e -> e.span.getId()));
+
+        long origin = Long.MAX_VALUE;
+        long end = Long.MIN_VALUE;
+        for (Entry entry : ordered) {
+            origin = Math.min(origin, entry.span.getStart());
+            end = Math.max(end, entry.span.getEnd());
+        }
+
+        /* Forward pass: the time each span became ready */
+        for (Entry entry : ordered) {
+            long ready = origin;
+            for (int id : entry.span.getPredecessors()) {
+                Entry predecessor = byId.get(id);
+                if (predecessor != null) {
+                    predecessor.successors.add(entry);
+                    if (entry.criticalPredecessor == null || predecessor.span.getEnd() > ready) {
+                        ready = Math.max(ready, predecessor.span.getEnd());
+                        entry.criticalPredecessor = predecessor;
+                    }
+                }
+            }
+            entry.wait = Math.max(0, entry.span.getStart() - ready);
+        }
+
+        /* Backward pass: the latest finish time of each span */
+        for (int i = ordered.size() - 1; i >= 0; i--) {
+            Entry entry = ordered.get(i);
+            if (entry.successors.isEmpty()) {
+                entry.latestFinish = end;
+            }
+            for (Entry successor : entry.successors) {
+                long latestStart = successor.latestFinish - successor.span.getDuration() - successor.wait;
+                entry.latestFinish = Math.min(entry.latestFinish, latestStart);
+            }
+        }
+
+        /* Follow the latest predecessors back from the span finishing last */
+        List<Entry> path = new ArrayList<>();
+        Entry last = null;
+        for (Entry entry : ordered) {
+            if (last == null || entry.span.getEnd() > last.span.getEnd()) {
+                last = entry;
+            }
+        }
+        for (Entry entry = last; entry != null; entry = entry.criticalPredecessor) {
+            entry.onPath = true;
+            path.add(entry);
+        }
+        Collections.reverse(path);
+
+        ordered.sort(Comparator.comparingLong((Entry e) -> e.span.getStart()).thenComparingInt(e -> e.span.getId()));
+        return new CriticalPath(ordered, path, end - origin);
+    }
+
+    /**
+     * Returns the result for every span ordered by the start time.
+     *
+     * @return the entries.
+     */
+    public List<Entry> getEntries() {
+        return entries;
+    }
+
+    /**
+     * Returns the spans of the critical path from the first to the last.
+     *
+     * @return the critical path.
+     */
+    public List<Entry> getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the time from the first start to the last end.
+     *
+     * @return the makespan in milliseconds.
+     */
+    public long getMakespan() {
+        return makespan;
+    }
+
+    /**
+     * Returns the share of the makespan spent in the given span, which is 0 if the span is not on the critical path.
+     *
+     * @param entry the entry of the span.
+     *
+     * @return the contribution between 0 and 1.
+     */
+    public double getContribution(Entry entry) {
+        if (makespan == 0 || !entry.onPath) {
+            return 0;
+        }
+        return (double) entry.span.getDuration() / makespan;
+    }
+
+    /**
+     * Returns a human readable report of the analysis.
+     *
+     * @return the report.
+     */
+    public String toReport() {
+        StringBuilder report = new StringBuilder();
+        long functionTime = 0;
+        long waitTime = 0;
+        Map<String, Long> perFunction = new LinkedHashMap<>();
+        for (Entry entry : path) {
+            functionTime += entry.span.getDuration();
+            waitTime += entry.wait;
+            perFunction.merge(entry.span.getName(), entry.span.getDuration(), Long::sum);
+        }
+        report.append(String.format("Makespan: %d ms, critical path: %d functions, %d ms in functions, %d ms waiting%n",
+                makespan, path.size(), functionTime, waitTime));
+
+        report.append(String.format("%nCritical path:%n"));
+        for (Entry entry : path) {
+            report.append(String.format("  %s%s (%d ms, waited %d ms, %.1f%%)%n", entry.span.getName(),
+                    loop(entry), entry.span.getDuration(), entry.wait, 100 * getContribution(entry)));
+        }
+
+        report.append(String.format("%nContribution to makespan by function:%n"));
+        perFunction.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(e -> report.append(String.format("  %-30s %8d ms %6.1f%%%n", e.getKey(), e.getValue(),
+                        makespan == 0 ? 0.0 : 100.0 * e.getValue() / makespan)));
+
+        report.append(String.format("%n%-30s %6s %10s %10s %10s %10s %8s%n", "function", "loop", "start", "duration",
+                "wait", "slack", "critical"));
+        long origin = entries.isEmpty() ? 0 : entries.get(0).span.getStart();
+        for (Entry entry : entries) {
+            report.append(String.format("%-30s %6s %10d %10d %10d %10d %8s%n", entry.span.getName(),
+                    entry.span.getLoopCounter() < 0 ? "" : String.valueOf(entry.span.getLoopCounter()),
+                    entry.span.getStart() - origin, entry.span.getDuration(), entry.wait, entry.getSlack(),
+                    entry.isCritical() ? "yes" : ""));
+        }
+        return report.toString();
+    }
+
+    /**
+     * Returns the loop counter of the entry for the report.
+     */
+    private static String loop(Entry entry) {
+        return entry.span.getLoopCounter() < 0 ? "" : "[" + entry.span.getLoopCounter() + "]";
+    }
+}
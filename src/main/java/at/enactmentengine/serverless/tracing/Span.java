@@ -0,0 +1,122 @@
+package at.enactmentengine.serverless.tracing;
+
+/**
+ * A single function invocation or simulation on the timeline of a workflow.
+ *
+ * @author mikahautz
+ */
+public final class Span {
+
+    /**
+     * The identifier of the span.
+     */
+    private final int id;
+
+    /**
+     * The identifiers of the spans which had to finish before this span could start.
+     */
+    private final int[] predecessors;
+
+    /**
+     * The name of the function.
+     */
+    private final String name;
+
+    /**
+     * The construct path of the function (see {@link TraceScope}).
+     */
+    private final String scope;
+
+    /**
+     * The start time in milliseconds.
+     */
+    private final long start;
+
+    /**
+     * The duration in milliseconds.
+     */
+    private final long duration;
+
+    /**
+     * The loop counter of the function (-1 if it is not in a parallelFor).
+     */
+    private final int loopCounter;
+
+    /**
+     * The resource link of the function.
+     */
+    private final String resourceLink;
+
+    /**
+     * Whether the invocation was successful.
+     */
+    private final boolean success;
+
+    /**
+     * Default constructor for a span.
+     *
+     * @param id           the identifier of the span.
+     * @param predecessors the identifiers of the preceding spans.
+     * @param name         the name of the function.
+     * @param scope        the construct path of the function.
+     * @param start        the start time in milliseconds.
+     * @param duration     the duration in milliseconds.
+     * @param loopCounter  the loop counter of the function.
+     * @param resourceLink the resource link of the function.
+     * @param success      whether the invocation was successful.
+     */
+    public Span(int id, int[] predecessors, String name, String scope, long start, long duration, int loopCounter,
+                String resourceLink, boolean success) {
+        this.id = id;
+        this.predecessors = predecessors;
+        this.name = name;
+        this.scope = scope;
+        this.start = start;
+        this.duration = duration;
+        this.loopCounter = loopCounter;
+        this.resourceLink = resourceLink;
+        this.success = success;
+    }
+
+    /** Getter */
+
+    public int getId() {
+        return id;
+    }
+
+    public int[] getPredecessors() {
+        return predecessors;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getScope() {
+        return scope;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    public long getEnd() {
+        return start + duration;
+    }
+
+    public int getLoopCounter() {
+        return loopCounter;
+    }
+
+    public String getResourceLink() {
+        return resourceLink;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+}
@@ -0,0 +1,92 @@
+package at.enactmentengine.serverless.tracing;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the spans of all function invocations and simulations of a workflow. Nothing is recorded unless
+ * {@link #ENABLED} is set.
+ *
+ * @author mikahautz
+ */
+public final class SpanRecorder {
+
+    /**
+     * Whether spans should be recorded.
+     */
+    public static boolean ENABLED = false;
+
+    /**
+     * The single instance of the recorder.
+     */
+    private static final SpanRecorder instance = new SpanRecorder();
+
+    /**
+     * The recorded spans.
+     */
+    private final Queue<Span> spans = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The identifier of the next span.
+     */
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    private SpanRecorder() {
+    }
+
+    /**
+     * Returns the single instance of the recorder.
+     *
+     * @return the recorder.
+     */
+    public static SpanRecorder get() {
+        return instance;
+    }
+
+    /**
+     * Records a span if recording is enabled.
+     *
+     * @param predecessors the identifiers of the spans which had to finish before the span could start.
+     * @param name         the name of the function.
+     * @param scope        the construct path of the function.
+     * @param start        the start time in milliseconds.
+     * @param duration     the duration in milliseconds.
+     * @param loopCounter  the loop counter of the function.
+     * @param resourceLink the resource link of the function.
+     * @param success      whether the invocation was successful.
+     *
+     * @return the identifier of the span or -1 if recording is disabled.
+     */
+    public int record(List<Integer> predecessors, String name, String scope, long start, long duration,
+                      int loopCounter, String resourceLink, boolean success) {
+        if (!ENABLED) {
+            return -1;
+        }
+        int id = nextId.getAndIncrement();
+        spans.add(new Span(id, predecessors.stream().mapToInt(Integer::intValue).toArray(), name, scope, start,
+                duration, loopCounter, resourceLink, success));
+        return id;
+    }
+
+    /**
+     * Returns the recorded spans ordered by their start time.
+     *
+     * @return the spans.
+     */
+    public List<Span> getSpans() {
+        List<Span> sorted = new ArrayList<>(spans);
+        sorted.sort(Comparator.comparingLong(Span::getStart));
+        return sorted;
+    }
+
+    /**
+     * Removes all recorded spans.
+     */
+    public void clear() {
+        spans.clear();
+    }
+}
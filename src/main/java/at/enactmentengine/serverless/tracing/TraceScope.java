@@ -0,0 +1,147 @@
+package at.enactmentengine.serverless.tracing;
+
+/**
+ * Helper for the construct path (scope) of a node. The scope lists the enclosing constructs from the outermost to the
+ * innermost, separated by {@code /}. Each segment has the form {@code kind:name}; the segments of parallel and
+ * parallelFor constructs additionally contain the branch or iteration as {@code kind:name#index}.
+ * <p>
+ * Example: {@code parallelFor:outer#3/if:check} is the then or else branch of the if construct {@code check} in the
+ * fourth iteration of the parallelFor {@code outer}.
+ *
+ * @author mikahautz
+ */
+public final class TraceScope {
+
+    /**
+     * The separator of the segments.
+     */
+    static final char SEPARATOR = '/';
+
+    /**
+     * The separator of the branch or iteration index.
+     */
+    static final char INDEX = '#';
+
+    private TraceScope() {
+    }
+
+    /**
+     * Returns the scope of the children of a construct.
+     *
+     * @param scope the scope of the construct.
+     * @param kind  the kind of the construct (parallel, parallelFor, if, switch).
+     * @param name  the name of the construct.
+     * @param index the branch or iteration or -1 if the children are executed sequentially.
+     *
+     * @return the scope of the children.
+     */
+    public static String enter(String scope, String kind, String name, int index) {
+        StringBuilder builder = new StringBuilder(scope);
+        if (!scope.isEmpty()) {
+            builder.append(SEPARATOR);
+        }
+        builder.append(kind).append(':').append(name);
+        if (index >= 0) {
+            builder.append(INDEX).append(index);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the scope after the innermost construct of the given scope.
+     *
+     * @param scope the scope inside a construct.
+     *
+     * @return the scope of the nodes following the construct.
+     */
+    public static String exit(String scope) {
+        int separator = scope.lastIndexOf(SEPARATOR);
+        return separator < 0 ? "" : scope.substring(0, separator);
+    }
+
+    /**
+     * Returns the lane of the given scope. Nodes running in parallel are on different lanes, sequential constructs
+     * (if, switch) stay on the lane of the enclosing scope.
+     *
+     * @param scope the scope.
+     *
+     * @return the scope up to the innermost parallel branch or iteration ("" for the main lane).
+     */
+    public static String lane(String scope) {
+        int index = scope.lastIndexOf(INDEX);
+        if (index < 0) {
+            return "";
+        }
+        int separator = scope.indexOf(SEPARATOR, index);
+        return separator < 0 ? scope : scope.substring(0, separator);
+    }
+
+    /**
+     * Returns the given scope without the branch and iteration indices of all its segments, so all iterations and
+     * branches of a construct share the same identifier.
+     *
+     * @param scope the scope.
+     *
+     * @return the scope without indices.
+     */
+    public static String withoutIndices(String scope) {
+        StringBuilder builder = new StringBuilder(scope.length());
+        boolean index = false;
+        for (int i = 0; i < scope.length(); i++) {
+            char c = scope.charAt(i);
+            if (c == INDEX) {
+                index = true;
+            } else if (c == SEPARATOR) {
+                index = false;
+            }
+            if (!index) {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the construct the innermost segment of the given scope belongs to, i.e. the scope without the branch or
+     * iteration index of its last segment.
+     *
+     * @param scope the scope.
+     *
+     * @return the identifier of the construct.
+     */
+    public static String construct(String scope) {
+        int separator = scope.lastIndexOf(SEPARATOR);
+        int index = scope.lastIndexOf(INDEX);
+        return index > separator ? scope.substring(0, index) : scope;
+    }
+
+    /**
+     * Returns the innermost segment of the given scope without the branch or iteration index.
+     *
+     * @param scope the scope.
+     *
+     * @return the kind and name of the innermost construct.
+     */
+    public static String name(String scope) {
+        String construct = construct(scope);
+        return construct.substring(construct.lastIndexOf(SEPARATOR) + 1);
+    }
+
+    /**
+     * Returns the innermost parallelFor the given scope is in.
+     *
+     * @param scope the scope.
+     *
+     * @return the identifier of the parallelFor construct or null if the scope is not within a parallelFor.
+     */
+    public static String loop(String scope) {
+        String segment = "parallelFor:";
+        int start = scope.lastIndexOf(SEPARATOR + segment);
+        start = start < 0 ? (scope.startsWith(segment) ? 0 : -1) : start + 1;
+        if (start < 0) {
+            return null;
+        }
+        int index = scope.indexOf(INDEX, start);
+        return index < 0 ? null : scope.substring(0, index);
+    }
+}
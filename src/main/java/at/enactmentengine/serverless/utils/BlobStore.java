@@ -0,0 +1,206 @@
+package at.enactmentengine.serverless.utils;
+
+import at.enactmentengine.serverless.object.BlobHandle;
+import at.enactmentengine.serverless.object.CollectionView;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Engine-local store for large data values (claim-check pattern). Function outputs exceeding {@link #THRESHOLD} bytes
+ * are written once to a temporary file and only a {@link BlobHandle} is passed between the nodes. The value is read
+ * again when it is needed to build the payload of a function invocation, to evaluate a condition or to return the
+ * workflow result.
+ * <p>
+ * Every execution of a workflow has its own store, which is cleared when the execution finishes. The threshold is read
+ * from the environment variable {@code EE_BLOB_THRESHOLD}, the store is disabled if it is not set.
+ *
+ * @author mikahautz
+ */
+public final class BlobStore {
+
+    /**
+     * Logger for the blob store.
+     */
+    private static final Logger logger = LoggerFactory.getLogger(BlobStore.class);
+
+    /**
+     * The minimum size in bytes of a serialized value to be stored in the blob store. A value smaller or equal to 0
+     * disables the blob store.
+     */
+    public static final long THRESHOLD = threshold(System.getenv("EE_BLOB_THRESHOLD"));
+
+    /**
+     * Used to generate the identifiers of the stored values.
+     */
+    private final AtomicLong counter = new AtomicLong();
+
+    /**
+     * The directory containing the stored values.
+     */
+    private Path directory;
+
+    /**
+     * Default constructor for the blob store of an execution.
+     */
+    public BlobStore() {
+    }
+
+    /**
+     * Parses the configured threshold.
+     *
+     * @param value the configured value or null if none is configured
+     *
+     * @return the threshold in bytes or -1 if the blob store is disabled
+     */
+    private static long threshold(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            logger.warn("Invalid blob store threshold {}, the blob store is disabled", value);
+            return -1;
+        }
+    }
+
+    /**
+     * Checks if the blob store should be used.
+     *
+     * @return true if the blob store is enabled, false otherwise
+     */
+    public static boolean isEnabled() {
+        return THRESHOLD > 0;
+    }
+
+    /**
+     * Stores the given value if its serialized form exceeds the threshold.
+     *
+     * @param value the value to store
+     *
+     * @return a handle to the stored value or the value itself if it is small enough
+     */
+    public Object store(JsonElement value) {
+        if (!isEnabled() || value == null || !(value.isJsonArray() || value.isJsonObject())) {
+            return value;
+        }
+        byte[] bytes = value.toString().getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < THRESHOLD) {
+            return value;
+        }
+
+        BlobHandle handle = new BlobHandle(this, counter.incrementAndGet(), bytes.length);
+        try {
+            Files.write(resolve(handle), bytes);
+        } catch (IOException e) {
+            logger.warn("Could not store {} in the blob store, passing it by value: {}", handle, e.getMessage());
+            return value;
+        }
+        return handle;
+    }
+
+    /**
+     * Reads the value of the given handle from the blob store.
+     *
+     * @param handle the handle of the stored value
+     *
+     * @return the stored value
+     */
+    public JsonElement load(BlobHandle handle) {
+        try (Reader reader = Files.newBufferedReader(resolve(handle), StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader);
+        } catch (IOException e) {
+            throw new IllegalStateException("an error occurred while loading " + handle, e);
+        }
+    }
+
+    /**
+     * Replaces the given value with the stored value if it is a handle or with the selected elements if it is a
+     * {@link CollectionView}.
+     *
+     * @param value the value to materialize
+     *
+     * @return the actual value
+     */
+    public static Object materialize(Object value) {
+        if (value instanceof BlobHandle) {
+            return ((BlobHandle) value).getStore().load((BlobHandle) value);
+        } else if (value instanceof CollectionView) {
+            return ((CollectionView) value).materialize();
+        }
+        return value;
+    }
+
+    /**
+     * Checks if the given value is only a reference to the actual value.
+     *
+     * @param value the value to check
+     *
+     * @return true if the value has to be materialized, false otherwise
+     */
+    private static boolean isReference(Object value) {
+        return value instanceof BlobHandle || value instanceof CollectionView;
+    }
+
+    /**
+     * Replaces all handles and views in the given map with the actual values. The given map is returned unchanged if
+     * it does not contain any reference.
+     *
+     * @param values the values to materialize
+     *
+     * @return a map containing the actual values
+     */
+    public static Map<String, Object> materialize(Map<String, Object> values) {
+        if (values == null || values.values().stream().noneMatch(BlobStore::isReference)) {
+            return values;
+        }
+        Map<String, Object> materialized = new HashMap<>(values);
+        materialized.replaceAll((key, value) -> materialize(value));
+        return materialized;
+    }
+
+    /**
+     * Removes all stored values at the end of the execution.
+     */
+    public synchronized void clear() {
+        if (directory == null) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> file.toFile().delete());
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            logger.warn("Could not clear the blob store: {}", e.getMessage());
+        }
+        directory = null;
+    }
+
+    /**
+     * Returns the file of the given handle.
+     *
+     * @param handle the handle of the stored value
+     *
+     * @return the path to the file
+     *
+     * @throws IOException if the directory of the blob store could not be created
+     */
+    private synchronized Path resolve(BlobHandle handle) throws IOException {
+        if (directory == null) {
+            directory = Files.createTempDirectory("ee-blobs");
+            directory.toFile().deleteOnExit();
+        }
+        return directory.resolve(handle.getId() + ".json");
+    }
+}
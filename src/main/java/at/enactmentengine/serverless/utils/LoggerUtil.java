@@ -1,5 +1,6 @@
 package at.enactmentengine.serverless.utils;
 
+import at.enactmentengine.serverless.object.PersistentMap;
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
 
@@ -14,6 +15,12 @@ public final class LoggerUtil {
      */
     public static boolean HIDE_CREDENTIALS = false;
 
+    /**
+     * The suffixes of the keys containing credentials.
+     */
+    private static final List<String> CREDENTIAL_KEYS = List.of("aws_access_key_id", "aws_session_token", "aws_secret_key",
+            "aws_secret_access_key", "gcp_private_key", "gcp_project_id", "gcp_client_email", "credentials");
+
     /**
      * Clears the credentials from the given map.
      *
@@ -22,18 +29,19 @@ public final class LoggerUtil {
      * @return the map without credentials
      */
     public static Map<String, Object> clearCredentials(Map<String, Object> map) {
-        HashMap<String, Object> printMap = new HashMap<>(map);
-
-        if (HIDE_CREDENTIALS) {
-            List<String> toRemove = List.of("aws_access_key_id", "aws_session_token", "aws_secret_key", "aws_secret_access_key",
-                    "gcp_private_key", "gcp_project_id", "gcp_client_email", "credentials");
+        if (!HIDE_CREDENTIALS || map == null) {
+            return map;
+        }
 
-            printMap.replaceAll((key, value) ->
-                    toRemove.stream().anyMatch(key::endsWith) ? "redacted" : value
-            );
+        /* The map is only copied if it contains credentials, only the redacted entries are replaced in the copy */
+        PersistentMap<String, Object> printMap = null;
+        for (String key : map.keySet()) {
+            if (CREDENTIAL_KEYS.stream().anyMatch(key::endsWith)) {
+                printMap = (printMap == null ? PersistentMap.from(map) : printMap).plus(key, "redacted");
+            }
         }
 
-        return printMap;
+        return printMap == null ? map : printMap;
     }
 
     /**
@@ -0,0 +1,124 @@
+package at.enactmentengine.serverless.logging;
+
+import at.uibk.dps.util.Event;
+import at.uibk.dps.util.Type;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.IntStream;
+
+public class ExecutionLogSinkTest {
+
+    /**
+     * Collects the written batches and holds the writer in its first batch until it is released.
+     */
+    private static final class RecordingBackend implements ExecutionLogBackend {
+
+        private final List<Integer> batches = Collections.synchronizedList(new ArrayList<>());
+        private final List<ExecutionLogRecord> records = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch writing = new CountDownLatch(1);
+        private final CountDownLatch released;
+        private volatile int flushes;
+        private volatile boolean closed;
+
+        private RecordingBackend(boolean hold) {
+            this.released = new CountDownLatch(hold ? 1 : 0);
+        }
+
+        @Override
+        public void write(List<ExecutionLogRecord> batch) {
+            writing.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batches.add(batch.size());
+            records.addAll(batch);
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static ExecutionLogRecord record(int start) {
+        return new ExecutionLogRecord(Event.FUNCTION_END, "arn:f", null, "f", "type", null, 1L, null, true, -1, -1,
+                start, Type.EXEC);
+    }
+
+    /**
+     * Records which queue up while the writer is busy are written in batches of at most 512 records, in order.
+     */
+    @Test
+    public void batching() throws InterruptedException {
+        RecordingBackend backend = new RecordingBackend(true);
+        ExecutionLogSink sink = new ExecutionLogSink(2048, Collections.singletonList(backend));
+        sink.log(record(0));
+        backend.writing.await();
+        IntStream.range(1, 1500).forEach(i -> sink.log(record(i)));
+        backend.released.countDown();
+        sink.close();
+
+        Assert.assertEquals(1500, backend.records.size());
+        Assert.assertEquals(512, backend.batches.stream().mapToInt(Integer::intValue).max().orElse(0));
+        for (int i = 0; i < 1500; i++) {
+            Assert.assertEquals(i, backend.records.get(i).getStart());
+        }
+    }
+
+    /**
+     * With the drop policy, records are dropped instead of waiting while the buffer is full.
+     */
+    @Test
+    public void dropPolicy() throws InterruptedException {
+        ExecutionLogSink.POLICY = ExecutionLogSink.BackpressurePolicy.DROP;
+        try {
+            RecordingBackend backend = new RecordingBackend(true);
+            ExecutionLogSink sink = new ExecutionLogSink(2, Collections.singletonList(backend));
+            sink.log(record(0));
+            backend.writing.await();
+            IntStream.range(1, 5).forEach(i -> sink.log(record(i)));
+            Assert.assertEquals(2, sink.getDropped());
+
+            backend.released.countDown();
+            sink.close();
+            Assert.assertEquals(3, backend.records.size());
+            Assert.assertEquals(2, backend.records.get(2).getStart());
+        } finally {
+            ExecutionLogSink.POLICY = ExecutionLogSink.BackpressurePolicy.BLOCK;
+        }
+    }
+
+    /**
+     * Flushing writes all records logged so far, closing drains the rest and rejects later records.
+     */
+    @Test
+    public void flushAndClose() {
+        RecordingBackend backend = new RecordingBackend(false);
+        ExecutionLogSink sink = new ExecutionLogSink(16, Collections.singletonList(backend));
+        IntStream.range(0, 100).forEach(i -> sink.log(record(i)));
+        sink.flush();
+        Assert.assertEquals(100, backend.records.size());
+        Assert.assertEquals(1, backend.flushes);
+
+        IntStream.range(100, 200).forEach(i -> sink.log(record(i)));
+        sink.close();
+        Assert.assertEquals(200, backend.records.size());
+        Assert.assertTrue(backend.closed);
+
+        sink.log(record(200));
+        Assert.assertEquals(200, backend.records.size());
+        Assert.assertEquals(1, sink.getDropped());
+    }
+}
@@ -0,0 +1,91 @@
+package at.enactmentengine.serverless.logging;
+
+import at.uibk.dps.util.Event;
+import at.uibk.dps.util.Type;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class TraceWriterTest {
+
+    /**
+     * Write records in two runs and read them back.
+     */
+    @Test
+    public void writeAndAppend() throws IOException {
+        Path file = Files.createTempFile("trace", ".eetrace");
+        Files.delete(file);
+        try {
+            TraceWriter writer = new TraceWriter(file);
+            writer.write(Arrays.asList(
+                    new ExecutionLogRecord(Event.FUNCTION_END, "arn:f", "aws_us-east-1_128", "f", "type", null, 120L,
+                            0.5, true, 3, 9, 1000L, Type.SIM),
+                    new ExecutionLogRecord(Event.PARALLEL_FOR_END, null, null, null, null, null, 0L, null, true,
+                            -1, -1, 1200L, Type.SIM)));
+            writer.close();
+
+            writer = new TraceWriter(file);
+            writer.write(Collections.singletonList(
+                    new ExecutionLogRecord(Event.FUNCTION_FAILED, "arn:f", "aws_us-east-1_128", "f", "type", null,
+                            null, null, false, 4, 9, 1300L, Type.EXEC)));
+            writer.close();
+
+            List<ExecutionLogRecord> records = TraceReader.readAll(file);
+            Assert.assertEquals(3, records.size());
+
+            ExecutionLogRecord first = records.get(0);
+            Assert.assertEquals(Event.FUNCTION_END, first.getEvent());
+            Assert.assertEquals("f", first.getFunctionName());
+            Assert.assertEquals("aws_us-east-1_128", first.getDeployment());
+            Assert.assertEquals(Long.valueOf(120), first.getRtt());
+            Assert.assertEquals(0.5, first.getCost(), 0);
+            Assert.assertEquals(3, first.getLoopCounter());
+            Assert.assertEquals(1000L, first.getStart());
+
+            Assert.assertNull(records.get(1).getFunctionName());
+            Assert.assertNull(records.get(1).getCost());
+
+            ExecutionLogRecord last = records.get(2);
+            Assert.assertEquals(Event.FUNCTION_FAILED, last.getEvent());
+            Assert.assertEquals("arn:f", last.getResourceLink());
+            Assert.assertNull(last.getRtt());
+            Assert.assertFalse(last.isSuccess());
+            Assert.assertEquals(Type.EXEC, last.getType());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * The CSV backend writes the header once and separates the runs appended to the same file by an empty line.
+     */
+    @Test
+    public void appendCsv() throws IOException {
+        Path file = Files.createTempFile("log", ".csv");
+        try {
+            for (int run = 0; run < 2; run++) {
+                CsvLogBackend backend = new CsvLogBackend(file);
+                backend.write(Collections.singletonList(
+                        new ExecutionLogRecord(Event.FUNCTION_END, "arn:f", null, "f,g", "type", null, 120L, null,
+                                true, -1, -1, 0L, Type.EXEC)));
+                backend.close();
+            }
+
+            List<String> lines = Files.readAllLines(file);
+            Assert.assertEquals(4, lines.size());
+            Assert.assertEquals(CsvLogBackend.HEADER, lines.get(0));
+            Assert.assertEquals("FUNCTION_END,EXEC,\"f,g\",type,arn:f,,120,,true,-1,-1,1970-01-01T00:00:00.000Z",
+                    lines.get(1));
+            Assert.assertEquals("", lines.get(2));
+            Assert.assertEquals(lines.get(1), lines.get(3));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package at.enactmentengine.serverless.metrics;
+
+import at.uibk.dps.util.Provider;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.stream.IntStream;
+
+public class CostLedgerTest {
+
+    /**
+     * No cost is lost when many threads add to the ledger, and all iterations of a loop belong to the same construct.
+     */
+    @Test
+    public void concurrentRecords() {
+        CostLedger ledger = new CostLedger();
+        IntStream.range(0, 10000).parallel().forEach(i -> {
+            ledger.record("loopBody", Provider.AWS, "parallelFor:loop#" + i, 0.25);
+            ledger.record("single", Provider.GOOGLE, "", 0.5);
+        });
+
+        Assert.assertEquals(7500.0, ledger.getTotal(), 1e-9);
+        Assert.assertEquals(2500.0, ledger.getFunctions().get("loopBody"), 1e-9);
+        Assert.assertEquals(5000.0, ledger.getProviders().get("GOOGLE"), 1e-9);
+        Assert.assertEquals(2500.0, ledger.getConstructs().get("parallelFor:loop"), 1e-9);
+        Assert.assertEquals(5000.0, ledger.getConstructs().get(CostLedger.WORKFLOW), 1e-9);
+    }
+
+    /**
+     * Every execution has its own ledger.
+     */
+    @Test
+    public void perExecution() {
+        CostLedger first = new CostLedger();
+        CostLedger second = new CostLedger();
+        first.record("f", Provider.AWS, "", 1.5);
+        Assert.assertEquals(1.5, first.getTotal(), 1e-9);
+        Assert.assertEquals(0.0, second.getTotal(), 0);
+        Assert.assertTrue(second.getFunctions().isEmpty());
+    }
+}
@@ -0,0 +1,61 @@
+package at.enactmentengine.serverless.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    /**
+     * Every value lies within its bucket and the buckets are contiguous.
+     */
+    @Test
+    public void bucketsAreContiguous() {
+        long previousUpper = -1;
+        for (int i = 0; i < Histogram.index(1L << 40); i++) {
+            Assert.assertEquals(i, Histogram.index(previousUpper + 1));
+            long upper = Histogram.upperBound(i);
+            Assert.assertEquals(i, Histogram.index(upper));
+            previousUpper = upper;
+        }
+        Assert.assertEquals(Long.MAX_VALUE, Histogram.upperBound(Histogram.index(Long.MAX_VALUE)));
+    }
+
+    /**
+     * Quantiles are reported within the relative error of the buckets.
+     */
+    @Test
+    public void quantiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 10000; i++) {
+            histogram.record(i);
+        }
+
+        Assert.assertEquals(10000, histogram.getCount());
+        Assert.assertEquals(50005000, histogram.getSum());
+        Assert.assertEquals(10000, histogram.getMax());
+        Assert.assertEquals(10000, histogram.getQuantile(1.0));
+        long median = histogram.getQuantile(0.5);
+        Assert.assertTrue(median >= 5000 && median <= 5000 + 5000 / Histogram.SUB_BUCKETS);
+        long p99 = histogram.getQuantile(0.99);
+        Assert.assertTrue(p99 >= 9900 && p99 <= 10000);
+    }
+
+    /**
+     * Histograms and counters are written in the Prometheus text format.
+     */
+    @Test
+    public void prometheusFormat() {
+        MetricsRegistry registry = MetricsRegistry.get();
+        registry.clear();
+        registry.histogram("test_rtt", "RTT.", "function", "a\"b").record(7);
+        registry.counter("test_total", "Count.").add(3);
+
+        String text = registry.toPrometheus();
+        registry.clear();
+
+        Assert.assertTrue(text.contains("# TYPE test_rtt summary\n"));
+        Assert.assertTrue(text.contains("test_rtt{function=\"a\\\"b\",quantile=\"0.5\"} 7\n"));
+        Assert.assertTrue(text.contains("test_rtt_count{function=\"a\\\"b\"} 1\n"));
+        Assert.assertTrue(text.contains("# TYPE test_total counter\ntest_total 3\n"));
+    }
+}
@@ -0,0 +1,29 @@
+package at.enactmentengine.serverless.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+public class MetricsTest {
+
+    /**
+     * The estimated size matches the serialized size for short strings and numbers, for maps and JSON trees alike.
+     */
+    @Test
+    public void estimateSize() {
+        Map<String, Object> inputs = new HashMap<>();
+        inputs.put("name", "abc");
+        inputs.put("values", Arrays.asList(12345678, 87654321));
+        inputs.put("flag", false);
+        long serialized = new Gson().toJson(inputs).length();
+
+        Assert.assertEquals(serialized, Metrics.estimateSize(inputs));
+        Assert.assertEquals(serialized, Metrics.estimateSize(JsonParser.parseString(new Gson().toJson(inputs))));
+        Assert.assertEquals(5, Metrics.estimateSize("abc"));
+    }
+}
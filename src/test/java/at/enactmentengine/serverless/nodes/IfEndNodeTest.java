@@ -0,0 +1,73 @@
+package at.enactmentengine.serverless.nodes;
+
+import at.uibk.dps.afcl.functions.objects.DataOuts;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public class IfEndNodeTest {
+
+    /**
+     * Records the values passed by its parent.
+     */
+    private static final class Recorder extends Node {
+
+        private Map<String, Object> values;
+
+        private Recorder() {
+            super("recorder", null);
+        }
+
+        @Override
+        public void passResult(Map<String, Object> map) {
+            values = map;
+        }
+
+        @Override
+        public Map<String, Object> getResult() {
+            return values;
+        }
+
+        @Override
+        public Boolean call() {
+            return true;
+        }
+    }
+
+    /**
+     * The sources of an output are matched exactly, so a key which is only a substring of a source is not taken.
+     */
+    @Test
+    public void exactSourceMatching() throws Exception {
+        IfEndNode node = new IfEndNode("ifEnd", Collections.singletonList(new DataOuts("out", "number", "gf/out")));
+        Recorder recorder = new Recorder();
+        node.addChild(recorder);
+
+        Map<String, Object> input = new HashMap<>();
+        input.put("f/out", 1);
+        input.put("gf/out", 2);
+        node.passResult(input);
+        node.call();
+
+        Assert.assertEquals(Collections.singletonMap("gf/out", 2), new HashMap<>(node.getResult()));
+        Assert.assertEquals(Collections.singletonMap("ifEnd/out", 2), new HashMap<>(recorder.getResult()));
+    }
+
+    /**
+     * An output referring to the results of both branches takes the result of the executed branch.
+     */
+    @Test
+    public void multipleSources() throws Exception {
+        IfEndNode node = new IfEndNode("ifEnd", Collections.singletonList(new DataOuts("out", "string", "[then/out, else/out]")));
+        Recorder recorder = new Recorder();
+        node.addChild(recorder);
+
+        node.passResult(Collections.singletonMap("else/out", "b"));
+        node.call();
+
+        Assert.assertEquals(Collections.singletonMap("ifEnd/out", "b"), new HashMap<>(recorder.getResult()));
+    }
+}
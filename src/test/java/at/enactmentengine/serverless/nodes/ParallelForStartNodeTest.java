@@ -0,0 +1,50 @@
+package at.enactmentengine.serverless.nodes;
+
+import at.enactmentengine.serverless.object.CollectionView;
+import at.uibk.dps.afcl.functions.objects.LoopCounter;
+import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
+import com.google.gson.JsonArray;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class ParallelForStartNodeTest {
+
+    private static List<String> distribute(String distribution, int elements) {
+        JsonArray array = new JsonArray();
+        for (int i = 0; i < elements; i++) {
+            array.add(i);
+        }
+        LoopCounter counter = new LoopCounter();
+        counter.setFrom("0");
+        counter.setTo(String.valueOf(elements));
+        counter.setStep("1");
+        ParallelForStartNode node = new ParallelForStartNode("parallelFor", null, null, counter, null, null);
+        List<String> blocks = new ArrayList<>();
+        for (CollectionView block : node.distributeElements(CollectionView.of(array),
+                Collections.singletonList(new PropertyConstraint("distribution", distribution)), elements)) {
+            blocks.add(block.materialize().toString());
+        }
+        return blocks;
+    }
+
+    /**
+     * The collection is split into blocks of the given size, the last block takes the remaining elements.
+     */
+    @Test
+    public void block() {
+        Assert.assertEquals(Arrays.asList("[0,1]", "[2,3]", "[4]"), distribute("BLOCK(2)", 5));
+    }
+
+    /**
+     * A block size of 0 distributes single elements.
+     */
+    @Test
+    public void emptyBlock() {
+        Assert.assertEquals(Arrays.asList("[0]", "[1]", "[2]"), distribute("BLOCK(0)", 3));
+    }
+}
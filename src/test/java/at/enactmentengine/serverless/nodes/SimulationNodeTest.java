@@ -0,0 +1,95 @@
+package at.enactmentengine.serverless.nodes;
+
+import at.enactmentengine.serverless.logging.ExecutionLogSink;
+import at.enactmentengine.serverless.simulation.DeploymentParameters;
+import at.enactmentengine.serverless.simulation.SimulationParameters;
+import at.enactmentengine.serverless.simulation.metadata.DataProvider;
+import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.enactmentengine.serverless.simulation.metadata.model.FunctionDeployment;
+import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+
+public class SimulationNodeTest {
+
+    private static final String ARN = "arn:aws:lambda:us-east-1:0:function:f";
+
+    private boolean ignoreFt;
+    private boolean noDistribution;
+
+    /**
+     * Serves an AWS function deployment which always takes 300ms from memory.
+     */
+    @Before
+    public void useMetadata() {
+        at.enactmentengine.serverless.simulation.metadata.model.Provider provider =
+                new at.enactmentengine.serverless.simulation.metadata.model.Provider();
+        provider.setMaxConcurrency(1000);
+        FunctionDeployment deployment = new FunctionDeployment();
+        deployment.setId(1L);
+        deployment.setKmsArn(ARN);
+        deployment.setMemorySize(128);
+        deployment.setAvgRTT(300.0);
+        deployment.setAvgCost(0.0);
+        deployment.setAvgLoopCounter(0);
+        deployment.setSuccessRate(1.0);
+        deployment.setInvocations(1);
+
+        MetadataStore.use((DataProvider) Proxy.newProxyInstance(DataProvider.class.getClassLoader(),
+                new Class<?>[]{DataProvider.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getProviderEntry":
+                            return provider;
+                        case "getFunctionIdEntry":
+                            return ARN.equals(args[0]) ? deployment : null;
+                        default:
+                            return null;
+                    }
+                }));
+        DeploymentParameters.clear();
+        ExecutionLogSink.MONGODB = false;
+        ignoreFt = SimulationParameters.IGNORE_FT;
+        noDistribution = SimulationParameters.NO_DISTRIBUTION;
+        SimulationParameters.IGNORE_FT = true;
+        SimulationParameters.NO_DISTRIBUTION = true;
+    }
+
+    @After
+    public void resetMetadata() {
+        MetadataStore.use(null);
+        DeploymentParameters.clear();
+        SimulationParameters.IGNORE_FT = ignoreFt;
+        SimulationParameters.NO_DISTRIBUTION = noDistribution;
+    }
+
+    private static SimulationNode function(String name, ExecutionContext context) {
+        SimulationNode node = new SimulationNode(name, "type", null,
+                Collections.singletonList(new PropertyConstraint("resource", ARN)), null, null, null, 0, false);
+        node.setContext(context);
+        return node;
+    }
+
+    /**
+     * The second function of a sequence outside of any loop starts when the first one ends, so the makespan is the
+     * sum of both round trip times.
+     */
+    @Test
+    public void sequence() throws Exception {
+        ExecutionContext context = new ExecutionContext();
+        context.getTimeline().start(1000);
+        SimulationNode first = function("f1", context);
+        SimulationNode second = function("f2", context);
+        first.addChild(second);
+
+        first.call();
+
+        Assert.assertEquals(1000, first.getStartTime());
+        Assert.assertEquals(1300, second.getStartTime());
+        Assert.assertEquals(1600, context.getTimeline().getLastEnd());
+    }
+}
@@ -0,0 +1,88 @@
+package at.enactmentengine.serverless.object;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class PersistentMapTest {
+
+    /**
+     * Add and remove random keys and compare the result with a hash map.
+     */
+    @Test
+    public void behavesLikeHashMap() {
+        Random random = new Random(42);
+        Map<String, Object> expected = new HashMap<>();
+        PersistentMap<String, Object> actual = PersistentMap.empty();
+
+        for (int i = 0; i < 10000; i++) {
+            String key = "node" + random.nextInt(2000) + "/out";
+            if (random.nextInt(4) == 0) {
+                expected.remove(key);
+                actual = actual.minus(key);
+            } else {
+                expected.put(key, i);
+                actual = actual.plus(key, i);
+            }
+        }
+
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(expected.hashCode(), actual.hashCode());
+        for (Map.Entry<String, Object> entry : actual.entrySet()) {
+            Assert.assertEquals(expected.get(entry.getKey()), entry.getValue());
+        }
+    }
+
+    /**
+     * Changes to a derived map must not be visible in the original map.
+     */
+    @Test
+    public void derivedMapsDoNotChangeOriginal() {
+        PersistentMap<String, Object> original = PersistentMap.<String, Object>empty().plus("a", 1).plus("b", null);
+        PersistentMap<String, Object> derived = original.plus("a", 2).minus("b").plus("c", 3);
+
+        Assert.assertEquals(1, original.get("a"));
+        Assert.assertTrue(original.containsKey("b"));
+        Assert.assertNull(original.get("b"));
+        Assert.assertFalse(original.containsKey("c"));
+        Assert.assertEquals(2, original.size());
+
+        Assert.assertEquals(2, derived.get("a"));
+        Assert.assertFalse(derived.containsKey("b"));
+        Assert.assertEquals(3, derived.get("c"));
+        Assert.assertSame(original, original.plus("a", 1));
+    }
+
+    /**
+     * Keys with equal hash codes must be stored side by side.
+     */
+    @Test
+    public void handlesHashCollisions() {
+        /* "Aa" and "BB" share the same hash code */
+        PersistentMap<String, Object> map = PersistentMap.<String, Object>empty()
+                .plus("Aa", 1).plus("BB", 2).plus("AaAa", 3).plus("BBBB", 4).plus("AaBB", 5);
+
+        Assert.assertEquals(5, map.size());
+        Assert.assertEquals(1, map.get("Aa"));
+        Assert.assertEquals(2, map.get("BB"));
+        Assert.assertEquals(5, map.get("AaBB"));
+
+        map = map.minus("Aa").minus("AaAa");
+        Assert.assertEquals(3, map.size());
+        Assert.assertNull(map.get("Aa"));
+        Assert.assertEquals(2, map.get("BB"));
+        Assert.assertEquals(4, map.get("BBBB"));
+    }
+
+    /**
+     * Modifying the map in place is not supported.
+     */
+    @Test(expected = UnsupportedOperationException.class)
+    public void isImmutable() {
+        PersistentMap.<String, Object>empty().plus("a", 1).put("b", 2);
+    }
+}
@@ -0,0 +1,129 @@
+package at.enactmentengine.serverless.parser;
+
+import at.enactmentengine.serverless.exception.MissingInputDataException;
+import at.uibk.dps.afcl.functions.objects.ACondition;
+import at.uibk.dps.afcl.functions.objects.Case;
+import at.uibk.dps.afcl.functions.objects.Condition;
+import at.uibk.dps.afcl.functions.objects.DataEval;
+import at.uibk.dps.afcl.functions.objects.DataIns;
+import com.google.gson.JsonPrimitive;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class CompiledConditionTest {
+
+    private static CompiledCondition compile(String combinedWith, ACondition... conditions) throws MissingInputDataException {
+        Condition condition = new Condition();
+        condition.setCombinedWith(combinedWith);
+        condition.setConditions(Arrays.asList(conditions));
+        List<DataPort<DataIns>> ports = DataPort.ofInputs("if",
+                Arrays.asList(new DataIns("a", "number", "f/a"), new DataIns("b", "string", "f/b")));
+        return CompiledCondition.compile(condition, ports);
+    }
+
+    private static Map<String, Object> values(Object a, Object b) {
+        Map<String, Object> values = new HashMap<>();
+        values.put("if/a", a);
+        values.put("if/b", b);
+        return values;
+    }
+
+    private static CompiledSwitch compileSwitch(String type, String... values) {
+        DataEval dataEval = new DataEval();
+        dataEval.setType(type);
+        List<Case> cases = new ArrayList<>();
+        for (String value : values) {
+            Case element = new Case();
+            element.setValue(value);
+            cases.add(element);
+        }
+        return new CompiledSwitch(dataEval, cases);
+    }
+
+    /**
+     * Numbers are compared as doubles whatever their representation, everything else as strings.
+     */
+    @Test
+    public void compareNumbers() throws MissingInputDataException {
+        CompiledCondition condition = compile(null, new ACondition("if/a", "2.5", ">"));
+        Assert.assertTrue(condition.evaluate(values(3, null)));
+        Assert.assertTrue(condition.evaluate(values(new JsonPrimitive(2.75), null)));
+        Assert.assertTrue(condition.evaluate(values(new JsonPrimitive("10"), null)));
+        Assert.assertFalse(condition.evaluate(values(2.5, null)));
+
+        /* "10" is less than "2.5" as string */
+        Assert.assertFalse(condition.evaluate(values(new JsonPrimitive("10x"), null)));
+    }
+
+    /**
+     * Part-conditions are combined with "and" and "or", the string operators compare the text of the values.
+     */
+    @Test
+    public void combineConditions() throws MissingInputDataException {
+        ACondition positive = new ACondition("if/a", "0", ">");
+        ACondition prefix = new ACondition("if/b", "'ab'", "startsWith");
+        CompiledCondition and = compile("and", positive, prefix);
+        CompiledCondition or = compile("or", positive, prefix);
+
+        Assert.assertTrue(and.evaluate(values(1, new JsonPrimitive("abc"))));
+        Assert.assertFalse(and.evaluate(values(-1, new JsonPrimitive("abc"))));
+        Assert.assertTrue(or.evaluate(values(-1, new JsonPrimitive("abc"))));
+        Assert.assertFalse(or.evaluate(values(-1, "cab")));
+        Assert.assertTrue(compile(null, new ACondition("if/b", "true", "==")).evaluate(values(null, true)));
+        Assert.assertFalse(compile(null, new ACondition("if/a", "1", "~")).evaluate(values(1, null)));
+    }
+
+    /**
+     * Quoted operands are string constants without their quotes, also if they look like the source of a value.
+     */
+    @Test
+    public void stringOperands() throws MissingInputDataException {
+        Assert.assertTrue(compile(null, new ACondition("if/b", "\"f/b\"", "==")).evaluate(values(null, "f/b")));
+        Assert.assertTrue(compile(null, new ACondition("if/b", "' x'", "endsWith")).evaluate(values(null, "a x")));
+    }
+
+    /**
+     * An operand referring to a value which is not an input of the if construct cannot be compiled.
+     */
+    @Test(expected = MissingInputDataException.class)
+    public void missingInput() throws MissingInputDataException {
+        compile(null, new ACondition("if/c", "1", "=="));
+    }
+
+    /**
+     * Number cases match equal numbers, including 0.0 and -0.0, and the first of several equal cases is selected.
+     */
+    @Test
+    public void selectNumberCase() {
+        CompiledSwitch compiled = compileSwitch("number", "1", "2.0", "-0.0", "two", "2");
+        Assert.assertEquals(0, compiled.select(new JsonPrimitive(1)));
+        Assert.assertEquals(1, compiled.select(2L));
+        Assert.assertEquals(1, compiled.select("2"));
+        Assert.assertEquals(2, compiled.select(0.0));
+        Assert.assertEquals(2, compiled.select(new JsonPrimitive(-0.0)));
+        Assert.assertEquals(-1, compiled.select(3));
+        Assert.assertEquals(-1, compiled.select("two"));
+        Assert.assertEquals(-1, compiled.select(Double.NaN));
+        Assert.assertEquals(-1, compiled.select(null));
+    }
+
+    /**
+     * String cases match the text of the value.
+     */
+    @Test
+    public void selectStringCase() {
+        CompiledSwitch compiled = compileSwitch("string", "a", "b", "a");
+        Assert.assertEquals(0, compiled.select(new JsonPrimitive("a")));
+        Assert.assertEquals(1, compiled.select("b"));
+        Assert.assertEquals(-1, compiled.select("c"));
+        Assert.assertEquals(-1, compileSwitch("bool", "true").select(true));
+        Assert.assertEquals(-1, new CompiledSwitch(null, Collections.emptyList()).select("a"));
+    }
+}
@@ -0,0 +1,85 @@
+package at.enactmentengine.serverless.parser;
+
+import at.enactmentengine.serverless.object.CollectionView;
+import com.google.gson.JsonArray;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ElementIndexTest {
+
+    /**
+     * Parse single indices, ranges and strided ranges.
+     */
+    @Test
+    public void parseIndices() {
+        Assert.assertEquals(Arrays.asList(3, 0, 1, 2, 4, 6), ElementIndex.parseIndices("3,0:2,4:7:2"));
+        Assert.assertEquals(Arrays.asList(5, 3, 1), ElementIndex.parseIndices("5:0:-2"));
+        Assert.assertEquals(Collections.emptyList(), ElementIndex.parseIndices("5:2"));
+    }
+
+    /**
+     * Whitespace around the operands is ignored.
+     */
+    @Test
+    public void parseIndicesWithWhitespace() {
+        Assert.assertEquals(Arrays.asList(0, 2, 4, 7), ElementIndex.parseIndices(" 0 : 4 : 2 , 7 "));
+    }
+
+    /**
+     * Large ranges are kept as a single range.
+     */
+    @Test
+    public void compileLargeRange() {
+        ElementIndex elementIndex = ElementIndex.compile("0:999999:2");
+
+        Assert.assertEquals(500000, elementIndex.size());
+        Assert.assertEquals(1, elementIndex.getRangeCount());
+        Assert.assertEquals(999998, elementIndex.max());
+    }
+
+    /**
+     * Invalid expressions are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectZeroStride() {
+        ElementIndex.compile("0:10:0");
+    }
+
+    /**
+     * Select and slice a view without copying the collection.
+     */
+    @Test
+    public void selectView() {
+        JsonArray elements = new JsonArray();
+        for (int i = 0; i < 10; i++) {
+            elements.add(i);
+        }
+
+        CollectionView view = CollectionView.of(elements).select(ElementIndex.compile("8:0:-2,1"));
+        Assert.assertEquals("[8,6,4,2,0,1]", view.materialize().toString());
+        Assert.assertEquals("[4,2,0,1]", view.slice(2, 4).materialize().toString());
+        Assert.assertEquals("[2,1]", view.slice(2, 4).select(ElementIndex.compile("1,3")).materialize().toString());
+        Assert.assertEquals("collection view of 6 elements", view.toString());
+    }
+
+    /**
+     * Ranges crossing the segments of a view are selected in the right order, also with negative strides.
+     */
+    @Test
+    public void selectAcrossSegments() {
+        JsonArray elements = new JsonArray();
+        for (int i = 0; i < 10; i++) {
+            elements.add(i);
+        }
+
+        /* [4, 2, 0] and [1] are two segments of the backing array */
+        CollectionView view = CollectionView.of(elements).select(ElementIndex.compile("8:0:-2,1")).slice(2, 4);
+        Assert.assertEquals("[4,1]", view.select(ElementIndex.compile("0:3:3")).materialize().toString());
+        Assert.assertEquals("[1,0,2,4]", view.select(ElementIndex.compile("3:0:-1")).materialize().toString());
+        Assert.assertEquals("[2,0,1,0]", view.select(ElementIndex.compile("1:3,2")).materialize().toString());
+        Assert.assertEquals(0, view.select(ElementIndex.compile("1:3,2")).get(3).getAsInt());
+    }
+}
@@ -0,0 +1,46 @@
+package at.enactmentengine.serverless.parser;
+
+import at.uibk.dps.afcl.Workflow;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WorkflowCacheTest {
+
+    /**
+     * A workflow is read once per content and language and the least recently used workflow is evicted.
+     */
+    @Test
+    public void cacheByContent() throws Exception {
+        WorkflowCache cache = WorkflowCache.get();
+        cache.clear();
+        int capacity = WorkflowCache.CAPACITY;
+        WorkflowCache.CAPACITY = 2;
+        try {
+            AtomicInteger reads = new AtomicInteger();
+            WorkflowCache.Reader reader = () -> {
+                reads.incrementAndGet();
+                return new Workflow();
+            };
+            byte[] a = "name: a".getBytes(StandardCharsets.UTF_8);
+            byte[] b = "name: b".getBytes(StandardCharsets.UTF_8);
+
+            Workflow first = cache.get(a, Language.YAML, reader);
+            Assert.assertSame(first, cache.get(a.clone(), Language.YAML, reader));
+            Assert.assertEquals(1, reads.get());
+
+            cache.get(a, Language.JSON, reader);
+            Assert.assertEquals(2, reads.get());
+
+            cache.get(b, Language.YAML, reader);
+            Assert.assertEquals(2, cache.size());
+            Assert.assertNotSame(first, cache.get(a, Language.YAML, reader));
+            Assert.assertEquals(4, reads.get());
+        } finally {
+            WorkflowCache.CAPACITY = capacity;
+            cache.clear();
+        }
+    }
+}
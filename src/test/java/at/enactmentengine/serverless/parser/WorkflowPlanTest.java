@@ -0,0 +1,261 @@
+package at.enactmentengine.serverless.parser;
+
+import at.enactmentengine.serverless.nodes.ExecutableWorkflow;
+import at.enactmentengine.serverless.nodes.Node;
+import at.uibk.dps.afcl.Function;
+import at.uibk.dps.afcl.Workflow;
+import at.uibk.dps.afcl.functions.AtomicFunction;
+import at.uibk.dps.afcl.functions.IfThenElse;
+import at.uibk.dps.afcl.functions.Parallel;
+import at.uibk.dps.afcl.functions.ParallelFor;
+import at.uibk.dps.afcl.functions.Sequence;
+import at.uibk.dps.afcl.functions.Switch;
+import at.uibk.dps.afcl.functions.objects.ACondition;
+import at.uibk.dps.afcl.functions.objects.Case;
+import at.uibk.dps.afcl.functions.objects.Condition;
+import at.uibk.dps.afcl.functions.objects.DataEval;
+import at.uibk.dps.afcl.functions.objects.DataIns;
+import at.uibk.dps.afcl.functions.objects.DataOuts;
+import at.uibk.dps.afcl.functions.objects.DataOutsAtomic;
+import at.uibk.dps.afcl.functions.objects.LoopCounter;
+import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
+import at.uibk.dps.afcl.functions.objects.Section;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+public class WorkflowPlanTest {
+
+    private static AtomicFunction atomic(String name, String source) {
+        AtomicFunction function = new AtomicFunction();
+        function.setName(name);
+        function.setType(name + "Type");
+        function.setDeployment("AWS_us-east-1_128");
+        function.setProperties(Collections.singletonList(
+                new PropertyConstraint("resource", "arn:aws:lambda:us-east-1:0:function:" + name)));
+        function.setDataIns(Collections.singletonList(new DataIns("in", "number", source)));
+        function.setDataOuts(Collections.singletonList(new DataOutsAtomic("out", "number")));
+        return function;
+    }
+
+    private static List<DataOuts> outputs(String... sources) {
+        List<DataOuts> dataOuts = new ArrayList<>();
+        for (String source : sources) {
+            dataOuts.add(new DataOuts("out", "number", source));
+        }
+        return dataOuts;
+    }
+
+    /**
+     * A workflow using every construct the engine builds nodes for.
+     */
+    private static Workflow workflow() {
+        ParallelFor parallelFor = new ParallelFor();
+        parallelFor.setName("loop");
+        DataIns items = new DataIns("items", "collection", "first/out");
+        items.setConstraints(Collections.singletonList(new PropertyConstraint("distribution", "BLOCK(1)")));
+        parallelFor.setDataIns(Collections.singletonList(items));
+        LoopCounter counter = new LoopCounter();
+        counter.setName("counter");
+        counter.setType("number");
+        counter.setFrom("0");
+        counter.setTo("4");
+        counter.setStep("1");
+        parallelFor.setLoopCounter(counter);
+        parallelFor.setLoopBody(Collections.singletonList(atomic("body", "loop/items")));
+        parallelFor.setDataOuts(outputs("body/out"));
+
+        IfThenElse ifThenElse = new IfThenElse();
+        ifThenElse.setName("if");
+        DataIns passed = new DataIns("value", "number", "first/out");
+        passed.setPassing(true);
+        ifThenElse.setDataIns(Arrays.asList(new DataIns("x", "number", "first/out"), passed));
+        Condition condition = new Condition();
+        condition.setCombinedWith("and");
+        condition.setConditions(Collections.singletonList(new ACondition("if/x", "2.5", ">")));
+        ifThenElse.setCondition(condition);
+        ifThenElse.setThen(Collections.singletonList(atomic("then", "if/x")));
+        ifThenElse.setElse(Collections.singletonList(atomic("else", "if/x")));
+        ifThenElse.setDataOuts(outputs("then/out,else/out"));
+
+        Switch switchFunction = new Switch();
+        switchFunction.setName("switch");
+        switchFunction.setDataIns(Collections.singletonList(new DataIns("x", "number", "if/out")));
+        DataEval dataEval = new DataEval();
+        dataEval.setName("x");
+        dataEval.setType("number");
+        dataEval.setSource("switch/x");
+        switchFunction.setDataEval(dataEval);
+        Case first = new Case();
+        first.setValue("1");
+        first.setFunctions(Collections.singletonList(atomic("case", "switch/x")));
+        switchFunction.setCases(Collections.singletonList(first));
+        switchFunction.setDefault(Collections.singletonList(atomic("default", "switch/x")));
+        switchFunction.setDataOuts(outputs("case/out,default/out"));
+
+        Parallel parallel = new Parallel();
+        parallel.setName("parallel");
+        parallel.setDataIns(Collections.singletonList(new DataIns("x", "number", "switch/out")));
+        Section left = new Section();
+        left.setSection(Collections.singletonList(atomic("left", "parallel/x")));
+        Section right = new Section();
+        right.setSection(Collections.singletonList(atomic("right", "parallel/x")));
+        parallel.setParallelBody(Arrays.asList(left, right));
+        parallel.setDataOuts(outputs("left/out", "right/out"));
+
+        Workflow workflow = new Workflow();
+        workflow.setName("plan");
+        workflow.setDataIns(Collections.singletonList(new DataIns("input", "number")));
+        workflow.setWorkflowBody(Arrays.asList(atomic("first", "plan/input"), parallelFor, ifThenElse,
+                switchFunction, parallel));
+        workflow.setDataOuts(outputs("parallel/out"));
+        return workflow;
+    }
+
+    /**
+     * Describes the nodes reachable from the given node in depth-first order.
+     */
+    private static void describe(Node node, Set<Node> visited, StringBuilder description) {
+        if (!visited.add(node)) {
+            return;
+        }
+        description.append(node.getClass().getSimpleName()).append(' ').append(node.getName())
+                .append(" -> ").append(node.getChildren().size()).append('\n');
+        for (Node child : node.getChildren()) {
+            describe(child, visited, description);
+        }
+    }
+
+    private static String describe(ExecutableWorkflow workflow) {
+        StringBuilder description = new StringBuilder();
+        describe(workflow.getStartNode(), Collections.newSetFromMap(new IdentityHashMap<>()), description);
+        return description.toString();
+    }
+
+    /**
+     * Describes the data flow of the given functions.
+     */
+    private static void describe(List<Function> functions, StringBuilder description) {
+        for (Function function : functions) {
+            description.append(function.getClass().getSimpleName()).append(' ').append(function.getName()).append('\n');
+            if (function instanceof AtomicFunction) {
+                AtomicFunction atomic = (AtomicFunction) function;
+                describeIns(atomic.getDataIns(), description);
+                for (DataOutsAtomic data : atomic.getDataOuts()) {
+                    description.append("  out ").append(data.getName()).append(' ').append(data.getType()).append('\n');
+                }
+            } else if (function instanceof ParallelFor) {
+                ParallelFor parallelFor = (ParallelFor) function;
+                describeIns(parallelFor.getDataIns(), description);
+                describe(parallelFor.getLoopBody(), description);
+                describeOuts(parallelFor.getDataOuts(), description);
+            } else if (function instanceof IfThenElse) {
+                IfThenElse ifThenElse = (IfThenElse) function;
+                describeIns(ifThenElse.getDataIns(), description);
+                for (ACondition condition : ifThenElse.getCondition().getConditions()) {
+                    description.append("  condition ").append(condition.getData1()).append(condition.getOperator())
+                            .append(condition.getData2()).append('\n');
+                }
+                describe(ifThenElse.getThen(), description);
+                describe(ifThenElse.getElse(), description);
+                describeOuts(ifThenElse.getDataOuts(), description);
+            } else if (function instanceof Switch) {
+                Switch switchFunction = (Switch) function;
+                describeIns(switchFunction.getDataIns(), description);
+                description.append("  eval ").append(switchFunction.getDataEval().getSource()).append('\n');
+                for (Case switchCase : switchFunction.getCases()) {
+                    description.append("  case ").append(switchCase.getValue()).append('\n');
+                    describe(switchCase.getFunctions(), description);
+                }
+                describe(switchFunction.getDefault(), description);
+                describeOuts(switchFunction.getDataOuts(), description);
+            } else if (function instanceof Parallel) {
+                Parallel parallel = (Parallel) function;
+                describeIns(parallel.getDataIns(), description);
+                for (Section section : parallel.getParallelBody()) {
+                    describe(section.getSection(), description);
+                }
+                describeOuts(parallel.getDataOuts(), description);
+            } else if (function instanceof Sequence) {
+                Sequence sequence = (Sequence) function;
+                describeIns(sequence.getDataIns(), description);
+                describe(sequence.getSequenceBody(), description);
+                describeOuts(sequence.getDataOuts(), description);
+            }
+        }
+    }
+
+    private static void describeIns(List<DataIns> dataIns, StringBuilder description) {
+        for (DataIns data : dataIns) {
+            description.append("  in ").append(data.getName()).append(' ').append(data.getType()).append(" <- ")
+                    .append(data.getSource()).append(" passing=").append(data.getPassing());
+            if (data.getConstraints() != null) {
+                for (PropertyConstraint constraint : data.getConstraints()) {
+                    description.append(' ').append(constraint.getName()).append('=').append(constraint.getValue());
+                }
+            }
+            description.append('\n');
+        }
+    }
+
+    private static void describeOuts(List<DataOuts> dataOuts, StringBuilder description) {
+        for (DataOuts data : dataOuts) {
+            description.append("  out ").append(data.getName()).append(' ').append(data.getType()).append(" <- ")
+                    .append(data.getSource()).append('\n');
+        }
+    }
+
+    private static String describe(Workflow workflow) {
+        StringBuilder description = new StringBuilder(workflow.getName()).append('\n');
+        describeIns(workflow.getDataIns(), description);
+        describe(workflow.getWorkflowBody(), description);
+        describeOuts(workflow.getDataOuts(), description);
+        return description.toString();
+    }
+
+    /**
+     * A loaded plan has the same data flow as the compiled workflow, and the same nodes are built from it.
+     */
+    @Test
+    public void roundtrip() throws IOException {
+        Workflow workflow = workflow();
+        byte[] plan = WorkflowPlan.compile(workflow);
+        Assert.assertTrue(WorkflowPlan.isPlan(plan));
+
+        Workflow loaded = WorkflowPlan.read(plan);
+        Assert.assertEquals(describe(workflow), describe(loaded));
+
+        YAMLParser parser = new YAMLParser();
+        String nodes = describe(parser.getExecutableWorkflow(workflow, -1, false));
+        Assert.assertTrue(nodes.contains("ParallelForStartNode loop"));
+        Assert.assertEquals(nodes, describe(parser.getExecutableWorkflow(loaded, -1, false)));
+    }
+
+    /**
+     * A sequence is kept with its body and data flow.
+     */
+    @Test
+    public void roundtripSequence() throws IOException {
+        Sequence sequence = new Sequence();
+        sequence.setName("sequence");
+        sequence.setDataIns(Collections.singletonList(new DataIns("x", "number", "plan/input")));
+        sequence.setSequenceBody(Arrays.asList(atomic("a", "sequence/x"), atomic("b", "a/out")));
+        sequence.setDataOuts(outputs("b/out"));
+        Workflow workflow = new Workflow();
+        workflow.setName("plan");
+        workflow.setDataIns(Collections.singletonList(new DataIns("input", "number")));
+        workflow.setWorkflowBody(Collections.singletonList(sequence));
+        workflow.setDataOuts(outputs("sequence/out"));
+
+        Workflow loaded = WorkflowPlan.read(WorkflowPlan.compile(workflow));
+        Assert.assertEquals(describe(workflow), describe(loaded));
+        Assert.assertTrue(loaded.getWorkflowBody().get(0) instanceof Sequence);
+    }
+}
@@ -0,0 +1,44 @@
+package at.enactmentengine.serverless.scheduler;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class MemoryRecommenderTest {
+
+    private static final List<MemoryRecommender.Point> CURVE = Arrays.asList(
+            new MemoryRecommender.Point(128, 800, 0.0000020),
+            new MemoryRecommender.Point(256, 400, 0.0000018),
+            new MemoryRecommender.Point(512, 220, 0.0000021),
+            new MemoryRecommender.Point(1024, 150, 0.0000030));
+
+    /**
+     * Without a budget the cheapest memory size is recommended.
+     */
+    @Test
+    public void cheapest() {
+        Assert.assertEquals(256, MemoryRecommender.choose(CURVE, MemoryRecommender.BudgetType.NONE, 0).getMemory());
+    }
+
+    /**
+     * A latency budget recommends the cheapest memory size within it, or the fastest one if none meets it.
+     */
+    @Test
+    public void latencyBudget() {
+        Assert.assertEquals(512, MemoryRecommender.choose(CURVE, MemoryRecommender.BudgetType.LATENCY, 300).getMemory());
+        Assert.assertEquals(1024, MemoryRecommender.choose(CURVE, MemoryRecommender.BudgetType.LATENCY, 100).getMemory());
+    }
+
+    /**
+     * A cost budget recommends the fastest memory size within it, or the cheapest one if none meets it.
+     */
+    @Test
+    public void costBudget() {
+        Assert.assertEquals(512, MemoryRecommender.choose(CURVE, MemoryRecommender.BudgetType.COST, 0.0000025).getMemory());
+        Assert.assertEquals(256, MemoryRecommender.choose(CURVE, MemoryRecommender.BudgetType.COST, 0.000001).getMemory());
+        Assert.assertNull(MemoryRecommender.choose(Collections.emptyList(), MemoryRecommender.BudgetType.COST, 1));
+    }
+}
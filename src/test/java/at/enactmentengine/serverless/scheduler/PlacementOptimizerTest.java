@@ -0,0 +1,118 @@
+package at.enactmentengine.serverless.scheduler;
+
+import at.enactmentengine.serverless.simulation.AnalyticalEstimator;
+import at.uibk.dps.afcl.Function;
+import at.uibk.dps.afcl.Workflow;
+import at.uibk.dps.afcl.functions.AtomicFunction;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class PlacementOptimizerTest {
+
+    /**
+     * Estimates a sequence of functions, a "fast" deployment takes 100ms for a cost of 3, a "cheap" one 300ms for 1.
+     */
+    private static final class FixedOptimizer extends PlacementOptimizer {
+
+        private final AtomicInteger estimations = new AtomicInteger();
+
+        private FixedOptimizer(int functions) {
+            super(workflow(functions), null, candidates(functions));
+        }
+
+        @Override
+        AnalyticalEstimator.Estimate estimate(Map<AtomicFunction, String> deployments) {
+            estimations.incrementAndGet();
+            double makespan = 0;
+            double cost = 0;
+            for (String deployment : deployments.values()) {
+                makespan += "fast".equals(deployment) ? 100 : 300;
+                cost += "fast".equals(deployment) ? 3 : 1;
+            }
+            return new AnalyticalEstimator.Estimate(makespan, cost);
+        }
+    }
+
+    private static Workflow workflow(int functions) {
+        List<Function> body = new ArrayList<>();
+        for (int i = 0; i < functions; i++) {
+            AtomicFunction function = new AtomicFunction();
+            function.setName("f" + i);
+            body.add(function);
+        }
+        Workflow workflow = new Workflow();
+        workflow.setWorkflowBody(body);
+        return workflow;
+    }
+
+    private static List<List<String>> candidates(int functions) {
+        return Collections.nCopies(functions, Arrays.asList("cheap", "fast"));
+    }
+
+    private static PlacementOptimizer.Placement placement(double makespan, double cost) {
+        return new PlacementOptimizer.Placement(Collections.emptyList(), new AnalyticalEstimator.Estimate(makespan, cost));
+    }
+
+    /**
+     * Only placements that are not dominated stay in the front, ordered by makespan.
+     */
+    @Test
+    public void paretoFront() {
+        PlacementOptimizer.Placement fast = placement(100, 5);
+        PlacementOptimizer.Placement balanced = placement(200, 3);
+        PlacementOptimizer.Placement cheap = placement(400, 1);
+        List<PlacementOptimizer.Placement> placements = new ArrayList<>(Arrays.asList(cheap, placement(300, 3),
+                balanced, placement(200, 4), fast, placement(400, 2)));
+
+        Assert.assertEquals(Arrays.asList(fast, balanced, cheap), PlacementOptimizer.paretoFront(placements));
+        Assert.assertSame(balanced, PlacementOptimizer.choose(Arrays.asList(fast, balanced, cheap)));
+    }
+
+    /**
+     * The number of placements saturates instead of overflowing.
+     */
+    @Test
+    public void count() {
+        Assert.assertEquals(8, PlacementOptimizer.count(candidates(3)));
+        Assert.assertEquals(Long.MAX_VALUE, PlacementOptimizer.count(Collections.nCopies(64,
+                Arrays.asList("a", "b", "c", "d"))));
+    }
+
+    /**
+     * Few placements are all estimated.
+     */
+    @Test
+    public void exhaustive() {
+        FixedOptimizer optimizer = new FixedOptimizer(2);
+        List<PlacementOptimizer.Placement> front = optimizer.optimize();
+
+        Assert.assertEquals(4, optimizer.estimations.get());
+        Assert.assertEquals(3, front.size());
+        Assert.assertEquals(Arrays.asList("fast", "fast"), front.get(0).getDeployments());
+        Assert.assertEquals(200, front.get(0).getEstimate().getMakespan(), 1e-9);
+        Assert.assertEquals(Arrays.asList("cheap", "cheap"), front.get(2).getDeployments());
+        Assert.assertEquals(2, front.get(2).getEstimate().getCost(), 1e-9);
+    }
+
+    /**
+     * Beyond the limit of exhaustive placements, the heuristic search still finds the fastest and cheapest placement
+     * but estimates only a fraction of all placements.
+     */
+    @Test
+    public void heuristic() {
+        FixedOptimizer optimizer = new FixedOptimizer(13);
+        Assert.assertTrue(PlacementOptimizer.count(candidates(13)) > PlacementOptimizer.EXHAUSTIVE_LIMIT);
+        List<PlacementOptimizer.Placement> front = optimizer.optimize();
+
+        Assert.assertTrue(optimizer.estimations.get() < PlacementOptimizer.EXHAUSTIVE_LIMIT);
+        Assert.assertEquals(Collections.nCopies(13, "fast"), front.get(0).getDeployments());
+        Assert.assertEquals(Collections.nCopies(13, "cheap"), front.get(front.size() - 1).getDeployments());
+    }
+}
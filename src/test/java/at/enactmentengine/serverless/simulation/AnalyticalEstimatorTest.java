@@ -0,0 +1,161 @@
+package at.enactmentengine.serverless.simulation;
+
+import at.uibk.dps.afcl.Function;
+import at.uibk.dps.afcl.Workflow;
+import at.uibk.dps.afcl.functions.AtomicFunction;
+import at.uibk.dps.afcl.functions.IfThenElse;
+import at.uibk.dps.afcl.functions.Parallel;
+import at.uibk.dps.afcl.functions.ParallelFor;
+import at.uibk.dps.afcl.functions.Sequence;
+import at.uibk.dps.afcl.functions.Switch;
+import at.uibk.dps.afcl.functions.objects.Case;
+import at.uibk.dps.afcl.functions.objects.LoopCounter;
+import at.uibk.dps.afcl.functions.objects.PropertyConstraint;
+import at.uibk.dps.afcl.functions.objects.Section;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AnalyticalEstimatorTest {
+
+    /**
+     * Estimates every function with a fixed round trip time that grows by 10ms per loop counter, the cost is a
+     * hundredth of the round trip time outside of loops. The provider runs 2 functions at the same time.
+     */
+    private static final class FixedEstimator extends AnalyticalEstimator {
+
+        private final Map<String, Double> rtts = new HashMap<>();
+        private final List<String> concurrencyOf = new ArrayList<>();
+
+        private FixedEstimator(Map<String, Object> input) {
+            super(input);
+        }
+
+        private AtomicFunction function(String name, double rtt) {
+            AtomicFunction function = new AtomicFunction();
+            function.setName(name);
+            rtts.put(name, rtt);
+            return function;
+        }
+
+        @Override
+        Estimate atomic(AtomicFunction function, int loopCounter) {
+            double rtt = rtts.get(function.getName());
+            return new Estimate(rtt + (loopCounter == -1 ? 0 : 10 * loopCounter), rtt / 100);
+        }
+
+        @Override
+        int maxConcurrency(AtomicFunction function) {
+            concurrencyOf.add(function.getName());
+            return 2;
+        }
+    }
+
+    private static Section section(Function... functions) {
+        Section section = new Section();
+        section.setSection(Arrays.asList(functions));
+        return section;
+    }
+
+    private static Case switchCase(Function... functions) {
+        Case switchCase = new Case();
+        switchCase.setFunctions(Arrays.asList(functions));
+        return switchCase;
+    }
+
+    private static Sequence sequence(Function... functions) {
+        Sequence sequence = new Sequence();
+        sequence.setSequenceBody(Arrays.asList(functions));
+        return sequence;
+    }
+
+    private static ParallelFor parallelFor(String to, Function... body) {
+        LoopCounter counter = new LoopCounter();
+        counter.setFrom("0");
+        counter.setTo(to);
+        counter.setStep("1");
+        ParallelFor parallelFor = new ParallelFor();
+        parallelFor.setLoopCounter(counter);
+        parallelFor.setLoopBody(Arrays.asList(body));
+        return parallelFor;
+    }
+
+    private static Workflow workflow(Function... functions) {
+        Workflow workflow = new Workflow();
+        workflow.setWorkflowBody(Arrays.asList(functions));
+        return workflow;
+    }
+
+    /**
+     * Sequences add up, parallel branches take the longest one, if and switch branches are weighted equally.
+     */
+    @Test
+    public void constructs() throws Exception {
+        FixedEstimator estimator = new FixedEstimator(null);
+
+        Parallel parallel = new Parallel();
+        parallel.setParallelBody(Arrays.asList(section(estimator.function("b", 200)),
+                section(estimator.function("c", 300), estimator.function("d", 50))));
+
+        IfThenElse ifThenElse = new IfThenElse();
+        ifThenElse.setThen(Collections.singletonList(estimator.function("e", 100)));
+        ifThenElse.setElse(Collections.singletonList(estimator.function("f", 300)));
+
+        Switch switchFunction = new Switch();
+        switchFunction.setCases(Arrays.asList(switchCase(estimator.function("g", 40)),
+                switchCase(estimator.function("h", 80))));
+        switchFunction.setDefault(Collections.emptyList());
+
+        Sequence sequence = sequence(estimator.function("i", 10), estimator.function("j", 20));
+
+        AnalyticalEstimator.Estimate estimate = estimator.estimate(workflow(estimator.function("a", 100), parallel,
+                ifThenElse, switchFunction, sequence));
+
+        /* 100 + max(200, 300 + 50) + (100 + 300) / 2 + (40 + 80 + 0) / 3 + 10 + 20 */
+        Assert.assertEquals(100 + 350 + 200 + 40 + 30, estimate.getMakespan(), 1e-9);
+        /* 1 + (2 + 3.5) + 2 + 0.4 + 0.3 */
+        Assert.assertEquals(1 + 5.5 + 2 + 0.4 + 0.3, estimate.getCost(), 1e-9);
+    }
+
+    /**
+     * The iterations of a parallelFor run in waves of the concurrency limit, the loop counter is read from the input.
+     */
+    @Test
+    public void parallelForWaves() throws Exception {
+        FixedEstimator estimator = new FixedEstimator(Collections.singletonMap("count", 6));
+        ParallelFor parallelFor = parallelFor("wf/count", estimator.function("k", 100));
+        parallelFor.setConstraints(Collections.singletonList(new PropertyConstraint("concurrency", "3")));
+
+        AnalyticalEstimator.Estimate estimate = estimator.estimate(workflow(parallelFor));
+
+        /* 6 iterations with a capacity of min(3, 2) = 2 run in 3 waves, the highest loop counters are 1, 3 and 5 */
+        Assert.assertEquals(3 * 100 + 10 * (1 + 3 + 5), estimate.getMakespan(), 1e-9);
+        Assert.assertEquals(6 * 1.0, estimate.getCost(), 1e-9);
+    }
+
+    /**
+     * The concurrency limit is taken from the first function executed in the loop body, also within a sequence or
+     * switch.
+     */
+    @Test
+    public void firstAtomic() throws Exception {
+        FixedEstimator estimator = new FixedEstimator(null);
+        Switch switchFunction = new Switch();
+        switchFunction.setCases(Arrays.asList(switchCase(), switchCase(estimator.function("case", 50))));
+        switchFunction.setDefault(Collections.singletonList(estimator.function("default", 50)));
+        ParallelFor parallelFor = parallelFor("3", sequence(sequence(), switchFunction));
+
+        AnalyticalEstimator.Estimate estimate = estimator.estimate(workflow(parallelFor));
+
+        Assert.assertEquals(Collections.singletonList("case"), estimator.concurrencyOf);
+        /* One of three branches is empty, an iteration takes (100 + 20 * counter) / 3. The 3 iterations run in 2 waves
+         * with the highest loop counters 1 and 2 */
+        Assert.assertEquals((2 * 100 + 20 * (1 + 2)) / 3.0, estimate.getMakespan(), 1e-9);
+    }
+}
@@ -0,0 +1,77 @@
+package at.enactmentengine.serverless.simulation;
+
+import at.enactmentengine.serverless.nodes.ExecutionContext;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ConcurrencySlotsTest {
+
+    /**
+     * Throttled iterations start when the earliest slot frees, regardless of the order of the threads.
+     */
+    @Test
+    public void fifoSlots() throws Exception {
+        long[] durations = {100, 1000, 10, 50, 5};
+        long[] expected = {0, 0, 100, 110, 160};
+
+        ConcurrencySlots slots = new ConcurrencySlots("parallelFor:loop");
+
+        ExecutorService exec = Executors.newFixedThreadPool(durations.length);
+        List<Future<Long>> futures = new ArrayList<>();
+        try {
+            /* Submit the iterations in reverse order, the later ones have to wait for the earlier ones */
+            for (int i = durations.length - 1; i >= 0; i--) {
+                int iteration = i;
+                futures.add(0, exec.submit(() -> {
+                    long start = slots.acquire(iteration, 2, 0);
+                    Assert.assertEquals(start, slots.acquire(iteration, 2, 0));
+                    slots.release(start + durations[iteration]);
+                    return start;
+                }));
+            }
+            for (int i = 0; i < durations.length; i++) {
+                Assert.assertEquals(expected[i], (long) futures.get(i).get());
+            }
+        } finally {
+            exec.shutdown();
+            slots.close();
+        }
+    }
+
+    /**
+     * An iteration never starts before it arrives.
+     */
+    @Test
+    public void lateArrival() {
+        ConcurrencySlots slots = new ConcurrencySlots("parallelFor:late");
+        slots.release(slots.acquire(0, 1, 10) + 5);
+        Assert.assertEquals(100, slots.acquire(1, 1, 100));
+        slots.close();
+    }
+
+    /**
+     * The same parallelFor simulated in two executions at the same time has slots of its own in each execution.
+     */
+    @Test
+    public void perExecution() {
+        ExecutionContext first = new ExecutionContext();
+        ExecutionContext second = new ExecutionContext();
+        ConcurrencySlots slots = first.openSlots("parallelFor:loop");
+        ConcurrencySlots other = second.openSlots("parallelFor:loop");
+
+        Assert.assertNotSame(slots, other);
+        Assert.assertSame(slots, first.getSlots("parallelFor:loop"));
+        Assert.assertSame(other, second.getSlots("parallelFor:loop"));
+
+        first.closeSlots(slots);
+        Assert.assertNull(first.getSlots("parallelFor:loop"));
+        Assert.assertSame(other, second.getSlots("parallelFor:loop"));
+        second.closeSlots(other);
+    }
+}
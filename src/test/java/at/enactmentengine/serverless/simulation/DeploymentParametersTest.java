@@ -0,0 +1,141 @@
+package at.enactmentengine.serverless.simulation;
+
+import at.enactmentengine.serverless.simulation.metadata.DataProvider;
+import at.enactmentengine.serverless.simulation.metadata.MetadataStore;
+import at.enactmentengine.serverless.simulation.metadata.model.FunctionDeployment;
+import at.enactmentengine.serverless.simulation.metadata.model.Region;
+import at.uibk.dps.util.Provider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class DeploymentParametersTest {
+
+    private static final String ARN = "arn:aws:lambda:us-east-1:0:function:f";
+
+    /**
+     * The number of calls per metadata lookup.
+     */
+    private final Map<String, AtomicInteger> lookups = new ConcurrentHashMap<>();
+
+    /**
+     * Serves an AWS provider, a region and a function deployment of 128mb from memory and counts the lookups.
+     */
+    private void useMetadata() {
+        at.enactmentengine.serverless.simulation.metadata.model.Provider provider =
+                new at.enactmentengine.serverless.simulation.metadata.model.Provider();
+        provider.setFaasSystemOverheadms(50);
+        provider.setCryptoOverheadms(10);
+        provider.setConcurrencyOverheadMs(5);
+        provider.setMaxConcurrency(1000);
+        provider.setInvocationCost(0.0000002);
+        provider.setUnitTimems(1);
+        provider.setDurationGBpsCost(0.0000166667);
+        Region region = new Region();
+        region.setNetworkOverheadms(20.0);
+        FunctionDeployment deployment = deployment();
+
+        MetadataStore.use((DataProvider) Proxy.newProxyInstance(DataProvider.class.getClassLoader(),
+                new Class<?>[]{DataProvider.class}, (proxy, method, args) -> {
+                    lookups.computeIfAbsent(method.getName(), name -> new AtomicInteger()).incrementAndGet();
+                    switch (method.getName()) {
+                        case "getProviderEntry":
+                            return provider;
+                        case "getRegionEntry":
+                            return region;
+                        case "getFunctionIdEntry":
+                            return ARN.equals(args[0]) ? deployment : null;
+                        default:
+                            return null;
+                    }
+                }));
+        DeploymentParameters.clear();
+    }
+
+    private static FunctionDeployment deployment() {
+        FunctionDeployment deployment = new FunctionDeployment();
+        deployment.setId(1L);
+        deployment.setKmsArn(ARN);
+        deployment.setMemorySize(128);
+        deployment.setAvgRuntime(300.0);
+        return deployment;
+    }
+
+    private int lookups(String method) {
+        AtomicInteger count = lookups.get(method);
+        return count == null ? 0 : count.get();
+    }
+
+    @After
+    public void resetMetadata() {
+        MetadataStore.use(null);
+        DeploymentParameters.clear();
+    }
+
+    /**
+     * The parameters of a deployment are read from the metadata once and shared until they are cleared.
+     */
+    @Test
+    public void memoized() throws Exception {
+        useMetadata();
+        FunctionDeployment deployment = deployment();
+        DeploymentParameters first = DeploymentParameters.of(deployment, Provider.AWS, "us-east-1", 128);
+        Assert.assertEquals(300, first.getRawExecutionTime());
+        Assert.assertEquals(1, lookups("getProviderEntry"));
+        Assert.assertEquals(1, lookups("getRegionEntry"));
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertSame(first, DeploymentParameters.of(deployment, Provider.AWS, "us-east-1", 128));
+        }
+        Assert.assertEquals(1, lookups("getProviderEntry"));
+        Assert.assertEquals(1, lookups("getRegionEntry"));
+
+        DeploymentParameters.clear();
+        Assert.assertNotSame(first, DeploymentParameters.of(deployment, Provider.AWS, "us-east-1", 128));
+        Assert.assertEquals(2, lookups("getProviderEntry"));
+    }
+
+    /**
+     * The memory size of a function and the pricing of a provider are read once, also if the function is unknown.
+     */
+    @Test
+    public void memoizedPricing() {
+        useMetadata();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertEquals(128, DeploymentParameters.memorySize(ARN));
+            Assert.assertEquals(-1, DeploymentParameters.memorySize("arn:aws:lambda:us-east-1:0:function:unknown"));
+            Assert.assertEquals(0.0000002 + 0.128 * 1.0 * 0.0000166667,
+                    DeploymentParameters.cost(Provider.AWS, 128, 1000), 1e-12);
+        }
+        Assert.assertEquals(2, lookups("getFunctionIdEntry"));
+        Assert.assertEquals(1, lookups("getProviderEntry"));
+    }
+
+    /**
+     * The runtime is billed per GB-second, Google additionally bills the clock rate assigned to the memory size.
+     */
+    @Test
+    public void cost() {
+        double aws = DeploymentParameters.cost(Provider.AWS, 1000, 2000, 0.0000002, 1, 0.0000166667, 0.000001);
+        Assert.assertEquals(0.0000002 + 1.0 * 2.0 * 0.0000166667, aws, 1e-12);
+
+        double google = DeploymentParameters.cost(Provider.GOOGLE, 512, 1000, 0.0000004, 1, 0.0000025, 0.00001);
+        Assert.assertEquals(0.0000004 + 0.512 * 0.0000025 + 0.8 * 0.00001, google, 1e-12);
+    }
+
+    /**
+     * Google assigns the clock rate by memory size thresholds.
+     */
+    @Test
+    public void mhz() {
+        Assert.assertEquals(200, DeploymentParameters.mhz(128));
+        Assert.assertEquals(800, DeploymentParameters.mhz(512));
+        Assert.assertEquals(2400, DeploymentParameters.mhz(2048));
+        Assert.assertEquals(4800, DeploymentParameters.mhz(8192));
+    }
+}
@@ -0,0 +1,88 @@
+package at.enactmentengine.serverless.simulation;
+
+import at.enactmentengine.serverless.logging.ExecutionLogRecord;
+import at.enactmentengine.serverless.logging.FileLogBackend;
+import at.uibk.dps.util.Event;
+import at.uibk.dps.util.Type;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LatencyModelTest {
+
+    private static ExecutionLogRecord record(String resourceLink, long rtt, Type type) {
+        return new ExecutionLogRecord(Event.FUNCTION_END, resourceLink, null, "f", "type", null, rtt, null, true, -1, -1,
+                0L, type);
+    }
+
+    /**
+     * Many samples give an inverse-CDF table relative to the mean, few samples a log-normal fit and simulated records
+     * are ignored.
+     */
+    @Test
+    public void fit() {
+        List<ExecutionLogRecord> records = new ArrayList<>();
+        for (long rtt = 1; rtt <= 99; rtt++) {
+            records.add(record("arn:many", rtt, Type.EXEC));
+        }
+        records.add(record("arn:few", 100, Type.EXEC));
+        records.add(record("arn:few", 200, Type.EXEC));
+        records.add(record("arn:simulated", 100, Type.SIM));
+        records.add(record("arn:simulated", 200, Type.SIM));
+
+        LatencyModel model = LatencyModel.fit(records);
+        Assert.assertEquals(2, model.size());
+        Assert.assertNull(model.get("arn:simulated"));
+        Assert.assertTrue(model.get("arn:many").isEmpirical());
+        Assert.assertFalse(model.get("arn:few").isEmpirical());
+
+        /* The median of 1..99 equals its mean, and the log-normal fit is drawn at z = 0 */
+        Assert.assertEquals(1.0, model.get("arn:many").sample(SimulationRandom.expected()), 1e-9);
+        Assert.assertTrue(model.get("arn:few").sample(SimulationRandom.expected()) < 1.0);
+    }
+
+    /**
+     * A sampled execution time stays within the recorded range relative to the mean.
+     */
+    @Test
+    public void applyDistribution() {
+        List<ExecutionLogRecord> records = new ArrayList<>();
+        for (long rtt = 50; rtt <= 150; rtt++) {
+            records.add(record("arn:f", rtt, Type.EXEC));
+        }
+        LatencyModel model = LatencyModel.fit(records);
+        SimulationRandom random = SimulationRandom.unseeded();
+        for (int i = 0; i < 1000; i++) {
+            long rtt = SimulationModel.applyDistribution(1000, true, random, model, "arn:f");
+            Assert.assertTrue(rtt >= 500 && rtt <= 1500);
+        }
+    }
+
+    /**
+     * The distributions are learned from a log file written by the file backend.
+     */
+    @Test
+    public void loadLogFile() throws IOException {
+        Path file = Files.createTempFile("log", ".ndjson");
+        try {
+            FileLogBackend backend = new FileLogBackend(file);
+            List<ExecutionLogRecord> records = new ArrayList<>();
+            for (long rtt = 1; rtt <= 40; rtt++) {
+                records.add(record("arn:f", rtt, Type.EXEC));
+            }
+            backend.write(records);
+            backend.close();
+
+            LatencyModel model = LatencyModel.load(file);
+            Assert.assertEquals(1, model.size());
+            Assert.assertTrue(model.get("arn:f").isEmpirical());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
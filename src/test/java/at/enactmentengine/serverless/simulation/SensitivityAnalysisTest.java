@@ -0,0 +1,61 @@
+package at.enactmentengine.serverless.simulation;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class SensitivityAnalysisTest {
+
+    @After
+    public void tearDown() {
+        SensitivityAnalysis.ENABLED = false;
+        SensitivityAnalysis.get().reset();
+    }
+
+    /**
+     * The iterations of a parallelFor are attributed to the same function.
+     */
+    @Test
+    public void key() {
+        Assert.assertEquals("f", SensitivityAnalysis.key("", "f"));
+        Assert.assertEquals("parallelFor:loop/f", SensitivityAnalysis.key("parallelFor:loop#3", "f"));
+    }
+
+    /**
+     * The function whose round trip time varies with the makespan is ranked first, a constant one has no influence.
+     */
+    @Test
+    public void analyze() {
+        SensitivityAnalysis analysis = SensitivityAnalysis.get();
+        analysis.reset();
+        SensitivityAnalysis.ENABLED = true;
+        long[] slow = {100, 300, 200, 400};
+        for (long rtt : slow) {
+            analysis.record("", "slow", rtt);
+            analysis.record("", "constant", 50);
+            analysis.finishReplication(rtt + 50);
+        }
+
+        List<SensitivityAnalysis.Index> indices = analysis.analyze();
+        Assert.assertEquals(4, analysis.getReplications());
+        Assert.assertEquals("slow", indices.get(0).getFunction());
+        Assert.assertEquals(1.0, indices.get(0).getFirstOrder(), 1e-9);
+        Assert.assertEquals(250.0, indices.get(0).getMean(), 1e-9);
+        Assert.assertEquals("constant", indices.get(1).getFunction());
+        Assert.assertEquals(0.0, indices.get(1).getCorrelation(), 1e-9);
+    }
+
+    /**
+     * Nothing is recorded while the analysis is disabled.
+     */
+    @Test
+    public void disabled() {
+        SensitivityAnalysis analysis = SensitivityAnalysis.get();
+        analysis.reset();
+        analysis.record("", "f", 100);
+        analysis.finishReplication(100);
+        Assert.assertTrue(analysis.analyze().isEmpty());
+    }
+}
@@ -0,0 +1,44 @@
+package at.enactmentengine.serverless.simulation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimulationRandomTest {
+
+    /**
+     * The same seed gives the same numbers for a function, different functions and iterations get different numbers.
+     */
+    @Test
+    public void seededStreams() {
+        Long seed = SimulationParameters.SEED;
+        SimulationParameters.SEED = 42L;
+        try {
+            SimulationRandom first = SimulationRandom.forFunction("parallelFor:loop#1", "f", 1);
+            SimulationRandom second = SimulationRandom.forFunction("parallelFor:loop#1", "f", 1);
+            for (int i = 0; i < 10; i++) {
+                Assert.assertEquals(first.nextDouble(), second.nextDouble(), 0);
+                Assert.assertEquals(first.nextGaussian(), second.nextGaussian(), 0);
+            }
+
+            double value = SimulationRandom.forFunction("parallelFor:loop#1", "f", 1).nextDouble();
+            Assert.assertNotEquals(value, SimulationRandom.forFunction("parallelFor:loop#2", "f", 2).nextDouble(), 0);
+            Assert.assertNotEquals(value, SimulationRandom.forFunction("parallelFor:loop#1", "g", 1).nextDouble(), 0);
+
+            SimulationParameters.SEED = 43L;
+            Assert.assertNotEquals(value, SimulationRandom.forFunction("parallelFor:loop#1", "f", 1).nextDouble(), 0);
+        } finally {
+            SimulationParameters.SEED = seed;
+        }
+    }
+
+    /**
+     * The expected numbers are the means of their distributions.
+     */
+    @Test
+    public void expectedValues() {
+        SimulationRandom expected = SimulationRandom.expected();
+        Assert.assertEquals(0.5, expected.nextDouble(), 0);
+        Assert.assertEquals(0, expected.nextGaussian(), 0);
+        Assert.assertEquals(1000, SimulationModel.applyDistribution(1000, true, expected));
+    }
+}
@@ -0,0 +1,38 @@
+package at.enactmentengine.serverless.simulation;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SimulationTimelineTest {
+
+    /**
+     * The timeline keeps the start of the workflow and the latest end of all entries.
+     */
+    @Test
+    public void lastEnd() {
+        SimulationTimeline timeline = new SimulationTimeline();
+        timeline.start(1000);
+        Assert.assertEquals(1000, timeline.getWorkflowStart());
+        Assert.assertEquals(1000, timeline.getLastEnd());
+
+        timeline.record(1000, 200);
+        timeline.record(1200, 500);
+        timeline.record(1200, 100);
+        Assert.assertEquals(1000, timeline.getWorkflowStart());
+        Assert.assertEquals(1700, timeline.getLastEnd());
+    }
+
+    /**
+     * Every simulation has its own timeline.
+     */
+    @Test
+    public void perSimulation() {
+        SimulationTimeline first = new SimulationTimeline();
+        SimulationTimeline second = new SimulationTimeline();
+        first.start(1000);
+        second.start(5000);
+        first.record(1000, 300);
+        Assert.assertEquals(1300, first.getLastEnd());
+        Assert.assertEquals(5000, second.getLastEnd());
+    }
+}
@@ -0,0 +1,65 @@
+package at.enactmentengine.serverless.tracing;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+public class ChromeTraceWriterTest {
+
+    /**
+     * Scopes are entered and left and mapped to lanes.
+     */
+    @Test
+    public void scopes() {
+        String iteration = TraceScope.enter("", "parallelFor", "pf", 3);
+        String branch = TraceScope.enter(iteration, "if", "check", -1);
+
+        Assert.assertEquals("parallelFor:pf#3/if:check", branch);
+        Assert.assertEquals(iteration, TraceScope.exit(branch));
+        Assert.assertEquals("", TraceScope.exit(iteration));
+        Assert.assertEquals(iteration, TraceScope.lane(branch));
+        Assert.assertEquals("", TraceScope.lane("if:check"));
+        Assert.assertEquals("parallelFor:pf", TraceScope.construct(iteration));
+        Assert.assertEquals("if:check", TraceScope.name(branch));
+    }
+
+    /**
+     * Functions are placed on the lane of their iteration and constructs cover their functions.
+     */
+    @Test
+    public void write() throws IOException {
+        Span first = new Span(0, new int[0], "a", "", 1000, 10, -1, "arn:a", true);
+        Span second = new Span(1, new int[]{0}, "b", "parallelFor:pf#0", 1010, 20, 0, "arn:b", true);
+        Span third = new Span(2, new int[]{0}, "b", "parallelFor:pf#1", 1010, 30, 1, "arn:b", false);
+
+        StringWriter writer = new StringWriter();
+        ChromeTraceWriter.write(Arrays.asList(first, second, third), writer);
+        JsonArray events = new Gson().fromJson(writer.toString(), JsonObject.class).getAsJsonArray("traceEvents");
+
+        JsonObject construct = null;
+        int lanes = 0;
+        for (JsonElement element : events) {
+            JsonObject event = element.getAsJsonObject();
+            if ("M".equals(event.get("ph").getAsString())) {
+                lanes++;
+            } else if ("construct".equals(event.get("cat").getAsString())) {
+                construct = event;
+            } else if ("b".equals(event.get("name").getAsString())) {
+                Assert.assertNotEquals(0, event.get("tid").getAsInt());
+            }
+        }
+        Assert.assertEquals(3, lanes);
+        Assert.assertNotNull(construct);
+        Assert.assertEquals("parallelFor:pf", construct.get("name").getAsString());
+        Assert.assertEquals(0, construct.get("tid").getAsInt());
+        Assert.assertEquals(10000, construct.get("ts").getAsLong());
+        Assert.assertEquals(30000, construct.get("dur").getAsLong());
+    }
+}
@@ -0,0 +1,41 @@
+package at.enactmentengine.serverless.tracing;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class CriticalPathTest {
+
+    /**
+     * The longest iteration of a parallelFor is critical, the shorter one has slack.
+     */
+    @Test
+    public void analyze() {
+        Span first = new Span(0, new int[0], "a", "", 0, 10, -1, "arn:a", true);
+        Span shortIteration = new Span(1, new int[]{0}, "b", "parallelFor:pf#0", 10, 20, 0, "arn:b", true);
+        Span longIteration = new Span(2, new int[]{0}, "b", "parallelFor:pf#1", 12, 50, 1, "arn:b", true);
+        Span last = new Span(3, new int[]{1, 2}, "c", "", 65, 5, -1, "arn:c", true);
+
+        CriticalPath criticalPath = CriticalPath.analyze(Arrays.asList(first, shortIteration, longIteration, last));
+        List<CriticalPath.Entry> path = criticalPath.getPath();
+
+        Assert.assertEquals(70, criticalPath.getMakespan());
+        Assert.assertEquals(3, path.size());
+        Assert.assertSame(first, path.get(0).getSpan());
+        Assert.assertSame(longIteration, path.get(1).getSpan());
+        Assert.assertEquals(2, path.get(1).getWait());
+        Assert.assertSame(last, path.get(2).getSpan());
+        Assert.assertEquals(3, path.get(2).getWait());
+        for (CriticalPath.Entry entry : criticalPath.getEntries()) {
+            if (entry.getSpan() == shortIteration) {
+                Assert.assertEquals(32, entry.getSlack());
+                Assert.assertFalse(entry.isCritical());
+            } else {
+                Assert.assertTrue(entry.isCritical());
+            }
+        }
+        Assert.assertEquals(50.0 / 70, criticalPath.getContribution(path.get(1)), 1e-9);
+    }
+}